@@ -0,0 +1,60 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.sentry.benchmarks;
+
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * Synthetic Hive policy shared by the benchmarks. The i-th privilege grants
+ * select on table {@link #tableName(int)} of database {@link #dbName(int)},
+ * with {@link #TABLES_PER_DB} tables per database, so that the lookups of a
+ * table or a database are as selective at every size.
+ */
+public final class SyntheticPolicy {
+
+  public static final String SERVER = "server1";
+  public static final int TABLES_PER_DB = 100;
+  public static final String USER = "user1";
+  public static final String GROUP = "group1";
+
+  private SyntheticPolicy() {
+    // Make constructor private to avoid instantiation
+  }
+
+  public static String dbName(int i) {
+    return "db" + (i / TABLES_PER_DB);
+  }
+
+  public static String tableName(int i) {
+    return "tbl" + (i % TABLES_PER_DB);
+  }
+
+  // the authorizable object of the i-th table as known to the HDFS sync
+  public static String authzObject(int i) {
+    return dbName(i) + "." + tableName(i);
+  }
+
+  public static Set<String> hivePrivileges(int count) {
+    Set<String> privileges = new LinkedHashSet<String>(count * 2);
+    for (int i = 0; i < count; i++) {
+      privileges.add("server=" + SERVER + "->db=" + dbName(i) + "->table=" + tableName(i)
+          + "->action=select");
+    }
+    return privileges;
+  }
+}
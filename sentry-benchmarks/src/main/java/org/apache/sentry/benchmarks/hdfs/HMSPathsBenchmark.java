@@ -0,0 +1,87 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.sentry.benchmarks.hdfs;
+
+import static org.apache.sentry.benchmarks.SyntheticPolicy.TABLES_PER_DB;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.sentry.hdfs.HMSPaths;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Resolves paths to their authorizable objects, as the NameNode plugin does
+ * for every permission check under the warehouse.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class HMSPathsBenchmark {
+
+  @Param({"10", "1000", "100000", "1000000"})
+  public int tableCount;
+
+  private HMSPaths paths;
+  private String[] table;
+  private String[] partitionFile;
+  private String[] missingTable;
+
+  @Setup
+  public void setup() {
+    paths = SyntheticPaths.hmsPaths(tableCount);
+    int last = tableCount - 1;
+    List<String> tablePath = SyntheticPaths.tablePath(last);
+    table = tablePath.toArray(new String[tablePath.size()]);
+    // partitions below the table location are not registered, the table is found
+    tablePath.add("part=1");
+    tablePath.add("000000_0");
+    partitionFile = tablePath.toArray(new String[tablePath.size()]);
+    List<String> missingPath = SyntheticPaths.tablePath(last);
+    missingPath.set(missingPath.size() - 1, "tbl" + TABLES_PER_DB);
+    missingTable = missingPath.toArray(new String[missingPath.size()]);
+  }
+
+  @Benchmark
+  public Set<String> findTable() {
+    return paths.findAuthzObject(table);
+  }
+
+  @Benchmark
+  public Set<String> findPartitionFile() {
+    return paths.findAuthzObject(partitionFile);
+  }
+
+  @Benchmark
+  public Set<String> findMissingTable() {
+    return paths.findAuthzObjectExactMatches(missingTable);
+  }
+}
@@ -0,0 +1,74 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.sentry.benchmarks.hdfs;
+
+import static org.apache.sentry.benchmarks.SyntheticPolicy.authzObject;
+import static org.apache.sentry.benchmarks.SyntheticPolicy.dbName;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.hadoop.fs.permission.AclEntry;
+import org.apache.sentry.hdfs.SentryPermissions;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Builds the ACLs of a table and of a database from the permissions synced to
+ * the NameNode plugin, as done for every inode under the warehouse.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SentryPermissionsBenchmark {
+
+  @Param({"10", "1000", "100000", "1000000"})
+  public int privilegeCount;
+
+  private SentryPermissions permissions;
+  private String table;
+  private String database;
+
+  @Setup
+  public void setup() {
+    permissions = SyntheticPaths.permissions(privilegeCount);
+    table = authzObject(privilegeCount - 1);
+    database = dbName(privilegeCount - 1);
+  }
+
+  @Benchmark
+  public List<AclEntry> getTableAcls() {
+    return permissions.getAcls(table);
+  }
+
+  @Benchmark
+  public List<AclEntry> getDatabaseAcls() {
+    return permissions.getAcls(database);
+  }
+}
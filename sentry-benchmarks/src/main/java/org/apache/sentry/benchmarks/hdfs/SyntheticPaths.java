@@ -0,0 +1,110 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.sentry.benchmarks.hdfs;
+
+import static org.apache.sentry.benchmarks.SyntheticPolicy.authzObject;
+import static org.apache.sentry.benchmarks.SyntheticPolicy.dbName;
+import static org.apache.sentry.benchmarks.SyntheticPolicy.tableName;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import org.apache.hadoop.fs.permission.FsAction;
+import org.apache.sentry.hdfs.HMSPaths;
+import org.apache.sentry.hdfs.HMSPathsDumper;
+import org.apache.sentry.hdfs.PathsUpdate;
+import org.apache.sentry.hdfs.PermissionsUpdate;
+import org.apache.sentry.hdfs.SentryPermissions;
+import org.apache.sentry.hdfs.SentryPermissions.PrivilegeInfo;
+import org.apache.sentry.hdfs.SentryPermissions.RoleInfo;
+import org.apache.sentry.hdfs.UpdateableAuthzPaths;
+import org.apache.sentry.hdfs.service.thrift.TPathsDump;
+
+import com.google.common.collect.Lists;
+
+/**
+ * Synthetic HDFS sync state of the tables of the synthetic policy. Table i is
+ * stored in the warehouse under its database and table name, and is readable
+ * by role i % {@link #ROLE_COUNT}, granted to the group of the same number.
+ */
+final class SyntheticPaths {
+
+  static final String[] PREFIXES = { "/user/hive/warehouse" };
+  static final int ROLE_COUNT = 10;
+
+  private SyntheticPaths() {
+    // Make constructor private to avoid instantiation
+  }
+
+  static List<String> tablePath(int i) {
+    return Lists.newArrayList("user", "hive", "warehouse", dbName(i), tableName(i));
+  }
+
+  static String role(int i) {
+    return "role" + (i % ROLE_COUNT);
+  }
+
+  static String group(int i) {
+    return "group" + (i % ROLE_COUNT);
+  }
+
+  /**
+   * Applies the paths of the tables as a single update, the way the NameNode
+   * plugin applies the updates of the Sentry service.
+   */
+  static UpdateableAuthzPaths authzPaths(int tableCount) {
+    PathsUpdate update = new PathsUpdate(1, false);
+    for (int i = 0; i < tableCount; i++) {
+      update.newPathChange(authzObject(i)).addToAddPaths(tablePath(i));
+    }
+    UpdateableAuthzPaths authzPaths = new UpdateableAuthzPaths(PREFIXES);
+    authzPaths.updatePartial(Collections.singletonList(update), new ReentrantReadWriteLock());
+    return authzPaths;
+  }
+
+  static TPathsDump pathsDump(int tableCount) {
+    return authzPaths(tableCount).getPathsDump().createPathsDump();
+  }
+
+  static HMSPaths hmsPaths(int tableCount) {
+    return new HMSPathsDumper(new HMSPaths(PREFIXES)).initializeFromDump(pathsDump(tableCount));
+  }
+
+  static PermissionsUpdate permissionsUpdate(int tableCount) {
+    PermissionsUpdate update = new PermissionsUpdate(1, true);
+    for (int i = 0; i < Math.min(tableCount, ROLE_COUNT); i++) {
+      update.addRoleUpdate(role(i)).addToAddGroups(group(i));
+    }
+    for (int i = 0; i < tableCount; i++) {
+      update.addPrivilegeUpdate(authzObject(i)).putToAddPrivileges(role(i), "SELECT");
+    }
+    return update;
+  }
+
+  static SentryPermissions permissions(int tableCount) {
+    SentryPermissions permissions = new SentryPermissions();
+    for (int i = 0; i < Math.min(tableCount, ROLE_COUNT); i++) {
+      permissions.addRoleInfo(new RoleInfo(role(i)).addGroup(group(i)));
+    }
+    for (int i = 0; i < tableCount; i++) {
+      permissions.addPrivilegeInfo(new PrivilegeInfo(authzObject(i))
+          .setPermission(role(i), FsAction.READ_EXECUTE));
+    }
+    return permissions;
+  }
+}
@@ -0,0 +1,85 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.sentry.benchmarks.hdfs;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.sentry.hdfs.ThriftSerializer;
+import org.apache.sentry.hdfs.service.thrift.TPathsDump;
+import org.apache.sentry.hdfs.service.thrift.TPermissionsUpdate;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Serializes and deserializes the full images of the paths and permissions
+ * the Sentry service sends to the NameNode plugin.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ThriftSerializerBenchmark {
+
+  @Param({"10", "1000", "100000", "1000000"})
+  public int objectCount;
+
+  private TPathsDump pathsDump;
+  private byte[] serializedPathsDump;
+  private TPermissionsUpdate permissionsUpdate;
+  private byte[] serializedPermissionsUpdate;
+
+  @Setup
+  public void setup() throws IOException {
+    pathsDump = SyntheticPaths.pathsDump(objectCount);
+    serializedPathsDump = ThriftSerializer.serialize(pathsDump);
+    permissionsUpdate = SyntheticPaths.permissionsUpdate(objectCount).toThrift();
+    serializedPermissionsUpdate = ThriftSerializer.serialize(permissionsUpdate);
+  }
+
+  @Benchmark
+  public byte[] serializePathsDump() throws IOException {
+    return ThriftSerializer.serialize(pathsDump);
+  }
+
+  @Benchmark
+  public TPathsDump deserializePathsDump() throws IOException {
+    return (TPathsDump) ThriftSerializer.deserialize(new TPathsDump(), serializedPathsDump);
+  }
+
+  @Benchmark
+  public byte[] serializePermissionsUpdate() throws IOException {
+    return ThriftSerializer.serialize(permissionsUpdate);
+  }
+
+  @Benchmark
+  public TPermissionsUpdate deserializePermissionsUpdate() throws IOException {
+    return (TPermissionsUpdate) ThriftSerializer.deserialize(new TPermissionsUpdate(),
+        serializedPermissionsUpdate);
+  }
+}
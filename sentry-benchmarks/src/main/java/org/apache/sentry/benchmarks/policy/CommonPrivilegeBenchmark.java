@@ -0,0 +1,163 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.sentry.benchmarks.policy;
+
+import java.util.concurrent.TimeUnit;
+
+import org.apache.sentry.core.common.Model;
+import org.apache.sentry.core.model.db.HivePrivilegeModel;
+import org.apache.sentry.core.model.kafka.KafkaPrivilegeModel;
+import org.apache.sentry.core.model.search.SearchPrivilegeModel;
+import org.apache.sentry.core.model.sqoop.SqoopPrivilegeModel;
+import org.apache.sentry.policy.common.CommonPrivilege;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares a request with every privilege granted to a user, the way
+ * ResourceAuthorizationProvider does when the privileges cannot be compiled.
+ * Only the last granted privilege implies the request, so every privilege is
+ * compared, and it is not equal to the request, so the comparison is not
+ * short-cut. {@link #impliesBaseline()} runs the same comparisons with
+ * {@link LegacyCommonPrivilege}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CommonPrivilegeBenchmark {
+
+  /**
+   * Synthetic privileges of every component using CommonPrivilege
+   */
+  public enum ModelData {
+    HIVE(HivePrivilegeModel.getInstance()) {
+      @Override
+      String privilege(int i) {
+        return "server=server1->db=db" + i + "->table=table" + i + "->column=column" + i
+            + "->action=select";
+      }
+
+      @Override
+      String request(int i) {
+        return "server=SERVER1->db=DB" + i + "->table=table" + i + "->column=column" + i
+            + "->action=select";
+      }
+    },
+    SOLR(SearchPrivilegeModel.getInstance()) {
+      @Override
+      String privilege(int i) {
+        return "collection=collection" + i + "->field=field" + i + "->action=query";
+      }
+
+      @Override
+      String request(int i) {
+        return "collection=Collection" + i + "->field=field" + i + "->action=query";
+      }
+    },
+    KAFKA(KafkaPrivilegeModel.getInstance()) {
+      @Override
+      String privilege(int i) {
+        return "host=*->topic=topic" + i + "->action=read";
+      }
+
+      @Override
+      String request(int i) {
+        return "host=host1->topic=topic" + i + "->action=read";
+      }
+    },
+    SQOOP(SqoopPrivilegeModel.getInstance()) {
+      @Override
+      String privilege(int i) {
+        return "server=server1->link=link" + i + "->action=read";
+      }
+
+      @Override
+      String request(int i) {
+        return "server=SERVER1->link=link" + i + "->action=read";
+      }
+    };
+
+    private final Model model;
+
+    ModelData(Model model) {
+      this.model = model;
+    }
+
+    // the i-th granted privilege
+    abstract String privilege(int i);
+
+    // a request which is only implied by the i-th granted privilege, without being equal to it
+    abstract String request(int i);
+  }
+
+  @Param({"HIVE", "SOLR", "KAFKA", "SQOOP"})
+  public ModelData modelData;
+
+  @Param({"10", "1000", "100000", "1000000"})
+  public int privilegeCount;
+
+  private Model model;
+  private CommonPrivilege[] privileges;
+  private CommonPrivilege request;
+  private LegacyCommonPrivilege[] legacyPrivileges;
+  private LegacyCommonPrivilege legacyRequest;
+
+  @Setup
+  public void setup() {
+    model = modelData.model;
+    privileges = new CommonPrivilege[privilegeCount];
+    legacyPrivileges = new LegacyCommonPrivilege[privilegeCount];
+    for (int i = 0; i < privilegeCount; i++) {
+      privileges[i] = new CommonPrivilege(modelData.privilege(i));
+      legacyPrivileges[i] = new LegacyCommonPrivilege(modelData.privilege(i));
+    }
+    request = new CommonPrivilege(modelData.request(privilegeCount - 1), model);
+    legacyRequest = new LegacyCommonPrivilege(modelData.request(privilegeCount - 1));
+  }
+
+  @Benchmark
+  public boolean implies() {
+    for (CommonPrivilege privilege : privileges) {
+      if (privilege.implies(request, model)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  @Benchmark
+  public boolean impliesBaseline() {
+    for (LegacyCommonPrivilege privilege : legacyPrivileges) {
+      if (privilege.implies(legacyRequest, model)) {
+        return true;
+      }
+    }
+    return false;
+  }
+}
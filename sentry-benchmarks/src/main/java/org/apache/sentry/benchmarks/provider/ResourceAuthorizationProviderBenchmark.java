@@ -0,0 +1,132 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.sentry.benchmarks.provider;
+
+import static org.apache.sentry.benchmarks.SyntheticPolicy.GROUP;
+import static org.apache.sentry.benchmarks.SyntheticPolicy.SERVER;
+import static org.apache.sentry.benchmarks.SyntheticPolicy.TABLES_PER_DB;
+import static org.apache.sentry.benchmarks.SyntheticPolicy.USER;
+import static org.apache.sentry.benchmarks.SyntheticPolicy.dbName;
+import static org.apache.sentry.benchmarks.SyntheticPolicy.tableName;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.sentry.benchmarks.SyntheticPolicy;
+import org.apache.sentry.core.common.ActiveRoleSet;
+import org.apache.sentry.core.common.Authorizable;
+import org.apache.sentry.core.common.Subject;
+import org.apache.sentry.core.common.service.GroupMappingService;
+import org.apache.sentry.core.model.db.DBModelAction;
+import org.apache.sentry.core.model.db.Database;
+import org.apache.sentry.core.model.db.HivePrivilegeModel;
+import org.apache.sentry.core.model.db.Server;
+import org.apache.sentry.core.model.db.Table;
+import org.apache.sentry.policy.engine.common.CommonPolicyEngine;
+import org.apache.sentry.provider.cache.SimpleCacheProviderBackend;
+import org.apache.sentry.provider.cache.SimplePrivilegeCache;
+import org.apache.sentry.provider.common.HadoopGroupResourceAuthorizationProvider;
+import org.apache.sentry.provider.common.ProviderBackendContext;
+import org.apache.sentry.provider.common.ResourceAuthorizationProvider;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+
+/**
+ * Authorizes table requests through the provider, policy engine and cache
+ * backend HiveServer2 uses for the metadata filters, so that the privilege
+ * lookup and the comparison with the granted privileges are both measured.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ResourceAuthorizationProviderBenchmark {
+
+  private static final Subject SUBJECT = new Subject(USER);
+  private static final Set<DBModelAction> SELECT = EnumSet.of(DBModelAction.SELECT);
+  private static final Set<DBModelAction> INSERT = EnumSet.of(DBModelAction.INSERT);
+
+  @Param({"10", "1000", "100000", "1000000"})
+  public int privilegeCount;
+
+  private ResourceAuthorizationProvider provider;
+  private List<Authorizable> table;
+  private List<List<Authorizable>> databaseTables;
+
+  @Setup
+  public void setup() {
+    SimpleCacheProviderBackend backend = new SimpleCacheProviderBackend(new Configuration(), "");
+    ProviderBackendContext context = new ProviderBackendContext();
+    context.setBindingHandle(new SimplePrivilegeCache(
+        SyntheticPolicy.hivePrivileges(privilegeCount)));
+    backend.initialize(context);
+    GroupMappingService groupService = new GroupMappingService() {
+      private final Set<String> groups = Sets.newHashSet(GROUP);
+
+      @Override
+      public Set<String> getGroups(String user) {
+        return groups;
+      }
+    };
+    provider = new HadoopGroupResourceAuthorizationProvider(new CommonPolicyEngine(backend),
+        groupService, HivePrivilegeModel.getInstance());
+
+    int last = privilegeCount - 1;
+    table = Lists.<Authorizable>newArrayList(new Server(SERVER), new Database(dbName(last)),
+        new Table(tableName(last)));
+    // the tables of the last database, as listed by show tables
+    databaseTables = new ArrayList<List<Authorizable>>();
+    for (int i = 0; i < TABLES_PER_DB; i++) {
+      databaseTables.add(Lists.<Authorizable>newArrayList(new Server(SERVER),
+          new Database(dbName(last)), new Table(tableName(i))));
+    }
+  }
+
+  @Benchmark
+  public boolean hasAccessGranted() {
+    return provider.hasAccess(SUBJECT, table, SELECT, ActiveRoleSet.ALL);
+  }
+
+  @Benchmark
+  public boolean hasAccessDenied() {
+    return provider.hasAccess(SUBJECT, table, INSERT, ActiveRoleSet.ALL);
+  }
+
+  @Benchmark
+  public BitSet hasAccessBatch() {
+    return provider.hasAccessBatch(SUBJECT, databaseTables, SELECT, ActiveRoleSet.ALL);
+  }
+}
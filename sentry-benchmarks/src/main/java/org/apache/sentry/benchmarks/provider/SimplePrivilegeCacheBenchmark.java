@@ -0,0 +1,107 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.sentry.benchmarks.provider;
+
+import static org.apache.sentry.benchmarks.SyntheticPolicy.GROUP;
+import static org.apache.sentry.benchmarks.SyntheticPolicy.SERVER;
+import static org.apache.sentry.benchmarks.SyntheticPolicy.USER;
+import static org.apache.sentry.benchmarks.SyntheticPolicy.dbName;
+import static org.apache.sentry.benchmarks.SyntheticPolicy.tableName;
+
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.sentry.benchmarks.SyntheticPolicy;
+import org.apache.sentry.core.common.ActiveRoleSet;
+import org.apache.sentry.core.common.Authorizable;
+import org.apache.sentry.core.model.db.Database;
+import org.apache.sentry.core.model.db.Server;
+import org.apache.sentry.core.model.db.Table;
+import org.apache.sentry.provider.cache.PrivilegeCache;
+import org.apache.sentry.provider.cache.SimplePrivilegeCache;
+import org.apache.sentry.provider.cache.TreePrivilegeCache;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.google.common.collect.Sets;
+
+/**
+ * Lists the privileges of a table and of a database from the privilege cache
+ * HiveServer2 builds for the metadata filters, with the key expansion of
+ * SimplePrivilegeCache and with the tree of TreePrivilegeCache.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SimplePrivilegeCacheBenchmark {
+
+  private static final Set<String> GROUPS = Sets.newHashSet(GROUP);
+  private static final Set<String> USERS = Sets.newHashSet(USER);
+
+  @Param({"SIMPLE", "TREE"})
+  public String cacheType;
+
+  @Param({"10", "1000", "100000", "1000000"})
+  public int privilegeCount;
+
+  private PrivilegeCache cache;
+  private Authorizable[] table;
+  private Authorizable[] database;
+  private Authorizable[] allTables;
+
+  @Setup
+  public void setup() {
+    Set<String> privileges = SyntheticPolicy.hivePrivileges(privilegeCount);
+    if ("TREE".equals(cacheType)) {
+      cache = new TreePrivilegeCache(privileges);
+    } else {
+      cache = new SimplePrivilegeCache(privileges);
+    }
+    int last = privilegeCount - 1;
+    table = new Authorizable[] { new Server(SERVER), new Database(dbName(last)),
+        new Table(tableName(last)) };
+    database = new Authorizable[] { new Server(SERVER), new Database(dbName(last)) };
+    allTables = new Authorizable[] { new Server(SERVER), new Database(dbName(last)), Table.ALL };
+  }
+
+  @Benchmark
+  public Set<String> listTablePrivileges() {
+    return cache.listPrivileges(GROUPS, USERS, ActiveRoleSet.ALL, table);
+  }
+
+  @Benchmark
+  public Set<String> listDatabasePrivileges() {
+    return cache.listPrivileges(GROUPS, USERS, ActiveRoleSet.ALL, database);
+  }
+
+  @Benchmark
+  public Set<String> listAllTablesPrivileges() {
+    return cache.listPrivileges(GROUPS, USERS, ActiveRoleSet.ALL, allTables);
+  }
+}
@@ -0,0 +1,179 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.sentry.benchmarks.service;
+
+import static org.apache.sentry.benchmarks.SyntheticPolicy.SERVER;
+import static org.apache.sentry.benchmarks.SyntheticPolicy.dbName;
+import static org.apache.sentry.benchmarks.SyntheticPolicy.tableName;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.sentry.core.model.db.AccessConstants;
+import org.apache.sentry.provider.db.service.persistent.SentryStore;
+import org.apache.sentry.provider.db.service.thrift.TSentryActiveRoleSet;
+import org.apache.sentry.provider.db.service.thrift.TSentryAuthorizable;
+import org.apache.sentry.provider.db.service.thrift.TSentryGroup;
+import org.apache.sentry.provider.db.service.thrift.TSentryPrivilege;
+import org.apache.sentry.service.thrift.ServiceConstants.ServerConfig;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.google.common.base.Charsets;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+import com.google.common.io.Files;
+
+/**
+ * Lists the privileges of a group, as the Sentry service does for every
+ * authorization request of the providers, against an embedded Derby database.
+ * Privilege i is granted to role i % {@link #ROLE_COUNT}, granted to the group
+ * of the same number, so a group has a tenth of the privileges. Loading the
+ * store dominates the run time at the larger sizes, a million privileges can
+ * be loaded with -p privilegeCount=1000000.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SentryStoreBenchmark {
+
+  private static final int ROLE_COUNT = 10;
+  private static final int PRIVILEGES_PER_TRANSACTION = 1000;
+  private static final String ADMIN_USER = "admin";
+  private static final String ADMIN_GROUP = "admin_group";
+
+  @Param({"10", "1000", "100000"})
+  public int privilegeCount;
+
+  private File dataDir;
+  private SentryStore sentryStore;
+  private Set<String> groups;
+  private Set<String> users;
+  private TSentryActiveRoleSet roleSet;
+  private TSentryAuthorizable table;
+
+  @Setup(Level.Trial)
+  public void setup() throws Exception {
+    dataDir = Files.createTempDir();
+    sentryStore = new SentryStore(createConf(dataDir));
+
+    List<Set<TSentryPrivilege>> privileges = Lists.newArrayList();
+    for (int i = 0; i < ROLE_COUNT; i++) {
+      sentryStore.createSentryRole(role(i));
+      sentryStore.alterSentryRoleAddGroups(ADMIN_USER, role(i),
+          Sets.newHashSet(new TSentryGroup(group(i))));
+      privileges.add(new HashSet<TSentryPrivilege>());
+    }
+    for (int i = 0; i < privilegeCount; i++) {
+      Set<TSentryPrivilege> rolePrivileges = privileges.get(i % ROLE_COUNT);
+      rolePrivileges.add(privilege(i));
+      if (rolePrivileges.size() == PRIVILEGES_PER_TRANSACTION) {
+        sentryStore.alterSentryRoleGrantPrivileges(ADMIN_USER, role(i), rolePrivileges);
+        rolePrivileges.clear();
+      }
+    }
+    for (int i = 0; i < ROLE_COUNT; i++) {
+      if (!privileges.get(i).isEmpty()) {
+        sentryStore.alterSentryRoleGrantPrivileges(ADMIN_USER, role(i), privileges.get(i));
+      }
+    }
+
+    int last = privilegeCount - 1;
+    groups = Sets.newHashSet(group(last));
+    users = Sets.newHashSet();
+    roleSet = new TSentryActiveRoleSet(true, new HashSet<String>());
+    table = new TSentryAuthorizable(SERVER);
+    table.setDb(dbName(last));
+    table.setTable(tableName(last));
+  }
+
+  @TearDown(Level.Trial)
+  public void teardown() {
+    if (sentryStore != null) {
+      sentryStore.stop();
+    }
+    if (dataDir != null) {
+      FileUtils.deleteQuietly(dataDir);
+    }
+  }
+
+  @Benchmark
+  public Set<String> listTablePrivileges() throws Exception {
+    return sentryStore.listSentryPrivilegesForProvider(groups, users, roleSet, table);
+  }
+
+  @Benchmark
+  public Set<String> listAllPrivileges() throws Exception {
+    return sentryStore.listSentryPrivilegesForProvider(groups, users, roleSet, null);
+  }
+
+  private static Configuration createConf(File dataDir) throws IOException {
+    // the admin user may grant, the group mapping is read from a local policy file
+    File groupMapping = new File(dataDir, "group_mapping.ini");
+    Files.write("[users]\n" + ADMIN_USER + " = " + ADMIN_GROUP + "\n", groupMapping,
+        Charsets.UTF_8);
+    Configuration conf = new Configuration(false);
+    conf.set(ServerConfig.SENTRY_VERIFY_SCHEM_VERSION, "false");
+    conf.set(ServerConfig.SENTRY_STORE_JDBC_URL, "jdbc:derby:;databaseName="
+        + new File(dataDir, "sentry_policy_db").getPath() + ";create=true");
+    conf.set(ServerConfig.SENTRY_STORE_JDBC_PASS, "dummy");
+    conf.setStrings(ServerConfig.ADMIN_GROUPS, ADMIN_GROUP);
+    conf.set(ServerConfig.SENTRY_STORE_GROUP_MAPPING,
+        ServerConfig.SENTRY_STORE_LOCAL_GROUP_MAPPING);
+    conf.set(ServerConfig.SENTRY_STORE_GROUP_MAPPING_RESOURCE, groupMapping.getPath());
+    return conf;
+  }
+
+  private static String role(int i) {
+    return "role" + (i % ROLE_COUNT);
+  }
+
+  private static String group(int i) {
+    return "group" + (i % ROLE_COUNT);
+  }
+
+  private static TSentryPrivilege privilege(int i) {
+    TSentryPrivilege privilege = new TSentryPrivilege();
+    privilege.setPrivilegeScope("TABLE");
+    privilege.setServerName(SERVER);
+    privilege.setDbName(dbName(i));
+    privilege.setTableName(tableName(i));
+    privilege.setAction(AccessConstants.SELECT);
+    privilege.setCreateTime(System.currentTimeMillis());
+    return privilege;
+  }
+}
@@ -25,9 +25,14 @@ import java.net.URL;
 import java.security.CodeSource;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.BitSet;
 import java.util.EnumSet;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
 
 import com.google.common.base.Preconditions;
 import org.apache.hadoop.fs.FileSystem;
@@ -59,6 +64,7 @@ import org.apache.sentry.binding.hive.authz.HiveAuthzPrivileges;
 import org.apache.sentry.binding.hive.authz.HiveAuthzPrivileges.HiveOperationScope;
 import org.apache.sentry.binding.hive.authz.HiveAuthzPrivileges.HiveOperationType;
 import org.apache.sentry.binding.hive.conf.HiveAuthzConf;
+import org.apache.sentry.core.common.ActiveRoleSet;
 import org.apache.sentry.core.common.Subject;
 import org.apache.sentry.core.common.utils.PathUtils;
 import org.apache.sentry.core.model.db.AccessURI;
@@ -67,9 +73,11 @@ import org.apache.sentry.core.model.db.DBModelAction;
 import org.apache.sentry.core.model.db.DBModelAuthorizable;
 import org.apache.sentry.core.model.db.DBModelAuthorizable.AuthorizableType;
 import org.apache.sentry.core.model.db.Database;
+import org.apache.sentry.core.model.db.Server;
 import org.apache.sentry.core.model.db.Table;
 import org.apache.sentry.provider.cache.PrivilegeCache;
-import org.apache.sentry.provider.cache.SimplePrivilegeCache;
+import org.apache.sentry.provider.cache.PrivilegeSnapshotCache;
+import org.apache.sentry.provider.cache.TreePrivilegeCache;
 import org.apache.sentry.provider.common.AuthorizationProvider;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -95,6 +103,10 @@ public abstract class HiveAuthzBindingHookBase extends AbstractSemanticAnalyzerH
   protected final List<String> serdeWhiteList;
   protected boolean serdeURIPrivilegesEnabled;
 
+  // shared by the sessions of the process, by ttl and max size, see getPrivilegeSnapshotCache
+  private static final ConcurrentMap<List<Long>, PrivilegeSnapshotCache> privilegeSnapshotCaches =
+      new ConcurrentHashMap<List<Long>, PrivilegeSnapshotCache>();
+
   protected final static HiveAuthzPrivileges columnMetaDataPrivilege =
       new HiveAuthzPrivileges.AuthzPrivilegeBuilder()
           .addInputObjectPriviledge(AuthorizableType.Column,
@@ -618,31 +630,23 @@ public abstract class HiveAuthzBindingHookBase extends AbstractSemanticAnalyzerH
 
     HiveAuthzBinding hiveBindingWithPrivilegeCache = getHiveBindingWithPrivilegeCache(hiveAuthzBinding, userName);
 
+    Database database = new Database(dbName);
+    List<List<DBModelAuthorizable>> inputHierarchy = new ArrayList<List<DBModelAuthorizable>>();
     for (String tableName : queryResult) {
-      // if user has privileges on table, add to filtered list, else discard
-      Table table = new Table(tableName);
-      Database database;
-      database = new Database(dbName);
-
-      List<List<DBModelAuthorizable>> inputHierarchy = new ArrayList<List<DBModelAuthorizable>>();
-      List<List<DBModelAuthorizable>> outputHierarchy = new ArrayList<List<DBModelAuthorizable>>();
       List<DBModelAuthorizable> externalAuthorizableHierarchy = new ArrayList<DBModelAuthorizable>();
       externalAuthorizableHierarchy.add(hiveAuthzBinding.getAuthServer());
       externalAuthorizableHierarchy.add(database);
-      externalAuthorizableHierarchy.add(table);
+      externalAuthorizableHierarchy.add(new Table(tableName));
       externalAuthorizableHierarchy.add(Column.ALL);
       inputHierarchy.add(externalAuthorizableHierarchy);
+    }
 
-      try {
-        // do the authorization by new HiveAuthzBinding with PrivilegeCache
-        hiveBindingWithPrivilegeCache.authorize(operation, tableMetaDataPrivilege, subject,
-            inputHierarchy, outputHierarchy);
-        filteredResult.add(table.getName());
-      } catch (AuthorizationException e) {
-        // squash the exception, user doesn't have privileges, so the table is
-        // not added to
-        // filtered list.
-      }
+    // do the authorization of all the tables at once by new HiveAuthzBinding with PrivilegeCache,
+    // if user has privileges on table, add to filtered list, else discard
+    BitSet authorized = hiveBindingWithPrivilegeCache.authorizeBatch(operation,
+        tableMetaDataPrivilege, subject, inputHierarchy);
+    for (int i = authorized.nextSetBit(0); i >= 0; i = authorized.nextSetBit(i + 1)) {
+      filteredResult.add(queryResult.get(i));
     }
     return filteredResult;
   }
@@ -657,27 +661,22 @@ public abstract class HiveAuthzBindingHookBase extends AbstractSemanticAnalyzerH
 
     Database database = new Database(dbName);
     Table table = new Table(tableName);
+    List<List<DBModelAuthorizable>> inputHierarchy = new ArrayList<List<DBModelAuthorizable>>();
     for (FieldSchema col : cols) {
-      // if user has privileges on column, add to filtered list, else discard
-      List<List<DBModelAuthorizable>> inputHierarchy = new ArrayList<List<DBModelAuthorizable>>();
-      List<List<DBModelAuthorizable>> outputHierarchy = new ArrayList<List<DBModelAuthorizable>>();
       List<DBModelAuthorizable> externalAuthorizableHierarchy = new ArrayList<DBModelAuthorizable>();
       externalAuthorizableHierarchy.add(hiveAuthzBinding.getAuthServer());
       externalAuthorizableHierarchy.add(database);
       externalAuthorizableHierarchy.add(table);
       externalAuthorizableHierarchy.add(new Column(col.getName()));
       inputHierarchy.add(externalAuthorizableHierarchy);
+    }
 
-      try {
-        // do the authorization by new HiveAuthzBinding with PrivilegeCache
-        hiveBindingWithPrivilegeCache.authorize(operation, columnMetaDataPrivilege, subject,
-            inputHierarchy, outputHierarchy);
-        filteredResult.add(col);
-      } catch (AuthorizationException e) {
-        // squash the exception, user doesn't have privileges, so the column is
-        // not added to
-        // filtered list.
-      }
+    // do the authorization of all the columns at once by new HiveAuthzBinding with PrivilegeCache,
+    // if user has privileges on column, add to filtered list, else discard
+    BitSet authorized = hiveBindingWithPrivilegeCache.authorizeBatch(operation,
+        columnMetaDataPrivilege, subject, inputHierarchy);
+    for (int i = authorized.nextSetBit(0); i >= 0; i = authorized.nextSetBit(i + 1)) {
+      filteredResult.add(cols.get(i));
     }
     return filteredResult;
   }
@@ -696,39 +695,33 @@ public abstract class HiveAuthzBindingHookBase extends AbstractSemanticAnalyzerH
         setOperationType(HiveOperationType.QUERY).
         build();
 
+    boolean restrictDefaultDB = !"false".equalsIgnoreCase(hiveAuthzBinding.getAuthzConf().get(
+        HiveAuthzConf.AuthzConfVars.AUTHZ_RESTRICT_DEFAULT_DB.getVar(), "false"));
+    List<List<DBModelAuthorizable>> inputHierarchy = new ArrayList<List<DBModelAuthorizable>>();
     for (String dbName:queryResult) {
-      // if user has privileges on database, add to filtered list, else discard
-      Database database = null;
-
-      // if default is not restricted, continue
-      if (DEFAULT_DATABASE_NAME.equalsIgnoreCase(dbName) && "false".equalsIgnoreCase(
-        hiveAuthzBinding.getAuthzConf().get(
-              HiveAuthzConf.AuthzConfVars.AUTHZ_RESTRICT_DEFAULT_DB.getVar(),
-              "false"))) {
-        filteredResult.add(DEFAULT_DATABASE_NAME);
+      // if default is not restricted, it is not authorized
+      if (DEFAULT_DATABASE_NAME.equalsIgnoreCase(dbName) && !restrictDefaultDB) {
         continue;
       }
 
-      database = new Database(dbName);
-
-      List<List<DBModelAuthorizable>> inputHierarchy = new ArrayList<List<DBModelAuthorizable>>();
-      List<List<DBModelAuthorizable>> outputHierarchy = new ArrayList<List<DBModelAuthorizable>>();
       List<DBModelAuthorizable> externalAuthorizableHierarchy = new ArrayList<DBModelAuthorizable>();
       externalAuthorizableHierarchy.add(hiveAuthzBinding.getAuthServer());
-      externalAuthorizableHierarchy.add(database);
+      externalAuthorizableHierarchy.add(new Database(dbName));
       externalAuthorizableHierarchy.add(Table.ALL);
       externalAuthorizableHierarchy.add(Column.ALL);
       inputHierarchy.add(externalAuthorizableHierarchy);
+    }
 
-      try {
-        // do the authorization by new HiveAuthzBinding with PrivilegeCache
-        hiveBindingWithPrivilegeCache.authorize(operation, anyPrivilege, subject,
-            inputHierarchy, outputHierarchy);
-        filteredResult.add(database.getName());
-      } catch (AuthorizationException e) {
-        // squash the exception, user doesn't have privileges, so the table is
-        // not added to
-        // filtered list.
+    // do the authorization of all the databases at once by new HiveAuthzBinding with PrivilegeCache,
+    // if user has privileges on database, add to filtered list, else discard
+    BitSet authorized = hiveBindingWithPrivilegeCache.authorizeBatch(operation, anyPrivilege,
+        subject, inputHierarchy);
+    int i = 0;
+    for (String dbName:queryResult) {
+      if (DEFAULT_DATABASE_NAME.equalsIgnoreCase(dbName) && !restrictDefaultDB) {
+        filteredResult.add(DEFAULT_DATABASE_NAME);
+      } else if (authorized.get(i++)) {
+        filteredResult.add(dbName);
       }
     }
 
@@ -797,17 +790,30 @@ public abstract class HiveAuthzBindingHookBase extends AbstractSemanticAnalyzerH
 
   // create hiveBinding with PrivilegeCache
   private static HiveAuthzBinding getHiveBindingWithPrivilegeCache(HiveAuthzBinding hiveAuthzBinding,
-      String userName) throws SemanticException {
+      final String userName) throws SemanticException {
     // get the original HiveAuthzBinding, and get the user's privileges by AuthorizationProvider
-    AuthorizationProvider authProvider = hiveAuthzBinding.getCurrentAuthProvider();
-    Set<String> userPrivileges =
-        authProvider.getPolicyEngine().getPrivileges(
+    final AuthorizationProvider authProvider = hiveAuthzBinding.getCurrentAuthProvider();
+    final ActiveRoleSet activeRoleSet = hiveAuthzBinding.getActiveRoleSet();
+    final Server authServer = hiveAuthzBinding.getAuthServer();
+    Callable<Set<String>> userPrivileges = new Callable<Set<String>>() {
+      @Override
+      public Set<String> call() {
+        return authProvider.getPolicyEngine().getPrivileges(
             authProvider.getGroupMapping().getGroups(userName), Sets.newHashSet(userName),
-            hiveAuthzBinding.getActiveRoleSet(), hiveAuthzBinding.getAuthServer());
+            activeRoleSet, authServer);
+      }
+    };
 
-    // create PrivilegeCache using user's privileges
-    PrivilegeCache privilegeCache = new SimplePrivilegeCache(userPrivileges);
     try {
+      // create PrivilegeCache using user's privileges, or share the snapshot of the user
+      PrivilegeCache privilegeCache;
+      PrivilegeSnapshotCache snapshotCache = getPrivilegeSnapshotCache(hiveAuthzBinding.getAuthzConf());
+      if (snapshotCache == null) {
+        privilegeCache = new TreePrivilegeCache(userPrivileges.call());
+      } else {
+        privilegeCache = snapshotCache.get(userName, authServer.getName(), activeRoleSet,
+            authProvider.getPolicyEngine().getPolicyVersion(), userPrivileges);
+      }
       // create new instance of HiveAuthzBinding whose backend provider should be SimpleCacheProviderBackend
       return new HiveAuthzBinding(HiveAuthzBinding.HiveHook.HiveServer2, hiveAuthzBinding.getHiveConf(),
               hiveAuthzBinding.getAuthzConf(), privilegeCache);
@@ -817,6 +823,33 @@ public abstract class HiveAuthzBindingHookBase extends AbstractSemanticAnalyzerH
     }
   }
 
+  /**
+   * Returns the privilege snapshot cache shared by the sessions of the process
+   * configured with the same ttl and max size, or null when the cache is
+   * disabled. The cache keeps the statistics of its snapshots.
+   */
+  public static PrivilegeSnapshotCache getPrivilegeSnapshotCache(HiveAuthzConf authzConf) {
+    if (!Boolean.parseBoolean(authzConf.get(
+        HiveAuthzConf.AuthzConfVars.AUTHZ_PRIVILEGE_SNAPSHOT_CACHE_ENABLED.getVar()))) {
+      return null;
+    }
+    long ttlSecs = Long.parseLong(authzConf.get(
+        HiveAuthzConf.AuthzConfVars.AUTHZ_PRIVILEGE_SNAPSHOT_CACHE_TTL_SECS.getVar()));
+    long maxSize = Long.parseLong(authzConf.get(
+        HiveAuthzConf.AuthzConfVars.AUTHZ_PRIVILEGE_SNAPSHOT_CACHE_MAX_SIZE.getVar()));
+    List<Long> settings = Arrays.asList(ttlSecs, maxSize);
+    PrivilegeSnapshotCache snapshotCache = privilegeSnapshotCaches.get(settings);
+    if (snapshotCache == null) {
+      snapshotCache = new PrivilegeSnapshotCache(TimeUnit.SECONDS.toMillis(ttlSecs), maxSize);
+      PrivilegeSnapshotCache existing = privilegeSnapshotCaches.putIfAbsent(settings,
+          snapshotCache);
+      if (existing != null) {
+        snapshotCache = existing;
+      }
+    }
+    return snapshotCache;
+  }
+
   private static boolean hasPrefixMatch(List<String> prefixList, final String str) {
     for (String prefix : prefixList) {
       if (str.startsWith(prefix)) {
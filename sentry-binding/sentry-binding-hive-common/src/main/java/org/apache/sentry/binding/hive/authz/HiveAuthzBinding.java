@@ -17,6 +17,8 @@
 package org.apache.sentry.binding.hive.authz;
 
 import java.lang.reflect.Constructor;
+import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.EnumSet;
 import java.util.HashSet;
 import java.util.List;
@@ -240,12 +242,7 @@ public class HiveAuthzBinding {
         newInstance(new Object[] {providerBackend});
 
 
-    // load the authz provider class
-    Constructor<?> constrctor =
-      Class.forName(authProviderName).getDeclaredConstructor(String.class, PolicyEngine.class, Model.class);
-    constrctor.setAccessible(true);
-    return (AuthorizationProvider) constrctor.newInstance(new Object[] {resourceName, policyEngine,
-            HivePrivilegeModel.getInstance()});
+    return newAuthProvider(authzConf, authProviderName, resourceName, policyEngine);
   }
 
   // Instantiate the authz provider using PrivilegeCache, this method is used for metadata filter function.
@@ -279,12 +276,28 @@ public class HiveAuthzBinding {
     PolicyEngine policyEngine = (PolicyEngine) policyConstructor.
             newInstance(new Object[] {providerBackend});
 
-    // load the authz provider class
-    Constructor<?> constrctor =
-            Class.forName(authProviderName).getDeclaredConstructor(String.class, PolicyEngine.class, Model.class);
+    return newAuthProvider(authzConf, authProviderName, resourceName, policyEngine);
+  }
+
+  // Instantiate the authz provider class, with the authz config if it takes one so that
+  // the provider settings such as the group mapping cache can be set in the sentry site
+  private static AuthorizationProvider newAuthProvider(HiveAuthzConf authzConf,
+      String authProviderName, String resourceName, PolicyEngine policyEngine) throws Exception {
+    Class<?> authProviderClass = Class.forName(authProviderName);
+    Constructor<?> constrctor;
+    try {
+      constrctor = authProviderClass.getDeclaredConstructor(Configuration.class, String.class,
+          PolicyEngine.class, Model.class);
+    } catch (NoSuchMethodException e) {
+      constrctor = authProviderClass.getDeclaredConstructor(String.class, PolicyEngine.class,
+          Model.class);
+      constrctor.setAccessible(true);
+      return (AuthorizationProvider) constrctor.newInstance(new Object[] {resourceName,
+          policyEngine, HivePrivilegeModel.getInstance()});
+    }
     constrctor.setAccessible(true);
-    return (AuthorizationProvider) constrctor.newInstance(new Object[] {resourceName, policyEngine,
-            HivePrivilegeModel.getInstance()});
+    return (AuthorizationProvider) constrctor.newInstance(new Object[] {authzConf, resourceName,
+        policyEngine, HivePrivilegeModel.getInstance()});
   }
 
   /**
@@ -381,6 +394,68 @@ public class HiveAuthzBinding {
 
   }
 
+  /**
+   * Validate the privilege for the given operation for the given subject on
+   * many objects at once, for instance to filter the result of a show command.
+   * Each input hierarchy is validated as {@link #authorize} would validate it
+   * as the only read entity of a statement without write entities.
+   * @param hiveOp
+   * @param stmtAuthPrivileges
+   * @param subject
+   * @param inputHierarchyList
+   * @return a BitSet where bit i is set if the subject is authorized on the
+   *         i-th input hierarchy
+   */
+  public BitSet authorizeBatch(HiveOperation hiveOp, HiveAuthzPrivileges stmtAuthPrivileges,
+      Subject subject, List<List<DBModelAuthorizable>> inputHierarchyList) {
+    if (!open) {
+      throw new IllegalStateException("Binding has been closed");
+    }
+    if(LOG.isDebugEnabled()) {
+      LOG.debug("Going to authorize statement " + hiveOp.name() +
+          " for subject " + subject.getName() + " on " + inputHierarchyList.size() + " objects");
+    }
+    BitSet authorized = new BitSet(inputHierarchyList.size());
+    authorized.set(0, inputHierarchyList.size());
+
+    // Without write entities, only the optional output privileges can be satisfied
+    for (AuthorizableType key : stmtAuthPrivileges.getOutputPrivileges().keySet()) {
+      if (!key.equals(AuthorizableType.URI) && !hiveOp.equals(HiveOperation.QUERY)) {
+        authorized.clear();
+        return authorized;
+      }
+    }
+
+    for (Map.Entry<AuthorizableType, EnumSet<DBModelAction>> entry :
+        stmtAuthPrivileges.getInputPrivileges().entrySet()) {
+      AuthorizableType key = entry.getKey();
+      boolean optional = key.equals(AuthorizableType.URI) || hiveOp.equals(HiveOperation.QUERY)
+          || hiveOp.equals(HiveOperation.CREATETABLE_AS_SELECT);
+      List<List<DBModelAuthorizable>> batch = new ArrayList<List<DBModelAuthorizable>>();
+      int[] batchIndexes = new int[inputHierarchyList.size()];
+      for (int i = authorized.nextSetBit(0); i >= 0; i = authorized.nextSetBit(i + 1)) {
+        List<DBModelAuthorizable> inputHierarchy = inputHierarchyList.get(i);
+        if (getAuthzType(inputHierarchy).equals(key)) {
+          batchIndexes[batch.size()] = i;
+          batch.add(inputHierarchy);
+        } else if (!optional) {
+          // same as the missing required privilege of authorize()
+          authorized.clear(i);
+        }
+      }
+      if (!batch.isEmpty()) {
+        BitSet allowed = authProvider.hasAccessBatch(subject, batch, entry.getValue(),
+            activeRoleSet);
+        for (int j = 0; j < batch.size(); j++) {
+          if (!allowed.get(j)) {
+            authorized.clear(batchIndexes[j]);
+          }
+        }
+      }
+    }
+    return authorized;
+  }
+
   public void setActiveRoleSet(String activeRoleSet,
       Set<TSentryRole> allowedRoles) throws SentryUserException {
     this.activeRoleSet = parseActiveRoleSet(activeRoleSet, allowedRoles);
@@ -35,6 +35,7 @@ import org.apache.commons.cli.Options;
 import org.apache.commons.cli.ParseException;
 import org.apache.commons.cli.Parser;
 import org.apache.commons.lang3.StringUtils;
+import org.apache.hadoop.fs.Path;
 import org.apache.hadoop.hive.conf.HiveConf;
 import org.apache.hadoop.hive.conf.HiveConf.ConfVars;
 import org.apache.hadoop.hive.ql.Driver;
@@ -51,9 +52,13 @@ import org.apache.sentry.binding.hive.conf.HiveAuthzConf;
 import org.apache.sentry.binding.hive.conf.HiveAuthzConf.AuthzConfVars;
 import org.apache.sentry.core.common.exception.SentryConfigurationException;
 import org.apache.sentry.core.common.Subject;
+import org.apache.sentry.core.model.db.HivePrivilegeModel;
 import org.apache.sentry.core.model.db.Server;
 import org.apache.sentry.provider.common.AuthorizationProvider;
+import org.apache.sentry.provider.common.ProviderBackendContext;
 import org.apache.sentry.provider.db.service.thrift.SentryPolicyServiceClient;
+import org.apache.sentry.provider.file.CompiledPolicyFile;
+import org.apache.sentry.provider.file.SimpleFileProviderBackend;
 import org.apache.sentry.service.thrift.SentryServiceClientFactory;
 
 /**
@@ -76,6 +81,7 @@ public class SentryConfigTool {
   private String passWord = null;
   private String importPolicyFilePath = null;
   private String exportPolicyFilePath = null;
+  private String compiledPolicyFilePath = null;
   private String objectPath = null;
   private boolean listPrivs = false;
   private boolean validate = false;
@@ -144,6 +150,14 @@ public class SentryConfigTool {
     this.exportPolicyFilePath = exportPolicyFilePath;
   }
 
+  public String getCompiledPolicyFilePath() {
+    return compiledPolicyFilePath;
+  }
+
+  public void setCompiledPolicyFilePath(String compiledPolicyFilePath) {
+    this.compiledPolicyFilePath = compiledPolicyFilePath;
+  }
+
   public String getSentrySiteFile() {
     return sentrySiteFile;
   }
@@ -281,6 +295,30 @@ public class SentryConfigTool {
     System.out.println("No errors found in the policy file");
   }
 
+  // compile the validated policy files to a binary policy file, which the
+  // file provider backend reads without parsing them again
+  public void compilePolicy() throws Exception {
+    String resource = getAuthzConf().get(AuthzConfVars.AUTHZ_PROVIDER_RESOURCE.getVar());
+    String serverName = new Server(getAuthzConf().get(
+        AuthzConfVars.AUTHZ_SERVER_NAME.getVar())).getName();
+    SimpleFileProviderBackend providerBackend = new SimpleFileProviderBackend(getAuthzConf(),
+        resource);
+    ProviderBackendContext context = new ProviderBackendContext();
+    context.setAllowPerDatabase(true);
+    context.setValidators(HivePrivilegeModel.getInstance().getPrivilegeValidators(serverName));
+    providerBackend.initialize(context);
+    try {
+      providerBackend.validatePolicy(true);
+    } catch (SentryConfigurationException e) {
+      printConfigErrors(e);
+      throw e;
+    }
+    Path compiledPolicyPath = new Path(getCompiledPolicyFilePath());
+    CompiledPolicyFile.write(compiledPolicyPath.getFileSystem(getAuthzConf()), compiledPolicyPath,
+        providerBackend.getGroupRolePrivilegeTable());
+    System.out.println("Compiled policy file " + resource + " to " + compiledPolicyPath);
+  }
+
   // import the sentry mapping data to database
   public void importPolicy() throws Exception {
     String requestorUserName = System.getProperty("user.name", "");
@@ -458,6 +496,7 @@ public class SentryConfigTool {
    *   -E,--export                 Export policy file
    *   -o,--overwrite              Overwrite the exist role data when do the import
    *   -b,--objectPath             The path of the object whose privileges will be exported
+   *   -c,--compile <arg>          Compile policy file to the given binary policy file
    * </pre>
    *
    * @param args
@@ -491,6 +530,10 @@ public class SentryConfigTool {
 
     Option exportOpt = new Option("E", "export", true, "Export policy file");
     exportOpt.setRequired(false);
+
+    Option compileOpt = new Option("c", "compile", true,
+        "Compile policy file to the given binary policy file");
+    compileOpt.setRequired(false);
     // required args
     OptionGroup sentryOptGroup = new OptionGroup();
     sentryOptGroup.addOption(helpOpt);
@@ -500,6 +543,7 @@ public class SentryConfigTool {
     sentryOptGroup.addOption(listPrivsOpt);
     sentryOptGroup.addOption(importOpt);
     sentryOptGroup.addOption(exportOpt);
+    sentryOptGroup.addOption(compileOpt);
     sentryOptGroup.setRequired(true);
     sentryOptions.addOptionGroup(sentryOptGroup);
 
@@ -564,6 +608,8 @@ public class SentryConfigTool {
           setImportPolicyFilePath(opt.getValue());
         } else if (opt.getOpt().equals("E")) {
           setExportPolicyFilePath(opt.getValue());
+        } else if (opt.getOpt().equals("c")) {
+          setCompiledPolicyFilePath(opt.getValue());
         } else if (opt.getOpt().equals("h")) {
           usage(sentryOptions);
         } else if (opt.getOpt().equals("d")) {
@@ -616,6 +662,10 @@ public class SentryConfigTool {
           sentryTool.exportPolicy();
         }
 
+        if (!StringUtils.isEmpty(sentryTool.getCompiledPolicyFilePath())) {
+          sentryTool.compilePolicy();
+        }
+
         // list permissions for give user
         if (sentryTool.isListPrivs()) {
           sentryTool.listPrivs();
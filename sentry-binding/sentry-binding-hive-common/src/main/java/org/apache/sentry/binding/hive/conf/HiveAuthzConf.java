@@ -105,6 +105,9 @@ public class HiveAuthzConf extends Configuration {
     AUTHZ_SYNC_ALTER_WITH_POLICY_STORE("sentry.hive.sync.alter", "true"),
     AUTHZ_SYNC_CREATE_WITH_POLICY_STORE("sentry.hive.sync.create", "false"),
     AUTHZ_SYNC_DROP_WITH_POLICY_STORE("sentry.hive.sync.drop", "true"),
+    AUTHZ_PRIVILEGE_SNAPSHOT_CACHE_ENABLED("sentry.hive.privilege.snapshot.cache.enabled", "false"),
+    AUTHZ_PRIVILEGE_SNAPSHOT_CACHE_TTL_SECS("sentry.hive.privilege.snapshot.cache.ttl.secs", "30"),
+    AUTHZ_PRIVILEGE_SNAPSHOT_CACHE_MAX_SIZE("sentry.hive.privilege.snapshot.cache.max.size", "1000"),
 
     AUTHZ_PROVIDER_DEPRECATED("hive.sentry.provider",
       "org.apache.sentry.provider.file.ResourceAuthorizationProvider"),
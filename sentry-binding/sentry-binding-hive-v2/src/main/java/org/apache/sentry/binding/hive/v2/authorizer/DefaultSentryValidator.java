@@ -18,6 +18,7 @@ import static org.apache.hadoop.hive.metastore.MetaStoreUtils.DEFAULT_DATABASE_N
 
 import java.security.CodeSource;
 import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.Collections;
 import java.util.EnumSet;
 import java.util.List;
@@ -393,31 +394,22 @@ public class DefaultSentryValidator extends SentryHiveAuthorizationValidator {
                 org.apache.sentry.binding.hive.authz.HiveAuthzPrivileges.HiveOperationType.INFO)
             .build();
 
+    List<List<DBModelAuthorizable>> inputHierarchy = new ArrayList<List<DBModelAuthorizable>>();
     for (HivePrivilegeObject obj : listObjs) {
-      // if user has privileges on table, add to filtered list, else discard
-      Table table = new Table(obj.getObjectName());
-      Database database;
-      database = new Database(obj.getDbname());
-
-      List<List<DBModelAuthorizable>> inputHierarchy = new ArrayList<List<DBModelAuthorizable>>();
-      List<List<DBModelAuthorizable>> outputHierarchy = new ArrayList<List<DBModelAuthorizable>>();
       List<DBModelAuthorizable> externalAuthorizableHierarchy =
           new ArrayList<DBModelAuthorizable>();
       externalAuthorizableHierarchy.add(hiveAuthzBinding.getAuthServer());
-      externalAuthorizableHierarchy.add(database);
-      externalAuthorizableHierarchy.add(table);
+      externalAuthorizableHierarchy.add(new Database(obj.getDbname()));
+      externalAuthorizableHierarchy.add(new Table(obj.getObjectName()));
       externalAuthorizableHierarchy.add(Column.ALL);
       inputHierarchy.add(externalAuthorizableHierarchy);
+    }
 
-      try {
-        hiveAuthzBinding.authorize(HiveOperation.SHOWTABLES, tableMetaDataPrivilege, subject,
-            inputHierarchy, outputHierarchy);
-        filteredResult.add(obj);
-      } catch (AuthorizationException e) {
-        // squash the exception, user doesn't have privileges, so the table is
-        // not added to
-        // filtered list.
-      }
+    // if user has privileges on table, add to filtered list, else discard
+    BitSet authorized = hiveAuthzBinding.authorizeBatch(HiveOperation.SHOWTABLES,
+        tableMetaDataPrivilege, subject, inputHierarchy);
+    for (int i = authorized.nextSetBit(0); i >= 0; i = authorized.nextSetBit(i + 1)) {
+      filteredResult.add(listObjs.get(i));
     }
     return filteredResult;
   }
@@ -438,38 +430,33 @@ public class DefaultSentryValidator extends SentryHiveAuthorizationValidator {
                 org.apache.sentry.binding.hive.authz.HiveAuthzPrivileges.HiveOperationType.QUERY)
             .build();
 
+    boolean restrictDefaultDB = !"false".equalsIgnoreCase(hiveAuthzBinding.getAuthzConf().get(
+        HiveAuthzConf.AuthzConfVars.AUTHZ_RESTRICT_DEFAULT_DB.getVar(), "false"));
+    List<List<DBModelAuthorizable>> inputHierarchy = new ArrayList<List<DBModelAuthorizable>>();
     for (HivePrivilegeObject obj : listObjs) {
-      // if user has privileges on database, add to filtered list, else discard
-      Database database = null;
-
-      // if default is not restricted, continue
-      if (DEFAULT_DATABASE_NAME.equalsIgnoreCase(obj.getObjectName())
-          && "false".equalsIgnoreCase(hiveAuthzBinding.getAuthzConf().get(
-              HiveAuthzConf.AuthzConfVars.AUTHZ_RESTRICT_DEFAULT_DB.getVar(), "false"))) {
-        filteredResult.add(obj);
+      // if default is not restricted, it is not authorized
+      if (DEFAULT_DATABASE_NAME.equalsIgnoreCase(obj.getObjectName()) && !restrictDefaultDB) {
         continue;
       }
 
-      database = new Database(obj.getObjectName());
-
-      List<List<DBModelAuthorizable>> inputHierarchy = new ArrayList<List<DBModelAuthorizable>>();
-      List<List<DBModelAuthorizable>> outputHierarchy = new ArrayList<List<DBModelAuthorizable>>();
       List<DBModelAuthorizable> externalAuthorizableHierarchy =
           new ArrayList<DBModelAuthorizable>();
       externalAuthorizableHierarchy.add(hiveAuthzBinding.getAuthServer());
-      externalAuthorizableHierarchy.add(database);
+      externalAuthorizableHierarchy.add(new Database(obj.getObjectName()));
       externalAuthorizableHierarchy.add(Table.ALL);
       externalAuthorizableHierarchy.add(Column.ALL);
       inputHierarchy.add(externalAuthorizableHierarchy);
+    }
 
-      try {
-        hiveAuthzBinding.authorize(HiveOperation.SHOWDATABASES, anyPrivilege, subject,
-            inputHierarchy, outputHierarchy);
+    // if user has privileges on database, add to filtered list, else discard
+    BitSet authorized = hiveAuthzBinding.authorizeBatch(HiveOperation.SHOWDATABASES,
+        anyPrivilege, subject, inputHierarchy);
+    int i = 0;
+    for (HivePrivilegeObject obj : listObjs) {
+      if (DEFAULT_DATABASE_NAME.equalsIgnoreCase(obj.getObjectName()) && !restrictDefaultDB) {
+        filteredResult.add(obj);
+      } else if (authorized.get(i++)) {
         filteredResult.add(obj);
-      } catch (AuthorizationException e) {
-        // squash the exception, user doesn't have privileges, so the table is
-        // not added to
-        // filtered list.
       }
     }
     return filteredResult;
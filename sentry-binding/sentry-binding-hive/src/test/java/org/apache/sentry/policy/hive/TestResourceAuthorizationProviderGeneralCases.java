@@ -18,7 +18,9 @@ package org.apache.sentry.policy.hive;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.BitSet;
 import java.util.EnumSet;
 import java.util.List;
 import java.util.Set;
@@ -180,6 +182,29 @@ public class TestResourceAuthorizationProviderGeneralCases {
     doTestResourceAuthorizationProvider(SUB_JUNIOR_ANALYST, SVR_ALL, DB_JR_ANALYST, TBL_PURCHASES, SELECT, true);
   }
 
+  @Test
+  public void testHasAccessBatch() throws Exception {
+    List<List<Authorizable>> hierarchies = new ArrayList<List<Authorizable>>();
+    for (Server server : Arrays.asList(SVR_SERVER1, SVR_ALL)) {
+      for (Database database : Arrays.asList(DB_CUSTOMERS, DB_ANALYST, DB_JR_ANALYST)) {
+        hierarchies.add(Arrays.<Authorizable>asList(server, database, TBL_PURCHASES));
+      }
+    }
+    for (Subject subject : Arrays.asList(SUB_ADMIN, SUB_MANAGER, SUB_ANALYST, SUB_JUNIOR_ANALYST)) {
+      for (Set<? extends Action> privileges : Arrays.asList(ALL, SELECT, INSERT)) {
+        BitSet authorized = authzProvider.hasAccessBatch(subject, hierarchies, privileges,
+            ActiveRoleSet.ALL);
+        for (int i = 0; i < hierarchies.size(); i++) {
+          Assert.assertEquals(subject + " " + hierarchies.get(i) + " " + privileges,
+              authzProvider.hasAccess(subject, hierarchies.get(i), privileges, ActiveRoleSet.ALL),
+              authorized.get(i));
+        }
+      }
+    }
+    Assert.assertTrue(authzProvider.hasAccessBatch(SUB_ADMIN, new ArrayList<List<Authorizable>>(),
+        SELECT, ActiveRoleSet.ALL).isEmpty());
+  }
+
   public class MockGroupMappingServiceProvider implements GroupMappingService {
     private final Multimap<String, String> userToGroupMap;
 
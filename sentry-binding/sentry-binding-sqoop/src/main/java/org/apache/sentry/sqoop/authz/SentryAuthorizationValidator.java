@@ -16,6 +16,7 @@
  */
 package org.apache.sentry.sqoop.authz;
 
+import java.util.BitSet;
 import java.util.List;
 
 import org.apache.sentry.core.common.Subject;
@@ -49,15 +50,15 @@ public class SentryAuthorizationValidator extends AuthorizationValidator {
     if (principalDesc.getType() != PrincipalType.USER) {
       throw new SqoopException(SecurityError.AUTH_0014,SentrySqoopError.AUTHORIZE_CHECK_NOT_SUPPORT_FOR_PRINCIPAL);
     }
-    for (MPrivilege privilege : privileges) {
-      if (LOG.isDebugEnabled()) {
-        LOG.debug("Going to authorize check on privilege : " + privilege +
-            " for principal: " + principal);
-      }
-      if (!binding.authorize(new Subject(principalDesc.getName()), privilege)) {
-        throw new SqoopException(SecurityError.AUTH_0014, "User " + principalDesc.getName() +
-            " does not have privileges for : " + privilege.toString());
-      }
+    if (LOG.isDebugEnabled()) {
+      LOG.debug("Going to authorize check on privileges : " + privileges +
+          " for principal: " + principal);
+    }
+    BitSet authorized = binding.authorize(new Subject(principalDesc.getName()), privileges);
+    int denied = authorized.nextClearBit(0);
+    if (denied < privileges.size()) {
+      throw new SqoopException(SecurityError.AUTH_0014, "User " + principalDesc.getName() +
+          " does not have privileges for : " + privileges.get(denied).toString());
     }
   }
 }
@@ -17,7 +17,9 @@
 package org.apache.sentry.sqoop.binding;
 
 import java.lang.reflect.Constructor;
+import java.util.BitSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 import org.apache.hadoop.conf.Configuration;
@@ -53,6 +55,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
 import com.google.common.collect.Sets;
 
 public class SqoopAuthBinding {
@@ -159,6 +162,44 @@ public class SqoopAuthBinding {
         Sets.newHashSet(actionFactory.getActionByName(privilege.getAction())), ActiveRoleSet.ALL);
   }
 
+  /**
+   * Authorize access to many Sqoop privileges at once, resolving the privileges
+   * of the subject once per distinct action
+   * @param subject
+   * @param privileges
+   * @return a BitSet where bit i is set if the i-th privilege is authorized
+   */
+  public BitSet authorize(Subject subject, List<MPrivilege> privileges) {
+    Map<String, List<Integer>> indexesByAction = Maps.newHashMap();
+    for (int i = 0; i < privileges.size(); i++) {
+      String action = privileges.get(i).getAction();
+      List<Integer> indexes = indexesByAction.get(action);
+      if (indexes == null) {
+        indexes = Lists.newArrayList();
+        indexesByAction.put(action, indexes);
+      }
+      indexes.add(i);
+    }
+
+    BitSet authorized = new BitSet(privileges.size());
+    for (Map.Entry<String, List<Integer>> entry : indexesByAction.entrySet()) {
+      List<List<Authorizable>> authorizableHierarchies = Lists.newArrayList();
+      for (int index : entry.getValue()) {
+        List<Authorizable> authorizables = toAuthorizable(privileges.get(index).getResource());
+        if (!hasServerInclude(authorizables)) {
+          authorizables.add(0, sqoopServer);
+        }
+        authorizableHierarchies.add(authorizables);
+      }
+      BitSet allowed = authProvider.hasAccessBatch(subject, authorizableHierarchies,
+          Sets.newHashSet(actionFactory.getActionByName(entry.getKey())), ActiveRoleSet.ALL);
+      for (int i = allowed.nextSetBit(0); i >= 0; i = allowed.nextSetBit(i + 1)) {
+        authorized.set(entry.getValue().get(i));
+      }
+    }
+    return authorized;
+  }
+
   public boolean hasServerInclude(List<Authorizable> authorizables) {
     for (Authorizable authorizable : authorizables) {
       if (authorizable.getTypeName().equalsIgnoreCase(sqoopServer.getTypeName())) {
@@ -0,0 +1,159 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.sentry.core.common.service;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.hadoop.conf.Configuration;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Preconditions;
+import com.google.common.base.Throwables;
+import com.google.common.base.Ticker;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.ListenableFutureTask;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+
+/**
+ * GroupMappingService which caches the groups of another one, typically a
+ * {@link HadoopGroupMappingService} backed by a slow directory.
+ * <ul>
+ * <li>The groups of a user are loaded once however many threads ask for
+ * them, the other threads wait for the load.</li>
+ * <li>Once the refresh interval has passed, the next request triggers a
+ * reload on a background thread and is served the cached groups, so that
+ * authorization does not wait for the directory.</li>
+ * <li>Groups which were not reloaded within the ttl are expired.</li>
+ * <li>Failures are not cached, and a failed reload keeps the groups loaded
+ * before until they expire. Hadoop's Groups caches the users without groups
+ * itself, see hadoop.security.groups.negative-cache.secs.</li>
+ * </ul>
+ */
+public class CachingGroupMappingService implements GroupMappingService {
+
+  public static final String CONF_PREFIX = "sentry.group.mapping.cache";
+  public static final String CACHE_ENABLED = CONF_PREFIX + ".enabled";
+  public static final boolean CACHE_ENABLED_DEFAULT = false;
+  public static final String CACHE_TTL_SECS = CONF_PREFIX + ".ttl.secs";
+  public static final long CACHE_TTL_SECS_DEFAULT = 300;
+  public static final String CACHE_REFRESH_SECS = CONF_PREFIX + ".refresh.secs";
+  public static final long CACHE_REFRESH_SECS_DEFAULT = 60;
+  public static final String CACHE_MAX_SIZE = CONF_PREFIX + ".max.size";
+  public static final long CACHE_MAX_SIZE_DEFAULT = 10000;
+
+  private static final int REFRESH_THREADS = 2;
+
+  // shared by all the caches, the threads are only started by the first refresh
+  private static final ExecutorService REFRESH_EXECUTOR = Executors.newFixedThreadPool(
+      REFRESH_THREADS, new ThreadFactoryBuilder().setDaemon(true)
+          .setNameFormat("sentry-group-mapping-refresh-%d").build());
+
+  private final GroupMappingService groupMapping;
+  private final LoadingCache<String, Set<String>> cache;
+
+  public CachingGroupMappingService(GroupMappingService groupMapping, Configuration conf) {
+    this(groupMapping,
+        TimeUnit.SECONDS.toMillis(conf.getLong(CACHE_TTL_SECS, CACHE_TTL_SECS_DEFAULT)),
+        TimeUnit.SECONDS.toMillis(conf.getLong(CACHE_REFRESH_SECS, CACHE_REFRESH_SECS_DEFAULT)),
+        conf.getLong(CACHE_MAX_SIZE, CACHE_MAX_SIZE_DEFAULT),
+        Ticker.systemTicker(), REFRESH_EXECUTOR);
+  }
+
+  /**
+   * @param refreshMs age of the groups after which they are reloaded in the
+   *        background, no reload happens if it is not lower than the ttl
+   */
+  @VisibleForTesting
+  public CachingGroupMappingService(GroupMappingService groupMapping, long ttlMs,
+      long refreshMs, long maxSize, Ticker ticker,
+      final Executor refreshExecutor) {
+    Preconditions.checkNotNull(groupMapping, "GroupMappingService cannot be null");
+    Preconditions.checkArgument(ttlMs > 0, "Group mapping cache ttl must be positive: " + ttlMs);
+    Preconditions.checkArgument(maxSize > 0,
+        "Group mapping cache size must be positive: " + maxSize);
+    this.groupMapping = groupMapping;
+    CacheBuilder<Object, Object> builder = CacheBuilder.newBuilder()
+        .maximumSize(maxSize)
+        .expireAfterWrite(ttlMs, TimeUnit.MILLISECONDS)
+        .ticker(ticker);
+    if (refreshMs > 0 && refreshMs < ttlMs) {
+      builder.refreshAfterWrite(refreshMs, TimeUnit.MILLISECONDS);
+    }
+    this.cache = builder.build(new CacheLoader<String, Set<String>>() {
+      @Override
+      public Set<String> load(String user) {
+        return CachingGroupMappingService.this.groupMapping.getGroups(user);
+      }
+
+      @Override
+      public ListenableFuture<Set<String>> reload(final String user, Set<String> oldGroups) {
+        ListenableFutureTask<Set<String>> task = ListenableFutureTask.create(
+            new Callable<Set<String>>() {
+              @Override
+              public Set<String> call() {
+                return CachingGroupMappingService.this.groupMapping.getGroups(user);
+              }
+            });
+        refreshExecutor.execute(task);
+        return task;
+      }
+    });
+  }
+
+  /**
+   * @return the groupMapping cached as configured, or itself if the cache is
+   *         not enabled
+   */
+  public static GroupMappingService wrap(GroupMappingService groupMapping, Configuration conf) {
+    if (conf.getBoolean(CACHE_ENABLED, CACHE_ENABLED_DEFAULT)) {
+      return new CachingGroupMappingService(groupMapping, conf);
+    }
+    return groupMapping;
+  }
+
+  @Override
+  public Set<String> getGroups(String user) {
+    if (user == null) {
+      return groupMapping.getGroups(user);
+    }
+    Set<String> groups;
+    try {
+      groups = cache.getUnchecked(user);
+    } catch (UncheckedExecutionException e) {
+      throw Throwables.propagate(e.getCause());
+    }
+    // the callers own the returned set, as for the other implementations
+    return new HashSet<String>(groups);
+  }
+
+  /**
+   * Discard the cached groups of all the users
+   */
+  public void invalidateAll() {
+    cache.invalidateAll();
+  }
+}
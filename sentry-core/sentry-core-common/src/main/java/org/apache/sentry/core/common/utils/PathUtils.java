@@ -57,57 +57,61 @@ public class PathUtils {
    * Therefore the test is "/a/b".startsWith("/a");
    */
   private static boolean _impliesURI(String privilege, String request) {
+    return impliesURI(qualifyURI(privilege, "Privilege"), qualifyURI(request, "Request"));
+  }
 
-    URI privilegeURI;
-    URI requestURI;
-    try {
-      // build privilege URI, add default scheme and/or authority if missing
-      privilegeURI = makeFullQualifiedURI(privilege);
-      if (privilegeURI == null) {
-        LOGGER.warn("Privilege URI " + privilege + " is not valid. Path is not absolute.");
-        return false;
-      }
+  /**
+   * Compare URIs which have already been qualified, so that a URI compared many
+   * times is only parsed once.
+   * @return false if one of the URIs is not valid (null)
+   */
+  public static boolean impliesURI(QualifiedURI privilege, QualifiedURI request) {
+    return privilege != null && request != null && privilege.implies(request);
+  }
+
+  /**
+   * Qualify a privilege URI, after substituting the system properties it
+   * references as {@link #impliesURI(String, String)} does.
+   * @return the qualified URI, or null if the URI is not valid
+   */
+  public static QualifiedURI qualifyPrivilegeURI(String privilege) {
+    return qualifyURI(new StrSubstitutor(System.getProperties()).replace(privilege), "Privilege");
+  }
+
+  /**
+   * Qualify a request URI.
+   * @return the qualified URI, or null if the URI is not valid
+   */
+  public static QualifiedURI qualifyRequestURI(String request) {
+    return qualifyURI(request, "Request");
+  }
 
-      // build request URI, add default scheme and/or authority if missing
-      requestURI = makeFullQualifiedURI(request);
-      if (requestURI == null) {
-        LOGGER.warn("Request URI " + request + " is not valid. Path is not absolute.");
-        return false;
+  private static QualifiedURI qualifyURI(String uriName, String uriType) {
+    URI uri;
+    try {
+      // build URI, add default scheme and/or authority if missing
+      uri = makeFullQualifiedURI(uriName);
+      if (uri == null) {
+        LOGGER.warn(uriType + " URI " + uriName + " is not valid. Path is not absolute.");
+        return null;
       }
     } catch (IOException e) {
       LOGGER.warn("Unable to get the configured filesystem implementation", e);
-      return false;
-    }
-
-    // scheme and path must be present in privilege URI
-    if (privilegeURI.getScheme() == null || privilegeURI.getPath() == null) {
-      LOGGER.warn("Privilege URI " + request + " is not valid. Missing scheme or path.");
-      return false;
-    }
-
-    // scheme and path must be present in request URI
-    if (requestURI.getScheme() == null || requestURI.getPath() == null) {
-      LOGGER.warn("Request URI " + request + " is not valid. Missing scheme or path.");
-      return false;
+      return null;
     }
 
-    // schemes in privilege and request URIs must be equal
-    if (privilegeURI.getScheme() != null && !privilegeURI.getScheme().equals(requestURI.getScheme())) {
-      return false;
+    // scheme and path must be present in URI
+    if (uri.getScheme() == null || uri.getPath() == null) {
+      LOGGER.warn(uriType + " URI " + uriName + " is not valid. Missing scheme or path.");
+      return null;
     }
 
-    // request path does not contain relative parts /a/../b &&
-    // request path starts with privilege path &&
-    // authorities (nullable) are equal
-    String requestPath = ensureEndsWithSeparator(requestURI.getPath()).replace("//", "/");
-    String privilegePath = ensureEndsWithSeparator(privilegeURI.getPath()).replace("//", "/");
-    if (requestURI.getPath().equals(requestURI.normalize().getPath())
-        && requestPath.startsWith(privilegePath)
-        && Strings.nullToEmpty(privilegeURI.getAuthority()).equals(
-            Strings.nullToEmpty(requestURI.getAuthority()))) {
-          return true;
+    // path does not contain relative parts /a/../b
+    if (!uri.getPath().equals(uri.normalize().getPath())) {
+      return null;
     }
-    return false;
+    String path = ensureEndsWithSeparator(uri.getPath()).replace("//", "/");
+    return new QualifiedURI(uri.getScheme(), Strings.nullToEmpty(uri.getAuthority()), path);
   }
 
   /**
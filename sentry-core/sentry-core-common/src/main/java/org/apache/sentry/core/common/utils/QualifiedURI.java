@@ -0,0 +1,103 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.sentry.core.common.utils;
+
+import java.util.List;
+
+import com.google.common.base.Splitter;
+import com.google.common.collect.ImmutableList;
+
+/**
+ * A fully qualified URI, as compared by {@link PathUtils#impliesURI}. The
+ * scheme and authority are the ones of the default file system when they are
+ * missing, and the path always ends with a separator, so that a privilege on
+ * /a implies /a/b but not /ab. Instances are created by
+ * {@link PathUtils#qualifyPrivilegeURI} and {@link PathUtils#qualifyRequestURI}
+ * and are immutable.
+ */
+public final class QualifiedURI {
+  private static final Splitter PATH_SPLITTER = Splitter.on('/');
+
+  private final String scheme;
+  private final String authority;
+  private final String path;
+
+  QualifiedURI(String scheme, String authority, String path) {
+    this.scheme = scheme;
+    this.authority = authority;
+    this.path = path;
+  }
+
+  /**
+   * @return true if the request URI is this URI or one of its children
+   */
+  public boolean implies(QualifiedURI request) {
+    return scheme.equals(request.scheme) && authority.equals(request.authority)
+        && request.path.startsWith(path);
+  }
+
+  public String getScheme() {
+    return scheme;
+  }
+
+  /**
+   * @return the authority, empty if there is none
+   */
+  public String getAuthority() {
+    return authority;
+  }
+
+  /**
+   * @return the path, ending with a separator
+   */
+  public String getPath() {
+    return path;
+  }
+
+  /**
+   * @return the components of the path, "/a/b/" gives [a, b] and "/" none
+   */
+  public List<String> getPathComponents() {
+    if (path.length() == 1) {
+      return ImmutableList.of();
+    }
+    return ImmutableList.copyOf(PATH_SPLITTER.split(path.substring(1, path.length() - 1)));
+  }
+
+  @Override
+  public int hashCode() {
+    return (scheme.hashCode() * 31 + authority.hashCode()) * 31 + path.hashCode();
+  }
+
+  @Override
+  public boolean equals(Object obj) {
+    if (this == obj) {
+      return true;
+    }
+    if (!(obj instanceof QualifiedURI)) {
+      return false;
+    }
+    QualifiedURI other = (QualifiedURI) obj;
+    return scheme.equals(other.scheme) && authority.equals(other.authority)
+        && path.equals(other.path);
+  }
+
+  @Override
+  public String toString() {
+    return scheme + "://" + authority + path;
+  }
+}
@@ -0,0 +1,108 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.sentry.core.common.utils;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.google.common.base.Throwables;
+
+/**
+ * Coalesces concurrent identical requests, e.g. the lookups of the privileges
+ * of a user by many threads at once, into a single call. The first thread
+ * asking for a key makes the call, the threads asking for the same key while
+ * the call is in flight wait for it and share its result or its exception.
+ * A waiting thread which times out makes the call itself rather than fail.
+ * A request made after the call completed makes a new call, so nothing is
+ * cached.
+ */
+public class RequestCoalescer<K, V> {
+
+  private final ConcurrentMap<K, FutureTask<V>> inFlight = new ConcurrentHashMap<K, FutureTask<V>>();
+  private final long timeoutMs;
+  private final AtomicLong issuedCount = new AtomicLong();
+  private final AtomicLong coalescedCount = new AtomicLong();
+  private final AtomicLong timeoutCount = new AtomicLong();
+
+  /**
+   * @param timeoutMs how long the coalesced requests wait for the call in flight
+   *        before making their own
+   */
+  public RequestCoalescer(long timeoutMs) {
+    this.timeoutMs = timeoutMs;
+  }
+
+  /**
+   * Returns the result of the call for the key, which is made by this thread
+   * unless a call for the key is already in flight. If that call doesn't
+   * complete in time this thread makes its own.
+   * @throws Exception the exception of the call, also when it was made by
+   *         another thread
+   */
+  public V get(K key, Callable<V> call) throws Exception {
+    FutureTask<V> task = new FutureTask<V>(call);
+    FutureTask<V> current = inFlight.putIfAbsent(key, task);
+    try {
+      if (current == null) {
+        issuedCount.incrementAndGet();
+        try {
+          task.run();
+        } finally {
+          inFlight.remove(key, task);
+        }
+        return task.get();
+      }
+      coalescedCount.incrementAndGet();
+      try {
+        return current.get(timeoutMs, TimeUnit.MILLISECONDS);
+      } catch (TimeoutException e) {
+        timeoutCount.incrementAndGet();
+        return call.call();
+      }
+    } catch (ExecutionException e) {
+      Throwables.propagateIfInstanceOf(e.getCause(), Exception.class);
+      throw Throwables.propagate(e.getCause());
+    }
+  }
+
+  /**
+   * @return the number of calls made
+   */
+  public long getIssuedCount() {
+    return issuedCount.get();
+  }
+
+  /**
+   * @return the number of requests which waited for a call in flight instead of making one
+   */
+  public long getCoalescedCount() {
+    return coalescedCount.get();
+  }
+
+  /**
+   * @return the number of coalesced requests which timed out and made their own call
+   */
+  public long getTimeoutCount() {
+    return timeoutCount.get();
+  }
+}
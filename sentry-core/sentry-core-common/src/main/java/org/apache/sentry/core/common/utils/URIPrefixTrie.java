@@ -0,0 +1,126 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.sentry.core.common.utils;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.annotation.concurrent.NotThreadSafe;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * Values keyed by {@link QualifiedURI}, stored in one path component trie per
+ * scheme and authority. All the values whose URI implies a request URI are
+ * found by a single descent along the request path, instead of comparing the
+ * request with every URI.
+ */
+@NotThreadSafe
+public class URIPrefixTrie<V> {
+
+  private final Map<String, Node<V>> roots = new HashMap<String, Node<V>>();
+  private int size;
+
+  /**
+   * @return the value of the given URI, or null if there is none
+   */
+  public V get(QualifiedURI uri) {
+    Node<V> node = roots.get(rootKey(uri));
+    if (node == null) {
+      return null;
+    }
+    for (String component : uri.getPathComponents()) {
+      node = node.children.get(component);
+      if (node == null) {
+        return null;
+      }
+    }
+    return node.value;
+  }
+
+  /**
+   * Set the value of the given URI
+   * @return the previous value of the URI, or null if there was none
+   */
+  public V put(QualifiedURI uri, V value) {
+    Preconditions.checkNotNull(value, "Value cannot be null");
+    String rootKey = rootKey(uri);
+    Node<V> node = roots.get(rootKey);
+    if (node == null) {
+      node = new Node<V>();
+      roots.put(rootKey, node);
+    }
+    for (String component : uri.getPathComponents()) {
+      Node<V> child = node.children.get(component);
+      if (child == null) {
+        child = new Node<V>();
+        node.children.put(component, child);
+      }
+      node = child;
+    }
+    V previous = node.value;
+    node.value = value;
+    if (previous == null) {
+      size++;
+    }
+    return previous;
+  }
+
+  /**
+   * @return the values of all the URIs implying the given request URI, from
+   *         the shortest URI to the longest one
+   */
+  public List<V> getImplying(QualifiedURI request) {
+    List<V> result = new ArrayList<V>();
+    Node<V> node = roots.get(rootKey(request));
+    if (node == null) {
+      return result;
+    }
+    if (node.value != null) {
+      result.add(node.value);
+    }
+    for (String component : request.getPathComponents()) {
+      node = node.children.get(component);
+      if (node == null) {
+        break;
+      }
+      if (node.value != null) {
+        result.add(node.value);
+      }
+    }
+    return result;
+  }
+
+  public int size() {
+    return size;
+  }
+
+  public boolean isEmpty() {
+    return size == 0;
+  }
+
+  private static String rootKey(QualifiedURI uri) {
+    return uri.getScheme() + "://" + uri.getAuthority();
+  }
+
+  private static final class Node<V> {
+    private final Map<String, Node<V>> children = new HashMap<String, Node<V>>();
+    private V value;
+  }
+}
@@ -0,0 +1,220 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.sentry.core.common.service;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.sentry.core.common.exception.SentryGroupNotFoundException;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.common.base.Ticker;
+import com.google.common.collect.Sets;
+
+public class TestCachingGroupMappingService {
+
+  private static final long TTL_MS = 10000;
+  private static final long REFRESH_MS = 1000;
+
+  private final Map<String, Set<String>> groups = new ConcurrentHashMap<String, Set<String>>();
+  private final AtomicInteger loads = new AtomicInteger();
+  private final AtomicBoolean directoryDown = new AtomicBoolean();
+  private final FakeTicker ticker = new FakeTicker();
+  private final List<Runnable> refreshes = new ArrayList<Runnable>();
+  private CachingGroupMappingService groupMapping;
+
+  @Before
+  public void setup() {
+    groups.put("user1", Sets.newHashSet("group1"));
+    GroupMappingService delegate = new GroupMappingService() {
+      @Override
+      public Set<String> getGroups(String user) {
+        loads.incrementAndGet();
+        if (directoryDown.get()) {
+          throw new SentryGroupNotFoundException("Unable to obtain groups for " + user,
+              new IOException("directory is down"));
+        }
+        Set<String> userGroups = groups.get(user);
+        if (userGroups == null) {
+          throw new SentryGroupNotFoundException("Unable to obtain groups for " + user);
+        }
+        return Sets.newHashSet(userGroups);
+      }
+    };
+    Executor refreshExecutor = new Executor() {
+      @Override
+      public void execute(Runnable command) {
+        refreshes.add(command);
+      }
+    };
+    groupMapping = new CachingGroupMappingService(delegate, TTL_MS, REFRESH_MS, 100, ticker,
+        refreshExecutor);
+  }
+
+  @Test
+  public void testCachedGroups() throws Exception {
+    assertEquals(Sets.newHashSet("group1"), groupMapping.getGroups("user1"));
+    groups.put("user1", Sets.newHashSet("group2"));
+    assertEquals(Sets.newHashSet("group1"), groupMapping.getGroups("user1"));
+    assertEquals(1, loads.get());
+    // the returned groups belong to the caller
+    groupMapping.getGroups("user1").add("group3");
+    assertEquals(Sets.newHashSet("group1"), groupMapping.getGroups("user1"));
+  }
+
+  @Test
+  public void testRefreshAhead() throws Exception {
+    assertEquals(Sets.newHashSet("group1"), groupMapping.getGroups("user1"));
+    groups.put("user1", Sets.newHashSet("group2"));
+    ticker.advance(REFRESH_MS + 1);
+    // the cached groups are served while they are reloaded in the background
+    assertEquals(Sets.newHashSet("group1"), groupMapping.getGroups("user1"));
+    assertEquals(Sets.newHashSet("group1"), groupMapping.getGroups("user1"));
+    assertEquals(1, refreshes.size());
+    refreshes.get(0).run();
+    assertEquals(Sets.newHashSet("group2"), groupMapping.getGroups("user1"));
+    assertEquals(2, loads.get());
+  }
+
+  @Test
+  public void testExpiry() throws Exception {
+    assertEquals(Sets.newHashSet("group1"), groupMapping.getGroups("user1"));
+    groups.put("user1", Sets.newHashSet("group2"));
+    ticker.advance(TTL_MS + 1);
+    // expired groups are not served even though they were not refreshed
+    assertEquals(Sets.newHashSet("group2"), groupMapping.getGroups("user1"));
+    assertEquals(2, loads.get());
+  }
+
+  @Test
+  public void testMissingGroupsNotCached() throws Exception {
+    assertMissing("user2");
+    groups.put("user2", Sets.newHashSet("group2"));
+    assertEquals(Sets.newHashSet("group2"), groupMapping.getGroups("user2"));
+    assertEquals(2, loads.get());
+  }
+
+  @Test
+  public void testLookupFailureNotCached() throws Exception {
+    directoryDown.set(true);
+    assertMissing("user1");
+    directoryDown.set(false);
+    assertEquals(Sets.newHashSet("group1"), groupMapping.getGroups("user1"));
+    assertEquals(2, loads.get());
+  }
+
+  @Test
+  public void testFailedRefreshKeepsGroups() throws Exception {
+    assertEquals(Sets.newHashSet("group1"), groupMapping.getGroups("user1"));
+    directoryDown.set(true);
+    ticker.advance(REFRESH_MS + 1);
+    assertEquals(Sets.newHashSet("group1"), groupMapping.getGroups("user1"));
+    assertEquals(1, refreshes.size());
+    refreshes.get(0).run();
+    assertEquals(2, loads.get());
+    // the groups loaded before are served until they expire
+    assertEquals(Sets.newHashSet("group1"), groupMapping.getGroups("user1"));
+    ticker.advance(TTL_MS);
+    assertMissing("user1");
+  }
+
+  @Test
+  public void testInvalidateAll() throws Exception {
+    assertEquals(Sets.newHashSet("group1"), groupMapping.getGroups("user1"));
+    groups.put("user1", Sets.newHashSet("group2"));
+    groupMapping.invalidateAll();
+    assertEquals(Sets.newHashSet("group2"), groupMapping.getGroups("user1"));
+  }
+
+  @Test
+  public void testSingleLoadPerUser() throws Exception {
+    final CountDownLatch loading = new CountDownLatch(1);
+    final CountDownLatch release = new CountDownLatch(1);
+    GroupMappingService slowDelegate = new GroupMappingService() {
+      @Override
+      public Set<String> getGroups(String user) {
+        loads.incrementAndGet();
+        loading.countDown();
+        try {
+          release.await();
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+        return Sets.newHashSet("group1");
+      }
+    };
+    final CachingGroupMappingService slowGroupMapping = new CachingGroupMappingService(
+        slowDelegate, TTL_MS, REFRESH_MS, 100, ticker, null);
+    final AtomicInteger served = new AtomicInteger();
+    List<Thread> threads = new ArrayList<Thread>();
+    for (int i = 0; i < 8; i++) {
+      Thread thread = new Thread() {
+        @Override
+        public void run() {
+          if (slowGroupMapping.getGroups("user1").contains("group1")) {
+            served.incrementAndGet();
+          }
+        }
+      };
+      threads.add(thread);
+      thread.start();
+    }
+    loading.await();
+    release.countDown();
+    for (Thread thread : threads) {
+      thread.join();
+    }
+    assertEquals(8, served.get());
+    assertEquals(1, loads.get());
+  }
+
+  private void assertMissing(String user) {
+    try {
+      groupMapping.getGroups(user);
+      fail("Groups of " + user + " should not be found");
+    } catch (SentryGroupNotFoundException e) {
+      // expected
+    }
+  }
+
+  private static class FakeTicker extends Ticker {
+    private final AtomicLong nanos = new AtomicLong();
+
+    @Override
+    public long read() {
+      return nanos.get();
+    }
+
+    void advance(long millis) {
+      nanos.addAndGet(TimeUnit.MILLISECONDS.toNanos(millis));
+    }
+  }
+}
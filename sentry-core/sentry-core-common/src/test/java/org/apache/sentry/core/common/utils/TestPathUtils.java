@@ -64,9 +64,13 @@ public class TestPathUtils {
     if (implies) {
       assertTrue(PathUtils.impliesURI(new URI(privilege), new URI(request)));
       assertTrue(PathUtils.impliesURI(privilege, request));
+      assertTrue(PathUtils.impliesURI(PathUtils.qualifyPrivilegeURI(privilege),
+          PathUtils.qualifyRequestURI(request)));
     } else {
       assertFalse(PathUtils.impliesURI(new URI(privilege), new URI(request)));
       assertFalse(PathUtils.impliesURI(privilege, request));
+      assertFalse(PathUtils.impliesURI(PathUtils.qualifyPrivilegeURI(privilege),
+          PathUtils.qualifyRequestURI(request)));
     }
   }
 
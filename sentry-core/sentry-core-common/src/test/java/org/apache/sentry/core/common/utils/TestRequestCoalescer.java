@@ -0,0 +1,146 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.sentry.core.common.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Test;
+
+public class TestRequestCoalescer {
+
+  private final ExecutorService executor = Executors.newFixedThreadPool(4);
+  private final CountDownLatch release = new CountDownLatch(1);
+  private final AtomicInteger calls = new AtomicInteger();
+
+  @After
+  public void teardown() {
+    release.countDown();
+    executor.shutdownNow();
+  }
+
+  // blocks until released, then returns a new object
+  private final Callable<Object> blockingCall = new Callable<Object>() {
+    @Override
+    public Object call() throws Exception {
+      calls.incrementAndGet();
+      release.await();
+      return new Object();
+    }
+  };
+
+  private List<Future<Object>> submit(final RequestCoalescer<String, Object> coalescer,
+      final String key, int count) {
+    List<Future<Object>> results = new ArrayList<Future<Object>>();
+    for (int i = 0; i < count; i++) {
+      results.add(executor.submit(new Callable<Object>() {
+        @Override
+        public Object call() throws Exception {
+          return coalescer.get(key, blockingCall);
+        }
+      }));
+    }
+    return results;
+  }
+
+  private static void awaitCoalesced(RequestCoalescer<?, ?> coalescer, long count)
+      throws InterruptedException {
+    while (coalescer.getCoalescedCount() < count) {
+      Thread.sleep(1);
+    }
+  }
+
+  @Test
+  public void testConcurrentRequestsShareCall() throws Exception {
+    RequestCoalescer<String, Object> coalescer = new RequestCoalescer<String, Object>(60000);
+    List<Future<Object>> results = submit(coalescer, "user1", 4);
+    awaitCoalesced(coalescer, 3);
+    release.countDown();
+    Object result = results.get(0).get();
+    for (Future<Object> other : results) {
+      assertSame(result, other.get());
+    }
+    assertEquals(1, calls.get());
+    assertEquals(1, coalescer.getIssuedCount());
+
+    // a later request makes a new call
+    coalescer.get("user1", blockingCall);
+    assertEquals(2, calls.get());
+  }
+
+  @Test
+  public void testDistinctKeys() throws Exception {
+    RequestCoalescer<String, Object> coalescer = new RequestCoalescer<String, Object>(60000);
+    List<Future<Object>> results = submit(coalescer, "user1", 1);
+    results.addAll(submit(coalescer, "user2", 1));
+    while (calls.get() < 2) {
+      Thread.sleep(1);
+    }
+    release.countDown();
+    assertEquals(2, coalescer.getIssuedCount());
+    assertEquals(0, coalescer.getCoalescedCount());
+    results.get(0).get();
+    results.get(1).get();
+  }
+
+  @Test
+  public void testExceptionIsShared() throws Exception {
+    RequestCoalescer<String, Object> coalescer = new RequestCoalescer<String, Object>(60000);
+    try {
+      coalescer.get("user1", new Callable<Object>() {
+        @Override
+        public Object call() throws Exception {
+          throw new IOException("server down");
+        }
+      });
+      fail("Expected IOException");
+    } catch (IOException e) {
+      assertEquals("server down", e.getMessage());
+    }
+  }
+
+  @Test
+  public void testTimeoutMakesOwnCall() throws Exception {
+    RequestCoalescer<String, Object> coalescer = new RequestCoalescer<String, Object>(10);
+    List<Future<Object>> results = submit(coalescer, "user1", 1);
+    while (calls.get() < 1) {
+      Thread.sleep(1);
+    }
+    final Object own = new Object();
+    assertSame(own, coalescer.get("user1", new Callable<Object>() {
+      @Override
+      public Object call() throws Exception {
+        return own;
+      }
+    }));
+    assertEquals(1, coalescer.getTimeoutCount());
+    assertFalse(results.get(0).isDone());
+  }
+}
@@ -0,0 +1,95 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.sentry.core.common.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class TestURIPrefixTrie {
+
+  private URIPrefixTrie<String> trie;
+
+  @Before
+  public void setup() {
+    trie = new URIPrefixTrie<String>();
+    put("hdfs://namenode:8020/");
+    put("hdfs://namenode:8020/user");
+    put("hdfs://namenode:8020/user/hive/warehouse");
+    put("hdfs://other:8020/user/hive");
+    put("s3a://bucket/data");
+  }
+
+  @Test
+  public void testGet() throws Exception {
+    assertEquals(5, trie.size());
+    assertEquals("hdfs://namenode:8020/user", trie.get(uri("hdfs://namenode:8020/user/")));
+    assertNull(trie.get(uri("hdfs://namenode:8020/user/hive")));
+    assertNull(trie.get(uri("hdfs://namenode:9000/user")));
+  }
+
+  @Test
+  public void testPut() throws Exception {
+    assertEquals("hdfs://namenode:8020/user", trie.put(uri("hdfs://namenode:8020/user"), "user"));
+    assertEquals(5, trie.size());
+    assertEquals("user", trie.get(uri("hdfs://namenode:8020/user")));
+  }
+
+  @Test
+  public void testGetImplying() throws Exception {
+    assertEquals(Arrays.asList("hdfs://namenode:8020/", "hdfs://namenode:8020/user",
+        "hdfs://namenode:8020/user/hive/warehouse"),
+        trie.getImplying(uri("hdfs://namenode:8020/user/hive/warehouse/db1.db/t1")));
+    assertEquals(Arrays.asList("hdfs://other:8020/user/hive"),
+        trie.getImplying(uri("hdfs://other:8020/user/hive")));
+    // /user/hive is distinct from /user/hivedata
+    assertEquals(Collections.emptyList(), trie.getImplying(uri("hdfs://other:8020/user/hivedata")));
+    // scheme and authority must be equal
+    assertTrue(trie.getImplying(uri("s3a://other/data/file")).isEmpty());
+    assertTrue(trie.getImplying(uri("hdfs://bucket/data/file")).isEmpty());
+  }
+
+  @Test
+  public void testGetImplyingAsImpliesURI() throws Exception {
+    for (String request : Arrays.asList("hdfs://namenode:8020/user/x", "hdfs://namenode:8020/",
+        "hdfs://other:8020/user/hive/x/y", "hdfs://other:8020/user", "s3a://bucket/data2")) {
+      int implying = 0;
+      for (String privilege : Arrays.asList("hdfs://namenode:8020/", "hdfs://namenode:8020/user",
+          "hdfs://namenode:8020/user/hive/warehouse", "hdfs://other:8020/user/hive",
+          "s3a://bucket/data")) {
+        if (PathUtils.impliesURI(privilege, request)) {
+          implying++;
+        }
+      }
+      assertEquals(request, implying, trie.getImplying(uri(request)).size());
+    }
+  }
+
+  private void put(String uri) {
+    trie.put(uri(uri), uri);
+  }
+
+  private static QualifiedURI uri(String uri) {
+    return PathUtils.qualifyRequestURI(uri);
+  }
+}
@@ -22,6 +22,7 @@ import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicLong;
 
@@ -34,6 +35,7 @@ import org.apache.sentry.hdfs.service.thrift.TPermissionsUpdate;
 import org.apache.sentry.hdfs.service.thrift.TPrivilegeChanges;
 import org.apache.sentry.hdfs.service.thrift.TRoleChanges;
 import org.apache.sentry.provider.db.SentryPolicyStorePlugin;
+import org.apache.sentry.provider.db.service.persistent.PermissionImageHandler;
 import org.apache.sentry.provider.db.service.persistent.SentryStore;
 import org.apache.sentry.provider.db.service.thrift.TAlterSentryRoleAddGroupsRequest;
 import org.apache.sentry.provider.db.service.thrift.TAlterSentryRoleDeleteGroupsRequest;
@@ -132,23 +134,35 @@ public class SentryPlugin implements SentryPolicyStorePlugin, SigUtils.SigListen
                   SentryHdfsMetricsUtil.getRetrieveFullImageTimer.time()) {
 
         SentryHdfsMetricsUtil.getRetrieveFullImageTimer.time();
-        Map<String, HashMap<String, String>> privilegeImage = sentryStore.retrieveFullPrivilegeImage();
-        Map<String, LinkedList<String>> roleImage = sentryStore.retrieveFullRoleImage();
-
-        TPermissionsUpdate tPermUpdate = new TPermissionsUpdate(true, currSeqNum,
+        final TPermissionsUpdate tPermUpdate = new TPermissionsUpdate(true, currSeqNum,
                 new HashMap<String, TPrivilegeChanges>(),
                 new HashMap<String, TRoleChanges>());
-        for (Map.Entry<String, HashMap<String, String>> privEnt : privilegeImage.entrySet()) {
-          String authzObj = privEnt.getKey();
-          HashMap<String,String> privs = privEnt.getValue();
-          tPermUpdate.putToPrivilegeChanges(authzObj, new TPrivilegeChanges(
-                  authzObj, privs, new HashMap<String, String>()));
-        }
-        for (Map.Entry<String, LinkedList<String>> privEnt : roleImage.entrySet()) {
-          String role = privEnt.getKey();
-          LinkedList<String> groups = privEnt.getValue();
-          tPermUpdate.putToRoleChanges(role, new TRoleChanges(role, groups, new LinkedList<String>()));
-        }
+        // the rows go straight into the update, without an intermediate image
+        sentryStore.retrieveFullPermissionImage(new PermissionImageHandler() {
+          @Override
+          public void handlePrivilege(String authzObj, String roleName, String action) {
+            TPrivilegeChanges privChanges = tPermUpdate.getPrivilegeChanges().get(authzObj);
+            if (privChanges == null) {
+              privChanges = new TPrivilegeChanges(authzObj, new HashMap<String, String>(),
+                  new HashMap<String, String>());
+              tPermUpdate.putToPrivilegeChanges(authzObj, privChanges);
+            }
+            String existingPriv = privChanges.getAddPrivileges().get(roleName);
+            privChanges.putToAddPrivileges(roleName,
+                existingPriv == null ? action : existingPriv + "," + action);
+          }
+
+          @Override
+          public void handleRoleGroup(String roleName, String groupName) {
+            TRoleChanges roleChanges = tPermUpdate.getRoleChanges().get(roleName);
+            if (roleChanges == null) {
+              roleChanges = new TRoleChanges(roleName, new LinkedList<String>(),
+                  new LinkedList<String>());
+              tPermUpdate.putToRoleChanges(roleName, roleChanges);
+            }
+            roleChanges.addToAddGroups(groupName);
+          }
+        });
         PermissionsUpdate permissionsUpdate = new PermissionsUpdate(tPermUpdate);
         permissionsUpdate.setSeqNum(currSeqNum);
         SentryHdfsMetricsUtil.getPrivilegeChangesHistogram.update(
@@ -316,27 +330,20 @@ public class SentryPlugin implements SentryPolicyStorePlugin, SigUtils.SigListen
       TAlterSentryRoleGrantPrivilegeRequest request)
           throws SentryPluginException {
     if (request.isSetPrivileges()) {
-      String roleName = request.getRoleName();
-      for (TSentryPrivilege privilege : request.getPrivileges()) {
-        if(!("COLUMN".equalsIgnoreCase(privilege.getPrivilegeScope()))) {
-          onAlterSentryRoleGrantPrivilegeCore(roleName, privilege);
+      Map<String, Map<String, String>> privileges =
+          getPrivilegeChanges(request.getRoleName(), request.getPrivileges());
+      if (!privileges.isEmpty()) {
+        // one update for all the privileges of the request
+        PermissionsUpdate update = new PermissionsUpdate(permSeqNum.incrementAndGet(), false);
+        for (Map.Entry<String, Map<String, String>> entry : privileges.entrySet()) {
+          update.addPrivilegeUpdate(entry.getKey()).getAddPrivileges().putAll(entry.getValue());
         }
+        permsUpdater.handleUpdateNotification(update);
+        LOGGER.debug("Authz Perm preUpdate [" + update.getSeqNum() + "]..");
       }
     }
   }
 
-  private void onAlterSentryRoleGrantPrivilegeCore(String roleName, TSentryPrivilege privilege)
-      throws SentryPluginException {
-    String authzObj = getAuthzObj(privilege);
-    if (authzObj != null) {
-      PermissionsUpdate update = new PermissionsUpdate(permSeqNum.incrementAndGet(), false);
-      update.addPrivilegeUpdate(authzObj).putToAddPrivileges(
-          roleName, privilege.getAction().toUpperCase());
-      permsUpdater.handleUpdateNotification(update);
-      LOGGER.debug("Authz Perm preUpdate [" + update.getSeqNum() + "]..");
-    }
-  }
-
   @Override
   public void onRenameSentryPrivilege(TRenamePrivilegesRequest request)
       throws SentryPluginException {
@@ -355,13 +362,46 @@ public class SentryPlugin implements SentryPolicyStorePlugin, SigUtils.SigListen
       TAlterSentryRoleRevokePrivilegeRequest request)
           throws SentryPluginException {
     if (request.isSetPrivileges()) {
-      String roleName = request.getRoleName();
-      for (TSentryPrivilege privilege : request.getPrivileges()) {
-        if(!("COLUMN".equalsIgnoreCase(privilege.getPrivilegeScope()))) {
-          onAlterSentryRoleRevokePrivilegeCore(roleName, privilege);
+      Map<String, Map<String, String>> privileges =
+          getPrivilegeChanges(request.getRoleName(), request.getPrivileges());
+      if (!privileges.isEmpty()) {
+        // one update for all the privileges of the request
+        PermissionsUpdate update = new PermissionsUpdate(permSeqNum.incrementAndGet(), false);
+        for (Map.Entry<String, Map<String, String>> entry : privileges.entrySet()) {
+          update.addPrivilegeUpdate(entry.getKey()).getDelPrivileges().putAll(entry.getValue());
         }
+        permsUpdater.handleUpdateNotification(update);
+        LOGGER.debug("Authz Perm preUpdate [" + update.getSeqNum() + ", "
+            + privileges.keySet() + "]..");
+      }
+    }
+  }
+
+  /**
+   * @return the actions of the role on each authz object, joined by ",", for
+   *         the privileges which are not on columns
+   */
+  private Map<String, Map<String, String>> getPrivilegeChanges(String roleName,
+      Set<TSentryPrivilege> privileges) {
+    Map<String, Map<String, String>> privilegeChanges = new HashMap<String, Map<String, String>>();
+    for (TSentryPrivilege privilege : privileges) {
+      if ("COLUMN".equalsIgnoreCase(privilege.getPrivilegeScope())) {
+        continue;
+      }
+      String authzObj = getAuthzObj(privilege);
+      if (authzObj == null) {
+        continue;
       }
+      Map<String, String> roleActions = privilegeChanges.get(authzObj);
+      if (roleActions == null) {
+        roleActions = new HashMap<String, String>();
+        privilegeChanges.put(authzObj, roleActions);
+      }
+      String action = privilege.getAction().toUpperCase();
+      String existingActions = roleActions.get(roleName);
+      roleActions.put(roleName, existingActions == null ? action : existingActions + "," + action);
     }
+    return privilegeChanges;
   }
 
   public boolean isOutOfSync() {
@@ -372,18 +412,6 @@ public class SentryPlugin implements SentryPolicyStorePlugin, SigUtils.SigListen
     this.outOfSync = outOfSync;
   }
 
-  private void onAlterSentryRoleRevokePrivilegeCore(String roleName, TSentryPrivilege privilege)
-      throws SentryPluginException {
-    String authzObj = getAuthzObj(privilege);
-    if (authzObj != null) {
-      PermissionsUpdate update = new PermissionsUpdate(permSeqNum.incrementAndGet(), false);
-      update.addPrivilegeUpdate(authzObj).putToDelPrivileges(
-          roleName, privilege.getAction().toUpperCase());
-      permsUpdater.handleUpdateNotification(update);
-      LOGGER.debug("Authz Perm preUpdate [" + update.getSeqNum() + ", " + authzObj + "]..");
-    }
-  }
-
   @Override
   public void onDropSentryRole(TDropSentryRoleRequest request)
       throws SentryPluginException {
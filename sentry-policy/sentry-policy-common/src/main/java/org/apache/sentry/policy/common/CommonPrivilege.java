@@ -33,7 +33,31 @@ import java.util.List;
 // The class is used to compare the privilege
 public class CommonPrivilege implements Privilege {
 
-  private ImmutableList<KeyValue> parts;
+  // the action code of an action which is not supported by the model
+  private static final int UNKNOWN_ACTION_CODE = -1;
+
+  private final ImmutableList<KeyValue> parts;
+  // The parts are split into arrays when the privilege is created, so implies
+  // compares them without allocating anything.
+  private final String[] keys;
+  private final String[] values;
+  private final boolean[] actionParts;
+  private final boolean[] policyWildcards;
+  private final boolean[] requestWildcards;
+  private final int hashCode;
+  // model specific information, resolved on construction when the model is
+  // known, on the first comparison with a model otherwise
+  private volatile ModelInfo modelInfo;
+
+  /**
+   * Create a privilege compared with the given model, typically a request,
+   * with the model specific information resolved once here instead of by
+   * the first comparison.
+   */
+  public CommonPrivilege(String privilegeStr, Model model) {
+    this(privilegeStr);
+    modelInfo = new ModelInfo(model, keys, values, actionParts);
+  }
 
   public CommonPrivilege(String privilegeStr) {
     privilegeStr = Strings.nullToEmpty(privilegeStr).trim();
@@ -52,6 +76,26 @@ public class CommonPrivilege implements Privilege {
       throw new AssertionError("Should never occur: " + privilegeStr);
     }
     this.parts = ImmutableList.copyOf(parts);
+
+    int size = parts.size();
+    keys = new String[size];
+    values = new String[size];
+    actionParts = new boolean[size];
+    policyWildcards = new boolean[size];
+    requestWildcards = new boolean[size];
+    for (int i = 0; i < size; i++) {
+      KeyValue part = parts.get(i);
+      keys[i] = part.getKey().toLowerCase();
+      values[i] = part.getValue();
+      actionParts[i] = SentryConstants.PRIVILEGE_NAME.equals(keys[i]);
+      // wildcard support, "*", "+", "all"("+" and "all" are for backward compatibility) are represented as wildcard
+      // if requestValue is wildcard, means privilege request is to match with any value of given resource
+      policyWildcards[i] = SentryConstants.RESOURCE_WILDCARD_VALUE.equals(values[i])
+          || SentryConstants.RESOURCE_WILDCARD_VALUE_ALL.equalsIgnoreCase(values[i]);
+      requestWildcards[i] = policyWildcards[i]
+          || SentryConstants.RESOURCE_WILDCARD_VALUE_SOME.equals(values[i]);
+    }
+    hashCode = this.parts.hashCode();
   }
 
   @Override
@@ -61,51 +105,48 @@ public class CommonPrivilege implements Privilege {
       return false;
     }
 
-    List<KeyValue> otherParts = ((CommonPrivilege) privilege).getParts();
-    if(parts.equals(otherParts)) {
+    CommonPrivilege other = (CommonPrivilege) privilege;
+    if (this == other || (hashCode == other.hashCode && parts.equals(other.parts))) {
       return true;
     }
 
+    ModelInfo info = getModelInfo(model);
+    ModelInfo otherInfo = other.getModelInfo(model);
     int index = 0;
-    for (KeyValue otherPart : otherParts) {
+    for (int otherIndex = 0; otherIndex < other.keys.length; otherIndex++) {
       // If this privilege has less parts than the other privilege, everything
       // after the number of parts contained
       // in this privilege is automatically implied, so return true
-      if (parts.size() - 1 < index) {
+      if (keys.length - 1 < index) {
         return true;
-      } else {
-        KeyValue part = parts.get(index);
-        String policyKey = part.getKey();
-        // are the keys even equal
-        if(!policyKey.equalsIgnoreCase(otherPart.getKey())) {
-          // Support for action inheritance from parent to child
-          if (SentryConstants.PRIVILEGE_NAME.equalsIgnoreCase(policyKey)) {
-            continue;
-          }
-          return false;
+      }
+      // are the keys even equal
+      if (!keys[index].equals(other.keys[otherIndex])) {
+        // Support for action inheritance from parent to child
+        if (actionParts[index]) {
+          continue;
         }
+        return false;
+      }
 
-        // do the imply for action
-        if (SentryConstants.PRIVILEGE_NAME.equalsIgnoreCase(policyKey)) {
-          if (!impliesAction(part.getValue(), otherPart.getValue(), model.getBitFieldActionFactory())) {
-            return false;
-          }
-        } else {
-          if (!impliesResource(model.getImplyMethodMap().get(policyKey.toLowerCase()),
-                  part.getValue(), otherPart.getValue())) {
-            return false;
-          }
+      // do the imply for action
+      if (actionParts[index]) {
+        if (!impliesAction(info.actionCodes[index], otherInfo.actionCodes[otherIndex])) {
+          return false;
+        }
+      } else {
+        if (!impliesResource(info.implyMethodTypes[index], index, other, otherIndex)) {
+          return false;
         }
-
-        index++;
       }
+
+      index++;
     }
 
     // If this privilege has more parts than the other parts, only imply it if
     // all of the other parts are wildcards
-    for (; index < parts.size(); index++) {
-      KeyValue part = parts.get(index);
-      if (!SentryConstants.PRIVILEGE_WILDCARD_VALUE.equals(part.getValue())) {
+    for (; index < keys.length; index++) {
+      if (!SentryConstants.PRIVILEGE_WILDCARD_VALUE.equals(values[index])) {
         return false;
       }
     }
@@ -133,17 +174,14 @@ public class CommonPrivilege implements Privilege {
   // The method is used for compare the value of resource by the ImplyMethodType.
   // for Hive, databaseName, tableName, columnName will be compared using String.equal(wildcard support)
   //           url will be compared using PathUtils.impliesURI
-  private boolean impliesResource(ImplyMethodType implyMethodType, String policyValue, String requestValue) {
-    // wildcard support, "*", "+", "all"("+" and "all" are for backward compatibility) are represented as wildcard
-    // if requestValue is wildcard, means privilege request is to match with any value of given resource
-    if (SentryConstants.RESOURCE_WILDCARD_VALUE.equals(policyValue)
-            || SentryConstants.RESOURCE_WILDCARD_VALUE.equals(requestValue)
-            || SentryConstants.RESOURCE_WILDCARD_VALUE_ALL.equalsIgnoreCase(policyValue)
-            || SentryConstants.RESOURCE_WILDCARD_VALUE_ALL.equalsIgnoreCase(requestValue)
-            || SentryConstants.RESOURCE_WILDCARD_VALUE_SOME.equals(requestValue)) {
+  private boolean impliesResource(ImplyMethodType implyMethodType, int index,
+      CommonPrivilege other, int otherIndex) {
+    if (policyWildcards[index] || other.requestWildcards[otherIndex]) {
       return true;
     }
 
+    String policyValue = values[index];
+    String requestValue = other.values[otherIndex];
     // compare as the url
     if (ImplyMethodType.URL == implyMethodType) {
       return PathUtils.impliesURI(policyValue, requestValue);
@@ -158,15 +196,22 @@ public class CommonPrivilege implements Privilege {
   // The method is used for compare the action for the privilege model.
   // for Hive, the action will be select, insert, etc.
   // for Solr, the action will be update, query, etc.
-  private boolean impliesAction(String policyValue, String requestValue,
-                                BitFieldActionFactory bitFieldActionFactory) {
-    BitFieldAction currentAction = bitFieldActionFactory.getActionByName(policyValue);
-    BitFieldAction requestAction = bitFieldActionFactory.getActionByName(requestValue);
+  private static boolean impliesAction(int policyCode, int requestCode) {
     // the action in privilege is not supported
-    if (currentAction == null || requestAction == null) {
+    if (policyCode == UNKNOWN_ACTION_CODE || requestCode == UNKNOWN_ACTION_CODE) {
       return false;
     }
-    return currentAction.implies(requestAction);
+    return (policyCode & requestCode) == requestCode;
+  }
+
+  private ModelInfo getModelInfo(Model model) {
+    ModelInfo info = modelInfo;
+    if (info == null || info.model != model) {
+      // ModelInfo is immutable, racing threads at worst resolve it more than once
+      info = new ModelInfo(model, keys, values, actionParts);
+      modelInfo = info;
+    }
+    return info;
   }
 
   @Override
@@ -189,6 +234,29 @@ public class CommonPrivilege implements Privilege {
 
   @Override
   public int hashCode() {
-    return parts.hashCode();
+    return hashCode;
+  }
+
+  // The ImplyMethodType of every resource part and the action code of every
+  // action part of a privilege for one model.
+  private static final class ModelInfo {
+    private final Model model;
+    private final ImplyMethodType[] implyMethodTypes;
+    private final int[] actionCodes;
+
+    private ModelInfo(Model model, String[] keys, String[] values, boolean[] actionParts) {
+      this.model = model;
+      implyMethodTypes = new ImplyMethodType[keys.length];
+      actionCodes = new int[keys.length];
+      BitFieldActionFactory bitFieldActionFactory = model.getBitFieldActionFactory();
+      for (int i = 0; i < keys.length; i++) {
+        if (actionParts[i]) {
+          BitFieldAction action = bitFieldActionFactory.getActionByName(values[i]);
+          actionCodes[i] = (action == null) ? UNKNOWN_ACTION_CODE : action.getActionCode();
+        } else {
+          implyMethodTypes[i] = model.getImplyMethodMap().get(keys[i]);
+        }
+      }
+    }
   }
 }
@@ -23,6 +23,7 @@ import javax.annotation.concurrent.ThreadSafe;
 
 import org.apache.sentry.core.common.ActiveRoleSet;
 import org.apache.sentry.core.common.Authorizable;
+import org.apache.sentry.core.common.Model;
 import org.apache.sentry.core.common.exception.SentryConfigurationException;
 
 import com.google.common.collect.ImmutableSet;
@@ -94,6 +95,27 @@ public interface PolicyEngine {
   ImmutableSet<String> getPrivileges(Set<String> groups, Set<String> users, ActiveRoleSet roleSet,
       Authorizable... authorizableHierarchy) throws SentryConfigurationException;
 
+  /**
+   * Compile privileges returned by {@link #getPrivileges} into a {@link PrivilegeTrie}
+   * for the given model, so they can be checked without comparing every privilege
+   * against every request. Implementations are free to reuse tries compiled for
+   * equal privilege sets.
+   * @param privileges privilege strings
+   * @param model the authorization model used to compare the privileges
+   * @return the compiled privileges, or null if the privileges of this engine cannot
+   *         be compiled, in which case callers should use {@link #getPrivilegeFactory()}
+   */
+  PrivilegeTrie compilePrivileges(Set<String> privileges, Model model);
+
+  /**
+   * Get the version of the privileges returned by {@link #getPrivileges}. It
+   * advances whenever they may have changed, so that authorization decisions can
+   * be cached as long as it stays the same.
+   * @return a non-negative version, or a negative value if decisions must not
+   *         be cached
+   */
+  long getPolicyVersion();
+
   void close();
 
   void validatePolicy(boolean strictValidation) throws SentryConfigurationException;
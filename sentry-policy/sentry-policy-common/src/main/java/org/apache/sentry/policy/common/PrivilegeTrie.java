@@ -0,0 +1,367 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.sentry.policy.common;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.annotation.concurrent.ThreadSafe;
+
+import org.apache.sentry.core.common.Action;
+import org.apache.sentry.core.common.Authorizable;
+import org.apache.sentry.core.common.BitFieldAction;
+import org.apache.sentry.core.common.BitFieldActionFactory;
+import org.apache.sentry.core.common.ImplyMethodType;
+import org.apache.sentry.core.common.Model;
+import org.apache.sentry.core.common.utils.KeyValue;
+import org.apache.sentry.core.common.utils.PathUtils;
+import org.apache.sentry.core.common.utils.QualifiedURI;
+import org.apache.sentry.core.common.utils.SentryConstants;
+import org.apache.sentry.core.common.utils.URIPrefixTrie;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableList;
+
+/**
+ * An immutable, compiled form of a set of privilege strings. The authorizable
+ * parts of every privilege are stored in a trie keyed by authorizable type and
+ * value, with wildcard values ("*", "ALL") on a dedicated branch and URI values
+ * normalized once in a {@link URIPrefixTrie}, and each node carries the
+ * precomputed {@link BitFieldAction} codes of the privileges ending there. A request is answered by descending the trie along the requested
+ * hierarchy instead of calling {@link CommonPrivilege#implies} once per
+ * privilege and action, while giving the same result.
+ *
+ * Privileges whose shape the trie cannot represent (an action which is unknown
+ * to the model, or an action which is not the last part) are kept aside and
+ * evaluated with {@link CommonPrivilege#implies}.
+ */
+@ThreadSafe
+public final class PrivilegeTrie {
+
+  private static final int[] NO_ACTION_CODES = new int[0];
+
+  private final Model model;
+  private final Node root;
+  private final ImmutableList<CommonPrivilege> uncompiledPrivileges;
+  private final int size;
+
+  private PrivilegeTrie(Model model, Node root, List<CommonPrivilege> uncompiledPrivileges,
+      int size) {
+    this.model = model;
+    this.root = root;
+    this.uncompiledPrivileges = ImmutableList.copyOf(uncompiledPrivileges);
+    this.size = size;
+  }
+
+  /**
+   * Compile the given privilege strings for the given model.
+   * @throws IllegalArgumentException if one of the privileges is malformed
+   */
+  public static PrivilegeTrie compile(Iterable<String> privileges, Model model) {
+    return compile(privileges, model, new PrivilegeFactory() {
+      @Override
+      public Privilege createPrivilege(String privilege) {
+        return new CommonPrivilege(privilege);
+      }
+    });
+  }
+
+  /**
+   * Compile the given privilege strings for the given model, parsing them with
+   * the given factory.
+   * @throws IllegalArgumentException if one of the privileges is malformed or
+   *         the factory does not create {@link CommonPrivilege}s
+   */
+  public static PrivilegeTrie compile(Iterable<String> privileges, Model model,
+      PrivilegeFactory privilegeFactory) {
+    Preconditions.checkNotNull(model, "Model cannot be null");
+    BitFieldActionFactory actionFactory = model.getBitFieldActionFactory();
+    Node root = new Node();
+    List<CommonPrivilege> uncompiled = new ArrayList<CommonPrivilege>();
+    int size = 0;
+    for (String privilegeStr : privileges) {
+      Privilege parsedPrivilege = privilegeFactory.createPrivilege(privilegeStr);
+      Preconditions.checkArgument(parsedPrivilege instanceof CommonPrivilege,
+          "Only CommonPrivilege can be compiled: %s", parsedPrivilege);
+      CommonPrivilege privilege = (CommonPrivilege) parsedPrivilege;
+      size++;
+      List<KeyValue> parts = privilege.getParts();
+      int authorizableCount = parts.size();
+      BitFieldAction action = null;
+      KeyValue last = parts.get(parts.size() - 1);
+      if (isAction(last.getKey())) {
+        authorizableCount--;
+        action = actionFactory.getActionByName(last.getValue());
+        if (action == null) {
+          uncompiled.add(privilege);
+          continue;
+        }
+      }
+      if (hasActionPart(parts, authorizableCount)) {
+        uncompiled.add(privilege);
+        continue;
+      }
+
+      Node node = root;
+      for (int i = 0; i < authorizableCount; i++) {
+        KeyValue part = parts.get(i);
+        node = node.getOrCreateChild(part.getKey().toLowerCase(), part.getValue(), model);
+      }
+      if (action == null) {
+        node.impliesAllActions = true;
+      } else {
+        node.addActionCode(action.getActionCode());
+      }
+    }
+    return new PrivilegeTrie(model, root, uncompiled, size);
+  }
+
+  /**
+   * @return true if any of the compiled privileges implies any of the given
+   *         actions on the given authorizable hierarchy
+   */
+  public boolean implies(List<? extends Authorizable> authorizableHierarchy,
+      Set<? extends Action> actions) {
+    BitFieldActionFactory actionFactory = model.getBitFieldActionFactory();
+    Request request = new Request(authorizableHierarchy, actions.size());
+    for (Action action : actions) {
+      BitFieldAction requestAction = actionFactory.getActionByName(action.getValue());
+      // a request action which is not supported can only be implied by privileges without action
+      if (requestAction != null) {
+        request.codes[request.codeCount++] = requestAction.getActionCode();
+      }
+    }
+    if (implies(root, request, 0)) {
+      return true;
+    }
+    return !uncompiledPrivileges.isEmpty()
+        && impliesUncompiled(authorizableHierarchy, actions);
+  }
+
+  public Model getModel() {
+    return model;
+  }
+
+  /**
+   * @return the number of privileges this trie was compiled from
+   */
+  public int size() {
+    return size;
+  }
+
+  private static boolean implies(Node node, Request request, int depth) {
+    // The privileges ending at this node matched every authorizable they have. As
+    // in CommonPrivilege.implies, the remaining parts of the request are implied
+    // either unconditionally (no action in the privilege) or through action
+    // inheritance from parent to child.
+    if (node.impliesAllActions) {
+      return true;
+    }
+    for (int code : node.actionCodes) {
+      for (int i = 0; i < request.codeCount; i++) {
+        if ((code & request.codes[i]) == request.codes[i]) {
+          return true;
+        }
+      }
+    }
+    if (depth == request.hierarchy.size() || node.branches.isEmpty()) {
+      return false;
+    }
+
+    Authorizable authorizable = request.hierarchy.get(depth);
+    Branch branch = node.branches.get(authorizable.getTypeName().toLowerCase());
+    if (branch == null) {
+      return false;
+    }
+    String requestValue = authorizable.getName().trim();
+    if (isRequestWildcard(requestValue)) {
+      // a wildcard request means any value of the given resource
+      for (Node child : branch.values.values()) {
+        if (implies(child, request, depth + 1)) {
+          return true;
+        }
+      }
+    } else if (branch.implyMethodType == ImplyMethodType.URL) {
+      QualifiedURI requestURI = request.getURI(depth, requestValue);
+      if (requestURI != null) {
+        for (Node child : branch.uris.getImplying(requestURI)) {
+          if (implies(child, request, depth + 1)) {
+            return true;
+          }
+        }
+      }
+    } else {
+      Node child = branch.values.get(branch.normalize(requestValue));
+      if (child != null && implies(child, request, depth + 1)) {
+        return true;
+      }
+    }
+    return branch.wildcard != null && implies(branch.wildcard, request, depth + 1);
+  }
+
+  private boolean impliesUncompiled(List<? extends Authorizable> authorizableHierarchy,
+      Set<? extends Action> actions) {
+    List<String> hierarchy = new ArrayList<String>(authorizableHierarchy.size());
+    for (Authorizable authorizable : authorizableHierarchy) {
+      hierarchy.add(SentryConstants.KV_JOINER.join(authorizable.getTypeName(),
+          authorizable.getName()));
+    }
+    for (Action action : actions) {
+      CommonPrivilege requestPrivilege = new CommonPrivilege(
+          SentryConstants.AUTHORIZABLE_JOINER.join(
+              SentryConstants.AUTHORIZABLE_JOINER.join(hierarchy),
+              SentryConstants.KV_JOINER.join(SentryConstants.PRIVILEGE_NAME, action.getValue())),
+          model);
+      for (CommonPrivilege privilege : uncompiledPrivileges) {
+        if (privilege.implies(requestPrivilege, model)) {
+          return true;
+        }
+      }
+    }
+    return false;
+  }
+
+  private static boolean hasActionPart(List<KeyValue> parts, int count) {
+    for (int i = 0; i < count; i++) {
+      if (isAction(parts.get(i).getKey())) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private static boolean isAction(String key) {
+    return SentryConstants.PRIVILEGE_NAME.equalsIgnoreCase(key);
+  }
+
+  private static boolean isPolicyWildcard(String value) {
+    return SentryConstants.RESOURCE_WILDCARD_VALUE.equals(value)
+        || SentryConstants.RESOURCE_WILDCARD_VALUE_ALL.equalsIgnoreCase(value);
+  }
+
+  private static boolean isRequestWildcard(String value) {
+    return SentryConstants.RESOURCE_WILDCARD_VALUE.equals(value)
+        || SentryConstants.RESOURCE_WILDCARD_VALUE_ALL.equalsIgnoreCase(value)
+        || SentryConstants.RESOURCE_WILDCARD_VALUE_SOME.equals(value);
+  }
+
+  // Nodes are only mutated while compiling; once the trie is published through
+  // its final fields they are never modified again.
+  private static final class Node {
+    private final Map<String, Branch> branches = new HashMap<String, Branch>();
+    private boolean impliesAllActions;
+    private int[] actionCodes = NO_ACTION_CODES;
+
+    private Node getOrCreateChild(String type, String value, Model model) {
+      Branch branch = branches.get(type);
+      if (branch == null) {
+        branch = new Branch(model.getImplyMethodMap().get(type));
+        branches.put(type, branch);
+      }
+      return branch.getOrCreateChild(value);
+    }
+
+    private void addActionCode(int code) {
+      for (int actionCode : actionCodes) {
+        if (actionCode == code) {
+          return;
+        }
+      }
+      actionCodes = Arrays.copyOf(actionCodes, actionCodes.length + 1);
+      actionCodes[actionCodes.length - 1] = code;
+    }
+  }
+
+  // All the children of a node for one authorizable type
+  private static final class Branch {
+    private final ImplyMethodType implyMethodType;
+    private final Map<String, Node> values = new HashMap<String, Node>();
+    // the children of the valid URI values, normalized once, for URL resources
+    private final URIPrefixTrie<Node> uris = new URIPrefixTrie<Node>();
+    private Node wildcard;
+
+    private Branch(ImplyMethodType implyMethodType) {
+      this.implyMethodType = implyMethodType;
+    }
+
+    private Node getOrCreateChild(String value) {
+      if (isPolicyWildcard(value)) {
+        if (wildcard == null) {
+          wildcard = new Node();
+        }
+        return wildcard;
+      }
+      QualifiedURI uri = null;
+      String key;
+      if (implyMethodType == ImplyMethodType.URL) {
+        // an invalid URI only matches wildcard requests
+        uri = PathUtils.qualifyPrivilegeURI(value);
+        key = (uri == null) ? value : uri.toString();
+      } else {
+        key = normalize(value);
+      }
+      Node child = values.get(key);
+      if (child == null) {
+        child = new Node();
+        values.put(key, child);
+        if (uri != null) {
+          uris.put(uri, child);
+        }
+      }
+      return child;
+    }
+
+    // Case sensitive strings are compared as is, every other resource but URLs
+    // is compared case insensitive.
+    private String normalize(String value) {
+      if (implyMethodType == ImplyMethodType.STRING_CASE_SENSITIVE) {
+        return value;
+      }
+      return value.toLowerCase();
+    }
+  }
+
+  // A request, with the URIs of its hierarchy parsed at most once
+  private static final class Request {
+    private final List<? extends Authorizable> hierarchy;
+    private final int[] codes;
+    private int codeCount;
+    private QualifiedURI[] uris;
+    private boolean[] urisParsed;
+
+    private Request(List<? extends Authorizable> hierarchy, int maxCodeCount) {
+      this.hierarchy = hierarchy;
+      this.codes = new int[maxCodeCount];
+    }
+
+    private QualifiedURI getURI(int depth, String value) {
+      if (uris == null) {
+        uris = new QualifiedURI[hierarchy.size()];
+        urisParsed = new boolean[hierarchy.size()];
+      }
+      if (!urisParsed[depth]) {
+        uris[depth] = PathUtils.qualifyRequestURI(value);
+        urisParsed[depth] = true;
+      }
+      return uris[depth];
+    }
+  }
+}
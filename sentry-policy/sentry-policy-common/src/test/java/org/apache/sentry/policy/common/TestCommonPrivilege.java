@@ -130,6 +130,19 @@ public class TestCommonPrivilege {
     assertFalse(privilegForInsert.implies(privilegForAll, testModel));
   }
 
+  @Test
+  public void testImplyRequestResolvedForModel() throws Exception {
+    CommonPrivilege privilegForAll = new CommonPrivilege("server=server1->db=db1->table=table1->action=all");
+    CommonPrivilege privilegForInsert = new CommonPrivilege("server=server1->db=db1->table=table1->action=insert");
+    CommonPrivilege requestPrivilege = new CommonPrivilege(
+        "server=server1->db=db1->table=table1->action=select", testModel);
+
+    assertTrue(privilegForAll.implies(requestPrivilege, testModel));
+    assertFalse(privilegForInsert.implies(requestPrivilege, testModel));
+    // the request can still be compared with another model
+    assertTrue(privilegForAll.implies(requestPrivilege, new ModelForTest()));
+  }
+
   @Test
   public void testImplyStringCaseSensitive() throws Exception {
     CommonPrivilege privileg1 = new CommonPrivilege("server=server1->db=db1->table=table1->column=col1->action=select");
@@ -0,0 +1,172 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.sentry.policy.common;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertFalse;
+import static junit.framework.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import org.apache.sentry.core.common.Action;
+import org.apache.sentry.core.common.Authorizable;
+import org.apache.sentry.core.common.Model;
+import org.apache.sentry.core.common.utils.SentryConstants;
+import org.apache.sentry.core.model.db.AccessURI;
+import org.apache.sentry.core.model.db.Column;
+import org.apache.sentry.core.model.db.DBModelAction;
+import org.apache.sentry.core.model.db.Database;
+import org.apache.sentry.core.model.db.Server;
+import org.apache.sentry.core.model.db.Table;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+
+public class TestPrivilegeTrie {
+
+  private static final Set<String> PRIVILEGES = ImmutableSet.of(
+      "server=server1->db=db1->table=table1->column=col1->action=select",
+      "server=server1->db=db1->table=table2->action=insert",
+      "server=server1->db=DB2->action=select",
+      "server=server1->db=db3->table=*->action=insert",
+      "server=server1->db=db4",
+      "server=server1->db=db5->table=ALL->column=Col1->action=all",
+      "server=server1->uri=hdfs://namenode:8020/path/to/uri->action=all",
+      "server=server1->uri=/tmp/dir->action=select",
+      "server=server2->uri=relative/path->action=all",
+      "server=server1->db=db6->table=table1->action=unknown");
+
+  private Model testModel;
+  private PrivilegeTrie trie;
+
+  @Before
+  public void prepareData() {
+    testModel = new ModelForTest();
+    trie = PrivilegeTrie.compile(PRIVILEGES, testModel);
+  }
+
+  @Test
+  public void testSize() throws Exception {
+    assertEquals(PRIVILEGES.size(), trie.size());
+  }
+
+  @Test
+  public void testImplies() throws Exception {
+    assertImplies(true, DBModelAction.SELECT, new Server("server1"), new Database("db1"),
+        new Table("table1"), new Column("col1"));
+    assertImplies(false, DBModelAction.INSERT, new Server("server1"), new Database("db1"),
+        new Table("table1"), new Column("col1"));
+    assertImplies(true, DBModelAction.INSERT, new Server("server1"), new Database("db1"),
+        new Table("table2"), new Column("col9"));
+    assertImplies(false, DBModelAction.SELECT, new Server("server1"), new Database("db1"),
+        new Table("table3"));
+    assertImplies(false, DBModelAction.SELECT, new Server("server2"), new Database("db1"),
+        new Table("table1"), new Column("col1"));
+  }
+
+  @Test
+  public void testImpliesCaseSensitivity() throws Exception {
+    // db and table are case insensitive
+    assertImplies(true, DBModelAction.SELECT, new Server("SERVER1"), new Database("db2"),
+        new Table("Table1"));
+    // column is case sensitive in the test model
+    assertImplies(true, DBModelAction.SELECT, new Server("server1"), new Database("db5"),
+        new Table("table1"), new Column("Col1"));
+    assertImplies(false, DBModelAction.SELECT, new Server("server1"), new Database("db5"),
+        new Table("table1"), new Column("col1"));
+  }
+
+  @Test
+  public void testImpliesWildcard() throws Exception {
+    assertImplies(true, DBModelAction.INSERT, new Server("server1"), new Database("db3"),
+        new Table("any"));
+    assertImplies(true, DBModelAction.SELECT, new Server("server1"), new Database("db1"),
+        new Table("table1"), Column.ALL);
+    assertImplies(false, DBModelAction.SELECT, new Server("server1"), new Database("db1"),
+        Table.SOME);
+    assertImplies(true, DBModelAction.SELECT, new Server("server1"), new Database("+"));
+    assertImplies(true, DBModelAction.INSERT, new Server("server1"), new Database("db1"),
+        Table.ALL, new Column("col1"));
+  }
+
+  @Test
+  public void testImpliesWithoutAction() throws Exception {
+    assertImplies(true, DBModelAction.ALL, new Server("server1"), new Database("db4"),
+        new Table("table1"), new Column("col1"));
+    assertImplies(true, DBModelAction.INSERT, new Server("server1"), new Database("db4"));
+  }
+
+  @Test
+  public void testImpliesURI() throws Exception {
+    assertImplies(true, DBModelAction.SELECT, new Server("server1"),
+        new AccessURI("hdfs://namenode:8020/path/to/uri/file"));
+    assertImplies(false, DBModelAction.SELECT, new Server("server1"),
+        new AccessURI("hdfs://namenode:8020/path/to/uri2"));
+    // the privilege URI is qualified with the default file system
+    assertImplies(true, DBModelAction.SELECT, new Server("server1"),
+        new AccessURI("file:///tmp/dir/file"));
+    assertImplies(false, DBModelAction.INSERT, new Server("server1"),
+        new AccessURI("file:///tmp/dir/file"));
+    assertImplies(false, DBModelAction.SELECT, new Server("server1"),
+        new AccessURI("file:///tmp/dir2"));
+    // an invalid URI privilege only implies wildcard requests
+    assertImplies(false, DBModelAction.SELECT, new Server("server2"),
+        new AccessURI("file:///relative/path"));
+    assertImplies(true, DBModelAction.SELECT, new Server("server2"), new AccessURI("*"));
+  }
+
+  @Test
+  public void testUnknownActionFallsBack() throws Exception {
+    assertImplies(false, DBModelAction.SELECT, new Server("server1"), new Database("db6"),
+        new Table("table1"));
+  }
+
+  @Test
+  public void testImpliesAnyAction() throws Exception {
+    List<Authorizable> hierarchy = Lists.<Authorizable>newArrayList(new Server("server1"),
+        new Database("db1"), new Table("table2"));
+    assertTrue(trie.implies(hierarchy, Sets.newHashSet(DBModelAction.SELECT, DBModelAction.INSERT)));
+    assertFalse(trie.implies(hierarchy, Sets.newHashSet(DBModelAction.SELECT, DBModelAction.ALL)));
+  }
+
+  // The trie must give the same answer as comparing every privilege with CommonPrivilege
+  private void assertImplies(boolean expected, Action action, Authorizable... authorizables) {
+    List<Authorizable> hierarchy = Lists.newArrayList(authorizables);
+    assertEquals(expected, impliesLinear(hierarchy, action));
+    assertEquals(expected, trie.implies(hierarchy, Sets.newHashSet(action)));
+  }
+
+  private boolean impliesLinear(List<Authorizable> hierarchy, Action action) {
+    List<String> parts = new ArrayList<String>();
+    for (Authorizable authorizable : hierarchy) {
+      parts.add(SentryConstants.KV_JOINER.join(authorizable.getTypeName(), authorizable.getName()));
+    }
+    parts.add(SentryConstants.KV_JOINER.join(SentryConstants.PRIVILEGE_NAME, action.getValue()));
+    CommonPrivilege request = new CommonPrivilege(SentryConstants.AUTHORIZABLE_JOINER.join(parts));
+    for (String privilege : PRIVILEGES) {
+      if (new CommonPrivilege(privilege).implies(request, testModel)) {
+        return true;
+      }
+    }
+    return false;
+  }
+}
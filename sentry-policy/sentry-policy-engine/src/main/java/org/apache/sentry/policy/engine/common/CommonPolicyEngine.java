@@ -16,27 +16,49 @@
  */
 package org.apache.sentry.policy.engine.common;
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Maps;
 import org.apache.sentry.core.common.ActiveRoleSet;
 import org.apache.sentry.core.common.Authorizable;
+import org.apache.sentry.core.common.Model;
 import org.apache.sentry.core.common.exception.SentryConfigurationException;
 import org.apache.sentry.policy.common.PolicyEngine;
 import org.apache.sentry.policy.common.PrivilegeFactory;
+import org.apache.sentry.policy.common.PrivilegeTrie;
 import org.apache.sentry.provider.common.ProviderBackend;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 public class CommonPolicyEngine implements PolicyEngine {
 
   private static final Logger LOGGER = LoggerFactory
           .getLogger(CommonPolicyEngine.class);
 
+  // the number of distinct privilege sets whose compiled form is kept
+  private static final int COMPILED_PRIVILEGES_CACHE_SIZE = 256;
+
   private final ProviderBackend providerBackend;
+  private final CommonPrivilegeFactory privilegeFactory = new CommonPrivilegeFactory();
+  // the tries of the privilege set instances returned by the backend, by
+  // identity, so that a set the backend keeps is not hashed on every check
+  private final Cache<Set<String>, ConcurrentMap<Model, PrivilegeTrie>> compiledPrivileges;
+  // the tries by model and content, for the sets the backend builds on every call
+  private final Cache<Map.Entry<Model, ImmutableSet<String>>, PrivilegeTrie>
+      compiledPrivilegesByContent;
 
   public CommonPolicyEngine(ProviderBackend providerBackend) {
     this.providerBackend = providerBackend;
+    this.compiledPrivileges = CacheBuilder.newBuilder().weakKeys()
+        .maximumSize(COMPILED_PRIVILEGES_CACHE_SIZE).build();
+    this.compiledPrivilegesByContent = CacheBuilder.newBuilder()
+        .maximumSize(COMPILED_PRIVILEGES_CACHE_SIZE).build();
   }
 
   /**
@@ -44,7 +66,7 @@ public class CommonPolicyEngine implements PolicyEngine {
    */
   @Override
   public PrivilegeFactory getPrivilegeFactory() {
-    return new CommonPrivilegeFactory();
+    return privilegeFactory;
   }
 
   /**
@@ -92,11 +114,40 @@ public class CommonPolicyEngine implements PolicyEngine {
     return result;
   }
 
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public PrivilegeTrie compilePrivileges(Set<String> privileges, Model model) {
+    ConcurrentMap<Model, PrivilegeTrie> tries = compiledPrivileges.getIfPresent(privileges);
+    if (tries == null) {
+      tries = new ConcurrentHashMap<Model, PrivilegeTrie>();
+      compiledPrivileges.put(privileges, tries);
+    }
+    PrivilegeTrie trie = tries.get(model);
+    if (trie == null) {
+      ImmutableSet<String> content = ImmutableSet.copyOf(privileges);
+      Map.Entry<Model, ImmutableSet<String>> key = Maps.immutableEntry(model, content);
+      trie = compiledPrivilegesByContent.getIfPresent(key);
+      if (trie == null) {
+        trie = PrivilegeTrie.compile(content, model, privilegeFactory);
+        compiledPrivilegesByContent.put(key, trie);
+      }
+      tries.put(model, trie);
+    }
+    return trie;
+  }
+
   @Override
   public void validatePolicy(boolean strictValidation) throws SentryConfigurationException {
     this.providerBackend.validatePolicy(strictValidation);
   }
 
+  @Override
+  public long getPolicyVersion() {
+    return providerBackend.getPolicyVersion();
+  }
+
   @Override
   public void close() {
     if (providerBackend != null) {
@@ -16,14 +16,96 @@
  */
 package org.apache.sentry.policy.engine.common;
 
+import java.util.concurrent.atomic.AtomicLong;
+
 import org.apache.sentry.policy.common.CommonPrivilege;
 import org.apache.sentry.policy.common.Privilege;
 import org.apache.sentry.policy.common.PrivilegeFactory;
 
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Strings;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.RemovalListener;
+import com.google.common.cache.RemovalNotification;
+
+/**
+ * Creates {@link CommonPrivilege}s. CommonPrivilege is immutable, so the parsed
+ * privileges are interned in a bounded cache shared by all the factories and the
+ * same privilege string is only split once as long as it stays in the cache.
+ */
 public class CommonPrivilegeFactory implements PrivilegeFactory {
 
+  // the maximum number of parsed privileges kept in the shared cache
+  @VisibleForTesting
+  static final int CACHE_SIZE = 65536;
+  // the number of segments of the cache, each one guarded by its own lock
+  private static final int CACHE_CONCURRENCY_LEVEL = 16;
+
+  private static final AtomicLong HIT_COUNT = new AtomicLong();
+  private static final AtomicLong MISS_COUNT = new AtomicLong();
+  private static final AtomicLong EVICTION_COUNT = new AtomicLong();
+
+  private static final Cache<String, CommonPrivilege> PRIVILEGES = CacheBuilder.newBuilder()
+      .maximumSize(CACHE_SIZE)
+      .concurrencyLevel(CACHE_CONCURRENCY_LEVEL)
+      .removalListener(new RemovalListener<String, CommonPrivilege>() {
+        @Override
+        public void onRemoval(RemovalNotification<String, CommonPrivilege> notification) {
+          if (notification.wasEvicted()) {
+            EVICTION_COUNT.incrementAndGet();
+          }
+        }
+      })
+      .build();
+
   @Override
   public Privilege createPrivilege(String privilege) {
-    return new CommonPrivilege(privilege);
+    if (Strings.isNullOrEmpty(privilege)) {
+      // let CommonPrivilege reject the invalid privilege
+      return new CommonPrivilege(privilege);
+    }
+    CommonPrivilege commonPrivilege = PRIVILEGES.getIfPresent(privilege);
+    if (commonPrivilege != null) {
+      HIT_COUNT.incrementAndGet();
+      return commonPrivilege;
+    }
+    MISS_COUNT.incrementAndGet();
+    commonPrivilege = new CommonPrivilege(privilege);
+    CommonPrivilege existing = PRIVILEGES.asMap().putIfAbsent(privilege, commonPrivilege);
+    return existing == null ? commonPrivilege : existing;
+  }
+
+  /**
+   * @return the number of privileges served from the shared cache
+   */
+  public static long getCacheHitCount() {
+    return HIT_COUNT.get();
+  }
+
+  /**
+   * @return the number of privileges which had to be parsed
+   */
+  public static long getCacheMissCount() {
+    return MISS_COUNT.get();
+  }
+
+  /**
+   * @return the number of parsed privileges evicted from the shared cache
+   */
+  public static long getCacheEvictionCount() {
+    return EVICTION_COUNT.get();
+  }
+
+  /**
+   * @return the number of parsed privileges in the shared cache
+   */
+  public static long getCacheSize() {
+    return PRIVILEGES.size();
+  }
+
+  @VisibleForTesting
+  static void clearCache() {
+    PRIVILEGES.invalidateAll();
   }
 }
@@ -0,0 +1,90 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.sentry.policy.engine.common;
+
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.sentry.core.common.BitFieldAction;
+import org.apache.sentry.core.common.BitFieldActionFactory;
+import org.apache.sentry.core.common.ImplyMethodType;
+import org.apache.sentry.core.common.Model;
+import org.apache.sentry.policy.common.PrivilegeTrie;
+import org.junit.Test;
+
+import com.google.common.collect.Sets;
+
+public class TestCommonPolicyEngine {
+
+  private static final String PRIVILEGE = "server=server1->db=db1->table=table1->action=select";
+
+  private static Model newModel() {
+    return new Model() {
+      @Override
+      public Map<String, ImplyMethodType> getImplyMethodMap() {
+        return Collections.emptyMap();
+      }
+
+      @Override
+      public BitFieldActionFactory getBitFieldActionFactory() {
+        return new BitFieldActionFactory() {
+          @Override
+          public List<? extends BitFieldAction> getActionsByCode(int actionCode) {
+            return null;
+          }
+
+          @Override
+          public BitFieldAction getActionByName(String name) {
+            return null;
+          }
+        };
+      }
+    };
+  }
+
+  @Test
+  public void testCompiledPrivilegesAreReused() throws Exception {
+    CommonPolicyEngine engine = new CommonPolicyEngine(null);
+    Model model = newModel();
+    Set<String> privileges = Sets.newHashSet(PRIVILEGE);
+    PrivilegeTrie trie = engine.compilePrivileges(privileges, model);
+    assertSame(trie, engine.compilePrivileges(privileges, model));
+    // an equal set built again by the backend
+    assertSame(trie, engine.compilePrivileges(Sets.newHashSet(PRIVILEGE), model));
+  }
+
+  @Test
+  public void testCompiledPrivilegesPerModel() throws Exception {
+    CommonPolicyEngine engine = new CommonPolicyEngine(null);
+    Model model1 = newModel();
+    Model model2 = newModel();
+    Set<String> privileges = Sets.newHashSet(PRIVILEGE);
+    PrivilegeTrie trie1 = engine.compilePrivileges(privileges, model1);
+    PrivilegeTrie trie2 = engine.compilePrivileges(privileges, model2);
+    assertNotSame(trie1, trie2);
+    assertSame(model1, trie1.getModel());
+    assertSame(model2, trie2.getModel());
+    // alternating models doesn't compile the privileges again
+    assertSame(trie1, engine.compilePrivileges(privileges, model1));
+    assertSame(trie2, engine.compilePrivileges(privileges, model2));
+  }
+}
@@ -0,0 +1,73 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.sentry.policy.engine.common;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import org.apache.sentry.policy.common.CommonPrivilege;
+import org.apache.sentry.policy.common.Privilege;
+import org.junit.Before;
+import org.junit.Test;
+
+public class TestCommonPrivilegeFactory {
+
+  private static final String PRIVILEGE = "server=server1->db=db1->table=table1->action=select";
+
+  @Before
+  public void setup() {
+    CommonPrivilegeFactory.clearCache();
+  }
+
+  @Test
+  public void testPrivilegeIsShared() throws Exception {
+    long hits = CommonPrivilegeFactory.getCacheHitCount();
+    long misses = CommonPrivilegeFactory.getCacheMissCount();
+
+    Privilege privilege1 = new CommonPrivilegeFactory().createPrivilege(PRIVILEGE);
+    Privilege privilege2 = new CommonPrivilegeFactory().createPrivilege(PRIVILEGE);
+
+    assertTrue(privilege1 instanceof CommonPrivilege);
+    assertSame(privilege1, privilege2);
+    assertEquals(new CommonPrivilege(PRIVILEGE), privilege1);
+    assertEquals(misses + 1, CommonPrivilegeFactory.getCacheMissCount());
+    assertEquals(hits + 1, CommonPrivilegeFactory.getCacheHitCount());
+    assertEquals(1, CommonPrivilegeFactory.getCacheSize());
+  }
+
+  @Test
+  public void testCacheIsBounded() throws Exception {
+    long evictions = CommonPrivilegeFactory.getCacheEvictionCount();
+    CommonPrivilegeFactory factory = new CommonPrivilegeFactory();
+    for (int i = 0; i < CommonPrivilegeFactory.CACHE_SIZE + 100; i++) {
+      factory.createPrivilege("server=server1->db=db" + i + "->action=select");
+    }
+    assertTrue(CommonPrivilegeFactory.getCacheSize() <= CommonPrivilegeFactory.CACHE_SIZE);
+    assertTrue(CommonPrivilegeFactory.getCacheEvictionCount() > evictions);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testEmptyPrivilege() throws Exception {
+    new CommonPrivilegeFactory().createPrivilege("");
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testInvalidPrivilege() throws Exception {
+    new CommonPrivilegeFactory().createPrivilege("server=server1->db");
+  }
+}
@@ -20,9 +20,11 @@ import java.util.Set;
 
 import org.apache.sentry.core.common.ActiveRoleSet;
 import org.apache.sentry.core.common.Authorizable;
+import org.apache.sentry.core.common.Model;
 import org.apache.sentry.core.common.exception.SentryConfigurationException;
 import org.apache.sentry.policy.common.PrivilegeFactory;
 import org.apache.sentry.policy.common.PolicyEngine;
+import org.apache.sentry.policy.common.PrivilegeTrie;
 import org.apache.sentry.provider.common.ProviderBackend;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -94,12 +96,26 @@ public class SimpleIndexerPolicyEngine implements PolicyEngine {
     return result;
   }
 
+  /**
+   * Indexer privileges are compared with {@link IndexerWildcardPrivilege}, they
+   * are not compiled.
+   */
+  @Override
+  public PrivilegeTrie compilePrivileges(Set<String> privileges, Model model) {
+    return null;
+  }
+
   @Override
   public void validatePolicy(boolean strictValidation)
       throws SentryConfigurationException {
     throw new SentryConfigurationException("Not implemented yet");
   }
 
+  @Override
+  public long getPolicyVersion() {
+    return providerBackend.getPolicyVersion();
+  }
+
   @Override
   public void close() {
     if (providerBackend != null) {
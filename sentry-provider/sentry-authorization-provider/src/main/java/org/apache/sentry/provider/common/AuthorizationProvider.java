@@ -16,6 +16,7 @@
  */
 package org.apache.sentry.provider.common;
 
+import java.util.BitSet;
 import java.util.List;
 import java.util.Set;
 
@@ -52,6 +53,23 @@ public interface AuthorizationProvider {
   boolean hasAccess(Subject subject, List<? extends Authorizable> authorizableHierarchy,
       Set<? extends Action> actions, ActiveRoleSet roleSet);
 
+  /***
+   * Validate subject privileges on many Authorizable objects at once. The groups
+   * and privileges of the subject are resolved once for the whole batch.
+   *
+   * @param subject: UserID to validate privileges
+   * @param authorizableHierarchies : List of objects, each one given as a list
+   *        according to namespace hierarchy. eg. Server->Db->Table
+   * @param actions : Privileges to validate, the same for every object
+   * @param roleSet : Roles which should be used when obtaining privileges
+   * @return
+   *        A BitSet where bit i is set if the subject is authorized to perform
+   *        the requested action on the i-th object
+   */
+  BitSet hasAccessBatch(Subject subject,
+      List<? extends List<? extends Authorizable>> authorizableHierarchies,
+      Set<? extends Action> actions, ActiveRoleSet roleSet);
+
   /***
    * Get the GroupMappingService used by the AuthorizationProvider
    *
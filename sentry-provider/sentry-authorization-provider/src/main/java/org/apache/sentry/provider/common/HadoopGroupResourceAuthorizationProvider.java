@@ -18,10 +18,15 @@
 package org.apache.sentry.provider.common;
 
 import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.security.Groups;
 import org.apache.sentry.core.common.Model;
+import org.apache.sentry.core.common.service.CachingGroupMappingService;
 import org.apache.sentry.core.common.service.GroupMappingService;
 import org.apache.sentry.core.common.service.HadoopGroupMappingService;
 import org.apache.sentry.policy.common.PolicyEngine;
@@ -36,6 +41,11 @@ public class HadoopGroupResourceAuthorizationProvider extends
   public static final String CONF_PREFIX = HadoopGroupResourceAuthorizationProvider.class.getName();
   public static final String USE_NEW_GROUPS = CONF_PREFIX + ".useNewGroups";
 
+  // Hadoop's static mapping is shared by the providers, and so is the cache of its groups
+  // among the providers configured with the same cache settings
+  private static final ConcurrentMap<List<Object>, GroupMappingService> SHARED_GROUP_MAPPINGS =
+      new ConcurrentHashMap<List<Object>, GroupMappingService>();
+
   // resource parameter present so that other AuthorizationProviders (e.g.
   // LocalGroupResourceAuthorizationProvider) has the same constructor params.
   public HadoopGroupResourceAuthorizationProvider(String resource, PolicyEngine policy,
@@ -45,7 +55,8 @@ public class HadoopGroupResourceAuthorizationProvider extends
 
   public HadoopGroupResourceAuthorizationProvider(Configuration conf, String resource, //NOPMD
       PolicyEngine policy, Model model) throws IOException {
-    this(policy, new HadoopGroupMappingService(getGroups(conf)), model);
+    this(policy, getGroupMapping(conf), model,
+        conf.getLong(DECISION_CACHE_SIZE, DECISION_CACHE_SIZE_DEFAULT));
   }
 
   @VisibleForTesting
@@ -54,6 +65,38 @@ public class HadoopGroupResourceAuthorizationProvider extends
     super(policy, groupService, model);
   }
 
+  public HadoopGroupResourceAuthorizationProvider(PolicyEngine policy,
+      GroupMappingService groupService, Model model, long decisionCacheSize) {
+    super(policy, groupService, model, decisionCacheSize);
+  }
+
+  private static GroupMappingService getGroupMapping(Configuration conf) {
+    Groups groups = getGroups(conf);
+    if (conf.getBoolean(USE_NEW_GROUPS, false)
+        || !conf.getBoolean(CachingGroupMappingService.CACHE_ENABLED,
+            CachingGroupMappingService.CACHE_ENABLED_DEFAULT)) {
+      return CachingGroupMappingService.wrap(new HadoopGroupMappingService(groups), conf);
+    }
+    // Groups doesn't override equals, the mapping is told apart by identity
+    List<Object> key = Arrays.<Object>asList(groups,
+        conf.getLong(CachingGroupMappingService.CACHE_TTL_SECS,
+            CachingGroupMappingService.CACHE_TTL_SECS_DEFAULT),
+        conf.getLong(CachingGroupMappingService.CACHE_REFRESH_SECS,
+            CachingGroupMappingService.CACHE_REFRESH_SECS_DEFAULT),
+        conf.getLong(CachingGroupMappingService.CACHE_MAX_SIZE,
+            CachingGroupMappingService.CACHE_MAX_SIZE_DEFAULT));
+    GroupMappingService groupMapping = SHARED_GROUP_MAPPINGS.get(key);
+    if (groupMapping == null) {
+      GroupMappingService newGroupMapping =
+          new CachingGroupMappingService(new HadoopGroupMappingService(groups), conf);
+      groupMapping = SHARED_GROUP_MAPPINGS.putIfAbsent(key, newGroupMapping);
+      if (groupMapping == null) {
+        groupMapping = newGroupMapping;
+      }
+    }
+    return groupMapping;
+  }
+
   private static Groups getGroups(Configuration conf) {
     if (conf.getBoolean(USE_NEW_GROUPS, false)) {
       return new Groups(conf);
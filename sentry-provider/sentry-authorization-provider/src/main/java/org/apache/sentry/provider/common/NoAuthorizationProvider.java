@@ -17,6 +17,7 @@
 package org.apache.sentry.provider.common;
 
 import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
@@ -39,6 +40,13 @@ public class NoAuthorizationProvider implements AuthorizationProvider {
     return false;
   }
 
+  @Override
+  public BitSet hasAccessBatch(Subject subject,
+      List<? extends List<? extends Authorizable>> authorizableHierarchies,
+      Set<? extends Action> actions, ActiveRoleSet roleSet) {
+    return new BitSet();
+  }
+
   @Override
   public GroupMappingService getGroupMapping() {
     return noGroupMappingService;
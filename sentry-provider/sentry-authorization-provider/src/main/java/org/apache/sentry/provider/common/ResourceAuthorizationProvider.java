@@ -22,9 +22,12 @@ import static org.apache.sentry.core.common.utils.SentryConstants.KV_JOINER;
 import static org.apache.sentry.core.common.utils.SentryConstants.PRIVILEGE_NAME;
 
 import java.util.ArrayList;
-import java.util.HashSet;
+import java.util.Arrays;
+import java.util.BitSet;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
 
 import org.apache.sentry.core.common.Action;
 import org.apache.sentry.core.common.ActiveRoleSet;
@@ -36,11 +39,17 @@ import org.apache.sentry.core.common.service.GroupMappingService;
 import org.apache.sentry.policy.common.PolicyEngine;
 import org.apache.sentry.policy.common.Privilege;
 import org.apache.sentry.policy.common.PrivilegeFactory;
+import org.apache.sentry.policy.common.PrivilegeTrie;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.google.common.base.Function;
+import com.google.common.base.Objects;
 import com.google.common.base.Preconditions;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.RemovalListener;
+import com.google.common.cache.RemovalNotification;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Iterables;
 import com.google.common.collect.Lists;
@@ -57,17 +66,83 @@ public abstract class ResourceAuthorizationProvider implements AuthorizationProv
         }
       };
 
+  // maximum number of authorization decisions cached by the provider, 0 disables the cache
+  public static final String DECISION_CACHE_SIZE = "sentry.provider.decision.cache.size";
+  public static final long DECISION_CACHE_SIZE_DEFAULT = 0;
+
   private final GroupMappingService groupService;
   private final PolicyEngine policy;
   private final PrivilegeFactory privilegeFactory;
   private final Model model;
+  private final long decisionCacheSize;
+  // the decisions of the latest policy version, null when the cache is disabled
+  private final AtomicReference<VersionedDecisionCache> decisionCache;
+  private final AtomicLong decisionCacheHits = new AtomicLong();
+  private final AtomicLong decisionCacheMisses = new AtomicLong();
+  private final AtomicLong decisionCacheEvictions = new AtomicLong();
 
   public ResourceAuthorizationProvider(PolicyEngine policy,
       GroupMappingService groupService, Model model) {
+    this(policy, groupService, model, DECISION_CACHE_SIZE_DEFAULT);
+  }
+
+  /**
+   * @param decisionCacheSize maximum number of authorization decisions cached
+   *        as long as the policy version of the engine stays the same, 0
+   *        disables the cache
+   */
+  public ResourceAuthorizationProvider(PolicyEngine policy,
+      GroupMappingService groupService, Model model, long decisionCacheSize) {
+    Preconditions.checkArgument(decisionCacheSize >= 0,
+        "Decision cache size cannot be negative: " + decisionCacheSize);
     this.policy = policy;
     this.groupService = groupService;
     this.privilegeFactory = policy.getPrivilegeFactory();
     this.model = model;
+    this.decisionCacheSize = decisionCacheSize;
+    if (decisionCacheSize > 0) {
+      this.decisionCache = new AtomicReference<VersionedDecisionCache>(
+          newDecisionCache(-1));
+    } else {
+      this.decisionCache = null;
+    }
+  }
+
+  private VersionedDecisionCache newDecisionCache(long version) {
+    return new VersionedDecisionCache(version, CacheBuilder.newBuilder()
+        .maximumSize(decisionCacheSize)
+        .removalListener(new RemovalListener<DecisionKey, Boolean>() {
+          @Override
+          public void onRemoval(RemovalNotification<DecisionKey, Boolean> notification) {
+            if (notification.wasEvicted()) {
+              decisionCacheEvictions.incrementAndGet();
+            }
+          }
+        })
+        .<DecisionKey, Boolean>build());
+  }
+
+  /**
+   * Get the decision cache of a policy version. A newer version replaces the
+   * cache with an empty one instead of clearing it, so that the decisions made
+   * with an older version, which may still be on their way, never go into the
+   * cache of the newer one.
+   * @return the cache of the version, or null if a newer version is already cached
+   */
+  private VersionedDecisionCache getDecisionCache(long version) {
+    while (true) {
+      VersionedDecisionCache current = decisionCache.get();
+      if (current.version == version) {
+        return current;
+      }
+      if (current.version > version) {
+        return null;
+      }
+      VersionedDecisionCache next = newDecisionCache(version);
+      if (decisionCache.compareAndSet(current, next)) {
+        return next;
+      }
+    }
   }
 
   /***
@@ -92,23 +167,130 @@ public abstract class ResourceAuthorizationProvider implements AuthorizationProv
     Preconditions.checkNotNull(actions, "Actions cannot be null");
     Preconditions.checkArgument(!actions.isEmpty(), "Actions cannot be empty");
     Preconditions.checkNotNull(roleSet, "ActiveRoleSet cannot be null");
-    return doHasAccess(subject, authorizableHierarchy, actions, roleSet);
+    Set<String> groups = getGroups(subject);
+    if (decisionCache == null) {
+      return doHasAccess(subject, groups, authorizableHierarchy, actions, roleSet);
+    }
+    long version = policy.getPolicyVersion();
+    if (version < 0) {
+      // the policy engine cannot tell when its privileges change
+      return doHasAccess(subject, groups, authorizableHierarchy, actions, roleSet);
+    }
+    VersionedDecisionCache versionCache = getDecisionCache(version);
+    if (versionCache == null) {
+      // the policy advanced since the version was read
+      return doHasAccess(subject, groups, authorizableHierarchy, actions, roleSet);
+    }
+    DecisionKey key = new DecisionKey(subject.getName(), groups, roleSet,
+        authorizableHierarchy, actions);
+    Boolean cached = versionCache.decisions.getIfPresent(key);
+    if (cached != null) {
+      decisionCacheHits.incrementAndGet();
+      lastFailedPrivileges.get().clear();
+      if (!cached) {
+        lastFailedPrivileges.get().addAll(buildPermissions(authorizableHierarchy, actions));
+      }
+      return cached;
+    }
+    decisionCacheMisses.incrementAndGet();
+    boolean result = doHasAccess(subject, groups, authorizableHierarchy, actions, roleSet);
+    // a decision made while the version changed may be stale, it is not cached.
+    // Once the version advanced the cache of this one is no longer read, so
+    // the decision can't outlive it
+    if (policy.getPolicyVersion() == version) {
+      versionCache.decisions.put(key, result);
+    }
+    return result;
   }
 
-  private boolean doHasAccess(Subject subject,
-      List<? extends Authorizable> authorizables, Set<? extends Action> actions,
-      ActiveRoleSet roleSet) {
+  /***
+   * Privileges are fetched once, without authorizable filter so that they cover
+   * every hierarchy of the batch, and compiled once by the policy engine.
+   */
+  @Override
+  public BitSet hasAccessBatch(Subject subject,
+      List<? extends List<? extends Authorizable>> authorizableHierarchies,
+      Set<? extends Action> actions, ActiveRoleSet roleSet) {
+    Preconditions.checkNotNull(subject, "Subject cannot be null");
+    Preconditions.checkNotNull(authorizableHierarchies, "Authorizables cannot be null");
+    Preconditions.checkNotNull(actions, "Actions cannot be null");
+    Preconditions.checkArgument(!actions.isEmpty(), "Actions cannot be empty");
+    Preconditions.checkNotNull(roleSet, "ActiveRoleSet cannot be null");
+    if(LOGGER.isDebugEnabled()) {
+      LOGGER.debug("Batch Authorization Request for " + subject + " " +
+          authorizableHierarchies.size() + " objects and " + actions);
+    }
+    BitSet result = new BitSet(authorizableHierarchies.size());
+    if (authorizableHierarchies.isEmpty()) {
+      return result;
+    }
+
     Set<String> groups =  getGroups(subject);
     Set<String> users = Sets.newHashSet(subject.getName());
-    Set<String> hierarchy = new HashSet<String>();
-    for (Authorizable authorizable : authorizables) {
-      hierarchy.add(KV_JOINER.join(authorizable.getTypeName(), authorizable.getName()));
+    ImmutableSet<String> privileges =
+        policy.getPrivileges(groups, users, roleSet, (Authorizable[]) null);
+    PrivilegeTrie privilegeTrie = (model == null) ? null : policy.compilePrivileges(privileges, model);
+    List<Privilege> parsedPrivileges = null;
+    for (int i = 0; i < authorizableHierarchies.size(); i++) {
+      List<? extends Authorizable> authorizables = authorizableHierarchies.get(i);
+      Preconditions.checkNotNull(authorizables, "Authorizable cannot be null");
+      Preconditions.checkArgument(!authorizables.isEmpty(), "Authorizable cannot be empty");
+      boolean allowed;
+      if (isSwitchDB(authorizables)) {
+        // the default db privilege depends on the privileges of this hierarchy only
+        allowed = doHasAccess(subject, groups, authorizables, actions, roleSet);
+      } else if (privilegeTrie != null) {
+        allowed = privilegeTrie.implies(authorizables, actions);
+      } else {
+        if (parsedPrivileges == null) {
+          parsedPrivileges = Lists.newArrayList(getPrivileges(privileges));
+        }
+        allowed = implies(parsedPrivileges, buildPermissions(authorizables, actions), roleSet);
+      }
+      if (allowed) {
+        result.set(i);
+      }
     }
-    List<String> requestPrivileges = buildPermissions(authorizables, actions);
-    Iterable<Privilege> privileges = getPrivileges(groups, users, roleSet,
-        authorizables.toArray(new Authorizable[0]));
+    if (LOGGER.isDebugEnabled()) {
+      LOGGER.debug("ProviderPrivileges {}, Batch Request {} objects {}, RoleSet {}, Allowed {}",
+          new Object[]{ privileges, authorizableHierarchies.size(), actions, roleSet,
+              result.cardinality()});
+    }
+    return result;
+  }
+
+  private boolean doHasAccess(Subject subject, Set<String> groups,
+      List<? extends Authorizable> authorizables, Set<? extends Action> actions,
+      ActiveRoleSet roleSet) {
+    Set<String> users = Sets.newHashSet(subject.getName());
+    Authorizable[] authorizableArray = authorizables.toArray(new Authorizable[0]);
+    ImmutableSet<String> privileges = appendDefaultDBPriv(
+        policy.getPrivileges(groups, users, roleSet, authorizableArray), authorizableArray);
     lastFailedPrivileges.get().clear();
 
+    // The privileges are compiled once per privilege set by the policy engine, the
+    // per privilege comparison is only used when the engine cannot compile them.
+    PrivilegeTrie privilegeTrie = (model == null) ? null : policy.compilePrivileges(privileges, model);
+    boolean result;
+    if (privilegeTrie != null) {
+      result = privilegeTrie.implies(authorizables, actions);
+      if (LOGGER.isDebugEnabled()) {
+        LOGGER.debug("ProviderPrivileges {}, Request {} {}, RoleSet {}, Result {}",
+            new Object[]{ privileges, authorizables, actions, roleSet, result});
+      }
+    } else {
+      result = implies(getPrivileges(privileges), buildPermissions(authorizables, actions),
+          roleSet);
+    }
+
+    if (!result) {
+      lastFailedPrivileges.get().addAll(buildPermissions(authorizables, actions));
+    }
+    return result;
+  }
+
+  private boolean implies(Iterable<Privilege> privileges, List<String> requestPrivileges,
+      ActiveRoleSet roleSet) {
     for (String requestPrivilege : requestPrivileges) {
       Privilege priv = privilegeFactory.createPrivilege(requestPrivilege);
       for (Privilege permission : privileges) {
@@ -125,15 +307,11 @@ public abstract class ResourceAuthorizationProvider implements AuthorizationProv
         }
       }
     }
-
-    lastFailedPrivileges.get().addAll(requestPrivileges);
     return false;
   }
 
-  private Iterable<Privilege> getPrivileges(Set<String> groups, Set<String> users,
-      ActiveRoleSet roleSet, Authorizable[] authorizables) {
-    ImmutableSet<String> privileges = policy.getPrivileges(groups, users, roleSet, authorizables);
-    return Iterables.transform(appendDefaultDBPriv(privileges, authorizables),
+  private Iterable<Privilege> getPrivileges(ImmutableSet<String> privileges) {
+    return Iterables.transform(privileges,
         new Function<String, Privilege>() {
       @Override
       public Privilege apply(String privilege) {
@@ -142,9 +320,13 @@ public abstract class ResourceAuthorizationProvider implements AuthorizationProv
     });
   }
 
+  private boolean isSwitchDB(List<? extends Authorizable> authorizables) {
+    return authorizables.size() == 4 && authorizables.get(2).getName().equals("+");
+  }
+
   private ImmutableSet<String> appendDefaultDBPriv(ImmutableSet<String> privileges, Authorizable[] authorizables) {
     // Only for switch db
-    if (authorizables != null && authorizables.length == 4 && authorizables[2].getName().equals("+")
+    if (authorizables != null && isSwitchDB(Arrays.asList(authorizables))
       && privileges.size() == 1 && hasOnlyServerPrivilege(privileges.asList().get(0))) {
       // Assuming authorizable[0] will always be the server
       // This Code is only reachable only when user fires a 'use default'
@@ -224,4 +406,93 @@ public abstract class ResourceAuthorizationProvider implements AuthorizationProv
   public PolicyEngine getPolicyEngine() {
     return policy;
   }
+
+  public long getDecisionCacheHitCount() {
+    return decisionCacheHits.get();
+  }
+
+  public long getDecisionCacheMissCount() {
+    return decisionCacheMisses.get();
+  }
+
+  public long getDecisionCacheEvictionCount() {
+    return decisionCacheEvictions.get();
+  }
+
+  /**
+   * @return the ratio of cached decisions to all the decisions which could
+   *         be cached, 1.0 if there were none
+   */
+  public double getDecisionCacheHitRate() {
+    long hits = decisionCacheHits.get();
+    long requests = hits + decisionCacheMisses.get();
+    return (requests == 0) ? 1.0 : (double) hits / requests;
+  }
+
+  /**
+   * The decisions made with one policy version.
+   */
+  private static final class VersionedDecisionCache {
+    private final long version;
+    private final Cache<DecisionKey, Boolean> decisions;
+
+    private VersionedDecisionCache(long version, Cache<DecisionKey, Boolean> decisions) {
+      this.version = version;
+      this.decisions = decisions;
+    }
+  }
+
+  /**
+   * Identifies an authorization request. Authorizables are compared by type
+   * and name, and actions by value, as the privileges are.
+   */
+  private static final class DecisionKey {
+    private final String user;
+    private final Set<String> groups;
+    private final boolean allRoles;
+    private final Set<String> roles;
+    private final List<String> authorizables;
+    private final Set<String> actions;
+    private final int hashCode;
+
+    private DecisionKey(String user, Set<String> groups, ActiveRoleSet roleSet,
+        List<? extends Authorizable> authorizableHierarchy, Set<? extends Action> actions) {
+      this.user = user;
+      this.groups = ImmutableSet.copyOf(groups);
+      this.allRoles = roleSet.isAll();
+      this.roles = allRoles ? ImmutableSet.<String>of() : ImmutableSet.copyOf(roleSet.getRoles());
+      List<String> authorizableList = new ArrayList<String>(authorizableHierarchy.size());
+      for (Authorizable authorizable : authorizableHierarchy) {
+        authorizableList.add(KV_JOINER.join(authorizable.getTypeName(), authorizable.getName()));
+      }
+      this.authorizables = authorizableList;
+      Set<String> actionSet = Sets.newHashSet();
+      for (Action action : actions) {
+        actionSet.add(action.getValue());
+      }
+      this.actions = actionSet;
+      this.hashCode = Objects.hashCode(user, this.groups, allRoles, roles, authorizables,
+          this.actions);
+    }
+
+    @Override
+    public int hashCode() {
+      return hashCode;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+      if (this == obj) {
+        return true;
+      }
+      if (!(obj instanceof DecisionKey)) {
+        return false;
+      }
+      DecisionKey other = (DecisionKey) obj;
+      return hashCode == other.hashCode && allRoles == other.allRoles
+          && Objects.equal(user, other.user) && groups.equals(other.groups)
+          && roles.equals(other.roles) && authorizables.equals(other.authorizables)
+          && actions.equals(other.actions);
+    }
+  }
 }
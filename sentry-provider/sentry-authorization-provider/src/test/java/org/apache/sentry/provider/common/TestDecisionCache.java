@@ -0,0 +1,300 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.sentry.provider.common;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+import java.util.Set;
+
+import org.apache.sentry.core.common.Action;
+import org.apache.sentry.core.common.ActiveRoleSet;
+import org.apache.sentry.core.common.Authorizable;
+import org.apache.sentry.core.common.Model;
+import org.apache.sentry.core.common.Subject;
+import org.apache.sentry.core.common.exception.SentryConfigurationException;
+import org.apache.sentry.core.common.service.GroupMappingService;
+import org.apache.sentry.core.common.utils.KeyValue;
+import org.apache.sentry.policy.common.PolicyEngine;
+import org.apache.sentry.policy.common.Privilege;
+import org.apache.sentry.policy.common.PrivilegeFactory;
+import org.apache.sentry.policy.common.PrivilegeTrie;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+
+/**
+ * Tests the authorization decision cache of ResourceAuthorizationProvider
+ */
+public class TestDecisionCache {
+
+  private static final Subject USER = new Subject("user1");
+  private static final Action READ = new TestAction("read");
+  private static final Action WRITE = new TestAction("write");
+  private static final List<Authorizable> RESOURCE1 = Lists.<Authorizable>newArrayList(
+      new TestAuthorizable("server", "server1"), new TestAuthorizable("db", "db1"));
+  private static final List<Authorizable> RESOURCE2 = Lists.<Authorizable>newArrayList(
+      new TestAuthorizable("server", "server1"), new TestAuthorizable("db", "db2"));
+
+  private TestPolicyEngine policy;
+  private Set<String> groups;
+
+  @Before
+  public void setup() {
+    policy = new TestPolicyEngine();
+    policy.privileges = ImmutableSet.of("server=server1->db=db1->action=read");
+    groups = Sets.newHashSet("group1");
+  }
+
+  @Test
+  public void testCachedDecisions() throws Exception {
+    ResourceAuthorizationProvider provider = newProvider(10);
+    for (int i = 0; i < 3; i++) {
+      assertTrue(hasAccess(provider, RESOURCE1, READ));
+      assertFalse(hasAccess(provider, RESOURCE1, WRITE));
+    }
+    assertEquals(2, policy.privilegeRequests);
+    assertEquals(4, provider.getDecisionCacheHitCount());
+    assertEquals(2, provider.getDecisionCacheMissCount());
+    assertEquals(4.0 / 6, provider.getDecisionCacheHitRate(), 0.0001);
+    // the failed privileges are kept for cached negative decisions
+    assertEquals(Lists.newArrayList("server=server1->db=db1->action=write"),
+        provider.getLastFailedPrivileges());
+    assertTrue(hasAccess(provider, RESOURCE1, READ));
+    assertTrue(provider.getLastFailedPrivileges().isEmpty());
+  }
+
+  @Test
+  public void testRequestsAreDistinguished() throws Exception {
+    ResourceAuthorizationProvider provider = newProvider(10);
+    assertTrue(hasAccess(provider, RESOURCE1, READ));
+    assertFalse(hasAccess(provider, RESOURCE2, READ));
+    assertTrue(provider.hasAccess(new Subject("user2"), RESOURCE1, Sets.newHashSet(READ),
+        ActiveRoleSet.ALL));
+    assertTrue(provider.hasAccess(USER, RESOURCE1, Sets.newHashSet(READ),
+        new ActiveRoleSet(Sets.newHashSet("role1"))));
+    groups.add("group2");
+    assertTrue(hasAccess(provider, RESOURCE1, READ));
+    assertEquals(5, policy.privilegeRequests);
+    assertEquals(0, provider.getDecisionCacheHitCount());
+  }
+
+  @Test
+  public void testInvalidatedByPolicyVersion() throws Exception {
+    ResourceAuthorizationProvider provider = newProvider(10);
+    assertTrue(hasAccess(provider, RESOURCE1, READ));
+    assertFalse(hasAccess(provider, RESOURCE2, READ));
+    policy.privileges = ImmutableSet.of("server=server1->db=db2->action=read");
+    // the privileges are only seen once the version advances
+    assertTrue(hasAccess(provider, RESOURCE1, READ));
+    policy.version++;
+    assertFalse(hasAccess(provider, RESOURCE1, READ));
+    assertTrue(hasAccess(provider, RESOURCE2, READ));
+    assertEquals(4, policy.privilegeRequests);
+  }
+
+  @Test
+  public void testOlderVersionKeepsNewerDecisions() throws Exception {
+    ResourceAuthorizationProvider provider = newProvider(10);
+    policy.version = 2;
+    assertTrue(hasAccess(provider, RESOURCE1, READ));
+    // a late request which read an older version is neither cached nor
+    // invalidates the decisions of the newer one
+    policy.version = 1;
+    assertTrue(hasAccess(provider, RESOURCE1, READ));
+    assertFalse(hasAccess(provider, RESOURCE2, READ));
+    policy.version = 2;
+    assertTrue(hasAccess(provider, RESOURCE1, READ));
+    assertFalse(hasAccess(provider, RESOURCE2, READ));
+    assertEquals(4, policy.privilegeRequests);
+    assertEquals(1, provider.getDecisionCacheHitCount());
+  }
+
+  @Test
+  public void testUnversionedPolicyIsNotCached() throws Exception {
+    ResourceAuthorizationProvider provider = newProvider(10);
+    policy.version = -1;
+    assertTrue(hasAccess(provider, RESOURCE1, READ));
+    assertTrue(hasAccess(provider, RESOURCE1, READ));
+    assertEquals(2, policy.privilegeRequests);
+    assertEquals(0, provider.getDecisionCacheHitCount());
+    assertEquals(0, provider.getDecisionCacheMissCount());
+  }
+
+  @Test
+  public void testDisabledCache() throws Exception {
+    ResourceAuthorizationProvider provider = newProvider(0);
+    assertTrue(hasAccess(provider, RESOURCE1, READ));
+    assertTrue(hasAccess(provider, RESOURCE1, READ));
+    assertEquals(2, policy.privilegeRequests);
+    assertEquals(1.0, provider.getDecisionCacheHitRate(), 0.0001);
+  }
+
+  @Test
+  public void testEviction() throws Exception {
+    ResourceAuthorizationProvider provider = newProvider(1);
+    assertTrue(hasAccess(provider, RESOURCE1, READ));
+    assertFalse(hasAccess(provider, RESOURCE2, READ));
+    assertTrue(hasAccess(provider, RESOURCE1, READ));
+    assertEquals(3, policy.privilegeRequests);
+    assertEquals(2, provider.getDecisionCacheEvictionCount());
+    // invalidation is not an eviction
+    policy.version++;
+    assertTrue(hasAccess(provider, RESOURCE1, READ));
+    assertEquals(2, provider.getDecisionCacheEvictionCount());
+  }
+
+  private ResourceAuthorizationProvider newProvider(long decisionCacheSize) {
+    GroupMappingService groupService = new GroupMappingService() {
+      @Override
+      public Set<String> getGroups(String user) {
+        return groups;
+      }
+    };
+    return new TestResourceAuthorizationProvider(policy, groupService, decisionCacheSize);
+  }
+
+  private boolean hasAccess(ResourceAuthorizationProvider provider,
+      List<Authorizable> authorizables, Action action) {
+    return provider.hasAccess(USER, authorizables, Sets.newHashSet(action), ActiveRoleSet.ALL);
+  }
+
+  private static class TestResourceAuthorizationProvider extends ResourceAuthorizationProvider {
+    TestResourceAuthorizationProvider(PolicyEngine policy, GroupMappingService groupService,
+        long decisionCacheSize) {
+      super(policy, groupService, null, decisionCacheSize);
+    }
+  }
+
+  private static class TestAuthorizable implements Authorizable {
+    private final String typeName;
+    private final String name;
+
+    TestAuthorizable(String typeName, String name) {
+      this.typeName = typeName;
+      this.name = name;
+    }
+
+    @Override
+    public String getName() {
+      return name;
+    }
+
+    @Override
+    public String getTypeName() {
+      return typeName;
+    }
+  }
+
+  private static class TestAction implements Action {
+    private final String value;
+
+    TestAction(String value) {
+      this.value = value;
+    }
+
+    @Override
+    public String getValue() {
+      return value;
+    }
+  }
+
+  // grants the privileges which are equal to the requested ones
+  private static class TestPrivilege implements Privilege {
+    private final String privilege;
+
+    TestPrivilege(String privilege) {
+      this.privilege = privilege;
+    }
+
+    @Override
+    public boolean implies(Privilege p, Model model) {
+      return privilege.equals(((TestPrivilege) p).privilege);
+    }
+
+    @Override
+    public List<KeyValue> getAuthorizable() {
+      return null;
+    }
+  }
+
+  private static class TestPolicyEngine implements PolicyEngine {
+    private volatile ImmutableSet<String> privileges = ImmutableSet.of();
+    private volatile long version = 0;
+    private int privilegeRequests = 0;
+
+    @Override
+    public PrivilegeFactory getPrivilegeFactory() {
+      return new PrivilegeFactory() {
+        @Override
+        public Privilege createPrivilege(String permission) {
+          return new TestPrivilege(permission);
+        }
+      };
+    }
+
+    @Override
+    public ImmutableSet<String> getAllPrivileges(Set<String> groups, ActiveRoleSet roleSet)
+        throws SentryConfigurationException {
+      return getPrivileges(groups, roleSet);
+    }
+
+    @Override
+    public ImmutableSet<String> getPrivileges(Set<String> groups, ActiveRoleSet roleSet,
+        Authorizable... authorizableHierarchy) throws SentryConfigurationException {
+      privilegeRequests++;
+      return privileges;
+    }
+
+    @Override
+    public ImmutableSet<String> getAllPrivileges(Set<String> groups, Set<String> users,
+        ActiveRoleSet roleSet) throws SentryConfigurationException {
+      return getPrivileges(groups, users, roleSet);
+    }
+
+    @Override
+    public ImmutableSet<String> getPrivileges(Set<String> groups, Set<String> users,
+        ActiveRoleSet roleSet, Authorizable... authorizableHierarchy)
+        throws SentryConfigurationException {
+      privilegeRequests++;
+      return privileges;
+    }
+
+    @Override
+    public PrivilegeTrie compilePrivileges(Set<String> privileges, Model model) {
+      return null;
+    }
+
+    @Override
+    public long getPolicyVersion() {
+      return version;
+    }
+
+    @Override
+    public void validatePolicy(boolean strictValidation) throws SentryConfigurationException {
+    }
+
+    @Override
+    public void close() {
+    }
+  }
+}
@@ -22,10 +22,12 @@ import java.util.Set;
 
 import org.apache.sentry.core.common.ActiveRoleSet;
 import org.apache.sentry.core.common.Authorizable;
+import org.apache.sentry.core.common.Model;
 import org.apache.sentry.core.common.exception.SentryConfigurationException;
 import org.apache.sentry.core.common.service.GroupMappingService;
 import org.apache.sentry.policy.common.PolicyEngine;
 import org.apache.sentry.policy.common.PrivilegeFactory;
+import org.apache.sentry.policy.common.PrivilegeTrie;
 import org.junit.Test;
 
 import com.google.common.collect.ImmutableSet;
@@ -80,6 +82,16 @@ public class TestGetGroupMapping {
         return ImmutableSet.of();
       }
 
+      @Override
+      public PrivilegeTrie compilePrivileges(Set<String> privileges, Model model) {
+        return null;
+      }
+
+      @Override
+      public long getPolicyVersion() {
+        return -1;
+      }
+
       @Override
       public void close() {}
     };
@@ -29,6 +29,7 @@ public class TestNoAuthorizationProvider {
   public void testNoAuthorizationProvider() {
     NoAuthorizationProvider nap = new NoAuthorizationProvider();
     Assert.assertFalse(nap.hasAccess(null, null, null, null));
+    Assert.assertTrue(nap.hasAccessBatch(null, null, null, null).isEmpty());
 
     GroupMappingService gms = nap.getGroupMapping();
     Assert.assertEquals(gms.getGroups(null).size(), 0);
@@ -41,7 +41,8 @@ public interface PrivilegeCache {
 
   /**
    * Get the privileges for the give set of groups and users with the give active
-   * roles and authorization hierarchy from the cache.
+   * roles and authorization hierarchy from the cache. Without authorization
+   * hierarchy, all the privileges are returned.
    */
   Set<String> listPrivileges(Set<String> groups, Set<String> users, ActiveRoleSet roleSet,
       Authorizable... authorizationhierarchy);
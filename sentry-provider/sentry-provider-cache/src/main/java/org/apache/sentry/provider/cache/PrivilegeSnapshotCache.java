@@ -0,0 +1,171 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.sentry.provider.cache;
+
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.sentry.core.common.ActiveRoleSet;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Objects;
+import com.google.common.base.Ticker;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.collect.ImmutableSet;
+
+/*
+ * Thread safe cache of the privilege snapshots of users, which are shared by all
+ * the sessions of a user, e.g. by the metadata filters of the HiveServer2 sessions.
+ * A snapshot is built once from the privileges of the user, and is dropped when it
+ * expires, when the cache is full or when the policy version changes.
+ */
+public class PrivilegeSnapshotCache {
+
+  private static final Logger LOGGER = LoggerFactory
+      .getLogger(PrivilegeSnapshotCache.class);
+
+  private final Cache<SnapshotKey, Snapshot> cache;
+  private final AtomicLong reuseCount = new AtomicLong();
+  private final AtomicLong buildCount = new AtomicLong();
+  private final AtomicLong buildTimeNs = new AtomicLong();
+
+  public PrivilegeSnapshotCache(long ttlMs, long maxSize) {
+    this(ttlMs, maxSize, Ticker.systemTicker());
+  }
+
+  @VisibleForTesting
+  PrivilegeSnapshotCache(long ttlMs, long maxSize, Ticker ticker) {
+    cache = CacheBuilder.newBuilder()
+        .expireAfterWrite(ttlMs, TimeUnit.MILLISECONDS)
+        .maximumSize(maxSize)
+        .ticker(ticker)
+        .build();
+  }
+
+  /**
+   * Returns the snapshot of the privileges of the user, which is built with the
+   * privileges of the loader when there is none. A snapshot of another policy
+   * version is rebuilt, unless the version is negative, in which case only the
+   * ttl bounds how stale the snapshot can be.
+   */
+  public PrivilegeCache get(String user, String server, ActiveRoleSet roleSet, long policyVersion,
+      Callable<Set<String>> loader) throws ExecutionException {
+    SnapshotKey key = new SnapshotKey(user, server, roleSet);
+    Snapshot snapshot = get(key, policyVersion, loader);
+    if (policyVersion >= 0 && snapshot.policyVersion != policyVersion) {
+      cache.asMap().remove(key, snapshot);
+      snapshot = get(key, policyVersion, loader);
+    }
+    return snapshot.privilegeCache;
+  }
+
+  private Snapshot get(SnapshotKey key, final long policyVersion,
+      final Callable<Set<String>> loader) throws ExecutionException {
+    final boolean[] built = new boolean[1];
+    Snapshot snapshot = cache.get(key, new Callable<Snapshot>() {
+      @Override
+      public Snapshot call() throws Exception {
+        built[0] = true;
+        long startNs = System.nanoTime();
+        Set<String> privileges = loader.call();
+        Snapshot snapshot = new Snapshot(new TreePrivilegeCache(privileges), policyVersion);
+        long elapsedNs = System.nanoTime() - startNs;
+        buildCount.incrementAndGet();
+        buildTimeNs.addAndGet(elapsedNs);
+        LOGGER.debug("Built privilege snapshot of {} privileges in {} ms", privileges.size(),
+            TimeUnit.NANOSECONDS.toMillis(elapsedNs));
+        return snapshot;
+      }
+    });
+    if (!built[0]) {
+      reuseCount.incrementAndGet();
+    }
+    return snapshot;
+  }
+
+  public void invalidateAll() {
+    cache.invalidateAll();
+  }
+
+  /**
+   * @return the number of lookups which reused a snapshot
+   */
+  public long getReuseCount() {
+    return reuseCount.get();
+  }
+
+  /**
+   * @return the number of snapshots built
+   */
+  public long getBuildCount() {
+    return buildCount.get();
+  }
+
+  /**
+   * @return the total time spent building snapshots, including fetching the privileges
+   */
+  public long getBuildTime(TimeUnit unit) {
+    return unit.convert(buildTimeNs.get(), TimeUnit.NANOSECONDS);
+  }
+
+  private static final class Snapshot {
+    private final PrivilegeCache privilegeCache;
+    private final long policyVersion;
+
+    private Snapshot(PrivilegeCache privilegeCache, long policyVersion) {
+      this.privilegeCache = privilegeCache;
+      this.policyVersion = policyVersion;
+    }
+  }
+
+  private static final class SnapshotKey {
+    private final String user;
+    private final String server;
+    // null for all the roles
+    private final Set<String> roles;
+
+    private SnapshotKey(String user, String server, ActiveRoleSet roleSet) {
+      this.user = user;
+      this.server = server;
+      this.roles = roleSet.isAll() ? null : ImmutableSet.copyOf(roleSet.getRoles());
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hashCode(user, server, roles);
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+      if (this == obj) {
+        return true;
+      }
+      if (!(obj instanceof SnapshotKey)) {
+        return false;
+      }
+      SnapshotKey other = (SnapshotKey) obj;
+      return Objects.equal(user, other.user) && Objects.equal(server, other.server)
+          && Objects.equal(roles, other.roles);
+    }
+  }
+}
@@ -97,6 +97,14 @@ public class SimpleCacheProviderBackend implements ProviderBackend {
         "validatePolicy() is not supported by Cache provider");
   }
 
+  /**
+   * The PrivilegeCache does not tell when its privileges change.
+   */
+  @Override
+  public long getPolicyVersion() {
+    return UNVERSIONED_POLICY;
+  }
+
   @Override
   public void close() {
     cacheHandle.close();
@@ -125,6 +125,10 @@ public class SimplePrivilegeCache implements PrivilegeCache {
   @Override
   public Set<String> listPrivileges(Set<String> groups, Set<String> users, ActiveRoleSet roleSet,
       Authorizable... authorizationHierarchy) {
+    // Without authorizable hierarchy, as for the Sentry service, there is no filter
+    if (authorizationHierarchy == null || authorizationHierarchy.length == 0) {
+      return new HashSet<>(cachedPrivileges);
+    }
     Set<String> privileges = new HashSet<>();
     Set<StringBuilder> authzKeys = getAuthzKeys(authorizationHierarchy);
     for (StringBuilder authzKey : authzKeys) {
@@ -0,0 +1,173 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.sentry.provider.cache;
+
+import org.apache.sentry.core.common.ActiveRoleSet;
+import org.apache.sentry.core.common.Authorizable;
+import org.apache.sentry.core.common.utils.KeyValue;
+import org.apache.sentry.core.common.utils.SentryConstants;
+import org.apache.sentry.core.model.db.DBModelAuthorizable.AuthorizableType;
+import org.apache.sentry.policy.common.CommonPrivilege;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/*
+ * The class is used for saving and getting user's privileges when do the hive command like "show tables",
+ * like SimplePrivilegeCache. The privileges are kept in a tree whose edges are the authorizable types and
+ * values of the privileges, so the privileges of an authorizable hierarchy are found by walking the tree,
+ * following the wildcard edges, without building the keys of every possible match. The cache is not
+ * modified once created, so it is thread safe.
+ */
+public class TreePrivilegeCache implements PrivilegeCache {
+
+  private final Set<String> cachedPrivileges;
+  private final Node root = new Node();
+
+  public TreePrivilegeCache(Set<String> cachedPrivileges) {
+    this.cachedPrivileges = cachedPrivileges == null ? new HashSet<String>() : cachedPrivileges;
+
+    for (String cachedPrivilege : this.cachedPrivileges) {
+      Node node = root;
+      for (KeyValue auth : new CommonPrivilege(cachedPrivilege).getAuthorizable()) {
+        // For authorizable e.g. sever=server1->uri=hdfs://namenode:8020/path/,
+        // the privilege is kept at sever=server1, since cannot do string matching on URI paths.
+        if (!AuthorizableType.URI.toString().equalsIgnoreCase(auth.getKey())) {
+          node = node.addChild(auth.getKey(), auth.getValue());
+        }
+      }
+      node.addPrivilege(cachedPrivilege);
+    }
+  }
+
+  // return the cached privileges
+  @Override
+  public Set<String> listPrivileges(Set<String> groups, ActiveRoleSet roleSet) {
+    return cachedPrivileges;
+  }
+
+  @Override
+  public void close() {
+    // the tree is left as it is, since it may still be read by other threads
+  }
+
+  @Override
+  public Set<String> listPrivileges(Set<String> groups, Set<String> users, ActiveRoleSet roleSet) {
+    return cachedPrivileges;
+  }
+
+  @Override
+  public Set<String> listPrivileges(Set<String> groups, Set<String> users, ActiveRoleSet roleSet,
+      Authorizable... authorizationHierarchy) {
+    // Without authorizable hierarchy, as for the Sentry service, there is no filter
+    if (authorizationHierarchy == null || authorizationHierarchy.length == 0) {
+      return new HashSet<>(cachedPrivileges);
+    }
+    Set<String> privileges = new HashSet<>();
+    collect(root, authorizationHierarchy, 0, privileges);
+    return privileges;
+  }
+
+  /**
+   * Adds the privileges of the nodes below the given node, which match the
+   * authorizable hierarchy from the given index on. This logic follows
+   * Privilege.implies, e.g. given authorizable hierarchy server=server1->db=db1,
+   * the privileges of server=server1, server=*, server=server1->db=db1 and
+   * server=server1->db=* are added.
+   */
+  private static void collect(Node node, Authorizable[] authorizationHierarchy, int index,
+      Set<String> privileges) {
+    int next = index;
+    // No op for URI authorizable type.
+    while (next < authorizationHierarchy.length && AuthorizableType.URI.toString()
+        .equalsIgnoreCase(authorizationHierarchy[next].getTypeName())) {
+      next++;
+    }
+    if (next == authorizationHierarchy.length) {
+      return;
+    }
+    Authorizable auth = authorizationHierarchy[next];
+    Map<String, Node> children = node.children.get(auth.getTypeName().toLowerCase());
+    if (children == null) {
+      return;
+    }
+    String authzName = auth.getName().toLowerCase();
+
+    // If authorizable name is a wild card, all the authorizable objects of the type match
+    if (isWildcard(authzName)) {
+      for (Node child : children.values()) {
+        visit(child, authorizationHierarchy, next, privileges);
+      }
+    } else {
+      visit(children.get(authzName), authorizationHierarchy, next, privileges);
+      // wild card search, e.g server=server1->db=*, server=server1->db=ALL
+      visit(children.get(SentryConstants.RESOURCE_WILDCARD_VALUE.toLowerCase()),
+          authorizationHierarchy, next, privileges);
+      visit(children.get(SentryConstants.RESOURCE_WILDCARD_VALUE_ALL.toLowerCase()),
+          authorizationHierarchy, next, privileges);
+    }
+  }
+
+  private static void visit(Node child, Authorizable[] authorizationHierarchy, int index,
+      Set<String> privileges) {
+    if (child != null) {
+      privileges.addAll(child.privileges);
+      collect(child, authorizationHierarchy, index + 1, privileges);
+    }
+  }
+
+  private static boolean isWildcard(String authzName) {
+    return authzName.equals(SentryConstants.RESOURCE_WILDCARD_VALUE) ||
+        authzName.equals(SentryConstants.RESOURCE_WILDCARD_VALUE_SOME) ||
+        authzName.equalsIgnoreCase(SentryConstants.RESOURCE_WILDCARD_VALUE_ALL);
+  }
+
+  /**
+   * A node of the tree, with the privileges whose authorizables end at the
+   * node and the children by lower case authorizable type and value.
+   */
+  private static final class Node {
+    private final Map<String, Map<String, Node>> children = new HashMap<>();
+    private List<String> privileges = Collections.emptyList();
+
+    private void addPrivilege(String privilege) {
+      if (privileges.isEmpty()) {
+        privileges = new ArrayList<>(1);
+      }
+      privileges.add(privilege);
+    }
+
+    private Node addChild(String authzType, String authzName) {
+      Map<String, Node> typeChildren = children.get(authzType);
+      if (typeChildren == null) {
+        typeChildren = new HashMap<>();
+        children.put(authzType, typeChildren);
+      }
+      Node child = typeChildren.get(authzName);
+      if (child == null) {
+        child = new Node();
+        typeChildren.put(authzName, child);
+      }
+      return child;
+    }
+  }
+}
@@ -21,15 +21,23 @@ import static org.junit.Assert.assertEquals;
 
 import java.io.IOException;
 import java.util.HashSet;
+import java.util.Set;
 
 import org.apache.hadoop.conf.Configuration;
 import org.apache.sentry.core.common.ActiveRoleSet;
+import org.apache.sentry.core.model.db.Database;
+import org.apache.sentry.core.model.db.Server;
+import org.apache.sentry.provider.common.CacheProvider;
+import org.apache.sentry.provider.common.ProviderBackend;
 import org.apache.sentry.provider.common.ProviderBackendContext;
+import org.apache.sentry.provider.common.TableCache;
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
 
+import com.google.common.collect.HashBasedTable;
 import com.google.common.collect.Sets;
+import com.google.common.collect.Table;
 
 public class TestCacheProvider {
 
@@ -102,4 +110,80 @@ public class TestCacheProvider {
         new ActiveRoleSet(Sets.newHashSet("junior_analyst_role", "functions"))));
   }
 
+  @Test
+  public void testUnversionedPolicy() {
+    backend.initialize(context);
+    assertEquals(ProviderBackend.UNVERSIONED_POLICY, backend.getPolicyVersion());
+  }
+
+  @Test
+  public void testRoleWithPrivilegesByGroup() {
+    // a role of the same name may have other privileges in another group
+    final Table<String, String, Set<String>> table = HashBasedTable.create();
+    table.put("group1", "Role1", Sets.newHashSet("server=server1->db=db1"));
+    table.put("group2", "Role1", Sets.newHashSet("server=server1->db=db2"));
+    table.put("group2", "role2", Sets.newHashSet("server=server1->db=db3"));
+    CacheProvider provider = new CacheProvider();
+    provider.initialize(new TableCache() {
+      @Override
+      public Table<String, String, Set<String>> getCache() {
+        return table;
+      }
+    });
+    assertEquals(Sets.newHashSet("server=server1->db=db1"),
+        provider.getPrivileges(Sets.newHashSet("group1"), ActiveRoleSet.ALL));
+    assertEquals(Sets.newHashSet("server=server1->db=db1", "server=server1->db=db2"),
+        provider.getPrivileges(Sets.newHashSet("group1", "group2"),
+            new ActiveRoleSet(Sets.newHashSet("ROLE1"))));
+    assertEquals(Sets.newHashSet("server=server1->db=db2"),
+        provider.getPrivileges(Sets.newHashSet("group2", "not-a-group"),
+            new ActiveRoleSet(Sets.newHashSet("role1"))));
+    assertEquals(Sets.newHashSet("Role1", "role2"),
+        provider.getRoles(Sets.newHashSet("group2"), ActiveRoleSet.ALL));
+    assertEquals(Sets.newHashSet(), provider.getRoles(Sets.newHashSet("group1"),
+        new ActiveRoleSet(Sets.newHashSet("role2"))));
+  }
+
+  @Test
+  public void testFilterByAuthorizables() {
+    final Table<String, String, Set<String>> table = HashBasedTable.create();
+    table.put("group1", "role1", Sets.newHashSet(
+        "server=server1->db=db1->table=t1->action=select",
+        "server=server1->db=db2->action=all",
+        "server=server1->db=*->table=t9->action=insert",
+        "server=server1->uri=hdfs://namenode:8020/path->action=all"));
+    table.put("group2", "role2", Sets.newHashSet("server=server1->db=db3"));
+    CacheProvider provider = new CacheProvider();
+    provider.initialize(new TableCache() {
+      @Override
+      public Table<String, String, Set<String>> getCache() {
+        return table;
+      }
+    });
+    Set<String> group1 = Sets.newHashSet("group1");
+    // the privileges of the parents, through wildcards and on URIs
+    assertEquals(Sets.newHashSet("server=server1->db=db1->table=t1->action=select",
+        "server=server1->db=*->table=t9->action=insert",
+        "server=server1->uri=hdfs://namenode:8020/path->action=all"),
+        provider.getPrivileges(group1, ActiveRoleSet.ALL, new Server("server1"),
+            new Database("DB1"), new org.apache.sentry.core.model.db.Table("t1")));
+    assertEquals(Sets.newHashSet("server=server1->db=db2->action=all",
+        "server=server1->db=*->table=t9->action=insert",
+        "server=server1->uri=hdfs://namenode:8020/path->action=all"),
+        provider.getPrivileges(group1, ActiveRoleSet.ALL, new Server("server1"),
+            new Database("db2"), new org.apache.sentry.core.model.db.Table("t2")));
+    // the privileges of the children
+    assertEquals(table.get("group1", "role1"),
+        provider.getPrivileges(group1, ActiveRoleSet.ALL, new Server("server1")));
+    assertEquals(table.get("group1", "role1"),
+        provider.getPrivileges(group1, ActiveRoleSet.ALL, new Server("server1"),
+            Database.ALL));
+    assertEquals(Sets.newHashSet(),
+        provider.getPrivileges(group1, ActiveRoleSet.ALL, new Server("server2")));
+    assertEquals(Sets.newHashSet("server=server1->db=db3"),
+        provider.getPrivileges(Sets.newHashSet("group2"), ActiveRoleSet.ALL,
+            new Server("server1"), new Database("db3")));
+    assertEquals(table.get("group1", "role1"), provider.getPrivileges(group1, ActiveRoleSet.ALL));
+  }
+
 }
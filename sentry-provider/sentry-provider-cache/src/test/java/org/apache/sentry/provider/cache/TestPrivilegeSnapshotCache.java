@@ -0,0 +1,106 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.sentry.provider.cache;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.sentry.core.common.ActiveRoleSet;
+import org.apache.sentry.core.model.db.Database;
+import org.apache.sentry.core.model.db.Server;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.common.base.Ticker;
+import com.google.common.collect.Sets;
+
+public class TestPrivilegeSnapshotCache {
+
+  private static final String SERVER = "server1";
+
+  private final AtomicInteger loads = new AtomicInteger();
+  private final Callable<Set<String>> loader = new Callable<Set<String>>() {
+    @Override
+    public Set<String> call() {
+      loads.incrementAndGet();
+      return Sets.newHashSet("server=server1->db=db1->action=select");
+    }
+  };
+  private long nowNs;
+  private PrivilegeSnapshotCache cache;
+
+  @Before
+  public void setup() {
+    cache = new PrivilegeSnapshotCache(1000, 10, new Ticker() {
+      @Override
+      public long read() {
+        return nowNs;
+      }
+    });
+  }
+
+  @Test
+  public void testSnapshotIsShared() throws Exception {
+    PrivilegeCache snapshot = cache.get("user1", SERVER, ActiveRoleSet.ALL, 1, loader);
+    assertSame(snapshot, cache.get("user1", SERVER, ActiveRoleSet.ALL, 1, loader));
+    assertEquals(1, loads.get());
+    assertEquals(1, cache.getBuildCount());
+    assertEquals(1, cache.getReuseCount());
+    assertEquals(1, snapshot.listPrivileges(null, null, ActiveRoleSet.ALL,
+        new Server(SERVER), new Database("db1")).size());
+  }
+
+  @Test
+  public void testSnapshotByUserAndRoles() throws Exception {
+    PrivilegeCache snapshot = cache.get("user1", SERVER, ActiveRoleSet.ALL, 1, loader);
+    assertNotSame(snapshot, cache.get("user2", SERVER, ActiveRoleSet.ALL, 1, loader));
+    assertNotSame(snapshot, cache.get("user1", SERVER,
+        new ActiveRoleSet(Sets.newHashSet("role1")), 1, loader));
+    assertSame(cache.get("user1", SERVER, new ActiveRoleSet(Sets.newHashSet("Role1")), 1, loader),
+        cache.get("user1", SERVER, new ActiveRoleSet(Sets.newHashSet("role1")), 1, loader));
+    assertEquals(3, loads.get());
+  }
+
+  @Test
+  public void testPolicyVersionChange() throws Exception {
+    PrivilegeCache snapshot = cache.get("user1", SERVER, ActiveRoleSet.ALL, 1, loader);
+    PrivilegeCache newSnapshot = cache.get("user1", SERVER, ActiveRoleSet.ALL, 2, loader);
+    assertNotSame(snapshot, newSnapshot);
+    // an unversioned policy is only bounded by the ttl
+    assertSame(newSnapshot, cache.get("user1", SERVER, ActiveRoleSet.ALL, -1, loader));
+    assertEquals(2, loads.get());
+  }
+
+  @Test
+  public void testExpiry() throws Exception {
+    PrivilegeCache snapshot = cache.get("user1", SERVER, ActiveRoleSet.ALL, -1, loader);
+    nowNs += TimeUnit.MILLISECONDS.toNanos(999);
+    assertSame(snapshot, cache.get("user1", SERVER, ActiveRoleSet.ALL, -1, loader));
+    nowNs += TimeUnit.MILLISECONDS.toNanos(1);
+    assertNotSame(snapshot, cache.get("user1", SERVER, ActiveRoleSet.ALL, -1, loader));
+    cache.invalidateAll();
+    cache.get("user1", SERVER, ActiveRoleSet.ALL, -1, loader);
+    assertEquals(3, loads.get());
+    assertEquals(3, cache.getBuildCount());
+  }
+}
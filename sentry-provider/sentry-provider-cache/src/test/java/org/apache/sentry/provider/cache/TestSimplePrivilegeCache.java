@@ -17,6 +17,7 @@
 package org.apache.sentry.provider.cache;
 
 import com.google.common.collect.Sets;
+import org.apache.sentry.core.common.Authorizable;
 import org.apache.sentry.core.common.utils.KeyValue;
 import org.apache.sentry.core.common.utils.SentryConstants;
 import org.apache.sentry.core.model.db.Database;
@@ -80,6 +81,20 @@ public class TestSimplePrivilegeCache {
     assertEquals(2, cache.listPrivileges(null, null, null, new Server("server1")).size());
   }
 
+  @Test
+  public void testListPrivilegesWithoutHierarchy() {
+    CommonPrivilege t1Select = create(new KeyValue("Server", "server1"),
+        new KeyValue("db", "db1"), new KeyValue("table", "t1"), new KeyValue("action", "SELECT"));
+    CommonPrivilege t2Select = create(new KeyValue("Server", "server1"),
+        new KeyValue("db", "db2"), new KeyValue("table", "t2"), new KeyValue("action", "SELECT"));
+
+    SimplePrivilegeCache cache = new SimplePrivilegeCache(Sets.newHashSet(t1Select.toString(),
+        t2Select.toString()));
+
+    assertEquals(2, cache.listPrivileges(null, null, null, new Authorizable[0]).size());
+    assertEquals(2, cache.listPrivileges(null, null, null, (Authorizable[]) null).size());
+  }
+
   static CommonPrivilege create(KeyValue... keyValues) {
     return create(SentryConstants.AUTHORIZABLE_JOINER.join(keyValues));
   }
@@ -0,0 +1,102 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.sentry.provider.cache;
+
+import com.google.common.collect.Sets;
+import org.apache.sentry.core.common.Authorizable;
+import org.apache.sentry.core.common.utils.KeyValue;
+import org.apache.sentry.core.model.db.AccessURI;
+import org.apache.sentry.core.model.db.Column;
+import org.apache.sentry.core.model.db.Database;
+import org.apache.sentry.core.model.db.Table;
+import org.apache.sentry.policy.common.CommonPrivilege;
+import org.junit.Test;
+
+import org.apache.sentry.core.model.db.Server;
+
+import java.util.Set;
+
+import static org.apache.sentry.provider.cache.TestSimplePrivilegeCache.create;
+import static org.junit.Assert.assertEquals;
+
+public class TestTreePrivilegeCache {
+
+  private static final Set<String> PRIVILEGES = Sets.newHashSet(
+      create(new KeyValue("Server", "server1"), new KeyValue("db", "db1"),
+          new KeyValue("table", "t1"), new KeyValue("action", "SELECT")).toString(),
+      create(new KeyValue("Server", "server1"), new KeyValue("db", "db2"),
+          new KeyValue("table", "t1"), new KeyValue("action", "SELECT")).toString(),
+      create(new KeyValue("Server", "server1"), new KeyValue("db", "db1"),
+          new KeyValue("table", "t2"), new KeyValue("action", "SELECT")).toString(),
+      create(new KeyValue("Server", "server1"), new KeyValue("db", "db1"),
+          new KeyValue("table", "*"), new KeyValue("action", "SELECT")).toString(),
+      create(new KeyValue("Server", "server1"), new KeyValue("db", "db1"),
+          new KeyValue("table", "ALL"), new KeyValue("action", "SELECT")).toString(),
+      create(new KeyValue("Server", "server1"), new KeyValue("db", "*")).toString(),
+      create(new KeyValue("Server", "server1"), new KeyValue("db", "db1"),
+          new KeyValue("table", "t1"), new KeyValue("col", "c1"),
+          new KeyValue("action", "SELECT")).toString(),
+      create(new KeyValue("Server", "server1"), new KeyValue("uri", "hdfs:///uri/path1")).toString());
+
+  @Test
+  public void testListPrivilegesCaseSensitivity() {
+    CommonPrivilege dbSelect = create(new KeyValue("Server", "Server1"),
+        new KeyValue("db", "db1"), new KeyValue("action", "SELECT"));
+
+    TreePrivilegeCache cache = new TreePrivilegeCache(Sets.newHashSet(dbSelect.toString()));
+    assertEquals(1, cache.listPrivileges(null, null, null,
+        new Server("server1"), new Database("DB1")).size());
+  }
+
+  @Test
+  public void testListPrivilegesWildCard() {
+    TreePrivilegeCache cache = new TreePrivilegeCache(PRIVILEGES);
+
+    assertEquals(1, cache.listPrivileges(null, null, null, new Server("server1")).size());
+    assertEquals(2, cache.listPrivileges(null, null, null, new Server("server1"), new Database("db1")).size());
+    assertEquals(2, cache.listPrivileges(null, null, null, new Server("server1"), new Database("db2")).size());
+    assertEquals(5, cache.listPrivileges(null, null, null, new Server("server1"), new Database("db1"), new Table("t1")).size());
+    assertEquals(6, cache.listPrivileges(null, null, null, new Server("server1"), new Database("db1"), Table.ALL).size());
+  }
+
+  @Test
+  public void testListPrivilegesWithoutHierarchy() {
+    TreePrivilegeCache cache = new TreePrivilegeCache(PRIVILEGES);
+
+    assertEquals(PRIVILEGES.size(), cache.listPrivileges(null, null, null, new Authorizable[0]).size());
+    assertEquals(PRIVILEGES.size(), cache.listPrivileges(null, null, null, (Authorizable[]) null).size());
+  }
+
+  @Test
+  public void testSameAsSimplePrivilegeCache() {
+    TreePrivilegeCache cache = new TreePrivilegeCache(PRIVILEGES);
+    SimplePrivilegeCache simpleCache = new SimplePrivilegeCache(PRIVILEGES);
+    Authorizable[][] hierarchies = {
+        { new Server("server1"), new Database("db1"), new Table("t1"), new Column("c1") },
+        { new Server("server1"), new Database("db1"), new Table("t2"), new Column("c1") },
+        { new Server("server1"), new Database("db2"), new Table("t1") },
+        { new Server("server1"), new Database("db3"), new Table("t3") },
+        { new Server("server1"), new Database("db1"), Table.ALL },
+        { new Server("server1"), new Database("*"), Table.SOME },
+        { new Server("server1"), new AccessURI("hdfs:///uri/path1") },
+        { new Server("server2"), new Database("db1") } };
+    for (Authorizable[] hierarchy : hierarchies) {
+      assertEquals(simpleCache.listPrivileges(null, null, null, hierarchy),
+          cache.listPrivileges(null, null, null, hierarchy));
+    }
+  }
+}
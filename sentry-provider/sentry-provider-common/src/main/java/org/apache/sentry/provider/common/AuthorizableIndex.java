@@ -0,0 +1,131 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license agreements. See the NOTICE
+ * file distributed with this work for additional information regarding copyright ownership. The ASF licenses this file
+ * to You under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package org.apache.sentry.provider.common;
+
+import com.google.common.collect.ImmutableSet;
+import org.apache.sentry.core.common.Authorizable;
+import org.apache.sentry.core.common.utils.SentryConstants;
+
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Index of the privileges of a {@link GroupRoleIndex} by authorizable prefix.
+ * The privileges are kept in a tree whose edges are the lower case
+ * "type=value" parts of the privileges, each privilege in the node of the
+ * longest prefix it can be looked up by. A prefix ends before the action, a
+ * wildcard value or a URI, which implies the paths below it.
+ * <p>
+ * The privileges relevant to an authorizable hierarchy are the ones of the
+ * nodes along its path, which are granted on its parents or through a
+ * wildcard, and the ones below its last node, which are granted on its
+ * children. This is the same set the Sentry service returns for a hierarchy,
+ * a superset of the privileges which imply it.
+ */
+final class AuthorizableIndex {
+
+  private static final String URI_TYPE = "uri";
+
+  private static final class Node {
+    private final Map<String, Node> children = new HashMap<String, Node>(2);
+    // the privileges of this node with the ids of the roles they are granted to
+    private final Map<String, BitSet> privileges = new HashMap<String, BitSet>(2);
+  }
+
+  private final Node root = new Node();
+
+  void add(String privilege, int roleId) {
+    Node node = root;
+    for (String part : SentryConstants.AUTHORIZABLE_SPLITTER.split(privilege)) {
+      int separator = part.indexOf(SentryConstants.KV_SEPARATOR);
+      if (separator < 0) {
+        break;
+      }
+      String key = toKey(part.substring(0, separator), part.substring(separator + 1));
+      if (key == null) {
+        break;
+      }
+      Node child = node.children.get(key);
+      if (child == null) {
+        child = new Node();
+        node.children.put(key, child);
+      }
+      node = child;
+    }
+    BitSet roleIds = node.privileges.get(privilege);
+    if (roleIds == null) {
+      roleIds = new BitSet();
+      node.privileges.put(privilege, roleIds);
+    }
+    roleIds.set(roleId);
+  }
+
+  /**
+   * @return the privileges of the roles which are relevant to the hierarchy
+   */
+  ImmutableSet<String> getPrivileges(BitSet roleIds, Authorizable... authorizableHierarchy) {
+    ImmutableSet.Builder<String> resultBuilder = ImmutableSet.builder();
+    Node node = root;
+    for (Authorizable authorizable : authorizableHierarchy) {
+      String key = authorizable == null ? null
+          : toKey(authorizable.getTypeName(), authorizable.getName());
+      // a wildcard request matches every value of the type
+      if (key == null) {
+        break;
+      }
+      addPrivileges(node, roleIds, resultBuilder);
+      node = node.children.get(key);
+      if (node == null) {
+        return resultBuilder.build();
+      }
+    }
+    addSubtreePrivileges(node, roleIds, resultBuilder);
+    return resultBuilder.build();
+  }
+
+  private static void addPrivileges(Node node, BitSet roleIds,
+      ImmutableSet.Builder<String> resultBuilder) {
+    for (Map.Entry<String, BitSet> privilege : node.privileges.entrySet()) {
+      if (privilege.getValue().intersects(roleIds)) {
+        resultBuilder.add(privilege.getKey());
+      }
+    }
+  }
+
+  private static void addSubtreePrivileges(Node node, BitSet roleIds,
+      ImmutableSet.Builder<String> resultBuilder) {
+    addPrivileges(node, roleIds, resultBuilder);
+    for (Node child : node.children.values()) {
+      addSubtreePrivileges(child, roleIds, resultBuilder);
+    }
+  }
+
+  /**
+   * @return the key of a part, or null if it can't be looked up by value
+   */
+  private static String toKey(String type, String value) {
+    if (type == null || value == null) {
+      return null;
+    }
+    String lowerType = type.trim().toLowerCase();
+    String trimmedValue = value.trim();
+    if (SentryConstants.PRIVILEGE_NAME.equals(lowerType) || URI_TYPE.equals(lowerType)
+        || SentryConstants.RESOURCE_WILDCARD_VALUE.equals(trimmedValue)
+        || SentryConstants.RESOURCE_WILDCARD_VALUE_ALL.equalsIgnoreCase(trimmedValue)
+        || SentryConstants.RESOURCE_WILDCARD_VALUE_SOME.equals(trimmedValue)) {
+      return null;
+    }
+    return lowerType + SentryConstants.KV_SEPARATOR + trimmedValue.toLowerCase();
+  }
+}
@@ -13,15 +13,19 @@
 package org.apache.sentry.provider.common;
 
 import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Table;
 import org.apache.sentry.core.common.ActiveRoleSet;
 import org.apache.sentry.core.common.Authorizable;
 
-import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicReference;
 
 public class CacheProvider {
   private TableCache cache;
   private volatile boolean initialized = false;
+  private final AtomicReference<VersionedTable> versionedTable =
+      new AtomicReference<VersionedTable>(
+          new VersionedTable(null, 0, GroupRoleIndex.EMPTY));
 
   public void initialize(TableCache cache) {
     if (initialized) {
@@ -31,38 +35,64 @@ public class CacheProvider {
     this.initialized = true;
   }
 
+  /**
+   * @return the privileges of the roles of the groups which are relevant to the
+   * authorizable hierarchy, or all of them when no hierarchy is given
+   */
   public ImmutableSet<String> getPrivileges(Set<String> groups, ActiveRoleSet roleSet,
                                             Authorizable... authorizableHierarchy) {
     if (!initialized) {
       throw new IllegalStateException("CacheProvider has not been properly initialized");
     }
-    ImmutableSet.Builder<String> resultBuilder = ImmutableSet.builder();
-    for (String groupName : groups) {
-      for (Map.Entry<String, Set<String>> row : cache.getCache().row(groupName).entrySet()) {
-        if (roleSet.containsRole(row.getKey())) {
-          // TODO: SENTRY-1245: Filter by Authorizables, if provided
-          resultBuilder.addAll(row.getValue());
-        }
-      }
-    }
-    return resultBuilder.build();
+    GroupRoleIndex index = getVersionedTable().index;
+    return index.getPrivileges(index.getRoleIds(groups, roleSet), authorizableHierarchy);
   }
 
   public ImmutableSet<String> getRoles(Set<String> groups, ActiveRoleSet roleSet) {
     if (!initialized) {
       throw new IllegalStateException("CacheProvider has not been properly initialized");
     }
-    ImmutableSet.Builder<String> resultBuilder = ImmutableSet.builder();
-    if (groups != null) {
-      for (String groupName : groups) {
-        for (Map.Entry<String, Set<String>> row : cache.getCache().row(groupName)
-            .entrySet()) {
-          if (roleSet.containsRole(row.getKey())) {
-            resultBuilder.add(row.getKey());
-          }
-        }
+    GroupRoleIndex index = getVersionedTable().index;
+    return index.getRoleNames(index.getRoleIds(groups, roleSet));
+  }
+
+  /**
+   * The table of a TableCache is replaced, never modified, when its data
+   * changes, so the policy version advances whenever a new table is seen.
+   */
+  public long getPolicyVersion() {
+    if (!initialized) {
+      throw new IllegalStateException("CacheProvider has not been properly initialized");
+    }
+    return getVersionedTable().version;
+  }
+
+  // the table is indexed once for all the lookups, when it is first seen
+  private VersionedTable getVersionedTable() {
+    Table<String, String, Set<String>> table = cache.getCache();
+    while (true) {
+      VersionedTable current = versionedTable.get();
+      if (current.table == table) {
+        return current;
       }
+      VersionedTable next = new VersionedTable(table, current.version + 1,
+          new GroupRoleIndex(table));
+      if (versionedTable.compareAndSet(current, next)) {
+        return next;
+      }
+    }
+  }
+
+  private static final class VersionedTable {
+    private final Table<String, String, Set<String>> table;
+    private final long version;
+    private final GroupRoleIndex index;
+
+    private VersionedTable(Table<String, String, Set<String>> table, long version,
+        GroupRoleIndex index) {
+      this.table = table;
+      this.version = version;
+      this.index = index;
     }
-    return resultBuilder.build();
   }
 }
@@ -0,0 +1,161 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license agreements. See the NOTICE
+ * file distributed with this work for additional information regarding copyright ownership. The ASF licenses this file
+ * to You under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package org.apache.sentry.provider.common;
+
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Table;
+import org.apache.sentry.core.common.ActiveRoleSet;
+import org.apache.sentry.core.common.Authorizable;
+
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Immutable index of a group/role/privilege table of a {@link TableCache}.
+ * Groups and roles are interned into dense ids, the roles of each group are a
+ * BitSet of role ids and the privileges of each role are an array, so the
+ * roles of a subject are resolved by OR-ing the BitSets of its groups and
+ * AND-ing the active roles.
+ * <p>
+ * A role id stands for a role name with a set of privileges. The privileges of
+ * a role may differ by group, for instance when roles of the same name are
+ * defined by per database policy files, so a role name has one id per
+ * distinct set of privileges, which is a single id in most policies.
+ * <p>
+ * The privileges are also indexed by authorizable prefix, so that a lookup
+ * for an authorizable hierarchy only returns the privileges relevant to it.
+ */
+final class GroupRoleIndex {
+
+  static final GroupRoleIndex EMPTY = new GroupRoleIndex(null);
+
+  private final Map<String, Integer> groupIds = new HashMap<String, Integer>();
+  private final BitSet[] groupRoles;
+  // role ids of the lower case role names, for the active role sets
+  private final Map<String, BitSet> roleNameIds = new HashMap<String, BitSet>();
+  private final String[] roleNames;
+  private final String[][] rolePrivileges;
+  private final AuthorizableIndex authorizableIndex = new AuthorizableIndex();
+
+  GroupRoleIndex(Table<String, String, Set<String>> table) {
+    if (table == null) {
+      groupRoles = new BitSet[0];
+      roleNames = new String[0];
+      rolePrivileges = new String[0][];
+      return;
+    }
+    Map<String, Map<Set<String>, Integer>> roleIds = new HashMap<String, Map<Set<String>, Integer>>();
+    Map<Integer, String> names = new HashMap<Integer, String>();
+    Map<Integer, String[]> privileges = new HashMap<Integer, String[]>();
+    Set<String> groups = table.rowKeySet();
+    groupRoles = new BitSet[groups.size()];
+    for (String group : groups) {
+      int groupId = groupIds.size();
+      groupIds.put(group, groupId);
+      BitSet roles = new BitSet();
+      for (Map.Entry<String, Set<String>> cell : table.row(group).entrySet()) {
+        String roleName = cell.getKey();
+        Map<Set<String>, Integer> privilegeSetIds = roleIds.get(roleName);
+        if (privilegeSetIds == null) {
+          privilegeSetIds = new HashMap<Set<String>, Integer>(2);
+          roleIds.put(roleName, privilegeSetIds);
+        }
+        Integer roleId = privilegeSetIds.get(cell.getValue());
+        if (roleId == null) {
+          roleId = names.size();
+          Set<String> rolePrivilegeSet = ImmutableSet.copyOf(cell.getValue());
+          privilegeSetIds.put(rolePrivilegeSet, roleId);
+          names.put(roleId, roleName);
+          privileges.put(roleId, rolePrivilegeSet.toArray(new String[rolePrivilegeSet.size()]));
+          for (String privilege : rolePrivilegeSet) {
+            authorizableIndex.add(privilege, roleId);
+          }
+          String lowerRoleName = roleName.toLowerCase();
+          BitSet nameIds = roleNameIds.get(lowerRoleName);
+          if (nameIds == null) {
+            nameIds = new BitSet();
+            roleNameIds.put(lowerRoleName, nameIds);
+          }
+          nameIds.set(roleId);
+        }
+        roles.set(roleId);
+      }
+      groupRoles[groupId] = roles;
+    }
+    roleNames = new String[names.size()];
+    rolePrivileges = new String[names.size()][];
+    for (int roleId = 0; roleId < roleNames.length; roleId++) {
+      roleNames[roleId] = names.get(roleId);
+      rolePrivileges[roleId] = privileges.get(roleId);
+    }
+  }
+
+  /**
+   * @return the ids of the roles of the groups which are in the role set
+   */
+  BitSet getRoleIds(Set<String> groups, ActiveRoleSet roleSet) {
+    BitSet roleIds = new BitSet(roleNames.length);
+    if (groups == null) {
+      return roleIds;
+    }
+    for (String group : groups) {
+      Integer groupId = groupIds.get(group);
+      if (groupId != null) {
+        roleIds.or(groupRoles[groupId]);
+      }
+    }
+    if (!roleSet.isAll() && !roleIds.isEmpty()) {
+      BitSet activeRoleIds = new BitSet(roleNames.length);
+      for (String role : roleSet.getRoles()) {
+        BitSet nameIds = roleNameIds.get(role);
+        if (nameIds != null) {
+          activeRoleIds.or(nameIds);
+        }
+      }
+      roleIds.and(activeRoleIds);
+    }
+    return roleIds;
+  }
+
+  ImmutableSet<String> getPrivileges(BitSet roleIds) {
+    ImmutableSet.Builder<String> resultBuilder = ImmutableSet.builder();
+    for (int roleId = roleIds.nextSetBit(0); roleId >= 0; roleId = roleIds.nextSetBit(roleId + 1)) {
+      resultBuilder.add(rolePrivileges[roleId]);
+    }
+    return resultBuilder.build();
+  }
+
+  /**
+   * @return the privileges of the roles which are relevant to the hierarchy, the
+   * ones granted on its objects, their parents and children or through wildcards
+   */
+  ImmutableSet<String> getPrivileges(BitSet roleIds, Authorizable... authorizableHierarchy) {
+    if (authorizableHierarchy == null || authorizableHierarchy.length == 0) {
+      return getPrivileges(roleIds);
+    }
+    if (roleIds.isEmpty()) {
+      return ImmutableSet.of();
+    }
+    return authorizableIndex.getPrivileges(roleIds, authorizableHierarchy);
+  }
+
+  ImmutableSet<String> getRoleNames(BitSet roleIds) {
+    ImmutableSet.Builder<String> resultBuilder = ImmutableSet.builder();
+    for (int roleId = roleIds.nextSetBit(0); roleId >= 0; roleId = roleIds.nextSetBit(roleId + 1)) {
+      resultBuilder.add(roleNames[roleId]);
+    }
+    return resultBuilder.build();
+  }
+}
@@ -0,0 +1,72 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license agreements. See the NOTICE
+ * file distributed with this work for additional information regarding copyright ownership. The ASF licenses this file
+ * to You under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package org.apache.sentry.provider.common;
+
+import com.google.common.base.Objects;
+import com.google.common.collect.ImmutableSet;
+import org.apache.sentry.core.common.ActiveRoleSet;
+import org.apache.sentry.core.common.Authorizable;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Key of a lookup of the privileges of groups and users with an active role
+ * set and an authorizable hierarchy, for the caches and the coalescing of the
+ * lookups of the provider backends.
+ */
+public final class PrivilegeLookupKey {
+  private final Set<String> groups;
+  private final Set<String> users;
+  // null for all the roles
+  private final Set<String> roles;
+  private final List<String> authorizables;
+  private final int hash;
+
+  public PrivilegeLookupKey(Set<String> groups, Set<String> users, ActiveRoleSet roleSet,
+      Authorizable... authorizableHierarchy) {
+    this.groups = groups == null ? null : ImmutableSet.copyOf(groups);
+    this.users = users == null ? null : ImmutableSet.copyOf(users);
+    this.roles = roleSet.isAll() ? null : ImmutableSet.copyOf(roleSet.getRoles());
+    if (authorizableHierarchy == null) {
+      this.authorizables = null;
+    } else {
+      this.authorizables = new ArrayList<String>(authorizableHierarchy.length * 2);
+      for (Authorizable authorizable : authorizableHierarchy) {
+        authorizables.add(authorizable.getTypeName());
+        authorizables.add(authorizable.getName());
+      }
+    }
+    this.hash = Objects.hashCode(this.groups, this.users, roles, authorizables);
+  }
+
+  @Override
+  public int hashCode() {
+    return hash;
+  }
+
+  @Override
+  public boolean equals(Object obj) {
+    if (this == obj) {
+      return true;
+    }
+    if (!(obj instanceof PrivilegeLookupKey)) {
+      return false;
+    }
+    PrivilegeLookupKey other = (PrivilegeLookupKey) obj;
+    return hash == other.hash && Objects.equal(groups, other.groups)
+        && Objects.equal(users, other.users) && Objects.equal(roles, other.roles)
+        && Objects.equal(authorizables, other.authorizables);
+  }
+}
@@ -34,6 +34,11 @@ import com.google.common.collect.ImmutableSet;
 @ThreadSafe
 public interface ProviderBackend {
 
+  /**
+   * Policy version of a backend which cannot tell when its policy changes.
+   */
+  long UNVERSIONED_POLICY = -1;
+
   /**
    * Set the privilege validators to be used on the backend. This is required
    * because the Backend must be created before the policy engine and only the
@@ -69,5 +74,14 @@ public interface ProviderBackend {
    */
   void validatePolicy(boolean strictValidation) throws SentryConfigurationException;
 
+  /**
+   * Get the version of the privileges and roles returned by the backend. The
+   * version advances whenever they may have changed, so that results derived
+   * from them can be cached as long as it stays the same.
+   * @return a non-negative version, or {@link #UNVERSIONED_POLICY} if results
+   *         derived from the backend must not be cached
+   */
+  long getPolicyVersion();
+
   void close();
 }
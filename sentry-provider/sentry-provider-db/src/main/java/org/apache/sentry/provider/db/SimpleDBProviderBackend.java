@@ -17,11 +17,16 @@
 package org.apache.sentry.provider.db;
 
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import org.apache.hadoop.conf.Configuration;
 import org.apache.sentry.core.common.ActiveRoleSet;
 import org.apache.sentry.core.common.Authorizable;
 import org.apache.sentry.core.common.exception.SentryConfigurationException;
+import org.apache.sentry.core.common.utils.RequestCoalescer;
+import org.apache.sentry.provider.common.PrivilegeLookupKey;
 import org.apache.sentry.provider.common.ProviderBackend;
 import org.apache.sentry.provider.common.ProviderBackendContext;
 import org.apache.sentry.provider.db.service.thrift.SentryPolicyServiceClient;
@@ -37,9 +42,17 @@ public class SimpleDBProviderBackend implements ProviderBackend {
   private static final Logger LOGGER = LoggerFactory
       .getLogger(SimpleDBProviderBackend.class);
 
+  // shared by the backends of the process, by server address
+  private static final ConcurrentMap<String, RequestCoalescer<PrivilegeLookupKey, ImmutableSet<String>>> COALESCERS =
+      new ConcurrentHashMap<String, RequestCoalescer<PrivilegeLookupKey, ImmutableSet<String>>>();
+
   private Configuration conf;
   private int retryCount;
   private int retryIntervalSec;
+  // shared by the backends of the process when caching is enabled
+  private final TtlPrivilegeCache privilegeCache;
+  // shared by the backends of the process when lookups are coalesced
+  private final RequestCoalescer<PrivilegeLookupKey, ImmutableSet<String>> coalescer;
 
   public SimpleDBProviderBackend(Configuration conf, String resourcePath) throws Exception { //NOPMD
     // DB Provider doesn't use policy file path
@@ -50,6 +63,32 @@ public class SimpleDBProviderBackend implements ProviderBackend {
     this.conf = conf;
     this.retryCount = conf.getInt(ServiceConstants.ClientConfig.RETRY_COUNT_CONF, ServiceConstants.ClientConfig.RETRY_COUNT_DEFAULT);
     this.retryIntervalSec = conf.getInt(ServiceConstants.ClientConfig.RETRY_INTERVAL_SEC_CONF, ServiceConstants.ClientConfig.RETRY_INTERVAL_SEC_DEFAULT);
+    if (conf.getBoolean(ServiceConstants.ClientConfig.DB_ENABLE_CACHING, ServiceConstants.ClientConfig.DB_ENABLE_CACHING_DEFAULT)) {
+      this.privilegeCache = TtlPrivilegeCache.getSharedCache(conf);
+    } else {
+      this.privilegeCache = null;
+    }
+    if (conf.getBoolean(ServiceConstants.ClientConfig.COALESCE_LOOKUPS, ServiceConstants.ClientConfig.COALESCE_LOOKUPS_DEFAULT)) {
+      this.coalescer = getSharedCoalescer(conf);
+    } else {
+      this.coalescer = null;
+    }
+  }
+
+  private static RequestCoalescer<PrivilegeLookupKey, ImmutableSet<String>> getSharedCoalescer(Configuration conf) {
+    String serverAddress = conf.get(ServiceConstants.ClientConfig.SERVER_RPC_ADDRESS, "");
+    RequestCoalescer<PrivilegeLookupKey, ImmutableSet<String>> coalescer = COALESCERS.get(serverAddress);
+    if (coalescer == null) {
+      coalescer = new RequestCoalescer<PrivilegeLookupKey, ImmutableSet<String>>(
+          conf.getLong(ServiceConstants.ClientConfig.COALESCE_LOOKUPS_TIMEOUT_MS,
+              ServiceConstants.ClientConfig.COALESCE_LOOKUPS_TIMEOUT_MS_DEFAULT));
+      RequestCoalescer<PrivilegeLookupKey, ImmutableSet<String>> existing =
+          COALESCERS.putIfAbsent(serverAddress, coalescer);
+      if (existing != null) {
+        coalescer = existing;
+      }
+    }
+    return coalescer;
   }
   /**
    * {@inheritDoc}
@@ -72,10 +111,42 @@ public class SimpleDBProviderBackend implements ProviderBackend {
    * {@inheritDoc}
    */
   @Override
-  public ImmutableSet<String> getPrivileges(Set<String> groups, Set<String> users,
-      ActiveRoleSet roleSet, Authorizable... authorizableHierarchy) {
+  public ImmutableSet<String> getPrivileges(final Set<String> groups, final Set<String> users,
+      final ActiveRoleSet roleSet, final Authorizable... authorizableHierarchy) {
+    final Callable<ImmutableSet<String>> fetch = new Callable<ImmutableSet<String>>() {
+      @Override
+      public ImmutableSet<String> call() throws Exception {
+        return fetchPrivileges(groups, users, roleSet, authorizableHierarchy);
+      }
+    };
+    try {
+      if (privilegeCache == null && coalescer == null) {
+        return fetch.call();
+      }
+      final PrivilegeLookupKey key = new PrivilegeLookupKey(groups, users, roleSet, authorizableHierarchy);
+      Callable<ImmutableSet<String>> lookup = fetch;
+      if (coalescer != null) {
+        lookup = new Callable<ImmutableSet<String>>() {
+          @Override
+          public ImmutableSet<String> call() throws Exception {
+            return coalescer.get(key, fetch);
+          }
+        };
+      }
+      if (privilegeCache == null) {
+        return lookup.call();
+      }
+      return privilegeCache.get(key, lookup);
+    } catch (Exception e) {
+      // logged by fetchPrivileges
+      return ImmutableSet.of();
+    }
+  }
+
+  private ImmutableSet<String> fetchPrivileges(Set<String> groups, Set<String> users,
+      ActiveRoleSet roleSet, Authorizable... authorizableHierarchy) throws Exception {
     int retries = Math.max(retryCount + 1, 1); // if customer configs retryCount as Integer.MAX_VALUE, try only once
-    while (retries > 0) {
+    while (true) {
       retries--;
       SentryPolicyServiceClient policyServiceClient = null;
       try {
@@ -89,13 +160,12 @@ public class SimpleDBProviderBackend implements ProviderBackend {
           LOGGER.warn(msg +  " Will retry for " + retries + " time(s)");
         } else {
           LOGGER.error(msg, e);
+          throw e;
         }
-        if (retries > 0) {
-          try {
-            Thread.sleep(retryIntervalSec * 1000);
-          } catch (InterruptedException e1) {
-            LOGGER.info("Sleeping is interrupted.", e1);
-          }
+        try {
+          Thread.sleep(retryIntervalSec * 1000);
+        } catch (InterruptedException e1) {
+          LOGGER.info("Sleeping is interrupted.", e1);
         }
       } finally {
         if(policyServiceClient != null) {
@@ -103,8 +173,6 @@ public class SimpleDBProviderBackend implements ProviderBackend {
         }
       }
     }
-
-    return ImmutableSet.of();
   }
 
   /**
@@ -115,6 +183,28 @@ public class SimpleDBProviderBackend implements ProviderBackend {
     throw new UnsupportedOperationException("Not yet implemented.");
   }
 
+  /**
+   * @return the coalescer of the privilege lookups, with the counts of the
+   * calls issued and of the lookups coalesced, or null when lookups are not coalesced
+   */
+  public RequestCoalescer<PrivilegeLookupKey, ImmutableSet<String>> getLookupCoalescer() {
+    return coalescer;
+  }
+
+  /**
+   * The privileges are fetched from the server on every call, so there is no
+   * version unless caching is enabled. In that case the version advances every
+   * cache ttl, when the cached privileges are reloaded, and when a reload
+   * changes them, which bounds how stale cached results can be.
+   */
+  @Override
+  public long getPolicyVersion() {
+    if (privilegeCache == null) {
+      return UNVERSIONED_POLICY;
+    }
+    return privilegeCache.getVersion();
+  }
+
   @Override
   public void close() {
     //Noop
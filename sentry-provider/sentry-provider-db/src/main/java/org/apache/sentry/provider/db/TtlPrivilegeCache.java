@@ -0,0 +1,256 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.sentry.provider.db;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.sentry.provider.common.PrivilegeLookupKey;
+import org.apache.sentry.service.thrift.ServiceConstants;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Ticker;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+/**
+ * Client side cache of the privileges returned by the Sentry service for a
+ * lookup of groups, users, active roles and authorizable hierarchy.
+ * <p>
+ * Time is divided in periods of one ttl. An entry loaded in an earlier period
+ * is served as is to its next lookup, and reloaded in the background, at most
+ * one reload per entry at a time. When the reload fails, the entry is served
+ * for the rest of the period, until it failed in more consecutive periods
+ * than allowed, at which point it is dropped and the next lookup loads it
+ * again and fails, as UpdatableCache revokes all the privileges of the
+ * generic model.
+ * <p>
+ * The version of the cached policy advances with every period, and whenever
+ * a reload changes or drops the privileges which were served stale.
+ */
+final class TtlPrivilegeCache {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(TtlPrivilegeCache.class);
+
+  private static final int REFRESH_THREADS = 4;
+
+  // shared by all the caches, the threads are only started by the first reload
+  private static final Executor REFRESH_EXECUTOR = Executors.newFixedThreadPool(
+      REFRESH_THREADS, new ThreadFactoryBuilder().setDaemon(true)
+          .setNameFormat("sentry-privilege-cache-refresh-%d").build());
+
+  // shared by the backends of a process, by server address and cache settings
+  private static final ConcurrentMap<List<Object>, TtlPrivilegeCache> SHARED_CACHES =
+      new ConcurrentHashMap<List<Object>, TtlPrivilegeCache>();
+
+  private final long ttlNs;
+  private final int allowedUpdateFailuresCount;
+  private final Ticker ticker;
+  private final Executor refreshExecutor;
+  private final long createdNs;
+  private final Cache<PrivilegeLookupKey, Entry> cache;
+  // the keys being reloaded in the background
+  private final ConcurrentMap<PrivilegeLookupKey, Boolean> refreshing =
+      new ConcurrentHashMap<PrivilegeLookupKey, Boolean>();
+  // the reloads which changed or dropped privileges served stale
+  private final AtomicLong changeCount = new AtomicLong();
+
+  private final AtomicLong hitCount = new AtomicLong();
+  private final AtomicLong loadCount = new AtomicLong();
+  private final AtomicLong staleCount = new AtomicLong();
+
+  @VisibleForTesting
+  TtlPrivilegeCache(long ttlMs, long maxSize, int allowedUpdateFailuresCount, Ticker ticker,
+      Executor refreshExecutor) {
+    this.ttlNs = TimeUnit.MILLISECONDS.toNanos(Math.max(1, ttlMs));
+    this.allowedUpdateFailuresCount = allowedUpdateFailuresCount;
+    this.ticker = ticker;
+    this.refreshExecutor = refreshExecutor;
+    this.createdNs = ticker.read();
+    // entries are kept as long as they may be served while the reloads fail
+    this.cache = CacheBuilder.newBuilder()
+        .maximumSize(maxSize)
+        .expireAfterWrite((allowedUpdateFailuresCount + 2) * ttlNs, TimeUnit.NANOSECONDS)
+        .ticker(ticker)
+        .build();
+  }
+
+  /**
+   * Returns the cache shared by the backends of the process which use the
+   * Sentry service of the configuration with the same cache settings,
+   * creating it when there is none.
+   */
+  static TtlPrivilegeCache getSharedCache(Configuration conf) {
+    String serverAddress = conf.get(ServiceConstants.ClientConfig.SERVER_RPC_ADDRESS, "");
+    long ttlMs = conf.getLong(ServiceConstants.ClientConfig.DB_CACHE_TTL_MS,
+        ServiceConstants.ClientConfig.DB_CACHE_TTL_MS_DEFAULT);
+    long maxSize = conf.getLong(ServiceConstants.ClientConfig.DB_CACHE_MAX_SIZE,
+        ServiceConstants.ClientConfig.DB_CACHE_MAX_SIZE_DEFAULT);
+    int allowedUpdateFailuresCount = conf.getInt(
+        ServiceConstants.ClientConfig.DB_CACHE_UPDATE_FAILURES_BEFORE_PRIV_REVOKE,
+        ServiceConstants.ClientConfig.DB_CACHE_UPDATE_FAILURES_BEFORE_PRIV_REVOKE_DEFAULT);
+    List<Object> settings = Arrays.<Object>asList(serverAddress, ttlMs, maxSize,
+        allowedUpdateFailuresCount);
+    TtlPrivilegeCache cache = SHARED_CACHES.get(settings);
+    if (cache == null) {
+      cache = new TtlPrivilegeCache(ttlMs, maxSize, allowedUpdateFailuresCount,
+          Ticker.systemTicker(), REFRESH_EXECUTOR);
+      TtlPrivilegeCache existing = SHARED_CACHES.putIfAbsent(settings, cache);
+      if (existing != null) {
+        cache = existing;
+      }
+    }
+    return cache;
+  }
+
+  /**
+   * @return the version of the cached privileges, it advances every period of
+   *         ttl and when a reload changes privileges which were served stale
+   */
+  long getVersion() {
+    return getPeriod() + changeCount.get();
+  }
+
+  ImmutableSet<String> get(PrivilegeLookupKey key, Callable<ImmutableSet<String>> loader)
+      throws Exception {
+    long period = getPeriod();
+    Entry entry = cache.getIfPresent(key);
+    if (entry == null) {
+      loadCount.incrementAndGet();
+      ImmutableSet<String> privileges = loader.call();
+      cache.put(key, new Entry(privileges, period, 0));
+      return privileges;
+    }
+    if (entry.period == period) {
+      hitCount.incrementAndGet();
+      return entry.privileges;
+    }
+    // serve the stale privileges while they are reloaded
+    staleCount.incrementAndGet();
+    refresh(key, loader);
+    return entry.privileges;
+  }
+
+  void invalidateAll() {
+    cache.invalidateAll();
+  }
+
+  /**
+   * @return the number of lookups served by an entry of the current period
+   */
+  long getHitCount() {
+    return hitCount.get();
+  }
+
+  /**
+   * @return the number of loads and reloads of privileges from the server
+   */
+  long getLoadCount() {
+    return loadCount.get();
+  }
+
+  /**
+   * @return the number of lookups served by an entry of an earlier period
+   */
+  long getStaleCount() {
+    return staleCount.get();
+  }
+
+  private long getPeriod() {
+    return (ticker.read() - createdNs) / ttlNs;
+  }
+
+  private void refresh(final PrivilegeLookupKey key,
+      final Callable<ImmutableSet<String>> loader) {
+    if (refreshing.putIfAbsent(key, Boolean.TRUE) != null) {
+      return;
+    }
+    try {
+      refreshExecutor.execute(new Runnable() {
+        @Override
+        public void run() {
+          try {
+            reload(key, loader);
+          } finally {
+            refreshing.remove(key);
+          }
+        }
+      });
+    } catch (RejectedExecutionException e) {
+      refreshing.remove(key);
+      LOGGER.warn("Unable to schedule the reload of cached privileges", e);
+    }
+  }
+
+  private void reload(PrivilegeLookupKey key, Callable<ImmutableSet<String>> loader) {
+    long period = getPeriod();
+    Entry entry = cache.getIfPresent(key);
+    if (entry == null || entry.period == period) {
+      // dropped, or reloaded since the lookup
+      return;
+    }
+    try {
+      loadCount.incrementAndGet();
+      ImmutableSet<String> privileges = loader.call();
+      cache.put(key, new Entry(privileges, period, 0));
+      if (!privileges.equals(entry.privileges)) {
+        changeCount.incrementAndGet();
+      }
+    } catch (Exception e) {
+      if (entry.failures >= allowedUpdateFailuresCount) {
+        // revoke the privileges of the lookup
+        cache.invalidate(key);
+        changeCount.incrementAndGet();
+        LOGGER.error("Failed to reload privileges for " + (entry.failures + 1) + " times."
+            + " Dropping cached privileges, which will cause the authorization requests to fail.",
+            e);
+        return;
+      }
+      // serve the stale privileges for the rest of the period
+      LOGGER.warn("Failed to reload privileges, serving cached privileges which failed to reload "
+          + (entry.failures + 1) + " time(s)", e);
+      cache.put(key, new Entry(entry.privileges, period, entry.failures + 1));
+    }
+  }
+
+  private static final class Entry {
+    private final ImmutableSet<String> privileges;
+    // the period in which the privileges were loaded or failed to reload
+    private final long period;
+    // consecutive periods in which the reload failed
+    private final int failures;
+
+    private Entry(ImmutableSet<String> privileges, long period, int failures) {
+      this.privileges = privileges;
+      this.period = period;
+      this.failures = failures;
+    }
+  }
+}
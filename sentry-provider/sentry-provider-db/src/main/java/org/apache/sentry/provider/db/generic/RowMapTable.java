@@ -0,0 +1,209 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license agreements. See the NOTICE
+ * file distributed with this work for additional information regarding copyright ownership. The ASF licenses this file
+ * to You under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package org.apache.sentry.provider.db.generic;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Table;
+import com.google.common.collect.Tables;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Read only table over a map of rows, which it neither copies nor modifies, so
+ * that successive tables can share their unchanged rows. The map and its rows
+ * must not be modified once the table is built, and the rows must not be empty.
+ * The lookups by row are as fast as the map, the lookups by column go through
+ * every row.
+ */
+final class RowMapTable<R, C, V> implements Table<R, C, V> {
+
+  private final Map<R, Map<C, V>> rows;
+  private final int size;
+
+  RowMapTable(Map<R, Map<C, V>> rows) {
+    this.rows = Collections.unmodifiableMap(rows);
+    int cellCount = 0;
+    for (Map<C, V> row : rows.values()) {
+      cellCount += row.size();
+    }
+    this.size = cellCount;
+  }
+
+  @Override
+  public boolean contains(Object rowKey, Object columnKey) {
+    Map<C, V> row = rows.get(rowKey);
+    return row != null && row.containsKey(columnKey);
+  }
+
+  @Override
+  public boolean containsRow(Object rowKey) {
+    return rows.containsKey(rowKey);
+  }
+
+  @Override
+  public boolean containsColumn(Object columnKey) {
+    for (Map<C, V> row : rows.values()) {
+      if (row.containsKey(columnKey)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  @Override
+  public boolean containsValue(Object value) {
+    for (Map<C, V> row : rows.values()) {
+      if (row.containsValue(value)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  @Override
+  public V get(Object rowKey, Object columnKey) {
+    Map<C, V> row = rows.get(rowKey);
+    return row == null ? null : row.get(columnKey);
+  }
+
+  @Override
+  public boolean isEmpty() {
+    return size == 0;
+  }
+
+  @Override
+  public int size() {
+    return size;
+  }
+
+  @Override
+  public void clear() {
+    throw new UnsupportedOperationException();
+  }
+
+  @Override
+  public V put(R rowKey, C columnKey, V value) {
+    throw new UnsupportedOperationException();
+  }
+
+  @Override
+  public void putAll(Table<? extends R, ? extends C, ? extends V> table) {
+    throw new UnsupportedOperationException();
+  }
+
+  @Override
+  public V remove(Object rowKey, Object columnKey) {
+    throw new UnsupportedOperationException();
+  }
+
+  @Override
+  public Map<C, V> row(R rowKey) {
+    Map<C, V> row = rows.get(rowKey);
+    return row == null ? ImmutableMap.<C, V>of() : Collections.unmodifiableMap(row);
+  }
+
+  @Override
+  public Map<R, V> column(C columnKey) {
+    Map<R, V> column = new HashMap<R, V>();
+    for (Map.Entry<R, Map<C, V>> row : rows.entrySet()) {
+      if (row.getValue().containsKey(columnKey)) {
+        column.put(row.getKey(), row.getValue().get(columnKey));
+      }
+    }
+    return Collections.unmodifiableMap(column);
+  }
+
+  @Override
+  public Set<Cell<R, C, V>> cellSet() {
+    Set<Cell<R, C, V>> cells = new HashSet<Cell<R, C, V>>(size);
+    for (Map.Entry<R, Map<C, V>> row : rows.entrySet()) {
+      for (Map.Entry<C, V> cell : row.getValue().entrySet()) {
+        cells.add(Tables.immutableCell(row.getKey(), cell.getKey(), cell.getValue()));
+      }
+    }
+    return Collections.unmodifiableSet(cells);
+  }
+
+  @Override
+  public Set<R> rowKeySet() {
+    return rows.keySet();
+  }
+
+  @Override
+  public Set<C> columnKeySet() {
+    ImmutableSet.Builder<C> columnKeys = ImmutableSet.builder();
+    for (Map<C, V> row : rows.values()) {
+      columnKeys.addAll(row.keySet());
+    }
+    return columnKeys.build();
+  }
+
+  @Override
+  public Collection<V> values() {
+    Collection<V> values = new ArrayList<V>(size);
+    for (Map<C, V> row : rows.values()) {
+      values.addAll(row.values());
+    }
+    return Collections.unmodifiableCollection(values);
+  }
+
+  @Override
+  public Map<R, Map<C, V>> rowMap() {
+    Map<R, Map<C, V>> rowMap = new HashMap<R, Map<C, V>>(rows.size());
+    for (Map.Entry<R, Map<C, V>> row : rows.entrySet()) {
+      rowMap.put(row.getKey(), Collections.unmodifiableMap(row.getValue()));
+    }
+    return Collections.unmodifiableMap(rowMap);
+  }
+
+  @Override
+  public Map<C, Map<R, V>> columnMap() {
+    Map<C, Map<R, V>> columnMap = new HashMap<C, Map<R, V>>();
+    for (Map.Entry<R, Map<C, V>> row : rows.entrySet()) {
+      for (Map.Entry<C, V> cell : row.getValue().entrySet()) {
+        Map<R, V> column = columnMap.get(cell.getKey());
+        if (column == null) {
+          column = new HashMap<R, V>();
+          columnMap.put(cell.getKey(), column);
+        }
+        column.put(row.getKey(), cell.getValue());
+      }
+    }
+    return Collections.unmodifiableMap(columnMap);
+  }
+
+  @Override
+  public boolean equals(Object obj) {
+    if (obj == this) {
+      return true;
+    }
+    return obj instanceof Table && cellSet().equals(((Table<?, ?, ?>) obj).cellSet());
+  }
+
+  @Override
+  public int hashCode() {
+    return cellSet().hashCode();
+  }
+
+  @Override
+  public String toString() {
+    return rows.toString();
+  }
+}
@@ -20,7 +20,10 @@ package org.apache.sentry.provider.db.generic;
 import java.lang.reflect.Constructor;
 import java.lang.reflect.InvocationTargetException;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
 import java.util.Set;
+import java.util.concurrent.Callable;
 
 import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.security.UserGroupInformation;
@@ -28,7 +31,9 @@ import org.apache.sentry.core.common.exception.SentryUserException;
 import org.apache.sentry.core.common.ActiveRoleSet;
 import org.apache.sentry.core.common.Authorizable;
 import org.apache.sentry.core.common.exception.SentryConfigurationException;
+import org.apache.sentry.core.common.utils.RequestCoalescer;
 import org.apache.sentry.provider.common.CacheProvider;
+import org.apache.sentry.provider.common.PrivilegeLookupKey;
 import org.apache.sentry.provider.common.ProviderBackend;
 import org.apache.sentry.provider.common.ProviderBackendContext;
 import org.apache.sentry.provider.db.generic.service.thrift.SentryGenericServiceClient;
@@ -53,6 +58,8 @@ public class SentryGenericProviderBackend extends CacheProvider implements Provi
   private String serviceName;
   private boolean enableCaching;
   private String privilegeConverter;
+  // null when the lookups are not coalesced
+  private final RequestCoalescer<PrivilegeLookupKey, ImmutableSet<String>> coalescer;
 
   // ProviderBackend should have the same construct to support the reflect in authBinding,
   // eg:SqoopAuthBinding
@@ -61,6 +68,13 @@ public class SentryGenericProviderBackend extends CacheProvider implements Provi
     this.conf = conf;
     this.enableCaching = conf.getBoolean(ServiceConstants.ClientConfig.ENABLE_CACHING, ServiceConstants.ClientConfig.ENABLE_CACHING_DEFAULT);
     this.privilegeConverter = conf.get(ServiceConstants.ClientConfig.PRIVILEGE_CONVERTER);
+    if (conf.getBoolean(ServiceConstants.ClientConfig.COALESCE_LOOKUPS, ServiceConstants.ClientConfig.COALESCE_LOOKUPS_DEFAULT)) {
+      this.coalescer = new RequestCoalescer<PrivilegeLookupKey, ImmutableSet<String>>(
+          conf.getLong(ServiceConstants.ClientConfig.COALESCE_LOOKUPS_TIMEOUT_MS,
+              ServiceConstants.ClientConfig.COALESCE_LOOKUPS_TIMEOUT_MS_DEFAULT));
+    } else {
+      this.coalescer = null;
+    }
   }
 
   @Override
@@ -102,34 +116,52 @@ public class SentryGenericProviderBackend extends CacheProvider implements Provi
   }
 
   @Override
-  public ImmutableSet<String> getPrivileges(Set<String> groups,
-      ActiveRoleSet roleSet, Authorizable... authorizableHierarchy) {
+  public ImmutableSet<String> getPrivileges(final Set<String> groups,
+      final ActiveRoleSet roleSet, final Authorizable... authorizableHierarchy) {
     if (!initialized) {
       throw new IllegalStateException("SentryGenericProviderBackend has not been properly initialized");
     }
     if (enableCaching) {
       return super.getPrivileges(groups, roleSet, authorizableHierarchy);
     } else {
-      SentryGenericServiceClient client = null;
       try {
-        client = getClient();
-        return ImmutableSet.copyOf(client.listPrivilegesForProvider(componentType, serviceName,
-            roleSet, groups, Arrays.asList(authorizableHierarchy)));
+        if (coalescer == null) {
+          return fetchPrivileges(groups, roleSet, authorizableHierarchy);
+        }
+        return coalescer.get(new PrivilegeLookupKey(groups, null, roleSet, authorizableHierarchy),
+            new Callable<ImmutableSet<String>>() {
+              @Override
+              public ImmutableSet<String> call() throws Exception {
+                return fetchPrivileges(groups, roleSet, authorizableHierarchy);
+              }
+            });
       } catch (SentryUserException e) {
         String msg = "Unable to obtain privileges from server: " + e.getMessage();
         LOGGER.error(msg, e);
       } catch (Exception e) {
         String msg = "Unable to obtain client:" + e.getMessage();
         LOGGER.error(msg, e);
-      } finally {
-        if (client != null) {
-          client.close();
-        }
       }
     }
     return ImmutableSet.of();
   }
 
+  private ImmutableSet<String> fetchPrivileges(Set<String> groups, ActiveRoleSet roleSet,
+      Authorizable... authorizableHierarchy) throws Exception {
+    SentryGenericServiceClient client = null;
+    try {
+      client = getClient();
+      List<Authorizable> authorizables = authorizableHierarchy == null
+          ? Collections.<Authorizable>emptyList() : Arrays.asList(authorizableHierarchy);
+      return ImmutableSet.copyOf(client.listPrivilegesForProvider(componentType, serviceName,
+          roleSet, groups, authorizables));
+    } finally {
+      if (client != null) {
+        client.close();
+      }
+    }
+  }
+
   @Override
   public ImmutableSet<String> getRoles(Set<String> groups, ActiveRoleSet roleSet) {
     if (!initialized) {
@@ -182,7 +214,27 @@ public class SentryGenericProviderBackend extends CacheProvider implements Provi
   public ImmutableSet<String> getPrivileges(Set<String> groups, Set<String> users,
                                               ActiveRoleSet roleSet, Authorizable... authorizableHierarchy) {
     // SentryGenericProviderBackend doesn't support getPrivileges for user now.
-    return getPrivileges(groups, roleSet);
+    return getPrivileges(groups, roleSet, authorizableHierarchy);
+  }
+
+  /**
+   * @return the coalescer of the privilege lookups, with the counts of the
+   * calls issued and of the lookups coalesced, or null when lookups are not coalesced
+   */
+  public RequestCoalescer<PrivilegeLookupKey, ImmutableSet<String>> getLookupCoalescer() {
+    return coalescer;
+  }
+
+  /**
+   * Without caching, the privileges are fetched from the server on every call
+   * so there is no version.
+   */
+  @Override
+  public long getPolicyVersion() {
+    if (!initialized) {
+      throw new IllegalStateException("SentryGenericProviderBackend has not been properly initialized");
+    }
+    return enableCaching ? super.getPolicyVersion() : UNVERSIONED_POLICY;
   }
 
   @Override
@@ -12,6 +12,7 @@
  */
 package org.apache.sentry.provider.db.generic;
 
+import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Table;
 import com.google.common.collect.HashBasedTable;
 import org.apache.hadoop.conf.Configuration;
@@ -20,10 +21,15 @@ import org.apache.sentry.provider.common.TableCache;
 import org.apache.sentry.provider.db.generic.service.thrift.*;
 import org.apache.sentry.provider.db.generic.tools.command.TSentryPrivilegeConverter;
 import org.apache.sentry.service.thrift.ServiceConstants;
+import org.apache.thrift.TApplicationException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Map;
 import java.util.Set;
 import java.util.Timer;
 import java.util.TimerTask;
@@ -35,12 +41,35 @@ class UpdatableCache implements TableCache {
   private final String componentType;
   private final String serviceName;
   private final long cacheTtlNs;
+  private final long fullReloadIntervalNs;
   private final int allowedUpdateFailuresCount;
   private final Configuration conf;
   private final TSentryPrivilegeConverter tSentryPrivilegeConverter;
 
   private volatile long lastRefreshedNs = 0;
   private int consecutiveUpdateFailuresCount = 0;
+  /**
+   * The client is kept open between the refreshes, which run one after the
+   * other. It is replaced after a failure, the connection may be broken.
+   */
+  private SentryGenericServiceClient client;
+  /**
+   * The change sequence of the table, the next refresh asks for the changes
+   * made after it. It is negative when the table must be loaded from scratch.
+   */
+  private long sequence = -1;
+  /**
+   * When the whole policy was last loaded. The changes are applied only until
+   * the full reload interval elapses, so that a change the server failed to
+   * report is not kept forever.
+   */
+  private long lastFullReloadNs = 0;
+  /**
+   * Set when the server has no policy snapshot, the servers that predate it
+   * fail the request with an unknown method. The roles and their privileges
+   * are then listed one request at a time, as long as the client is kept.
+   */
+  private boolean snapshotUnsupported = false;
   /**
    * Sparse table where group is the row key and role is the cell.
    * The value is the set of privileges located in the cell. For example,
@@ -67,6 +96,16 @@ class UpdatableCache implements TableCache {
    * </table>
    */
   private volatile Table<String, String, Set<String>> table;
+  /**
+   * The rows of the table by group. A row is never modified once it is in the
+   * table, a refresh replaces the rows of the groups of the changed roles and
+   * shares the other rows with the previous table.
+   */
+  private Map<String, Map<String, Set<String>>> rows = Collections.emptyMap();
+  /**
+   * The groups of each role of the rows, to find the rows of a changed role.
+   */
+  private Map<String, Set<String>> roleGroups = Collections.emptyMap();
 
   UpdatableCache(Configuration conf, String componentType, String serviceName, TSentryPrivilegeConverter tSentryPrivilegeConverter) {
     this.conf = conf;
@@ -77,6 +116,7 @@ class UpdatableCache implements TableCache {
     // check caching configuration
     this.cacheTtlNs = TimeUnit.MILLISECONDS.toNanos(conf.getLong(ServiceConstants.ClientConfig.CACHE_TTL_MS, ServiceConstants.ClientConfig.CACHING_TTL_MS_DEFAULT));
     this.allowedUpdateFailuresCount = conf.getInt(ServiceConstants.ClientConfig.CACHE_UPDATE_FAILURES_BEFORE_PRIV_REVOKE, ServiceConstants.ClientConfig.CACHE_UPDATE_FAILURES_BEFORE_PRIV_REVOKE_DEFAULT);
+    this.fullReloadIntervalNs = TimeUnit.MILLISECONDS.toNanos(conf.getLong(ServiceConstants.ClientConfig.CACHE_FULL_RELOAD_INTERVAL_MS, ServiceConstants.ClientConfig.CACHE_FULL_RELOAD_INTERVAL_MS_DEFAULT));
   }
 
   @Override
@@ -85,43 +125,181 @@ class UpdatableCache implements TableCache {
   }
 
   /**
-   * Build cache replica with latest values
+   * Build cache replica with latest values. When the changes since the previous
+   * refresh are known only the changed roles are fetched, and only the rows of
+   * their groups are rebuilt. Otherwise, and once per full reload interval, the
+   * whole policy of the service is fetched with one snapshot request per page of roles.
    *
    * @return cache replica with latest values
    */
   private Table<String, String, Set<String>> loadFromRemote() throws Exception {
-    Table<String, String, Set<String>> tempCache = HashBasedTable.create();
     String requestor;
     requestor = UserGroupInformation.getLoginUser().getShortUserName();
 
-    final SentryGenericServiceClient client = getClient();
-    final Set<TSentryRole> tSentryRoles = client.listAllRoles(requestor, componentType);
+    try {
+      if (snapshotUnsupported) {
+        return loadRoleByRole(requestor);
+      }
+      if (sequence >= 0 && System.nanoTime() - lastFullReloadNs < fullReloadIntervalNs) {
+        TListSentryPolicyChangesResponse changes =
+            getClient().listPolicyChanges(requestor, componentType, serviceName, sequence);
+        if (changes.isSetChangedRoles()) {
+          Table<String, String, Set<String>> tempCache = applyChanges(changes);
+          sequence = changes.getSequence();
+          return tempCache;
+        }
+        LOGGER.debug("Changes since {} are unknown, loading all data.", sequence);
+      }
+
+      TListSentryPolicySnapshotResponse snapshot =
+          getClient().listPolicySnapshot(requestor, componentType, serviceName);
+      Table<String, String, Set<String>> tempCache = replaceRoles(
+          Collections.<String, Map<String, Set<String>>>emptyMap(),
+          Collections.<String, Set<String>>emptyMap(), Collections.<String>emptySet(),
+          snapshot.getRoles(), snapshot.getPrivilegeMap());
+      sequence = snapshot.getSequence();
+      lastFullReloadNs = System.nanoTime();
+      return tempCache;
+    } catch (Exception e) {
+      if (!snapshotUnsupported && isUnknownMethod(e)) {
+        LOGGER.warn("Sentry server has no policy snapshot, listing the privileges of each role instead.");
+        snapshotUnsupported = true;
+        sequence = -1;
+        return loadFromRemote();
+      }
+      closeClient();
+      throw e;
+    }
+  }
 
-    for (TSentryRole tSentryRole : tSentryRoles) {
+  /**
+   * Loads the whole policy of the service from a server without the policy
+   * snapshot, with one request for the roles and one per role for its privileges.
+   */
+  private Table<String, String, Set<String>> loadRoleByRole(String requestor) throws Exception {
+    Table<String, String, Set<String>> tempCache = HashBasedTable.create();
+    final SentryGenericServiceClient client = getClient();
+    for (TSentryRole tSentryRole : client.listAllRoles(requestor, componentType)) {
       final String roleName = tSentryRole.getRoleName();
-      final Set<TSentryPrivilege> tSentryPrivileges = client.listPrivilegesByRoleName(requestor, roleName, componentType, serviceName);
+      final Set<TSentryPrivilege> tSentryPrivileges =
+          client.listPrivilegesByRoleName(requestor, roleName, componentType, serviceName);
+      // the cells of a role share the same set
+      Set<String> privileges = new HashSet<>();
+      for (TSentryPrivilege tSentryPrivilege : tSentryPrivileges) {
+        privileges.add(tSentryPrivilegeConverter.toString(tSentryPrivilege));
+      }
       for (String group : tSentryRole.getGroups()) {
-        Set<String> currentPrivileges = tempCache.get(group, roleName);
-        if (currentPrivileges == null) {
-          currentPrivileges = new HashSet<>();
-          tempCache.put(group, roleName, currentPrivileges);
-        }
-        for (TSentryPrivilege tSentryPrivilege : tSentryPrivileges) {
-          currentPrivileges.add(tSentryPrivilegeConverter.toString(tSentryPrivilege));
-        }
+        tempCache.put(group, roleName, privileges);
       }
     }
     return tempCache;
   }
 
   /**
-   *  The Sentry-296(generate client for connection pooling) has already finished development and reviewed by now. When it
-   *  was committed to master, the getClient method was needed to refactor using the connection pool
+   * The client wraps the thrift errors, the server reports a method it doesn't
+   * have with a TApplicationException somewhere in the causes.
+   */
+  private static boolean isUnknownMethod(Throwable e) {
+    for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+      if (cause instanceof TApplicationException
+          && ((TApplicationException) cause).getType() == TApplicationException.UNKNOWN_METHOD) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * The current table is never modified, it may be read by other threads.
+   * Only the rows of the groups of the changed roles are rebuilt, the new
+   * table refers to the other rows of the current one instead of copying their
+   * cells.
+   */
+  private Table<String, String, Set<String>> applyChanges(TListSentryPolicyChangesResponse changes) {
+    if (changes.getChangedRoles().isEmpty()) {
+      return table;
+    }
+    // the dropped roles are not listed
+    Set<TSentryRole> roles = changes.isSetRoles()
+        ? changes.getRoles() : Collections.<TSentryRole>emptySet();
+    return replaceRoles(rows, roleGroups, changes.getChangedRoles(), roles, changes.getPrivilegeMap());
+  }
+
+  /**
+   * Removes the changed roles from the given rows and adds the given roles,
+   * then makes the result the current rows.
    *
-   *  TODO: Avoid creating new client each time.
+   * @return a table view of the new rows
    */
+  private Table<String, String, Set<String>> replaceRoles(
+      Map<String, Map<String, Set<String>>> currentRows, Map<String, Set<String>> currentRoleGroups,
+      Collection<String> changedRoles, Collection<TSentryRole> roles, TSentryPrivilegeMap privilegeMap) {
+    Map<String, Set<String>> newRoleGroups = new HashMap<>(currentRoleGroups);
+    // copies of the rows to replace, made on the first change to each of them
+    Map<String, Map<String, Set<String>>> changedRows = new HashMap<>();
+    for (String roleName : changedRoles) {
+      Set<String> groups = newRoleGroups.remove(roleName);
+      if (groups != null) {
+        for (String group : groups) {
+          changedRow(currentRows, changedRows, group).remove(roleName);
+        }
+      }
+    }
+    for (TSentryRole role : roles) {
+      final String roleName = role.getRoleName();
+      Set<TSentryPrivilege> tSentryPrivileges = privilegeMap.getPrivilegeMap().get(roleName);
+      // the cells of a role share the same set
+      Set<String> privileges = new HashSet<>();
+      if (tSentryPrivileges != null) {
+        for (TSentryPrivilege tSentryPrivilege : tSentryPrivileges) {
+          privileges.add(tSentryPrivilegeConverter.toString(tSentryPrivilege));
+        }
+      }
+      privileges = Collections.unmodifiableSet(privileges);
+      newRoleGroups.put(roleName, ImmutableSet.copyOf(role.getGroups()));
+      for (String group : role.getGroups()) {
+        changedRow(currentRows, changedRows, group).put(roleName, privileges);
+      }
+    }
+
+    Map<String, Map<String, Set<String>>> newRows = new HashMap<>(currentRows);
+    for (Map.Entry<String, Map<String, Set<String>>> row : changedRows.entrySet()) {
+      if (row.getValue().isEmpty()) {
+        newRows.remove(row.getKey());
+      } else {
+        newRows.put(row.getKey(), Collections.unmodifiableMap(row.getValue()));
+      }
+    }
+    rows = newRows;
+    roleGroups = newRoleGroups;
+    return new RowMapTable<>(newRows);
+  }
+
+  private static Map<String, Set<String>> changedRow(Map<String, Map<String, Set<String>>> currentRows,
+      Map<String, Map<String, Set<String>>> changedRows, String group) {
+    Map<String, Set<String>> row = changedRows.get(group);
+    if (row == null) {
+      Map<String, Set<String>> currentRow = currentRows.get(group);
+      row = currentRow == null ? new HashMap<String, Set<String>>() : new HashMap<>(currentRow);
+      changedRows.put(group, row);
+    }
+    return row;
+  }
+
   private SentryGenericServiceClient getClient() throws Exception {
-    return SentryGenericServiceClientFactory.create(conf);
+    if (client == null) {
+      client = SentryGenericServiceClientFactory.create(conf);
+    }
+    return client;
+  }
+
+  private void closeClient() {
+    if (client != null) {
+      client.close();
+      client = null;
+    }
+    // the next client may connect to another server
+    snapshotUnsupported = false;
   }
 
   void startUpdateThread(boolean blockUntilFirstReload) throws Exception {
@@ -149,17 +327,21 @@ class UpdatableCache implements TableCache {
         refreshIntervalMs);
   }
 
-  private void revokeAllPrivilegesIfRequired() {
+  private synchronized void revokeAllPrivilegesIfRequired() {
     if (++consecutiveUpdateFailuresCount > allowedUpdateFailuresCount) {
       // Clear cache to revoke all privileges.
       // Update table cache to point to an empty table to avoid thread-unsafe characteristics of HashBasedTable.
       this.table = HashBasedTable.create();
+      rows = Collections.emptyMap();
+      roleGroups = Collections.emptyMap();
+      // the changes can't be applied to the empty table
+      sequence = -1;
       LOGGER.error("Failed to update roles and privileges cache for " + consecutiveUpdateFailuresCount + " times." +
           " Revoking all privileges from cache, which will cause all authorization requests to fail.");
     }
   }
 
-  private void reloadData() throws Exception {
+  private synchronized void reloadData() throws Exception {
     this.table = loadFromRemote();
     lastRefreshedNs = System.nanoTime();
   }
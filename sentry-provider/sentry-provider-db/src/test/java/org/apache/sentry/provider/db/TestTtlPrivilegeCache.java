@@ -0,0 +1,157 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.sentry.provider.db;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.sentry.core.common.ActiveRoleSet;
+import org.apache.sentry.provider.common.PrivilegeLookupKey;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.common.base.Ticker;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Sets;
+
+public class TestTtlPrivilegeCache {
+
+  private static final long TTL_MS = 1000;
+  private static final int ALLOWED_UPDATE_FAILURES = 1;
+  private static final ImmutableSet<String> PRIVILEGES1 =
+      ImmutableSet.of("server=server1->db=db1->action=select");
+  private static final ImmutableSet<String> PRIVILEGES2 =
+      ImmutableSet.of("server=server1->db=db2->action=select");
+
+  private final FakeTicker ticker = new FakeTicker();
+  private final List<Runnable> refreshes = new ArrayList<Runnable>();
+  private final AtomicInteger loads = new AtomicInteger();
+  private final PrivilegeLookupKey key = new PrivilegeLookupKey(Sets.newHashSet("group1"),
+      null, ActiveRoleSet.ALL);
+  private volatile ImmutableSet<String> serverPrivileges;
+  private volatile boolean serverDown;
+  private Callable<ImmutableSet<String>> loader;
+  private TtlPrivilegeCache cache;
+
+  @Before
+  public void setup() {
+    serverPrivileges = PRIVILEGES1;
+    serverDown = false;
+    loader = new Callable<ImmutableSet<String>>() {
+      @Override
+      public ImmutableSet<String> call() throws Exception {
+        loads.incrementAndGet();
+        if (serverDown) {
+          throw new Exception("server is down");
+        }
+        return serverPrivileges;
+      }
+    };
+    Executor refreshExecutor = new Executor() {
+      @Override
+      public void execute(Runnable command) {
+        refreshes.add(command);
+      }
+    };
+    cache = new TtlPrivilegeCache(TTL_MS, 100, ALLOWED_UPDATE_FAILURES, ticker,
+        refreshExecutor);
+  }
+
+  @Test
+  public void testHitWithinPeriod() throws Exception {
+    assertEquals(PRIVILEGES1, cache.get(key, loader));
+    serverPrivileges = PRIVILEGES2;
+    ticker.advance(TTL_MS - 1);
+    assertEquals(PRIVILEGES1, cache.get(key, loader));
+    assertEquals(1, loads.get());
+    assertEquals(1, cache.getHitCount());
+    assertEquals(0, refreshes.size());
+  }
+
+  @Test
+  public void testReloadInNextPeriod() throws Exception {
+    assertEquals(PRIVILEGES1, cache.get(key, loader));
+    serverPrivileges = PRIVILEGES2;
+    ticker.advance(TTL_MS);
+    long version = cache.getVersion();
+    // the stale privileges are served at once, and reloaded in the background once
+    assertEquals(PRIVILEGES1, cache.get(key, loader));
+    assertEquals(PRIVILEGES1, cache.get(key, loader));
+    assertEquals(1, loads.get());
+    assertEquals(1, refreshes.size());
+    refreshes.get(0).run();
+    assertEquals(PRIVILEGES2, cache.get(key, loader));
+    assertEquals(2, loads.get());
+    assertEquals(2, cache.getStaleCount());
+    // the decisions made with the stale privileges are not kept
+    assertTrue(version != cache.getVersion());
+  }
+
+  @Test
+  public void testStaleServedAfterFailedReload() throws Exception {
+    assertEquals(PRIVILEGES1, cache.get(key, loader));
+    serverDown = true;
+    ticker.advance(TTL_MS);
+    assertEquals(PRIVILEGES1, cache.get(key, loader));
+    refreshes.get(0).run();
+    // not reloaded again for the rest of the period
+    assertEquals(PRIVILEGES1, cache.get(key, loader));
+    assertEquals(1, refreshes.size());
+    assertEquals(2, loads.get());
+  }
+
+  @Test
+  public void testEvictionAfterAllowedFailures() throws Exception {
+    assertEquals(PRIVILEGES1, cache.get(key, loader));
+    serverDown = true;
+    for (int i = 0; i <= ALLOWED_UPDATE_FAILURES; i++) {
+      ticker.advance(TTL_MS);
+      assertEquals(PRIVILEGES1, cache.get(key, loader));
+      refreshes.get(i).run();
+    }
+    try {
+      cache.get(key, loader);
+      fail("The privileges should have been dropped");
+    } catch (Exception e) {
+      assertEquals("server is down", e.getMessage());
+    }
+    serverDown = false;
+    assertEquals(PRIVILEGES1, cache.get(key, loader));
+  }
+
+  private static class FakeTicker extends Ticker {
+    private final AtomicLong nanos = new AtomicLong();
+
+    @Override
+    public long read() {
+      return nanos.get();
+    }
+
+    void advance(long millis) {
+      nanos.addAndGet(TimeUnit.MILLISECONDS.toNanos(millis));
+    }
+  }
+}
@@ -0,0 +1,65 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license agreements. See the NOTICE
+ * file distributed with this work for additional information regarding copyright ownership. The ASF licenses this file
+ * to You under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package org.apache.sentry.provider.db.generic;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.Test;
+
+import com.google.common.collect.HashBasedTable;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Table;
+
+public class TestRowMapTable {
+
+  @Test
+  public void testSameAsHashBasedTable() {
+    Table<String, String, Integer> expected = HashBasedTable.create();
+    expected.put("group1", "role1", 1);
+    expected.put("group1", "role2", 2);
+    expected.put("group2", "role2", 2);
+
+    Map<String, Map<String, Integer>> rows = new HashMap<String, Map<String, Integer>>();
+    rows.put("group1", ImmutableMap.of("role1", 1, "role2", 2));
+    rows.put("group2", ImmutableMap.of("role2", 2));
+    Table<String, String, Integer> table = new RowMapTable<String, String, Integer>(rows);
+
+    assertEquals(expected, table);
+    assertEquals(table, expected);
+    assertEquals(expected.hashCode(), table.hashCode());
+    assertEquals(3, table.size());
+    assertEquals(expected.rowKeySet(), table.rowKeySet());
+    assertEquals(expected.columnKeySet(), table.columnKeySet());
+    assertEquals(expected.row("group1"), table.row("group1"));
+    assertTrue(table.row("group3").isEmpty());
+    assertEquals(expected.column("role2"), table.column("role2"));
+    assertEquals(expected.rowMap(), table.rowMap());
+    assertEquals(expected.columnMap(), table.columnMap());
+    assertEquals(Integer.valueOf(2), table.get("group2", "role2"));
+    assertNull(table.get("group2", "role1"));
+    assertTrue(table.containsColumn("role1"));
+    assertFalse(table.containsRow("group3"));
+  }
+
+  @Test(expected = UnsupportedOperationException.class)
+  public void testReadOnly() {
+    new RowMapTable<String, String, Integer>(new HashMap<String, Map<String, Integer>>())
+        .put("group1", "role1", 1);
+  }
+}
@@ -0,0 +1,322 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.sentry.provider.file;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedSet;
+
+import org.apache.hadoop.fs.FSDataInputStream;
+import org.apache.hadoop.fs.FSDataOutputStream;
+import org.apache.hadoop.fs.FileContext;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.LocalFileSystem;
+import org.apache.hadoop.fs.Options;
+import org.apache.hadoop.fs.Path;
+
+import com.google.common.base.Charsets;
+import com.google.common.collect.HashBasedTable;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Sets;
+import com.google.common.collect.Table;
+
+/**
+ * Binary form of the group, role and privilege table of validated policy
+ * files, which {@link SimpleFileProviderBackend} reads instead of parsing and
+ * validating the INI files again. Local files are memory mapped, so that the
+ * processes of a host reading the same file share its pages.
+ * <p>
+ * The file starts with a magic number, the format version and the length of
+ * the file, followed by
+ * <ul>
+ * <li>the strings: the group, role and privilege names, each stored once</li>
+ * <li>the privilege sets: the distinct sets of privileges granted to a role,
+ * as string ids</li>
+ * <li>the index: for each group, its roles with the id of their privilege set</li>
+ * </ul>
+ * All the numbers are big endian ints except the length, a long.
+ */
+public final class CompiledPolicyFile {
+
+  /** "SPFC", Sentry policy file compiled */
+  public static final int MAGIC = 0x53504643;
+  public static final int VERSION = 1;
+
+  private static final int HEADER_LENGTH = 16;
+
+  private CompiledPolicyFile() {
+    // Make constructor private to avoid instantiation
+  }
+
+  /**
+   * @return true if the file starts with the magic number of a compiled policy file
+   */
+  public static boolean isCompiled(FileSystem fileSystem, Path path) throws IOException {
+    if (fileSystem.getFileStatus(path).getLen() < HEADER_LENGTH) {
+      return false;
+    }
+    FSDataInputStream in = fileSystem.open(path);
+    try {
+      return in.readInt() == MAGIC;
+    } finally {
+      in.close();
+    }
+  }
+
+  /**
+   * Write the table to the path. The file is written next to the path and
+   * renamed over it in one step, so that the processes which mapped the
+   * previous file keep reading a complete one and the others see either the
+   * previous or the new file.
+   */
+  public static void write(FileSystem fileSystem, Path path,
+      Table<String, String, Set<String>> groupRolePrivilegeTable) throws IOException {
+    Path tempPath = new Path(path.getParent(), "." + path.getName() + ".tmp");
+    if (fileSystem instanceof LocalFileSystem) {
+      // the checksum file can't be renamed with the file in the same step, the
+      // local file is written without it
+      LocalFileSystem localFileSystem = (LocalFileSystem) fileSystem;
+      write(localFileSystem.getRawFileSystem(), tempPath, groupRolePrivilegeTable);
+      // a checksum left by a previous write would not match the new file
+      localFileSystem.getRawFileSystem().delete(localFileSystem.getChecksumFile(path), false);
+      Files.move(localFileSystem.pathToFile(tempPath).toPath(),
+          localFileSystem.pathToFile(path).toPath(),
+          StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    } else {
+      write(fileSystem, tempPath, groupRolePrivilegeTable);
+      FileContext.getFileContext(fileSystem.getUri(), fileSystem.getConf())
+          .rename(tempPath, path, Options.Rename.OVERWRITE);
+    }
+  }
+
+  private static void write(FileSystem fileSystem, Path tempPath,
+      Table<String, String, Set<String>> groupRolePrivilegeTable) throws IOException {
+    FSDataOutputStream out = fileSystem.create(tempPath, true);
+    try {
+      write(groupRolePrivilegeTable, out);
+    } finally {
+      out.close();
+    }
+  }
+
+  /**
+   * Write the table in the compiled format. The groups, roles and privileges
+   * are written in order, so that the same policy compiles to the same bytes.
+   */
+  public static void write(Table<String, String, Set<String>> groupRolePrivilegeTable,
+      OutputStream out) throws IOException {
+    Map<String, Integer> stringIds = new LinkedHashMap<String, Integer>();
+    Map<SortedSet<String>, Integer> privilegeSetIds = new LinkedHashMap<SortedSet<String>, Integer>();
+    List<int[]> privilegeSets = new ArrayList<int[]>();
+    Map<String, Map<String, Set<String>>> rows = groupRolePrivilegeTable.rowMap();
+    List<int[]> groups = new ArrayList<int[]>();
+    for (String group : Sets.newTreeSet(rows.keySet())) {
+      Map<String, Set<String>> roles = rows.get(group);
+      // the group id followed by the role id and privilege set id of each role
+      int[] groupEntry = new int[1 + 2 * roles.size()];
+      groupEntry[0] = getId(stringIds, group);
+      int index = 1;
+      for (String role : Sets.newTreeSet(roles.keySet())) {
+        SortedSet<String> privileges = Sets.newTreeSet(roles.get(role));
+        Integer privilegeSetId = privilegeSetIds.get(privileges);
+        if (privilegeSetId == null) {
+          int[] privilegeSet = new int[privileges.size()];
+          int privilegeIndex = 0;
+          for (String privilege : privileges) {
+            privilegeSet[privilegeIndex++] = getId(stringIds, privilege);
+          }
+          privilegeSetId = privilegeSets.size();
+          privilegeSetIds.put(privileges, privilegeSetId);
+          privilegeSets.add(privilegeSet);
+        }
+        groupEntry[index++] = getId(stringIds, role);
+        groupEntry[index++] = privilegeSetId;
+      }
+      groups.add(groupEntry);
+    }
+
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    DataOutputStream body = new DataOutputStream(bytes);
+    body.writeInt(stringIds.size());
+    for (String string : stringIds.keySet()) {
+      byte[] encoded = string.getBytes(Charsets.UTF_8);
+      body.writeInt(encoded.length);
+      body.write(encoded);
+    }
+    body.writeInt(privilegeSets.size());
+    for (int[] privilegeSet : privilegeSets) {
+      body.writeInt(privilegeSet.length);
+      for (int privilegeId : privilegeSet) {
+        body.writeInt(privilegeId);
+      }
+    }
+    body.writeInt(groups.size());
+    for (int[] groupEntry : groups) {
+      body.writeInt(groupEntry[0]);
+      body.writeInt((groupEntry.length - 1) / 2);
+      for (int i = 1; i < groupEntry.length; i++) {
+        body.writeInt(groupEntry[i]);
+      }
+    }
+    body.flush();
+
+    DataOutputStream header = new DataOutputStream(out);
+    header.writeInt(MAGIC);
+    header.writeInt(VERSION);
+    header.writeLong(HEADER_LENGTH + bytes.size());
+    bytes.writeTo(header);
+    header.flush();
+  }
+
+  private static int getId(Map<String, Integer> stringIds, String string) {
+    Integer id = stringIds.get(string);
+    if (id == null) {
+      id = stringIds.size();
+      stringIds.put(string, id);
+    }
+    return id;
+  }
+
+  /**
+   * Read the table of a compiled policy file.
+   *
+   * @throws IOException if the file can't be read, is not a compiled policy
+   * file of this version or is corrupt
+   */
+  public static Table<String, String, Set<String>> read(FileSystem fileSystem, Path path)
+      throws IOException {
+    ByteBuffer buffer = map(fileSystem, path);
+    try {
+      return read(buffer, path);
+    } catch (BufferUnderflowException e) {
+      throw new IOException("Compiled policy file " + path + " is corrupt", e);
+    } catch (IndexOutOfBoundsException e) {
+      throw new IOException("Compiled policy file " + path + " is corrupt", e);
+    }
+  }
+
+  private static ByteBuffer map(FileSystem fileSystem, Path path) throws IOException {
+    if (fileSystem instanceof LocalFileSystem) {
+      RandomAccessFile file = new RandomAccessFile(
+          ((LocalFileSystem) fileSystem).pathToFile(path), "r");
+      try {
+        // the mapping stays valid once the file is closed
+        FileChannel channel = file.getChannel();
+        return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+      } finally {
+        file.close();
+      }
+    }
+    long length = fileSystem.getFileStatus(path).getLen();
+    if (length > Integer.MAX_VALUE) {
+      throw new IOException("Compiled policy file " + path + " is too large");
+    }
+    byte[] bytes = new byte[(int) length];
+    FSDataInputStream in = fileSystem.open(path);
+    try {
+      in.readFully(bytes);
+    } finally {
+      in.close();
+    }
+    return ByteBuffer.wrap(bytes);
+  }
+
+  private static Table<String, String, Set<String>> read(ByteBuffer buffer, Path path)
+      throws IOException {
+    if (buffer.remaining() < HEADER_LENGTH || buffer.getInt() != MAGIC) {
+      throw new IOException(path + " is not a compiled policy file");
+    }
+    int version = buffer.getInt();
+    if (version != VERSION) {
+      throw new IOException("Compiled policy file " + path + " has version " + version
+          + ", expected version " + VERSION + ", the policy must be compiled again");
+    }
+    long length = buffer.getLong();
+    if (length != buffer.limit()) {
+      throw new IOException("Compiled policy file " + path + " has " + buffer.limit()
+          + " bytes, expected " + length);
+    }
+
+    // each string has its length
+    String[] strings = new String[readCount(buffer, 4, path)];
+    byte[] encoded = new byte[0];
+    for (int i = 0; i < strings.length; i++) {
+      int stringLength = readCount(buffer, 1, path);
+      if (encoded.length < stringLength) {
+        encoded = new byte[stringLength];
+      }
+      buffer.get(encoded, 0, stringLength);
+      strings[i] = new String(encoded, 0, stringLength, Charsets.UTF_8);
+    }
+
+    // each privilege set has its size
+    int privilegeSetCount = readCount(buffer, 4, path);
+    List<Set<String>> privilegeSets = new ArrayList<Set<String>>(privilegeSetCount);
+    for (int i = 0; i < privilegeSetCount; i++) {
+      int size = readCount(buffer, 4, path);
+      ImmutableSet.Builder<String> privileges = ImmutableSet.builder();
+      for (int j = 0; j < size; j++) {
+        privileges.add(strings[buffer.getInt()]);
+      }
+      privilegeSets.add(privileges.build());
+    }
+
+    Table<String, String, Set<String>> groupRolePrivilegeTable = HashBasedTable.create();
+    // each group has its id and role count, each role its id and privilege set id
+    int groupCount = readCount(buffer, 8, path);
+    for (int i = 0; i < groupCount; i++) {
+      String group = strings[buffer.getInt()];
+      int roleCount = readCount(buffer, 8, path);
+      for (int j = 0; j < roleCount; j++) {
+        String role = strings[buffer.getInt()];
+        groupRolePrivilegeTable.put(group, role, privilegeSets.get(buffer.getInt()));
+      }
+    }
+    if (buffer.hasRemaining()) {
+      throw new IOException("Compiled policy file " + path + " has "
+          + buffer.remaining() + " unexpected trailing bytes");
+    }
+    return groupRolePrivilegeTable;
+  }
+
+  /**
+   * Read the number of entries that follow, which can't be negative nor more
+   * than the remaining bytes hold.
+   */
+  private static int readCount(ByteBuffer buffer, int entryLength, Path path)
+      throws IOException {
+    int count = buffer.getInt();
+    if (count < 0 || count > buffer.remaining() / entryLength) {
+      throw new IOException("Compiled policy file " + path + " is corrupt, found a count of "
+          + count + " with " + buffer.remaining() + " bytes left");
+    }
+    return count;
+  }
+}
@@ -20,10 +20,20 @@ import static org.apache.sentry.core.common.utils.SentryConstants.ROLE_SPLITTER;
 
 import java.io.IOException;
 import java.net.URI;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 import javax.annotation.Nullable;
 
@@ -34,6 +44,7 @@ import org.apache.sentry.core.common.ActiveRoleSet;
 import org.apache.sentry.core.common.Authorizable;
 import org.apache.sentry.core.common.exception.SentryConfigurationException;
 import org.apache.sentry.core.common.utils.PolicyFiles;
+import org.apache.sentry.core.common.utils.SentryConstants;
 import org.apache.sentry.core.common.validator.PrivilegeValidator;
 import org.apache.sentry.core.common.validator.PrivilegeValidatorContext;
 import org.apache.sentry.core.common.utils.PolicyFileConstants;
@@ -59,18 +70,48 @@ import com.google.common.collect.Multimap;
 import com.google.common.collect.Sets;
 import com.google.common.collect.Table;
 import com.google.common.collect.Table.Cell;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 
 public class SimpleFileProviderBackend extends CacheProvider implements ProviderBackend {
 
   private static final Logger LOGGER = LoggerFactory
       .getLogger(SimpleFileProviderBackend.class);
 
+  /**
+   * Number of threads reading the per-db policy files, 1 reads them one
+   * after the other.
+   */
+  public static final String PER_DB_POLICY_LOAD_THREADS = "sentry.provider.file.perdb.load.threads";
+  public static final int PER_DB_POLICY_LOAD_THREADS_DEFAULT = 1;
+  /**
+   * Read a per-db policy file on the first request for its database, instead
+   * of reading every per-db policy file when the backend is initialized. A
+   * per-db policy file only grants privileges on its database, so the other
+   * files are read by the requests which don't name a database only.
+   */
+  public static final String PER_DB_POLICY_LOAD_LAZY = "sentry.provider.file.perdb.load.lazy";
+  public static final boolean PER_DB_POLICY_LOAD_LAZY_DEFAULT = false;
+
+  private static final String DATABASE_TYPE = "db";
+
   private final FileSystem fileSystem;
   private final Path resourcePath;
   private final Configuration conf;
   private final List<String> configErrors;
   private final List<String> configWarnings;
   private TableCache cache;
+  /**
+   * The table is replaced, never modified, once published, so that the
+   * CacheProvider sees a new version when lazily read policies are merged.
+   */
+  private volatile Table<String, String, Set<String>> groupRolePrivilegeTable;
+  private final int perDbLoadThreads;
+  private final boolean perDbLoadLazy;
+  // the per-db policy files not read yet by database, guarded by this
+  private final Map<String, Path> pendingPerDbPolicies = new LinkedHashMap<String, Path>();
+  private volatile boolean perDbPoliciesPending;
+  private final AtomicLong perDbPoliciesLoaded = new AtomicLong();
+  private final AtomicLong perDbPolicyLoadNanos = new AtomicLong();
   /**
    * Each group, role, and privilege in groupRolePrivilegeTable is
    * interned using a weak interner so that we only store each string
@@ -90,12 +131,16 @@ public class SimpleFileProviderBackend extends CacheProvider implements Provider
     this.resourcePath = resourcePath;
     this.fileSystem = resourcePath.getFileSystem(conf);
     this.conf = conf;
-    this.configErrors = Lists.newArrayList();
-    this.configWarnings = Lists.newArrayList();
+    // the per-db policy files may be parsed concurrently
+    this.configErrors = Collections.synchronizedList(new ArrayList<String>());
+    this.configWarnings = Collections.synchronizedList(new ArrayList<String>());
     this.validators = ImmutableList.of();
     this.allowPerDatabaseSection = true;
     this.initialized = false;
     this.stringInterner = Interners.newWeakInterner();
+    this.perDbLoadThreads = Math.max(1, conf.getInt(PER_DB_POLICY_LOAD_THREADS,
+        PER_DB_POLICY_LOAD_THREADS_DEFAULT));
+    this.perDbLoadLazy = conf.getBoolean(PER_DB_POLICY_LOAD_LAZY, PER_DB_POLICY_LOAD_LAZY_DEFAULT);
   }
 
   /**
@@ -108,11 +153,11 @@ public class SimpleFileProviderBackend extends CacheProvider implements Provider
     }
     this.validators = context.getValidators();
     this.allowPerDatabaseSection = context.isAllowPerDatabase();
-    final Table<String, String, Set<String>> table = parse();
+    this.groupRolePrivilegeTable = parse();
     this.cache = new TableCache() {
       @Override
       public Table<String, String, Set<String>> getCache() {
-        return table;
+        return groupRolePrivilegeTable;
       }
     };
     super.initialize(cache);
@@ -126,6 +171,37 @@ public class SimpleFileProviderBackend extends CacheProvider implements Provider
     return getPrivileges(groups, roleSet, authorizableHierarchy);
   }
 
+  @Override
+  public ImmutableSet<String> getPrivileges(Set<String> groups, ActiveRoleSet roleSet,
+      Authorizable... authorizableHierarchy) {
+    if (perDbPoliciesPending) {
+      loadPendingPerDbPolicies(getDatabase(authorizableHierarchy));
+    }
+    return super.getPrivileges(groups, roleSet, authorizableHierarchy);
+  }
+
+  @Override
+  public ImmutableSet<String> getRoles(Set<String> groups, ActiveRoleSet roleSet) {
+    if (perDbPoliciesPending) {
+      loadPendingPerDbPolicies(null);
+    }
+    return super.getRoles(groups, roleSet);
+  }
+
+  /**
+   * @return the number of per-db policy files read so far
+   */
+  public long getPerDbPoliciesLoaded() {
+    return perDbPoliciesLoaded.get();
+  }
+
+  /**
+   * @return the time spent reading the per-db policy files so far, in milliseconds
+   */
+  public long getPerDbPolicyLoadTimeMs() {
+    return TimeUnit.NANOSECONDS.toMillis(perDbPolicyLoadNanos.get());
+  }
+
   @Override
   public void close() {
     // SENTRY-847 will use HiveAuthBinding again, so groupRolePrivilegeTable shouldn't clear itself
@@ -136,6 +212,9 @@ public class SimpleFileProviderBackend extends CacheProvider implements Provider
     if (!initialized) {
       throw new IllegalStateException("Backend has not been properly initialized");
     }
+    if (perDbPoliciesPending) {
+      loadPendingPerDbPolicies(null);
+    }
     List<String> localConfigErrors = Lists.newArrayList(configErrors);
     List<String> localConfigWarnings = Lists.newArrayList(configWarnings);
     if (strictValidation && !localConfigWarnings.isEmpty() || !localConfigErrors.isEmpty()) {
@@ -157,6 +236,9 @@ public class SimpleFileProviderBackend extends CacheProvider implements Provider
     LOGGER.info("Filesystem: " + fileSystem.getUri());
     try {
       try {
+        if (CompiledPolicyFile.isCompiled(fileSystem, resourcePath)) {
+          return readCompiledPolicy();
+        }
         ini = PolicyFiles.loadFromPath(fileSystem, resourcePath);
       } catch (IOException e) {
         configErrors.add("Failed to read policy file " + resourcePath +
@@ -188,32 +270,24 @@ public class SimpleFileProviderBackend extends CacheProvider implements Provider
         String msg = "Per-db policy file is not expected in this configuration.";
         throw new SentryConfigurationException(msg);
       } else {
+        Map<String, Path> perDbPolicies = new LinkedHashMap<String, Path>();
         for(Map.Entry<String, String> entry : filesSection.entrySet()) {
           String database = Strings.nullToEmpty(entry.getKey()).trim().toLowerCase();
           Path perDbPolicy = new Path(Strings.nullToEmpty(entry.getValue()).trim());
           if(isRelative(perDbPolicy)) {
             perDbPolicy = new Path(resourcePath.getParent(), perDbPolicy);
           }
-          try {
-            LOGGER.debug("Parsing " + perDbPolicy);
-            Ini perDbIni = PolicyFiles.loadFromPath(perDbPolicy.getFileSystem(conf), perDbPolicy);
-            if(perDbIni.containsKey(PolicyFileConstants.USERS)) {
-              configErrors.add("Per-db policy file cannot contain " + PolicyFileConstants.USERS + " section in " +  perDbPolicy);
-              throw new SentryConfigurationException("Per-db policy files cannot contain " + PolicyFileConstants.USERS + " section");
-            }
-            if(perDbIni.containsKey(PolicyFileConstants.DATABASES)) {
-              configErrors.add("Per-db policy files cannot contain " + PolicyFileConstants.DATABASES
-                  + " section in " + perDbPolicy);
-              throw new SentryConfigurationException("Per-db policy files cannot contain " + PolicyFileConstants.DATABASES + " section");
-            }
-            parseIni(database, perDbIni, validators, perDbPolicy, groupRolePrivilegeTableTemp);
-            mergeResult(groupRolePrivilegeTable, groupRolePrivilegeTableTemp);
-            groupRolePrivilegeTableTemp.clear();
-          } catch (Exception e) {
-            configErrors.add("Failed to read per-DB policy file " + perDbPolicy +
-               " Error: " + e.getMessage());
-            LOGGER.error("Error processing key " + entry.getKey() + ", skipping " + entry.getValue(), e);
+          perDbPolicies.put(database, perDbPolicy);
+        }
+        if (perDbLoadLazy) {
+          LOGGER.info("Deferring " + perDbPolicies.size() + " per-db policy files until their "
+              + "databases are accessed");
+          synchronized (this) {
+            pendingPerDbPolicies.putAll(perDbPolicies);
+            perDbPoliciesPending = !pendingPerDbPolicies.isEmpty();
           }
+        } else {
+          mergeResult(groupRolePrivilegeTable, parsePerDbPolicies(perDbPolicies));
         }
       }
     } catch (Exception e) {
@@ -224,6 +298,136 @@ public class SimpleFileProviderBackend extends CacheProvider implements Provider
     return groupRolePrivilegeTable;
   }
 
+  /**
+   * Read a policy file compiled by the config tool. Its policy was validated
+   * and its per-db policy files merged when it was compiled.
+   */
+  private Table<String, String, Set<String>> readCompiledPolicy() throws IOException {
+    long start = System.nanoTime();
+    Table<String, String, Set<String>> groupRolePrivilegeTable =
+        CompiledPolicyFile.read(fileSystem, resourcePath);
+    LOGGER.info("Read compiled policy file " + resourcePath + " with "
+        + groupRolePrivilegeTable.size() + " group roles in "
+        + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) + " ms");
+    return groupRolePrivilegeTable;
+  }
+
+  /**
+   * Parse the per-db policy files, on a bounded pool of threads when more than
+   * one thread is configured. The results are merged in the order of the files.
+   */
+  private Table<String, String, Set<String>> parsePerDbPolicies(Map<String, Path> perDbPolicies) {
+    Table<String, String, Set<String>> groupRolePrivilegeTable = HashBasedTable.create();
+    if (perDbPolicies.isEmpty()) {
+      return groupRolePrivilegeTable;
+    }
+    long start = System.nanoTime();
+    int threads = Math.min(perDbLoadThreads, perDbPolicies.size());
+    if (threads <= 1) {
+      for (Map.Entry<String, Path> entry : perDbPolicies.entrySet()) {
+        mergeResult(groupRolePrivilegeTable, parsePerDbPolicy(entry.getKey(), entry.getValue()));
+      }
+    } else {
+      ExecutorService executor = Executors.newFixedThreadPool(threads,
+          new ThreadFactoryBuilder().setDaemon(true)
+              .setNameFormat("sentry-policy-file-loader-%d").build());
+      try {
+        List<Future<Table<String, String, Set<String>>>> results = Lists.newArrayList();
+        for (final Map.Entry<String, Path> entry : perDbPolicies.entrySet()) {
+          results.add(executor.submit(new Callable<Table<String, String, Set<String>>>() {
+            @Override
+            public Table<String, String, Set<String>> call() {
+              return parsePerDbPolicy(entry.getKey(), entry.getValue());
+            }
+          }));
+        }
+        for (Future<Table<String, String, Set<String>>> result : results) {
+          mergeResult(groupRolePrivilegeTable, result.get());
+        }
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new SentryConfigurationException("Interrupted while reading per-DB policy files", e);
+      } catch (ExecutionException e) {
+        throw new SentryConfigurationException("Error reading per-DB policy files", e.getCause());
+      } finally {
+        executor.shutdownNow();
+      }
+    }
+    long elapsed = System.nanoTime() - start;
+    perDbPoliciesLoaded.addAndGet(perDbPolicies.size());
+    perDbPolicyLoadNanos.addAndGet(elapsed);
+    LOGGER.info("Read " + perDbPolicies.size() + " per-db policy files with " + threads
+        + " threads in " + TimeUnit.NANOSECONDS.toMillis(elapsed) + " ms");
+    return groupRolePrivilegeTable;
+  }
+
+  private Table<String, String, Set<String>> parsePerDbPolicy(String database, Path perDbPolicy) {
+    Table<String, String, Set<String>> groupRolePrivilegeTable = HashBasedTable.create();
+    try {
+      LOGGER.debug("Parsing " + perDbPolicy);
+      Ini perDbIni = PolicyFiles.loadFromPath(perDbPolicy.getFileSystem(conf), perDbPolicy);
+      if(perDbIni.containsKey(PolicyFileConstants.USERS)) {
+        configErrors.add("Per-db policy file cannot contain " + PolicyFileConstants.USERS + " section in " +  perDbPolicy);
+        throw new SentryConfigurationException("Per-db policy files cannot contain " + PolicyFileConstants.USERS + " section");
+      }
+      if(perDbIni.containsKey(PolicyFileConstants.DATABASES)) {
+        configErrors.add("Per-db policy files cannot contain " + PolicyFileConstants.DATABASES
+            + " section in " + perDbPolicy);
+        throw new SentryConfigurationException("Per-db policy files cannot contain " + PolicyFileConstants.DATABASES + " section");
+      }
+      parseIni(database, perDbIni, validators, perDbPolicy, groupRolePrivilegeTable);
+    } catch (Exception e) {
+      configErrors.add("Failed to read per-DB policy file " + perDbPolicy +
+         " Error: " + e.getMessage());
+      LOGGER.error("Error processing key " + database + ", skipping " + perDbPolicy, e);
+      groupRolePrivilegeTable.clear();
+    }
+    return groupRolePrivilegeTable;
+  }
+
+  /**
+   * Read the pending per-db policy file of the database, or all of them when
+   * the database is not known, and publish a new table including them.
+   */
+  private synchronized void loadPendingPerDbPolicies(@Nullable String database) {
+    Map<String, Path> perDbPolicies = new LinkedHashMap<String, Path>();
+    if (database == null) {
+      perDbPolicies.putAll(pendingPerDbPolicies);
+    } else if (pendingPerDbPolicies.containsKey(database)) {
+      perDbPolicies.put(database, pendingPerDbPolicies.get(database));
+    }
+    if (perDbPolicies.isEmpty()) {
+      return;
+    }
+    Table<String, String, Set<String>> table = HashBasedTable.create(groupRolePrivilegeTable);
+    mergeResult(table, parsePerDbPolicies(perDbPolicies));
+    groupRolePrivilegeTable = table;
+    pendingPerDbPolicies.keySet().removeAll(perDbPolicies.keySet());
+    perDbPoliciesPending = !pendingPerDbPolicies.isEmpty();
+  }
+
+  /**
+   * @return the database of the hierarchy, or null if the request may match
+   * privileges of any database
+   */
+  private static String getDatabase(Authorizable... authorizableHierarchy) {
+    if (authorizableHierarchy == null) {
+      return null;
+    }
+    for (Authorizable authorizable : authorizableHierarchy) {
+      if (authorizable != null && DATABASE_TYPE.equalsIgnoreCase(authorizable.getTypeName())) {
+        String name = Strings.nullToEmpty(authorizable.getName()).trim();
+        if (name.isEmpty() || SentryConstants.RESOURCE_WILDCARD_VALUE.equals(name)
+            || SentryConstants.RESOURCE_WILDCARD_VALUE_ALL.equalsIgnoreCase(name)
+            || SentryConstants.RESOURCE_WILDCARD_VALUE_SOME.equals(name)) {
+          return null;
+        }
+        return name.toLowerCase();
+      }
+    }
+    return null;
+  }
+
   /**
    * Relative for our purposes is no scheme, no authority
    * and a non-absolute path portion.
@@ -238,12 +442,12 @@ public class SimpleFileProviderBackend extends CacheProvider implements Provider
     for (Cell<String, String, Set<String>> cell : groupRolePrivilegeTableTemp.cellSet()) {
       String groupName = cell.getRowKey();
       String roleName = cell.getColumnKey();
+      // the sets of the table may be shared with a published table, they are replaced
       Set<String> privileges = groupRolePrivilegeTable.get(groupName, roleName);
-      if (privileges == null) {
-        privileges = new HashSet<String>();
-        groupRolePrivilegeTable.put(groupName, roleName, privileges);
-      }
-      privileges.addAll(cell.getValue());
+      Set<String> merged = privileges == null ? new HashSet<String>()
+          : new HashSet<String>(privileges);
+      merged.addAll(cell.getValue());
+      groupRolePrivilegeTable.put(groupName, roleName, merged);
     }
   }
 
@@ -338,6 +542,9 @@ public class SimpleFileProviderBackend extends CacheProvider implements Provider
    * @return backing table of cache.
    */
   public Table<String, String, Set<String>> getGroupRolePrivilegeTable() {
+    if (perDbPoliciesPending) {
+      loadPendingPerDbPolicies(null);
+    }
     return this.cache.getCache();
   }
 }
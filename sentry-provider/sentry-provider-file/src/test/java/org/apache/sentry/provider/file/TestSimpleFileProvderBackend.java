@@ -17,22 +17,31 @@
  * under the License.
  */
 package org.apache.sentry.provider.file;
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.Arrays;
 import java.util.HashSet;
 
 import org.apache.commons.io.FileUtils;
 import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
 import org.apache.sentry.core.common.ActiveRoleSet;
+import org.apache.sentry.core.common.Authorizable;
+import org.apache.sentry.core.common.exception.SentryConfigurationException;
 import org.apache.sentry.core.common.utils.PolicyFiles;
 import org.apache.sentry.provider.common.ProviderBackendContext;
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
 
+import com.google.common.base.Charsets;
 import com.google.common.collect.Sets;
 import com.google.common.io.Files;
 
@@ -120,4 +129,137 @@ public class TestSimpleFileProvderBackend {
         backend.getPrivileges(Sets.newHashSet("manager"),
             new ActiveRoleSet(Sets.newHashSet("junior_analyst_role", "functions"))));
   }
+
+  @Test
+  public void testPerDbPoliciesReadInParallel() throws Exception {
+    Configuration conf = new Configuration();
+    conf.setInt(SimpleFileProviderBackend.PER_DB_POLICY_LOAD_THREADS, 4);
+    backend = createPerDbBackend(conf);
+    backend.initialize(context);
+    assertEquals(2, backend.getPerDbPoliciesLoaded());
+    assertEquals(Sets.newHashSet("server=server1->functions", "server=server1->db=db1",
+        "server=server1->db=db2"),
+        backend.getPrivileges(Sets.newHashSet("group1"), ActiveRoleSet.ALL));
+  }
+
+  @Test
+  public void testPerDbPoliciesReadLazily() throws Exception {
+    Configuration conf = new Configuration();
+    conf.setBoolean(SimpleFileProviderBackend.PER_DB_POLICY_LOAD_LAZY, true);
+    backend = createPerDbBackend(conf);
+    backend.initialize(context);
+    assertEquals(0, backend.getPerDbPoliciesLoaded());
+    // only the policy file of the requested database is read
+    assertEquals(Sets.newHashSet("server=server1->functions", "server=server1->db=db1"),
+        backend.getPrivileges(Sets.newHashSet("group1"), ActiveRoleSet.ALL,
+            authorizable("Server", "server1"), authorizable("Db", "DB1")));
+    assertEquals(1, backend.getPerDbPoliciesLoaded());
+    // a request without database reads the others
+    assertEquals(Sets.newHashSet("server=server1->functions", "server=server1->db=db1",
+        "server=server1->db=db2"),
+        backend.getPrivileges(Sets.newHashSet("group1"), ActiveRoleSet.ALL));
+    assertEquals(2, backend.getPerDbPoliciesLoaded());
+  }
+
+  @Test
+  public void testCompiledPolicy() throws Exception {
+    Configuration conf = new Configuration();
+    backend = createPerDbBackend(conf);
+    backend.initialize(context);
+    File compiledPolicy = new File(baseDir, "policy.bin");
+    Path compiledPolicyPath = new Path(compiledPolicy.toString());
+    FileSystem fileSystem = compiledPolicyPath.getFileSystem(conf);
+    CompiledPolicyFile.write(fileSystem, compiledPolicyPath, backend.getGroupRolePrivilegeTable());
+    assertTrue(CompiledPolicyFile.isCompiled(fileSystem, compiledPolicyPath));
+    assertFalse(CompiledPolicyFile.isCompiled(fileSystem,
+        new Path(new File(baseDir, resourcePath).toString())));
+    // the same policy compiles to the same bytes
+    byte[] compiled = Files.toByteArray(compiledPolicy);
+    CompiledPolicyFile.write(fileSystem, compiledPolicyPath, backend.getGroupRolePrivilegeTable());
+    assertArrayEquals(compiled, Files.toByteArray(compiledPolicy));
+
+    SimpleFileProviderBackend compiledBackend = new SimpleFileProviderBackend(conf,
+        compiledPolicy.toString());
+    compiledBackend.initialize(context);
+    compiledBackend.validatePolicy(true);
+    assertEquals(backend.getGroupRolePrivilegeTable(),
+        compiledBackend.getGroupRolePrivilegeTable());
+    assertEquals(Sets.newHashSet("server=server1->functions", "server=server1->db=db1",
+        "server=server1->db=db2"),
+        compiledBackend.getPrivileges(Sets.newHashSet("group1"), ActiveRoleSet.ALL));
+  }
+
+  @Test
+  public void testTruncatedCompiledPolicy() throws Exception {
+    Configuration conf = new Configuration();
+    backend = createPerDbBackend(conf);
+    backend.initialize(context);
+    File compiledPolicy = new File(baseDir, "policy.bin");
+    Path compiledPolicyPath = new Path(compiledPolicy.toString());
+    CompiledPolicyFile.write(compiledPolicyPath.getFileSystem(conf), compiledPolicyPath,
+        backend.getGroupRolePrivilegeTable());
+    byte[] compiled = Files.toByteArray(compiledPolicy);
+    Files.write(Arrays.copyOf(compiled, compiled.length - 1), compiledPolicy);
+
+    SimpleFileProviderBackend compiledBackend = new SimpleFileProviderBackend(conf,
+        compiledPolicy.toString());
+    compiledBackend.initialize(context);
+    try {
+      compiledBackend.validatePolicy(false);
+      fail("Expected SentryConfigurationException for a truncated compiled policy");
+    } catch (SentryConfigurationException e) {
+      // expected
+    }
+  }
+
+  @Test
+  public void testCorruptCompiledPolicy() throws Exception {
+    Configuration conf = new Configuration();
+    backend = createPerDbBackend(conf);
+    backend.initialize(context);
+    File compiledPolicy = new File(baseDir, "policy.bin");
+    Path compiledPolicyPath = new Path(compiledPolicy.toString());
+    CompiledPolicyFile.write(compiledPolicyPath.getFileSystem(conf), compiledPolicyPath,
+        backend.getGroupRolePrivilegeTable());
+    byte[] compiled = Files.toByteArray(compiledPolicy);
+    // a negative string count right after the header
+    Arrays.fill(compiled, 16, 20, (byte) 0xff);
+    Files.write(compiled, compiledPolicy);
+
+    SimpleFileProviderBackend compiledBackend = new SimpleFileProviderBackend(conf,
+        compiledPolicy.toString());
+    compiledBackend.initialize(context);
+    try {
+      compiledBackend.validatePolicy(false);
+      fail("Expected SentryConfigurationException for a corrupt compiled policy");
+    } catch (SentryConfigurationException e) {
+      // expected
+    }
+  }
+
+  private SimpleFileProviderBackend createPerDbBackend(Configuration conf) throws IOException {
+    File globalPolicy = new File(baseDir, "global.ini");
+    Files.write("[groups]\ngroup1 = functions\n[roles]\nfunctions = server=server1->functions\n"
+        + "[databases]\ndb1 = db1.ini\ndb2 = db2.ini\n", globalPolicy, Charsets.UTF_8);
+    for (String database : new String[] {"db1", "db2"}) {
+      Files.write("[groups]\ngroup1 = " + database + "_role\n[roles]\n" + database
+          + "_role = server=server1->db=" + database + "\n",
+          new File(baseDir, database + ".ini"), Charsets.UTF_8);
+    }
+    return new SimpleFileProviderBackend(conf, globalPolicy.toString());
+  }
+
+  private static Authorizable authorizable(final String typeName, final String name) {
+    return new Authorizable() {
+      @Override
+      public String getName() {
+        return name;
+      }
+
+      @Override
+      public String getTypeName() {
+        return typeName;
+      }
+    };
+  }
 }
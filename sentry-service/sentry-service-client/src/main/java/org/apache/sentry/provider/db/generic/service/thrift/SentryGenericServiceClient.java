@@ -192,5 +192,33 @@ public interface SentryGenericServiceClient {
       String serviceName, String requestorUserName, Set<String> authorizablesSet,
       Set<String> groups, ActiveRoleSet roleSet) throws SentryUserException;
 
+  /**
+   * Gets the snapshot of the policy of a service using the Sentry service: every role
+   * with its groups and its privileges on the service. The roles are requested page by
+   * page, instead of one request per role.
+   * @param requestorUserName: user on whose behalf the request is issued
+   * @param component: The request is issued to which component
+   * @param serviceName: The privileges belong to which service
+   * @return the roles with their groups, the privileges of each role and the change
+   *         sequence of the snapshot
+   * @throws SentryUserException
+   */
+  TListSentryPolicySnapshotResponse listPolicySnapshot(String requestorUserName,
+      String component, String serviceName) throws SentryUserException;
+
+  /**
+   * Gets the roles of a service changed since a previous snapshot or change list.
+   * @param requestorUserName: user on whose behalf the request is issued
+   * @param component: The request is issued to which component
+   * @param serviceName: The privileges belong to which service
+   * @param sequence: The change sequence of the previous snapshot or change list
+   * @return the names of the changed roles, the ones which still exist with their groups,
+   *         their privileges and the new change sequence. The changed roles are not set
+   *         when the changes are unknown and a snapshot must be read instead.
+   * @throws SentryUserException
+   */
+  TListSentryPolicyChangesResponse listPolicyChanges(String requestorUserName,
+      String component, String serviceName, long sequence) throws SentryUserException;
+
   void close();
 }
@@ -581,6 +581,85 @@ public class SentryGenericServiceClientDefaultImpl implements SentryGenericServi
     }
   }
 
+  /**
+   * Gets the snapshot of the policy of a service using the Sentry service. The roles are
+   * requested page by page, each page resuming after the last role of the previous one.
+   * The pages are merged into one response carrying the sequence of the first page, so
+   * a change made while paging is listed again by the next change list.
+   * @param requestorUserName: user on whose behalf the request is issued
+   * @param component: The request is issued to which component
+   * @param serviceName: The privileges belong to which service
+   * @return the roles with their groups, the privileges of each role and the change
+   *         sequence of the snapshot
+   * @throws SentryUserException
+   */
+  public synchronized TListSentryPolicySnapshotResponse listPolicySnapshot(
+      String requestorUserName, String component, String serviceName)
+      throws SentryUserException {
+    TListSentryPolicySnapshotResponse snapshot = null;
+    String lastRoleName = null;
+    do {
+      TListSentryPolicySnapshotRequest request = new TListSentryPolicySnapshotRequest();
+      request.setProtocol_version(sentry_common_serviceConstants.TSENTRY_SERVICE_V2);
+      request.setRequestorUserName(requestorUserName);
+      request.setComponent(component);
+      request.setServiceName(serviceName);
+      request.setLastRoleName(lastRoleName);
+      TListSentryPolicySnapshotResponse response;
+      try {
+        response = client.list_sentry_policy_snapshot(request);
+        Status.throwIfNotOk(response.getStatus());
+      } catch (TException e) {
+        throw new SentryUserException(THRIFT_EXCEPTION_MESSAGE, e);
+      }
+      if (snapshot == null) {
+        snapshot = new TListSentryPolicySnapshotResponse(response.getStatus());
+        snapshot.setSequence(response.getSequence());
+        snapshot.setRoles(new HashSet<TSentryRole>());
+        snapshot.setPrivilegeMap(new TSentryPrivilegeMap(
+            new HashMap<String, Set<TSentryPrivilege>>()));
+      }
+      if (response.isSetRoles()) {
+        snapshot.getRoles().addAll(response.getRoles());
+      }
+      if (response.isSetPrivilegeMap()) {
+        snapshot.getPrivilegeMap().getPrivilegeMap().putAll(
+            response.getPrivilegeMap().getPrivilegeMap());
+      }
+      lastRoleName = response.getLastRoleName();
+    } while (lastRoleName != null);
+    return snapshot;
+  }
+
+  /**
+   * Gets the roles of a service changed since a previous snapshot or change list.
+   * @param requestorUserName: user on whose behalf the request is issued
+   * @param component: The request is issued to which component
+   * @param serviceName: The privileges belong to which service
+   * @param sequence: The change sequence of the previous snapshot or change list
+   * @return the names of the changed roles, the ones which still exist with their groups,
+   *         their privileges and the new change sequence. The changed roles are not set
+   *         when the changes are unknown and a snapshot must be read instead.
+   * @throws SentryUserException
+   */
+  public synchronized TListSentryPolicyChangesResponse listPolicyChanges(
+      String requestorUserName, String component, String serviceName, long sequence)
+      throws SentryUserException {
+    TListSentryPolicyChangesRequest request = new TListSentryPolicyChangesRequest();
+    request.setProtocol_version(sentry_common_serviceConstants.TSENTRY_SERVICE_V2);
+    request.setRequestorUserName(requestorUserName);
+    request.setComponent(component);
+    request.setServiceName(serviceName);
+    request.setSequence(sequence);
+    try {
+      TListSentryPolicyChangesResponse response = client.list_sentry_policy_changes(request);
+      Status.throwIfNotOk(response.getStatus());
+      return response;
+    } catch (TException e) {
+      throw new SentryUserException(THRIFT_EXCEPTION_MESSAGE, e);
+    }
+  }
+
   @Override
   public void close() {
     if (transport != null) {
@@ -67,6 +67,29 @@ public class ServiceConstants {
     public static final int RPC_MAX_THREADS_DEFAULT = 500;
     public static final String RPC_MIN_THREADS = "sentry.service.server-min-threads";
     public static final int RPC_MIN_THREADS_DEFAULT = 10;
+    /**
+     * The thrift server: "threadpool" serves each connection on a thread of its
+     * own, between the min and max threads, "selector" serves the requests of all
+     * the connections with a pool of worker threads, the idle connections being
+     * watched by the selector threads.
+     */
+    public static final String RPC_SERVER_TYPE = "sentry.service.server.rpc-server-type";
+    public static final String RPC_SERVER_TYPE_THREAD_POOL = "threadpool";
+    public static final String RPC_SERVER_TYPE_SELECTOR = "selector";
+    public static final String RPC_SERVER_TYPE_DEFAULT = RPC_SERVER_TYPE_THREAD_POOL;
+    public static final String RPC_SELECTOR_THREADS = "sentry.service.server.rpc-selector-threads";
+    public static final int RPC_SELECTOR_THREADS_DEFAULT = 2;
+    public static final String RPC_WORKER_THREADS = "sentry.service.server.rpc-worker-threads";
+    public static final int RPC_WORKER_THREADS_DEFAULT = 64;
+    // the requests waiting for a worker thread, a connection is closed when it's full
+    public static final String RPC_WORKER_QUEUE_SIZE = "sentry.service.server.rpc-worker-queue-size";
+    public static final int RPC_WORKER_QUEUE_SIZE_DEFAULT = 1000;
+    // a worker closes a connection which sends nothing for this long while it reads a request
+    public static final String RPC_READ_TIMEOUT_MS = "sentry.service.server.rpc-read-timeout-ms";
+    public static final int RPC_READ_TIMEOUT_MS_DEFAULT = 60000;
+    // the time a new connection has to complete its handshake, the SASL one with kerberos
+    public static final String RPC_HANDSHAKE_TIMEOUT_MS = "sentry.service.server.rpc-handshake-timeout-ms";
+    public static final int RPC_HANDSHAKE_TIMEOUT_MS_DEFAULT = 30000;
     public static final String ALLOW_CONNECT = "sentry.service.allow.connect";
 
     public static final String SENTRY_POLICY_STORE_PLUGINS = "sentry.policy.store.plugins";
@@ -94,6 +117,17 @@ public class ServiceConstants {
     public static final String SENTRY_STORE_TRANSACTION_RETRY_WAIT_TIME_MILLIS =
         "sentry.store.transaction.retry.wait.time.millis";
     public static final int SENTRY_STORE_TRANSACTION_RETRY_WAIT_TIME_MILLIS_DEFAULT = 500;
+    // Commit the write transactions submitted within a short window together,
+    // at most the given number of them per database transaction
+    public static final String SENTRY_STORE_GROUP_COMMIT_ENABLED =
+        "sentry.store.group.commit.enabled";
+    public static final boolean SENTRY_STORE_GROUP_COMMIT_ENABLED_DEFAULT = false;
+    public static final String SENTRY_STORE_GROUP_COMMIT_WINDOW_MILLIS =
+        "sentry.store.group.commit.window.millis";
+    public static final long SENTRY_STORE_GROUP_COMMIT_WINDOW_MILLIS_DEFAULT = 5;
+    public static final String SENTRY_STORE_GROUP_COMMIT_MAX_SIZE =
+        "sentry.store.group.commit.max.size";
+    public static final int SENTRY_STORE_GROUP_COMMIT_MAX_SIZE_DEFAULT = 64;
 
     public static final String JAVAX_JDO_URL = "javax.jdo.option.ConnectionURL";
     public static final String JAVAX_JDO_USER = "javax.jdo.option.ConnectionUserName";
@@ -102,6 +136,7 @@ public class ServiceConstants {
 
     public static final String DATANUCLEUS_ISOLATION_LEVEL = "datanucleus.transactionIsolation";
     public static final String DATANUCLEUS_REPEATABLE_READ = "repeatable-read";
+    public static final String DATANUCLEUS_POOL_MAX_STATEMENTS = "datanucleus.connectionPool.maxStatements";
 
     public static final String SENTRY_DB_PROPERTY_PREFIX = "sentry.";
     public static final String SENTRY_JAVAX_JDO_PROPERTY_PREFIX = SENTRY_DB_PROPERTY_PREFIX + "javax.jdo";
@@ -121,6 +156,19 @@ public class ServiceConstants {
 
     public static final String SENTRY_STORE_ORPHANED_PRIVILEGE_REMOVAL = "sentry.store.orphaned.privilege.removal";
     public static final String SENTRY_STORE_ORPHANED_PRIVILEGE_REMOVAL_DEFAULT = "false";
+    // the periodic sweep of the orphaned privileges which the grants, revokes
+    // and role drops didn't delete themselves
+    public static final String SENTRY_STORE_ORPHANED_PRIVILEGE_REMOVAL_INTERVAL_MILLIS =
+        "sentry.store.orphaned.privilege.removal.interval.millis";
+    public static final long SENTRY_STORE_ORPHANED_PRIVILEGE_REMOVAL_INTERVAL_MILLIS_DEFAULT =
+        6 * 60 * 60 * 1000L;
+    public static final String SENTRY_STORE_ORPHANED_PRIVILEGE_REMOVAL_BATCH_SIZE =
+        "sentry.store.orphaned.privilege.removal.batch.size";
+    public static final int SENTRY_STORE_ORPHANED_PRIVILEGE_REMOVAL_BATCH_SIZE_DEFAULT = 500;
+    public static final String SENTRY_STORE_ORPHANED_PRIVILEGE_REMOVAL_BATCH_PAUSE_MILLIS =
+        "sentry.store.orphaned.privilege.removal.batch.pause.millis";
+    public static final long SENTRY_STORE_ORPHANED_PRIVILEGE_REMOVAL_BATCH_PAUSE_MILLIS_DEFAULT =
+        1000;
     public static final String SENTRY_HA_ENABLED = "sentry.ha.enabled";
     public static final boolean SENTRY_HA_ENABLED_DEFAULT = false;
     public static final String SENTRY_HA_ZK_PROPERTY_PREFIX = "sentry.ha.zookeeper.";
@@ -201,6 +249,29 @@ public class ServiceConstants {
     public static final String SENTRY_POLICY_SERVER_THRIFT_MAX_MESSAGE_SIZE = "sentry.policy.server.thrift.max.message.size";
     public static final long SENTRY_POLICY_SERVER_THRIFT_MAX_MESSAGE_SIZE_DEFAULT = 100 * 1024 * 1024;
 
+    // max number of roles in one page of the policy snapshot of the generic service
+    public static final String SENTRY_GENERIC_POLICY_SNAPSHOT_PAGE_SIZE = "sentry.generic.policy.snapshot.page.size";
+    public static final int SENTRY_GENERIC_POLICY_SNAPSHOT_PAGE_SIZE_DEFAULT = 1000;
+
+    // max number of policy changes remembered for the incremental refresh of the clients
+    public static final String SENTRY_POLICY_CHANGE_LOG_SIZE = "sentry.policy.change.log.size";
+    public static final int SENTRY_POLICY_CHANGE_LOG_SIZE_DEFAULT = 10000;
+
+    // serve the reads of the store from an in-memory image of the policy, unless HA is enabled.
+    // The image only sees the changes made through its store, so nothing else may write to the database
+    public static final String SENTRY_STORE_POLICY_IMAGE_ENABLED = "sentry.store.policy.image.enabled";
+    public static final boolean SENTRY_STORE_POLICY_IMAGE_ENABLED_DEFAULT = false;
+
+    // resolve the privileges for the providers with a single SQL query when the
+    // database is supported, the prepared statements are cached by the connection pool
+    public static final String SENTRY_STORE_DIRECT_SQL = "sentry.store.direct.sql";
+    public static final boolean SENTRY_STORE_DIRECT_SQL_DEFAULT = false;
+    public static final int SENTRY_STORE_DIRECT_SQL_MAX_STATEMENTS_DEFAULT = 100;
+
+    // rows fetched from the database at a time when reading the full permission image
+    public static final String SENTRY_STORE_FULL_IMAGE_FETCH_SIZE = "sentry.store.full.image.fetch.size";
+    public static final int SENTRY_STORE_FULL_IMAGE_FETCH_SIZE_DEFAULT = 1000;
+
     // action factories for external components
     public static final String SENTRY_COMPONENT_ACTION_FACTORY_FORMAT = "sentry.%s.action.factory";
 
@@ -260,7 +331,28 @@ public class ServiceConstants {
     public static final long CACHING_TTL_MS_DEFAULT = 30000;
     public static final String CACHE_UPDATE_FAILURES_BEFORE_PRIV_REVOKE = "sentry.provider.backend.generic.cache.update.failures.count";
     public static final int CACHE_UPDATE_FAILURES_BEFORE_PRIV_REVOKE_DEFAULT = 3;
+    // the generic cache applies the changes made since its previous refresh, and
+    // reloads the whole policy at this interval to drop any change it missed
+    public static final String CACHE_FULL_RELOAD_INTERVAL_MS = "sentry.provider.backend.generic.cache.full.reload.interval.ms";
+    public static final long CACHE_FULL_RELOAD_INTERVAL_MS_DEFAULT = 600000;
     public static final String PRIVILEGE_CONVERTER = "sentry.provider.backend.generic.privilege.converter";
+
+    // db provider backend cache settings, results derived from its privileges may be up to ttl stale
+    public static final String DB_ENABLE_CACHING = "sentry.provider.backend.db.cache.enabled";
+    public static final boolean DB_ENABLE_CACHING_DEFAULT = false;
+    public static final String DB_CACHE_TTL_MS = "sentry.provider.backend.db.cache.ttl.ms";
+    public static final long DB_CACHE_TTL_MS_DEFAULT = 30000;
+    public static final String DB_CACHE_MAX_SIZE = "sentry.provider.backend.db.cache.max.size";
+    public static final long DB_CACHE_MAX_SIZE_DEFAULT = 10000;
+    public static final String DB_CACHE_UPDATE_FAILURES_BEFORE_PRIV_REVOKE = "sentry.provider.backend.db.cache.update.failures.count";
+    public static final int DB_CACHE_UPDATE_FAILURES_BEFORE_PRIV_REVOKE_DEFAULT = 3;
+
+    // concurrent identical privilege lookups of the provider backends share a single call to the server,
+    // a lookup waiting for it longer than the timeout makes its own call
+    public static final String COALESCE_LOOKUPS = "sentry.provider.backend.coalesce.lookups";
+    public static final boolean COALESCE_LOOKUPS_DEFAULT = false;
+    public static final String COALESCE_LOOKUPS_TIMEOUT_MS = "sentry.provider.backend.coalesce.lookups.timeout.ms";
+    public static final long COALESCE_LOOKUPS_TIMEOUT_MS_DEFAULT = 60000;
   }
 
   /**
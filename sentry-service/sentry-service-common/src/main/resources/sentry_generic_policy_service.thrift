@@ -253,6 +253,47 @@ struct TListSentryPrivilegesByAuthResponse {
 2: optional map<string, TSentryPrivilegeMap> privilegesMapByAuth
 }
 
+# Snapshot of the whole policy of a service, used by the caches of the
+# clients to refresh it with a single request instead of one request per
+# role. The roles are returned sorted by name in pages whose size is set
+# by the server; the next page is requested with the lastRoleName of the
+# previous response.
+struct TListSentryPolicySnapshotRequest {
+1: required i32 protocol_version = sentry_common_service.TSENTRY_SERVICE_V2,
+2: required string requestorUserName, # user on whose behalf the request is issued
+3: required string component, # The request is issued to which component
+4: required string serviceName, # The privileges belong to which service
+5: optional string lastRoleName # Only the roles sorted after this role, for the next page
+}
+
+struct TListSentryPolicySnapshotResponse {
+1: required sentry_common_service.TSentryResponseStatus status,
+2: optional set<TSentryRole> roles, # The roles of the page with their groups
+3: optional TSentryPrivilegeMap privilegeMap, # The privileges of the roles of the page
+4: optional string lastRoleName, # The last role of the page, not set on the last page
+5: optional i64 sequence # The change sequence of the store before the page was read
+}
+
+# Changes of the policy of a service since a change sequence, used by the
+# caches of the clients to refresh only the roles which changed. When the
+# changes since the sequence are not known anymore, changedRoles is not set
+# and the client has to read a snapshot again.
+struct TListSentryPolicyChangesRequest {
+1: required i32 protocol_version = sentry_common_service.TSENTRY_SERVICE_V2,
+2: required string requestorUserName, # user on whose behalf the request is issued
+3: required string component, # The request is issued to which component
+4: required string serviceName, # The privileges belong to which service
+5: required i64 sequence # The changes after this sequence
+}
+
+struct TListSentryPolicyChangesResponse {
+1: required sentry_common_service.TSentryResponseStatus status,
+2: optional i64 sequence, # The change sequence of the store before the changes were read
+3: optional set<string> changedRoles, # The roles which changed, created or dropped
+4: optional set<TSentryRole> roles, # The changed roles which exist with their groups
+5: optional TSentryPrivilegeMap privilegeMap # The privileges of the changed roles
+}
+
 service SentryGenericPolicyService
 {
   TCreateSentryRoleResponse create_sentry_role(1:TCreateSentryRoleRequest request)
@@ -275,4 +316,8 @@ service SentryGenericPolicyService
   TDropPrivilegesResponse drop_sentry_privilege(1:TDropPrivilegesRequest request);
 
   TRenamePrivilegesResponse rename_sentry_privilege(1:TRenamePrivilegesRequest request);
+
+  TListSentryPolicySnapshotResponse list_sentry_policy_snapshot(1:TListSentryPolicySnapshotRequest request);
+
+  TListSentryPolicyChangesResponse list_sentry_policy_changes(1:TListSentryPolicyChangesRequest request);
 }
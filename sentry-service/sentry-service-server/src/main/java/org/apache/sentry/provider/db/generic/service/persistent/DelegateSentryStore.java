@@ -21,8 +21,10 @@ import javax.jdo.PersistenceManager;
 
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 import org.apache.hadoop.conf.Configuration;
@@ -67,8 +69,9 @@ public class DelegateSentryStore implements SentryStoreLayer {
     // The generic model doesn't turn on the thread that cleans hive privileges
     conf.set(ServerConfig.SENTRY_STORE_ORPHANED_PRIVILEGE_REMOVAL,"false");
     this.conf = conf;
-    //delegated old sentryStore
-    this.delegate = new SentryStore(conf);
+    //delegated old sentryStore, shared with the hive processor of the server
+    //so that the generic clients see the changes made through either
+    this.delegate = SentryStore.getSharedStore(conf);
     adminGroups = ImmutableSet.copyOf(toTrimmed(Sets.newHashSet(conf.getStrings(
         ServerConfig.ADMIN_GROUPS, new String[]{}))));
   }
@@ -136,6 +139,7 @@ public class DelegateSentryStore implements SentryStoreLayer {
             return null;
           }
         });
+    delegate.getChangeLog().roleChanged(toTrimmedLower(component), toTrimmedLower(role));
     return null;
   }
 
@@ -160,6 +164,7 @@ public class DelegateSentryStore implements SentryStoreLayer {
             return null;
           }
         });
+    delegate.getChangeLog().roleChanged(toTrimmedLower(component), toTrimmedLower(role));
     return null;
   }
 
@@ -188,6 +193,8 @@ public class DelegateSentryStore implements SentryStoreLayer {
             return null;
           }
         });
+    // the privilege may be granted to any role
+    delegate.getChangeLog().allRolesChanged(toTrimmedLower(component));
     return null;
   }
 
@@ -203,6 +210,8 @@ public class DelegateSentryStore implements SentryStoreLayer {
             return null;
           }
         });
+    // the privilege may be granted to any role
+    delegate.getChangeLog().allRolesChanged(toTrimmedLower(component));
     return null;
   }
 
@@ -280,6 +289,34 @@ public class DelegateSentryStore implements SentryStoreLayer {
     return groupNames;
   }
 
+  @Override
+  public Map<String, Set<String>> getGroupsMapByRoles(final String component,
+      final Set<String> roles) throws Exception {
+    Preconditions.checkNotNull(roles);
+    if (roles.isEmpty()) {
+      return Collections.emptyMap();
+    }
+    return delegate.getTransactionManager().executeTransaction(
+      new TransactionBlock<Map<String, Set<String>>>() {
+        public Map<String, Set<String>> execute(PersistenceManager pm) throws Exception {
+          Map<String, Set<String>> groupsByRole = new HashMap<>(roles.size());
+          for (String role : roles) {
+            MSentryRole mRole = getRole(toTrimmedLower(role), pm);
+            // Role disappeared - just ignore it
+            if (mRole == null) {
+              continue;
+            }
+            Set<String> groupNames = new HashSet<>(mRole.getGroups().size());
+            for (MSentryGroup group : mRole.getGroups()) {
+              groupNames.add(group.getGroupName());
+            }
+            groupsByRole.put(mRole.getRoleName(), groupNames);
+          }
+          return groupsByRole;
+        }
+      });
+  }
+
   @Override
   public Set<PrivilegeObject> getPrivilegesByRole(final String component,
       final Set<String> roles) throws Exception {
@@ -389,9 +426,19 @@ public class DelegateSentryStore implements SentryStoreLayer {
       });
   }
 
+  @Override
+  public long getChangeSequence() {
+    return delegate.getChangeLog().getSequence();
+  }
+
+  @Override
+  public Set<String> getChangedRoles(String component, long sinceSequence) {
+    return delegate.getChangeLog().getChangedRoles(toTrimmedLower(component), sinceSequence);
+  }
+
    @Override
   public void close() {
-    delegate.stop();
+    SentryStore.releaseSharedStore(conf, delegate);
   }
 
   private Set<TSentryGroup> toTSentryGroups(Set<String> groups) {
@@ -439,5 +486,7 @@ public class DelegateSentryStore implements SentryStoreLayer {
             return null;
           }
         });
+    delegate.reloadPolicyImage();
+    delegate.getChangeLog().allRolesChanged(null);
   }
 }
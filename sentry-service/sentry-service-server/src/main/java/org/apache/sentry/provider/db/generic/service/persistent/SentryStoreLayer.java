@@ -18,6 +18,7 @@
 package org.apache.sentry.provider.db.generic.service.persistent;
 
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 import org.apache.sentry.core.common.Authorizable;
@@ -133,6 +134,15 @@ public interface SentryStoreLayer {
    */
   Set<String> getGroupsByRoles(String component, Set<String> roles) throws Exception;
 
+  /**
+   * Get the groups of each role
+   * @param component: The request respond to which component
+   * @param roles: The name of roles
+   * @returns the mapping of the roles which exist to their set of groups
+   * @throws Exception
+   */
+  Map<String, Set<String>> getGroupsMapByRoles(String component, Set<String> roles) throws Exception;
+
   /**
    * Get privileges
    * @param component: The request respond to which component
@@ -178,6 +188,24 @@ public interface SentryStoreLayer {
       Set<String> validActiveRoles, List<? extends Authorizable> authorizables)
       throws Exception;
 
+  /**
+   * Get the sequence of the latest policy change. Read it before the policy
+   * so that a change made during the read is reported again later.
+   *
+   * @returns the change sequence
+   */
+  long getChangeSequence();
+
+  /**
+   * Get the roles whose groups or privileges of the component were changed
+   * after the given sequence.
+   *
+   * @param component: The request respond to which component
+   * @param sinceSequence: The change sequence of the previous read
+   * @returns The set of changed role names, or null if the changes are unknown
+   */
+  Set<String> getChangedRoles(String component, long sinceSequence);
+
   /**
    * close sentryStore
    */
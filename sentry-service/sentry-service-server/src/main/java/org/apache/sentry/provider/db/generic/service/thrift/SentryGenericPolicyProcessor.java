@@ -21,10 +21,13 @@ import static org.apache.sentry.core.common.utils.SentryConstants.AUTHORIZABLE_J
 import static org.apache.sentry.core.common.utils.SentryConstants.KV_JOINER;
 
 import java.lang.reflect.Constructor;
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.NavigableSet;
 import java.util.Set;
+import java.util.TreeSet;
 
 import org.apache.hadoop.conf.Configuration;
 import org.apache.sentry.core.common.exception.SentryUserException;
@@ -61,6 +64,7 @@ import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Splitter;
 import com.google.common.base.Strings;
 import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Iterables;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 import com.google.common.collect.Sets;
@@ -73,6 +77,7 @@ public class SentryGenericPolicyProcessor implements SentryGenericPolicyService.
   private final ImmutableSet<String> adminGroups;
   private final SentryStoreLayer store;
   private final NotificationHandlerInvoker handerInvoker;
+  private final int snapshotPageSize;
 
   private static final String ACCESS_DENIAL_MESSAGE = "Access denied to ";
 
@@ -82,6 +87,8 @@ public class SentryGenericPolicyProcessor implements SentryGenericPolicyService.
     this.conf = conf;
     adminGroups = ImmutableSet.copyOf((Sets.newHashSet(conf.getStrings(
         ServerConfig.ADMIN_GROUPS, new String[]{}))));
+    snapshotPageSize = Math.max(1, conf.getInt(ServerConfig.SENTRY_GENERIC_POLICY_SNAPSHOT_PAGE_SIZE,
+        ServerConfig.SENTRY_GENERIC_POLICY_SNAPSHOT_PAGE_SIZE_DEFAULT));
   }
 
   @VisibleForTesting
@@ -91,6 +98,8 @@ public class SentryGenericPolicyProcessor implements SentryGenericPolicyService.
     this.conf = conf;
     adminGroups = ImmutableSet.copyOf(toTrimmed(Sets.newHashSet(conf.getStrings(
         ServerConfig.ADMIN_GROUPS, new String[]{}))));
+    snapshotPageSize = Math.max(1, conf.getInt(ServerConfig.SENTRY_GENERIC_POLICY_SNAPSHOT_PAGE_SIZE,
+        ServerConfig.SENTRY_GENERIC_POLICY_SNAPSHOT_PAGE_SIZE_DEFAULT));
   }
 
   private void authorize(String requestorUser, Set<String> requestorGroups)
@@ -815,6 +824,96 @@ public class SentryGenericPolicyProcessor implements SentryGenericPolicyService.
     return tResponse;
   }
 
+  @Override
+  public TListSentryPolicySnapshotResponse list_sentry_policy_snapshot(
+      final TListSentryPolicySnapshotRequest request) throws TException {
+    Response<TListSentryPolicySnapshotResponse> respose =
+        requestHandle(new RequestHandler<TListSentryPolicySnapshotResponse>() {
+      @Override
+      public Response<TListSentryPolicySnapshotResponse> handle() throws Exception {
+        validateClientVersion(request.getProtocol_version());
+        authorize(request.getRequestorUserName(),
+            getRequestorGroups(conf, request.getRequestorUserName()));
+        // Read the sequence first, a change made during the read is listed again
+        long sequence = store.getChangeSequence();
+        // The roles are paged in the order of their names, so the next page
+        // starts after the last role of the previous one
+        NavigableSet<String> roleNames = new TreeSet<String>(toTrimmedLower(store.getAllRoleNames()));
+        if (request.isSetLastRoleName()) {
+          roleNames = roleNames.tailSet(toTrimmedLower(request.getLastRoleName()), false);
+        }
+        Set<String> pageRoleNames = Sets.newHashSet(Iterables.limit(roleNames, snapshotPageSize));
+
+        TListSentryPolicySnapshotResponse tResponse = new TListSentryPolicySnapshotResponse();
+        tResponse.setSequence(sequence);
+        tResponse.setRoles(toTSentryRoles(request.getComponent(), pageRoleNames));
+        tResponse.setPrivilegeMap(toTSentryPrivilegeMap(request.getComponent(),
+            request.getServiceName(), pageRoleNames));
+        if (roleNames.size() > pageRoleNames.size()) {
+          tResponse.setLastRoleName(Iterables.get(roleNames, pageRoleNames.size() - 1));
+        }
+        return new Response<TListSentryPolicySnapshotResponse>(Status.OK(), tResponse);
+      }
+    });
+    TListSentryPolicySnapshotResponse tResponse = respose.content == null
+        ? new TListSentryPolicySnapshotResponse() : respose.content;
+    tResponse.setStatus(respose.status);
+    return tResponse;
+  }
+
+  @Override
+  public TListSentryPolicyChangesResponse list_sentry_policy_changes(
+      final TListSentryPolicyChangesRequest request) throws TException {
+    Response<TListSentryPolicyChangesResponse> respose =
+        requestHandle(new RequestHandler<TListSentryPolicyChangesResponse>() {
+      @Override
+      public Response<TListSentryPolicyChangesResponse> handle() throws Exception {
+        validateClientVersion(request.getProtocol_version());
+        authorize(request.getRequestorUserName(),
+            getRequestorGroups(conf, request.getRequestorUserName()));
+        long sequence = store.getChangeSequence();
+        Set<String> changedRoleNames = store.getChangedRoles(request.getComponent(),
+            request.getSequence());
+
+        TListSentryPolicyChangesResponse tResponse = new TListSentryPolicyChangesResponse();
+        tResponse.setSequence(sequence);
+        // Without the changed roles the client has to read a snapshot again
+        if (changedRoleNames != null) {
+          tResponse.setChangedRoles(changedRoleNames);
+          // the dropped roles are in the changed roles only
+          tResponse.setRoles(toTSentryRoles(request.getComponent(), changedRoleNames));
+          tResponse.setPrivilegeMap(toTSentryPrivilegeMap(request.getComponent(),
+              request.getServiceName(), changedRoleNames));
+        }
+        return new Response<TListSentryPolicyChangesResponse>(Status.OK(), tResponse);
+      }
+    });
+    TListSentryPolicyChangesResponse tResponse = respose.content == null
+        ? new TListSentryPolicyChangesResponse() : respose.content;
+    tResponse.setStatus(respose.status);
+    return tResponse;
+  }
+
+  private Set<TSentryRole> toTSentryRoles(String component, Set<String> roleNames)
+      throws Exception {
+    Map<String, Set<String>> groupsByRole = store.getGroupsMapByRoles(component, roleNames);
+    Set<TSentryRole> tSentryRoles = Sets.newHashSet();
+    for (Map.Entry<String, Set<String>> entry : groupsByRole.entrySet()) {
+      tSentryRoles.add(new TSentryRole(entry.getKey(), entry.getValue()));
+    }
+    return tSentryRoles;
+  }
+
+  private TSentryPrivilegeMap toTSentryPrivilegeMap(String component, String serviceName,
+      Set<String> roleNames) throws Exception {
+    Set<MSentryGMPrivilege> privileges = store.getPrivilegesByAuthorizable(component,
+        serviceName, roleNames, Collections.<Authorizable>emptyList());
+    TSentryPrivilegeMap tPrivilegeMap = toTSentryPrivilegeMap(privileges);
+    // a privilege may also be granted to other roles
+    tPrivilegeMap.getPrivilegeMap().keySet().retainAll(roleNames);
+    return tPrivilegeMap;
+  }
+
   private static class Response<T> {
     private TSentryResponseStatus status;
     private T content;
@@ -0,0 +1,282 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.sentry.provider.db.service.persistent;
+
+import static com.codahale.metrics.MetricRegistry.name;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import javax.jdo.PersistenceManager;
+import javax.jdo.PersistenceManagerFactory;
+import javax.jdo.Transaction;
+
+import org.apache.sentry.core.common.exception.SentryUserException;
+import org.apache.sentry.provider.db.service.thrift.SentryMetrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.Timer;
+
+/**
+ * GroupCommitter executes the write transactions submitted within a short
+ * window in a single database transaction, so that many small concurrent
+ * writes cost one commit instead of one each.<p>
+ *
+ * The transaction blocks of a group run one after the other on the committer
+ * thread, each seeing the changes of the previous ones, as if they were
+ * executed serially. If a block fails the group is rolled back and executed
+ * again without it: a block which fails with a {@link SentryUserException},
+ * which would not be retried, gets its exception, and one which fails
+ * otherwise is executed on its own, with retries, by the thread which
+ * submitted it. If the commit itself fails, each block of the group is
+ * executed on its own. A block submitted alone is executed on its own as well.
+ * <p>
+ * Each group transaction is timed and counted when it fails, with the
+ * metrics of the transactions of {@link TransactionManager}.
+ */
+final class GroupCommitter {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(GroupCommitter.class);
+
+  /**
+   * A submitted transaction block and its outcome.
+   */
+  static final class PendingTransaction<T> {
+    private final TransactionBlock<T> tb;
+    private final CountDownLatch done = new CountDownLatch(1);
+    private T result;
+    private Exception exception;
+    private boolean committed = false;
+
+    private PendingTransaction(TransactionBlock<T> tb) {
+      this.tb = tb;
+    }
+
+    private void execute(PersistenceManager pm) throws Exception {
+      result = tb.execute(pm);
+    }
+
+    private void committed() {
+      committed = true;
+      done.countDown();
+    }
+
+    private void failed(Exception e) {
+      result = null;
+      exception = e;
+      done.countDown();
+    }
+
+    private void executeAlone() {
+      result = null;
+      done.countDown();
+    }
+
+    /**
+     * @return true if the block was committed with a group, or failed in it,
+     *         false if it must be executed on its own
+     */
+    boolean isDone() {
+      return committed || exception != null;
+    }
+
+    /**
+     * @return the exception the block failed with in a group, or null
+     */
+    Exception getException() {
+      return exception;
+    }
+
+    T getResult() {
+      return result;
+    }
+  }
+
+  private final PersistenceManagerFactory pmf;
+  private final long windowMillis;
+  private final int maxGroupSize;
+  private final BlockingQueue<PendingTransaction<?>> queue =
+      new LinkedBlockingQueue<PendingTransaction<?>>();
+  private final Thread committerThread;
+  private volatile boolean stopped = false;
+
+  private final Timer transactionTimer;
+  private final Counter failedTransactionsCount;
+  private final Counter groupedTransactionsCount =
+      SentryMetrics.getInstance().getCounter(name(TransactionManager.class,
+          "transactions", "grouped"));
+  private final Counter failedGroupsCount =
+      SentryMetrics.getInstance().getCounter(name(TransactionManager.class,
+          "transactions", "groups", "failed"));
+
+  GroupCommitter(PersistenceManagerFactory pmf, long windowMillis, int maxGroupSize,
+      Timer transactionTimer, Counter failedTransactionsCount) {
+    this.pmf = pmf;
+    this.windowMillis = windowMillis;
+    this.maxGroupSize = maxGroupSize;
+    this.transactionTimer = transactionTimer;
+    this.failedTransactionsCount = failedTransactionsCount;
+    committerThread = new Thread(new Runnable() {
+      @Override
+      public void run() {
+        commitGroups();
+      }
+    }, "sentry-store-group-committer");
+    committerThread.setDaemon(true);
+    committerThread.start();
+  }
+
+  /**
+   * Execute the transaction block in the next group, and wait until the group
+   * is committed or rolled back.
+   */
+  <T> PendingTransaction<T> submit(TransactionBlock<T> tb) throws InterruptedException {
+    PendingTransaction<T> pending = new PendingTransaction<T>(tb);
+    // a block which writes in another transaction can't wait for its own group
+    if (stopped || Thread.currentThread() == committerThread) {
+      pending.executeAlone();
+      return pending;
+    }
+    queue.add(pending);
+    // stop() may have released the queue before the block was added
+    if (stopped && queue.remove(pending)) {
+      pending.executeAlone();
+    }
+    pending.done.await();
+    return pending;
+  }
+
+  void stop() {
+    stopped = true;
+    committerThread.interrupt();
+    try {
+      committerThread.join();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    // release the callers which submitted a block after the last group
+    for (PendingTransaction<?> pending = queue.poll(); pending != null; pending = queue.poll()) {
+      pending.executeAlone();
+    }
+  }
+
+  private void commitGroups() {
+    List<PendingTransaction<?>> group = new ArrayList<PendingTransaction<?>>(maxGroupSize);
+    while (!stopped) {
+      try {
+        group.add(queue.take());
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(windowMillis);
+        while (group.size() < maxGroupSize) {
+          PendingTransaction<?> pending =
+              queue.poll(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+          if (pending == null) {
+            break;
+          }
+          group.add(pending);
+        }
+      } catch (InterruptedException e) {
+        for (PendingTransaction<?> pending : group) {
+          pending.executeAlone();
+        }
+        return;
+      }
+      if (group.size() == 1) {
+        group.get(0).executeAlone();
+      } else {
+        commitGroup(group);
+      }
+      group.clear();
+    }
+  }
+
+  /**
+   * Commit the group, without the blocks which fail, until a commit succeeds
+   * or no block is left.
+   */
+  private void commitGroup(List<PendingTransaction<?>> group) {
+    List<PendingTransaction<?>> remaining = new ArrayList<PendingTransaction<?>>(group);
+    while (!remaining.isEmpty()) {
+      PendingTransaction<?> failedBlock = null;
+      Exception blockException = null;
+      boolean committed = false;
+      final Timer.Context context = transactionTimer.time();
+      try (PersistenceManager pm = pmf.getPersistenceManager()) {
+        Transaction transaction = pm.currentTransaction();
+        transaction.begin();
+        try {
+          for (PendingTransaction<?> pending : remaining) {
+            try {
+              pending.execute(pm);
+            } catch (Exception e) {
+              failedBlock = pending;
+              blockException = e;
+              break;
+            }
+          }
+          if (failedBlock == null) {
+            transaction.commit();
+            committed = true;
+          }
+        } finally {
+          context.stop();
+          if (transaction.isActive()) {
+            transaction.rollback();
+          }
+        }
+      } catch (Exception e) {
+        failedTransactionsCount.inc();
+        failedGroupsCount.inc();
+        LOGGER.warn("Commit of a group of " + remaining.size()
+            + " transactions failed, executing them one by one", e);
+        for (PendingTransaction<?> pending : remaining) {
+          pending.executeAlone();
+        }
+        return;
+      }
+
+      if (committed) {
+        for (PendingTransaction<?> pending : remaining) {
+          pending.committed();
+        }
+        groupedTransactionsCount.inc(remaining.size());
+        return;
+      }
+      failedTransactionsCount.inc();
+      failedGroupsCount.inc();
+      SentryMetrics.getInstance().getCounter(name(TransactionManager.class,
+          "exception", blockException.getClass().getSimpleName())).inc();
+      if (blockException instanceof SentryUserException) {
+        LOGGER.debug("Transaction failed in a group, executing the group again without it",
+            blockException);
+        failedBlock.failed(blockException);
+      } else {
+        LOGGER.warn("Transaction failed in a group, executing it on its own and the group"
+            + " again without it", blockException);
+        failedBlock.executeAlone();
+      }
+      remaining.remove(failedBlock);
+    }
+  }
+}
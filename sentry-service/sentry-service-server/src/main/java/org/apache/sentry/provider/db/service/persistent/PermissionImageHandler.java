@@ -0,0 +1,41 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.sentry.provider.db.service.persistent;
+
+/**
+ * Receives the rows of the full permission image, as
+ * {@link SentryStore#retrieveFullPermissionImage} reads them from the
+ * database, so that the image is built without holding the model objects.
+ */
+public interface PermissionImageHandler {
+
+  /**
+   * Called for each role a privilege on a database or table is granted to.
+   *
+   * @param authzObj the database name, or "db.table" for a table
+   * @param roleName the role the privilege is granted to
+   * @param action the action of the privilege, in upper case
+   */
+  void handlePrivilege(String authzObj, String roleName, String action);
+
+  /**
+   * Called for each group a role is granted to.
+   */
+  void handleRoleGroup(String roleName, String groupName);
+}
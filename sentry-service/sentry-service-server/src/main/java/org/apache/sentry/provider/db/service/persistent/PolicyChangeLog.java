@@ -0,0 +1,143 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.sentry.provider.db.service.persistent;
+
+import java.util.ArrayDeque;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Set;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * PolicyChangeLog keeps a bounded in-memory history of the roles whose groups
+ * or privileges were changed through this server. Every change gets a number
+ * from a monotonically increasing sequence, so a client which remembers the
+ * sequence of its last read can ask for the roles changed since then instead
+ * of reading the whole policy again.
+ * <p>
+ * The log only sees the changes made by this process. Whenever it can't tell
+ * what changed since a sequence (the server was restarted, the history was
+ * trimmed or the log is disabled) {@link #getChangedRoles} returns null and
+ * the client must read a full snapshot.
+ */
+public class PolicyChangeLog {
+
+  private static final class Change {
+    private final long sequence;
+    // null means the change applies to every component
+    private final String component;
+    // null means every role of the component changed
+    private final String roleName;
+
+    private Change(long sequence, String component, String roleName) {
+      this.sequence = sequence;
+      this.component = component;
+      this.roleName = roleName;
+    }
+  }
+
+  private final boolean enabled;
+  private final int capacity;
+  private final ArrayDeque<Change> changes = new ArrayDeque<Change>();
+  private long sequence;
+  // Every change with a sequence greater than knownSince is in the log
+  private long knownSince;
+
+  /**
+   * @param capacity the number of changes to remember
+   * @param enabled false if the changes can't be tracked by this process,
+   *        e.g. when several servers share the store
+   */
+  public PolicyChangeLog(int capacity, boolean enabled) {
+    Preconditions.checkArgument(capacity > 0, "capacity must be positive");
+    this.capacity = capacity;
+    this.enabled = enabled;
+    // Start from the clock so that the sequence of a restarted server doesn't
+    // go back to values handed out before the restart
+    this.sequence = System.currentTimeMillis();
+    this.knownSince = sequence;
+  }
+
+  /**
+   * @return the sequence of the latest change
+   */
+  public synchronized long getSequence() {
+    return sequence;
+  }
+
+  /**
+   * Record a change of the groups or privileges of one role.
+   * @param component the component of the changed privileges, or null if
+   *        the change applies to every component
+   * @param roleName the normalized role name
+   */
+  public synchronized void roleChanged(String component, String roleName) {
+    Preconditions.checkNotNull(roleName);
+    append(component, roleName);
+  }
+
+  /**
+   * Record a change which may affect any role.
+   * @param component the component of the changed privileges, or null if
+   *        the change applies to every component
+   */
+  public synchronized void allRolesChanged(String component) {
+    append(component, null);
+  }
+
+  /**
+   * Get the roles of a component changed after the given sequence.
+   * @return the names of the changed roles, or null if the changes since
+   *         the sequence are unknown
+   */
+  public synchronized Set<String> getChangedRoles(String component, long sinceSequence) {
+    if (!enabled || sinceSequence < knownSince || sinceSequence > sequence) {
+      return null;
+    }
+    Set<String> roleNames = new HashSet<String>();
+    Iterator<Change> it = changes.descendingIterator();
+    while (it.hasNext()) {
+      Change change = it.next();
+      if (change.sequence <= sinceSequence) {
+        break;
+      }
+      if (change.component != null && !change.component.equalsIgnoreCase(component)) {
+        continue;
+      }
+      if (change.roleName == null) {
+        return null;
+      }
+      roleNames.add(change.roleName);
+    }
+    return roleNames;
+  }
+
+  private void append(String component, String roleName) {
+    sequence++;
+    if (!enabled) {
+      knownSince = sequence;
+      return;
+    }
+    changes.addLast(new Change(sequence, component, roleName));
+    while (changes.size() > capacity) {
+      knownSince = changes.removeFirst().sequence;
+    }
+  }
+}
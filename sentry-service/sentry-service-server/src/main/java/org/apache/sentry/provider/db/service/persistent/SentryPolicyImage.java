@@ -0,0 +1,445 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.sentry.provider.db.service.persistent;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import org.apache.sentry.core.model.db.AccessConstants;
+import org.apache.sentry.provider.db.service.model.MSentryGroup;
+import org.apache.sentry.provider.db.service.model.MSentryPrivilege;
+import org.apache.sentry.provider.db.service.model.MSentryRole;
+import org.apache.sentry.provider.db.service.model.MSentryUser;
+import org.apache.sentry.provider.db.service.thrift.TSentryAuthorizable;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+
+/**
+ * SentryPolicyImage is a copy of the roles of a {@link SentryStore} with their
+ * groups, users and privileges, which the store serves its reads from instead
+ * of querying the database.
+ * <p>
+ * A change replaces the roles reloaded after the commit in place, under the
+ * write lock of the image, so that it costs as much as the changed roles and
+ * not as much as the whole policy. Each lookup holds the read lock and returns
+ * values which later changes don't modify, so that it sees the image either
+ * before or after a change, as each query of the store sees the database
+ * before or after a transaction. The lookups filter the privileges the same
+ * way the queries of {@link SentryStore} do.
+ */
+final class SentryPolicyImage {
+
+  /**
+   * A role with the names of its groups and users and detached copies of its
+   * privileges.
+   */
+  static final class RoleImage {
+    private final String roleName;
+    private final ImmutableSet<String> groups;
+    private final ImmutableSet<String> users;
+    private final ImmutableSet<MSentryPrivilege> privileges;
+
+    private RoleImage(String roleName, ImmutableSet<String> groups,
+        ImmutableSet<String> users, ImmutableSet<MSentryPrivilege> privileges) {
+      this.roleName = roleName;
+      this.groups = groups;
+      this.users = users;
+      this.privileges = privileges;
+    }
+
+    /**
+     * Copy a role, should be called inside the transaction which read it.
+     */
+    static RoleImage of(MSentryRole role) {
+      ImmutableSet.Builder<String> groups = ImmutableSet.builder();
+      for (MSentryGroup group : role.getGroups()) {
+        groups.add(group.getGroupName());
+      }
+      ImmutableSet.Builder<String> users = ImmutableSet.builder();
+      for (MSentryUser user : role.getUsers()) {
+        users.add(user.getUserName());
+      }
+      ImmutableSet.Builder<MSentryPrivilege> privileges = ImmutableSet.builder();
+      for (MSentryPrivilege privilege : role.getPrivileges()) {
+        MSentryPrivilege copy = new MSentryPrivilege(privilege.getPrivilegeScope(),
+            privilege.getServerName(), privilege.getDbName(), privilege.getTableName(),
+            privilege.getColumnName(), privilege.getURI(), privilege.getAction(),
+            privilege.getGrantOption());
+        copy.setCreateTime(privilege.getCreateTime());
+        privileges.add(copy);
+      }
+      return new RoleImage(role.getRoleName(), groups.build(), users.build(),
+          privileges.build());
+    }
+
+    String getRoleName() {
+      return roleName;
+    }
+
+    Set<String> getGroups() {
+      return groups;
+    }
+
+    Set<String> getUsers() {
+      return users;
+    }
+
+    Set<MSentryPrivilege> getPrivileges() {
+      return privileges;
+    }
+  }
+
+  private final ReadWriteLock lock = new ReentrantReadWriteLock();
+  private final Map<String, RoleImage> roles = new HashMap<String, RoleImage>();
+  // every group and user known to the store, including the ones without roles
+  private final Map<String, ImmutableSet<String>> groupRoles =
+      new HashMap<String, ImmutableSet<String>>();
+  private final Map<String, ImmutableSet<String>> userRoles =
+      new HashMap<String, ImmutableSet<String>>();
+  private final Map<MSentryPrivilege, ImmutableSet<String>> privilegeRoles =
+      new HashMap<MSentryPrivilege, ImmutableSet<String>>();
+
+  private SentryPolicyImage() {
+  }
+
+  /**
+   * Build the image of the whole store.
+   * @param roles all the roles
+   * @param groupNames all the groups, which can have no roles
+   * @param userNames all the users, which can have no roles
+   */
+  static SentryPolicyImage of(Collection<RoleImage> roles, Collection<String> groupNames,
+      Collection<String> userNames) {
+    SentryPolicyImage image = new SentryPolicyImage();
+    for (String groupName : groupNames) {
+      image.groupRoles.put(groupName, ImmutableSet.<String>of());
+    }
+    for (String userName : userNames) {
+      image.userRoles.put(userName, ImmutableSet.<String>of());
+    }
+    Map<String, RoleImage> changedRoles = new HashMap<String, RoleImage>();
+    for (RoleImage role : roles) {
+      changedRoles.put(role.getRoleName(), role);
+    }
+    image.replaceRoles(changedRoles);
+    return image;
+  }
+
+  /**
+   * Replace the roles of this image with the given ones.
+   * @param changedRoles the roles read after the change by name, with a null
+   *        value for the roles which no longer exist
+   */
+  void replaceRoles(Map<String, RoleImage> changedRoles) {
+    lock.writeLock().lock();
+    try {
+      for (Map.Entry<String, RoleImage> entry : changedRoles.entrySet()) {
+        String roleName = entry.getKey();
+        RoleImage newRole = entry.getValue();
+        RoleImage oldRole = newRole == null ? roles.remove(roleName)
+            : roles.put(roleName, newRole);
+        updateIndex(groupRoles, roleName,
+            oldRole == null ? ImmutableSet.<String>of() : oldRole.groups,
+            newRole == null ? ImmutableSet.<String>of() : newRole.groups, false);
+        updateIndex(userRoles, roleName,
+            oldRole == null ? ImmutableSet.<String>of() : oldRole.users,
+            newRole == null ? ImmutableSet.<String>of() : newRole.users, false);
+        updateIndex(privilegeRoles, roleName,
+            oldRole == null ? ImmutableSet.<MSentryPrivilege>of() : oldRole.privileges,
+            newRole == null ? ImmutableSet.<MSentryPrivilege>of() : newRole.privileges, true);
+      }
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  /**
+   * Move the role from the entries of its old keys to the ones of its new keys.
+   * Groups and users stay in the index without roles as they stay in the
+   * database, privileges are removed with their last role.
+   */
+  private static <K> void updateIndex(Map<K, ImmutableSet<String>> index, String roleName,
+      Set<K> oldKeys, Set<K> newKeys, boolean removeEmpty) {
+    for (K key : oldKeys) {
+      if (!newKeys.contains(key)) {
+        Set<String> keyRoles = new HashSet<String>(index.get(key));
+        keyRoles.remove(roleName);
+        if (keyRoles.isEmpty() && removeEmpty) {
+          index.remove(key);
+        } else {
+          index.put(key, ImmutableSet.copyOf(keyRoles));
+        }
+      }
+    }
+    for (K key : newKeys) {
+      ImmutableSet<String> keyRoles = index.get(key);
+      if (keyRoles == null) {
+        index.put(key, ImmutableSet.of(roleName));
+      } else if (!keyRoles.contains(roleName)) {
+        index.put(key, ImmutableSet.<String>builder().addAll(keyRoles).add(roleName).build());
+      }
+    }
+  }
+
+  Set<String> getRoleNames() {
+    lock.readLock().lock();
+    try {
+      return ImmutableSet.copyOf(roles.keySet());
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  Collection<RoleImage> getRoles() {
+    lock.readLock().lock();
+    try {
+      return ImmutableList.copyOf(roles.values());
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  /**
+   * @return the role, or null if it doesn't exist
+   */
+  RoleImage getRole(String roleName) {
+    lock.readLock().lock();
+    try {
+      return roles.get(roleName);
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  /**
+   * @return the names of the roles of the group, or null if the group doesn't exist
+   */
+  Set<String> getRoleNamesForGroup(String groupName) {
+    lock.readLock().lock();
+    try {
+      return groupRoles.get(groupName);
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  Set<String> getRoleNamesForGroups(Set<String> groupNames) {
+    lock.readLock().lock();
+    try {
+      return getRoleNames(groupRoles, groupNames);
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  Set<String> getRoleNamesForUsers(Set<String> userNames) {
+    lock.readLock().lock();
+    try {
+      return getRoleNames(userRoles, userNames);
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  private static Set<String> getRoleNames(Map<String, ImmutableSet<String>> index,
+      Set<String> names) {
+    Set<String> roleNames = new HashSet<String>();
+    if (names != null) {
+      for (String name : names) {
+        ImmutableSet<String> nameRoles = index.get(name);
+        if (nameRoles != null) {
+          roleNames.addAll(nameRoles);
+        }
+      }
+    }
+    return roleNames;
+  }
+
+  /**
+   * @return true if one of the roles has a privilege on the server
+   */
+  boolean hasAnyServerPrivileges(Set<String> roleNames, String serverName) {
+    String server = toValue(serverName);
+    for (RoleImage role : getRoles(roleNames)) {
+      for (MSentryPrivilege privilege : role.privileges) {
+        if (server.equals(privilege.getServerName())) {
+          return true;
+        }
+      }
+    }
+    return false;
+  }
+
+  /**
+   * @return the roles of the given names which exist, the names are normalized
+   */
+  private List<RoleImage> getRoles(Set<String> roleNames) {
+    List<RoleImage> result = new ArrayList<RoleImage>(roleNames.size());
+    lock.readLock().lock();
+    try {
+      for (String roleName : roleNames) {
+        RoleImage role = roles.get(SentryStore.safeTrimLower(roleName));
+        if (role != null) {
+          result.add(role);
+        }
+      }
+    } finally {
+      lock.readLock().unlock();
+    }
+    return result;
+  }
+
+  /**
+   * @return the privileges of the roles which are relevant to the hierarchy:
+   *         the ones granted on it, on its parents and on its children, and
+   *         all the URI privileges of the server for a URI
+   */
+  List<MSentryPrivilege> getPrivileges(Set<String> roleNames, TSentryAuthorizable authHierarchy) {
+    Set<MSentryPrivilege> result = new LinkedHashSet<MSentryPrivilege>();
+    for (RoleImage role : getRoles(roleNames)) {
+      for (MSentryPrivilege privilege : role.privileges) {
+        if (authHierarchy == null || authHierarchy.getServer() == null
+            || matchesHierarchy(privilege, authHierarchy)) {
+          result.add(privilege);
+        }
+      }
+    }
+    return new ArrayList<MSentryPrivilege>(result);
+  }
+
+  private static boolean matchesHierarchy(MSentryPrivilege privilege,
+      TSentryAuthorizable authHierarchy) {
+    if (!toValue(authHierarchy.getServer()).equals(privilege.getServerName())) {
+      return false;
+    }
+    if (authHierarchy.getDb() != null) {
+      if (!isNull(privilege.getURI())
+          || !matchesOrNull(privilege.getDbName(), authHierarchy.getDb())) {
+        return false;
+      }
+      String table = authHierarchy.getTable();
+      if (table != null && !AccessConstants.ALL.equalsIgnoreCase(table)) {
+        if (!AccessConstants.SOME.equalsIgnoreCase(table)
+            && !matchesOrNull(privilege.getTableName(), table)) {
+          return false;
+        }
+        String column = authHierarchy.getColumn();
+        if (column != null && !AccessConstants.ALL.equalsIgnoreCase(column)
+            && !AccessConstants.SOME.equalsIgnoreCase(column)
+            && !matchesOrNull(privilege.getColumnName(), column)) {
+          return false;
+        }
+      }
+    }
+    // the query compares the URI to itself, so it keeps every URI privilege
+    // and leaves the matching of the paths to the client
+    if (authHierarchy.getUri() != null && !isNull(privilege.getDbName())) {
+      return false;
+    }
+    return true;
+  }
+
+  /**
+   * @param roleNames the roles to look up, or an empty set for all of them
+   * @return the privileges of the roles granted exactly on the authorizable,
+   *         with every role they are granted to
+   */
+  Map<String, Set<MSentryPrivilege>> getPrivilegesByAuthorizable(Set<String> roleNames,
+      TSentryAuthorizable authHierarchy) {
+    Map<String, Set<MSentryPrivilege>> result = new HashMap<String, Set<MSentryPrivilege>>();
+    if (authHierarchy.getServer() == null) {
+      return result;
+    }
+    lock.readLock().lock();
+    try {
+      Collection<MSentryPrivilege> privileges;
+      if (roleNames == null || roleNames.isEmpty()) {
+        privileges = privilegeRoles.keySet();
+      } else {
+        privileges = new HashSet<MSentryPrivilege>();
+        for (String roleName : roleNames) {
+          RoleImage role = roles.get(SentryStore.safeTrimLower(roleName));
+          if (role != null) {
+            privileges.addAll(role.privileges);
+          }
+        }
+      }
+      for (MSentryPrivilege privilege : privileges) {
+        if (!matchesAuthorizable(privilege, authHierarchy)) {
+          continue;
+        }
+        for (String roleName : privilegeRoles.get(privilege)) {
+          Set<MSentryPrivilege> rolePrivileges = result.get(roleName);
+          if (rolePrivileges == null) {
+            rolePrivileges = new HashSet<MSentryPrivilege>();
+            result.put(roleName, rolePrivileges);
+          }
+          rolePrivileges.add(privilege);
+        }
+      }
+    } finally {
+      lock.readLock().unlock();
+    }
+    return result;
+  }
+
+  private static boolean matchesAuthorizable(MSentryPrivilege privilege,
+      TSentryAuthorizable authHierarchy) {
+    if (!toValue(authHierarchy.getServer()).equals(privilege.getServerName())) {
+      return false;
+    }
+    if (authHierarchy.getDb() != null) {
+      return toValue(authHierarchy.getDb()).equals(privilege.getDbName())
+          && isNull(privilege.getURI())
+          && (authHierarchy.getTable() != null
+              ? toValue(authHierarchy.getTable()).equals(privilege.getTableName())
+              : isNull(privilege.getTableName()));
+    } else if (authHierarchy.getUri() != null) {
+      // unlike the one of getPrivileges, this query is a prefix match on the URI
+      return !isNull(privilege.getURI()) && isNull(privilege.getDbName())
+          && authHierarchy.getUri().startsWith(privilege.getURI());
+    }
+    return isNull(privilege.getDbName()) && isNull(privilege.getURI());
+  }
+
+  private static boolean matchesOrNull(String privilegeValue, String value) {
+    return isNull(privilegeValue) || toValue(value).equals(privilegeValue);
+  }
+
+  /**
+   * @return the value as stored, the way the queries normalize their parameters
+   */
+  private static String toValue(String value) {
+    return SentryStore.toNULLCol(SentryStore.safeTrimLower(value));
+  }
+
+  // The queries compare to the NULL_COL marker, not to any empty value
+  private static boolean isNull(String privilegeValue) {
+    return SentryStore.NULL_COL.equals(privilegeValue);
+  }
+}
@@ -23,15 +23,18 @@ import static org.apache.sentry.core.common.utils.SentryConstants.KV_JOINER;
 import static org.apache.sentry.provider.db.service.persistent.QueryParamBuilder.newQueryParamBuilder;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Properties;
 import java.util.Set;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.locks.Condition;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
@@ -42,7 +45,6 @@ import javax.jdo.JDOHelper;
 import javax.jdo.PersistenceManager;
 import javax.jdo.PersistenceManagerFactory;
 import javax.jdo.Query;
-import javax.jdo.Transaction;
 
 import org.apache.commons.lang.StringUtils;
 import org.apache.hadoop.conf.Configuration;
@@ -118,11 +120,26 @@ public class SentryStore {
   private static final Set<String> PARTIAL_REVOKE_ACTIONS = Sets.newHashSet(AccessConstants.ALL,
       AccessConstants.ACTION_ALL.toLowerCase(), AccessConstants.SELECT, AccessConstants.INSERT);
 
+  // The stores shared by the processors of a server, keyed by the
+  // configuration instance the server hands to all its processor factories
+  private static final Map<Configuration, SentryStore> SHARED_STORES =
+      new IdentityHashMap<Configuration, SentryStore>();
+
   private final PersistenceManagerFactory pmf;
   private Configuration conf;
+  // The number of holders of the shared store, guarded by SHARED_STORES
+  private int sharedCount = 0;
   private PrivCleaner privCleaner = null;
   private Thread privCleanerThread = null;
   private final TransactionManager tm;
+  private final PolicyChangeLog changeLog;
+  private final boolean policyImageEnabled;
+  // null when the image is disabled or could not be refreshed after a change
+  private volatile SentryPolicyImage policyImage;
+  private final Object policyImageLock = new Object();
+  // null when direct SQL is disabled or not supported by the database
+  private final SentryStoreDirectSql directSql;
+  private final int fullImageFetchSize;
 
   public SentryStore(Configuration conf) throws Exception {
     this.conf = conf;
@@ -183,6 +200,14 @@ public class SentryStore {
       }
     }
 
+    boolean directSqlEnabled = conf.getBoolean(ServerConfig.SENTRY_STORE_DIRECT_SQL,
+        ServerConfig.SENTRY_STORE_DIRECT_SQL_DEFAULT);
+    if (directSqlEnabled
+        && prop.getProperty(ServerConfig.DATANUCLEUS_POOL_MAX_STATEMENTS) == null) {
+      prop.setProperty(ServerConfig.DATANUCLEUS_POOL_MAX_STATEMENTS,
+          String.valueOf(ServerConfig.SENTRY_STORE_DIRECT_SQL_MAX_STATEMENTS_DEFAULT));
+    }
+
     boolean checkSchemaVersion = conf.get(
         ServerConfig.SENTRY_VERIFY_SCHEM_VERSION,
         ServerConfig.SENTRY_VERIFY_SCHEM_VERSION_DEFAULT).equalsIgnoreCase(
@@ -201,20 +226,167 @@ public class SentryStore {
     tm = new TransactionManager(pmf, conf);
     verifySentryStoreSchema(checkSchemaVersion);
 
-    // Kick off the thread that cleans orphaned privileges (unless told not to)
-    privCleaner = this.new PrivCleaner();
+    // Other servers write to the same store when HA is on, so the changes
+    // seen by this one are not the whole story. Within a server the processors
+    // share this store (see getSharedStore), so they share the log too
+    changeLog = new PolicyChangeLog(
+        conf.getInt(ServerConfig.SENTRY_POLICY_CHANGE_LOG_SIZE,
+            ServerConfig.SENTRY_POLICY_CHANGE_LOG_SIZE_DEFAULT),
+        !conf.getBoolean(ServerConfig.SENTRY_HA_ENABLED,
+            ServerConfig.SENTRY_HA_ENABLED_DEFAULT));
+
+    // Like the change log, the image only sees the changes made through this
+    // store instance, which is why the processors of a server share it
+    policyImageEnabled = conf.getBoolean(ServerConfig.SENTRY_STORE_POLICY_IMAGE_ENABLED,
+        ServerConfig.SENTRY_STORE_POLICY_IMAGE_ENABLED_DEFAULT)
+        && !conf.getBoolean(ServerConfig.SENTRY_HA_ENABLED,
+            ServerConfig.SENTRY_HA_ENABLED_DEFAULT);
+    if (policyImageEnabled) {
+      policyImage = loadPolicyImage();
+    }
+
+    directSql = directSqlEnabled ? loadDirectSql() : null;
+    fullImageFetchSize = conf.getInt(ServerConfig.SENTRY_STORE_FULL_IMAGE_FETCH_SIZE,
+        ServerConfig.SENTRY_STORE_FULL_IMAGE_FETCH_SIZE_DEFAULT);
+
+    // Kick off the thread that sweeps orphaned privileges (unless told not to)
     if (conf.get(ServerConfig.SENTRY_STORE_ORPHANED_PRIVILEGE_REMOVAL,
             ServerConfig.SENTRY_STORE_ORPHANED_PRIVILEGE_REMOVAL_DEFAULT)
             .equalsIgnoreCase("true")) {
+      privCleaner = this.new PrivCleaner(
+          conf.getLong(ServerConfig.SENTRY_STORE_ORPHANED_PRIVILEGE_REMOVAL_INTERVAL_MILLIS,
+              ServerConfig.SENTRY_STORE_ORPHANED_PRIVILEGE_REMOVAL_INTERVAL_MILLIS_DEFAULT),
+          conf.getInt(ServerConfig.SENTRY_STORE_ORPHANED_PRIVILEGE_REMOVAL_BATCH_SIZE,
+              ServerConfig.SENTRY_STORE_ORPHANED_PRIVILEGE_REMOVAL_BATCH_SIZE_DEFAULT),
+          conf.getLong(ServerConfig.SENTRY_STORE_ORPHANED_PRIVILEGE_REMOVAL_BATCH_PAUSE_MILLIS,
+              ServerConfig.SENTRY_STORE_ORPHANED_PRIVILEGE_REMOVAL_BATCH_PAUSE_MILLIS_DEFAULT));
       privCleanerThread = new Thread(privCleaner);
       privCleanerThread.start();
     }
   }
 
+  /**
+   * Get the store shared by everyone who asks with the same configuration
+   * instance, creating it for the first one. The processors of a server share
+   * the store so that they all see the changes made through each other, in
+   * the change log and in the policy image. Every store taken must be given
+   * back with {@link #releaseSharedStore}.
+   */
+  public static SentryStore getSharedStore(Configuration conf) throws Exception {
+    synchronized (SHARED_STORES) {
+      SentryStore store = SHARED_STORES.get(conf);
+      if (store == null) {
+        store = new SentryStore(conf);
+        SHARED_STORES.put(conf, store);
+      }
+      store.sharedCount++;
+      return store;
+    }
+  }
+
+  /**
+   * Give back a store taken with {@link #getSharedStore}, stopping it when
+   * nobody holds it anymore.
+   */
+  public static void releaseSharedStore(Configuration conf, SentryStore store) {
+    synchronized (SHARED_STORES) {
+      Preconditions.checkState(SHARED_STORES.get(conf) == store && store.sharedCount > 0,
+          "The store is not shared for this configuration");
+      if (--store.sharedCount > 0) {
+        return;
+      }
+      SHARED_STORES.remove(conf);
+    }
+    store.stop();
+  }
+
   public TransactionManager getTransactionManager() {
     return tm;
   }
 
+  /**
+   * @return the log of the role, group and privilege changes made through
+   *         this store
+   */
+  public PolicyChangeLog getChangeLog() {
+    return changeLog;
+  }
+
+  /**
+   * Read the image of all the roles with their groups, users and privileges
+   * in a single transaction.
+   */
+  private SentryPolicyImage loadPolicyImage() throws Exception {
+    return tm.executeTransaction(
+        new TransactionBlock<SentryPolicyImage>() {
+          public SentryPolicyImage execute(PersistenceManager pm) throws Exception {
+            List<SentryPolicyImage.RoleImage> roles = new ArrayList<>();
+            for (MSentryRole role : getAllRoles(pm)) {
+              roles.add(SentryPolicyImage.RoleImage.of(role));
+            }
+            return SentryPolicyImage.of(roles, getGroupNameTGroupMap(pm).keySet(),
+                getUserNameToUserMap(pm).keySet());
+          }
+        });
+  }
+
+  /**
+   * Refresh the policy image after a committed change by reading the changed
+   * roles again and replacing them in the image. The roles are read and
+   * replaced under a lock, so that older reads never replace newer ones.
+   * If the refresh fails the reads go to the database until the next change
+   * reloads the whole image.
+   *
+   * @param roleNames the normalized names of the changed roles, or null if
+   *        any role may have changed
+   */
+  private void policyChanged(final Set<String> roleNames) {
+    if (!policyImageEnabled) {
+      return;
+    }
+    synchronized (policyImageLock) {
+      final SentryPolicyImage image = policyImage;
+      if (image != null && roleNames != null && roleNames.isEmpty()) {
+        return;
+      }
+      try {
+        if (image == null || roleNames == null) {
+          policyImage = loadPolicyImage();
+        } else {
+          image.replaceRoles(tm.executeTransaction(
+              new TransactionBlock<Map<String, SentryPolicyImage.RoleImage>>() {
+                public Map<String, SentryPolicyImage.RoleImage> execute(PersistenceManager pm)
+                    throws Exception {
+                  Map<String, SentryPolicyImage.RoleImage> changedRoles = new HashMap<>();
+                  for (String roleName : roleNames) {
+                    MSentryRole role = getRole(pm, roleName);
+                    changedRoles.put(roleName,
+                        role == null ? null : SentryPolicyImage.RoleImage.of(role));
+                  }
+                  return changedRoles;
+                }
+              }));
+        }
+      } catch (Exception e) {
+        LOGGER.error("Could not refresh the policy image, reading from the database instead", e);
+        policyImage = null;
+      }
+    }
+  }
+
+  private void policyChanged(String roleName) {
+    policyChanged(Collections.singleton(roleName));
+  }
+
+  /**
+   * Reload the whole policy image after a change of the tables made without
+   * this store.
+   */
+  @VisibleForTesting
+  public void reloadPolicyImage() {
+    policyChanged((Set<String>) null);
+  }
+
   // ensure that the backend DB schema is set
   void verifySentryStoreSchema(boolean checkVersion) throws Exception {
     if (!checkVersion) {
@@ -240,25 +412,12 @@ public class SentryStore {
         // Ignore...
       }
     }
+    tm.stop();
     if (pmf != null) {
       pmf.close();
     }
   }
 
-  private void rollbackTransaction(PersistenceManager pm) {
-    if (pm == null || pm.isClosed()) {
-      return;
-    }
-    Transaction currentTransaction = pm.currentTransaction();
-    if (currentTransaction.isActive()) {
-      try {
-        currentTransaction.rollback();
-      } finally {
-        pm.close();
-      }
-    }
-  }
-
   /**
    * Get a single role with the given name inside a transaction
    * @param pm Persistence Manager instance
@@ -325,6 +484,8 @@ public class SentryStore {
             return null;
             }
         });
+    policyChanged(trimAndLower(roleName));
+    changeLog.roleChanged(null, trimAndLower(roleName));
   }
 
   /**
@@ -424,6 +585,7 @@ public class SentryStore {
       // the method only for test, log the error and ignore the exception
       LOGGER.error(e.getMessage(), e);
     }
+    policyChanged((Set<String>) null);
   }
 
   /**
@@ -451,78 +613,136 @@ public class SentryStore {
     tm.executeTransactionWithRetry(
         new TransactionBlock() {
           public Object execute(PersistenceManager pm) throws Exception {
+            if (privileges.isEmpty()) {
+              return null;
+            }
             String trimmedRoleName = trimAndLower(roleName);
+            // first do grant check
+            grantOptionCheck(pm, grantorPrincipal, privileges);
+            MSentryRole mRole = getRole(pm, trimmedRoleName);
+            if (mRole == null) {
+              throw noSuchRole(trimmedRoleName);
+            }
+            PrivilegeCache privilegeCache = new PrivilegeCache(pm, privileges);
             for (TSentryPrivilege privilege : privileges) {
-              // first do grant check
-              grantOptionCheck(pm, grantorPrincipal, privilege);
               MSentryPrivilege mPrivilege = alterSentryRoleGrantPrivilegeCore(
-                  pm, trimmedRoleName, privilege);
+                  pm, mRole, privilege, privilegeCache);
               if (mPrivilege != null) {
                 convertToTSentryPrivilege(mPrivilege, privilege);
               }
             }
+            makeGrantsPersistent(pm, mRole, privilegeCache);
             return null;
           }
         });
+    policyChanged(trimAndLower(roleName));
   }
 
   private MSentryPrivilege alterSentryRoleGrantPrivilegeCore(PersistenceManager pm,
       String roleName, TSentryPrivilege privilege)
       throws SentryNoSuchObjectException, SentryInvalidInputException {
-    MSentryPrivilege mPrivilege = null;
     MSentryRole mRole = getRole(pm, roleName);
     if (mRole == null) {
       throw noSuchRole(roleName);
-    } else {
-      if (!isNULL(privilege.getColumnName()) || !isNULL(privilege.getTableName())
-          || !isNULL(privilege.getDbName())) {
-        // If Grant is for ALL and Either INSERT/SELECT already exists..
-        // need to remove it and GRANT ALL..
-        if (AccessConstants.ALL.equalsIgnoreCase(privilege.getAction())
-            || AccessConstants.ACTION_ALL.equalsIgnoreCase(privilege.getAction())) {
-          TSentryPrivilege tNotAll = new TSentryPrivilege(privilege);
-          tNotAll.setAction(AccessConstants.SELECT);
-          MSentryPrivilege mSelect = getMSentryPrivilege(tNotAll, pm);
-          tNotAll.setAction(AccessConstants.INSERT);
-          MSentryPrivilege mInsert = getMSentryPrivilege(tNotAll, pm);
-          if (mSelect != null && mRole.getPrivileges().contains(mSelect)) {
-            mSelect.removeRole(mRole);
-            privCleaner.incPrivRemoval();
-            pm.makePersistent(mSelect);
-          }
-          if (mInsert != null && mRole.getPrivileges().contains(mInsert)) {
-            mInsert.removeRole(mRole);
-            privCleaner.incPrivRemoval();
-            pm.makePersistent(mInsert);
-          }
-        } else {
-          // If Grant is for Either INSERT/SELECT and ALL already exists..
-          // do nothing..
-          TSentryPrivilege tAll = new TSentryPrivilege(privilege);
-          tAll.setAction(AccessConstants.ALL);
-          MSentryPrivilege mAll1 = getMSentryPrivilege(tAll, pm);
-          tAll.setAction(AccessConstants.ACTION_ALL);
-          MSentryPrivilege mAll2 = getMSentryPrivilege(tAll, pm);
-          if (mAll1 != null && mRole.getPrivileges().contains(mAll1)) {
-            return null;
-          }
-          if (mAll2 != null && mRole.getPrivileges().contains(mAll2)) {
-            return null;
-          }
+    }
+    PrivilegeCache privilegeCache = new PrivilegeCache(pm, Collections.singleton(privilege));
+    MSentryPrivilege mPrivilege = alterSentryRoleGrantPrivilegeCore(pm, mRole, privilege,
+        privilegeCache);
+    makeGrantsPersistent(pm, mRole, privilegeCache);
+    return mPrivilege;
+  }
+
+  /**
+   * Grant the privilege to the role. The privileges it creates are only
+   * added to the cache, see {@link #makeGrantsPersistent}, the changes to the
+   * persistent ones are written when the transaction commits.
+   */
+  private MSentryPrivilege alterSentryRoleGrantPrivilegeCore(PersistenceManager pm,
+      MSentryRole mRole, TSentryPrivilege privilege, PrivilegeCache privilegeCache)
+      throws SentryInvalidInputException {
+    if (!isNULL(privilege.getColumnName()) || !isNULL(privilege.getTableName())
+        || !isNULL(privilege.getDbName())) {
+      // If Grant is for ALL and Either INSERT/SELECT already exists..
+      // need to remove it and GRANT ALL..
+      if (AccessConstants.ALL.equalsIgnoreCase(privilege.getAction())
+          || AccessConstants.ACTION_ALL.equalsIgnoreCase(privilege.getAction())) {
+        TSentryPrivilege tNotAll = new TSentryPrivilege(privilege);
+        tNotAll.setAction(AccessConstants.SELECT);
+        MSentryPrivilege mSelect = privilegeCache.get(pm, tNotAll);
+        tNotAll.setAction(AccessConstants.INSERT);
+        MSentryPrivilege mInsert = privilegeCache.get(pm, tNotAll);
+        if (mSelect != null && mRole.getPrivileges().contains(mSelect)) {
+          mSelect.removeRole(mRole);
+          privilegeCache.removed(mSelect);
+        }
+        if (mInsert != null && mRole.getPrivileges().contains(mInsert)) {
+          mInsert.removeRole(mRole);
+          privilegeCache.removed(mInsert);
+        }
+      } else {
+        // If Grant is for Either INSERT/SELECT and ALL already exists..
+        // do nothing..
+        TSentryPrivilege tAll = new TSentryPrivilege(privilege);
+        tAll.setAction(AccessConstants.ALL);
+        MSentryPrivilege mAll1 = privilegeCache.get(pm, tAll);
+        tAll.setAction(AccessConstants.ACTION_ALL);
+        MSentryPrivilege mAll2 = privilegeCache.get(pm, tAll);
+        if (mAll1 != null && mRole.getPrivileges().contains(mAll1)) {
+          return null;
+        }
+        if (mAll2 != null && mRole.getPrivileges().contains(mAll2)) {
+          return null;
         }
       }
+    }
 
-      mPrivilege = getMSentryPrivilege(privilege, pm);
-      if (mPrivilege == null) {
-        mPrivilege = convertToMSentryPrivilege(privilege);
-      }
-      mPrivilege.appendRole(mRole);
-      pm.makePersistent(mRole);
-      pm.makePersistent(mPrivilege);
+    MSentryPrivilege mPrivilege = privilegeCache.get(pm, privilege);
+    if (mPrivilege == null) {
+      mPrivilege = convertToMSentryPrivilege(privilege);
+      privilegeCache.add(mPrivilege);
     }
+    mRole.appendPrivilege(mPrivilege);
     return mPrivilege;
   }
 
+  /**
+   * Persist the role and, in one call, the privileges created for it which
+   * are still granted to a role, and delete the privileges the grant left
+   * orphaned.
+   */
+  private void makeGrantsPersistent(PersistenceManager pm, MSentryRole mRole,
+      PrivilegeCache privilegeCache) {
+    pm.makePersistent(mRole);
+    List<MSentryPrivilege> created = new ArrayList<>();
+    for (MSentryPrivilege mPrivilege : privilegeCache.getCreated()) {
+      if (!mPrivilege.getRoles().isEmpty()) {
+        created.add(mPrivilege);
+      }
+    }
+    pm.makePersistentAll(created);
+    deleteOrphanedPrivileges(pm, privilegeCache.getRemoved());
+  }
+
+  /**
+   * Delete the privileges, removed from a role in this transaction, which are
+   * no longer granted to any role. A privilege shared with another role, or
+   * granted again later in the transaction, is kept.
+   */
+  private void deleteOrphanedPrivileges(PersistenceManager pm,
+      Collection<MSentryPrivilege> removedPrivileges) {
+    List<MSentryPrivilege> orphans = new ArrayList<>();
+    for (MSentryPrivilege mPrivilege : removedPrivileges) {
+      if (JDOHelper.isPersistent(mPrivilege) && !JDOHelper.isDeleted(mPrivilege)
+          && mPrivilege.getRoles().isEmpty()) {
+        orphans.add(mPrivilege);
+      }
+    }
+    if (!orphans.isEmpty()) {
+      pm.deletePersistentAll(orphans);
+      LOGGER.debug("Deleted {} orphaned privileges", orphans.size());
+    }
+  }
+
   void alterSentryRoleRevokePrivilege(String grantorPrincipal,
       String roleName, TSentryPrivilege tPrivilege) throws Exception {
     alterSentryRoleRevokePrivileges(grantorPrincipal, roleName,
@@ -534,15 +754,26 @@ public class SentryStore {
     tm.executeTransactionWithRetry(
         new TransactionBlock() {
           public Object execute(PersistenceManager pm) throws Exception {
+            if (tPrivileges.isEmpty()) {
+              return null;
+            }
             String trimmedRoleName = safeTrimLower(roleName);
+            // first do revoke check
+            grantOptionCheck(pm, grantorPrincipal, tPrivileges);
+            MSentryRole mRole = getRole(pm, trimmedRoleName);
+            if (mRole == null) {
+              throw noSuchRole(trimmedRoleName);
+            }
+            PrivilegeCache privilegeCache = new PrivilegeCache(pm, tPrivileges);
             for (TSentryPrivilege tPrivilege : tPrivileges) {
-              // first do revoke check
-              grantOptionCheck(pm, grantorPrincipal, tPrivilege);
-              alterSentryRoleRevokePrivilegeCore(pm, trimmedRoleName, tPrivilege);
+              alterSentryRoleRevokePrivilegeCore(pm, mRole, tPrivilege, privilegeCache);
             }
+            pm.makePersistent(mRole);
+            deleteOrphanedPrivileges(pm, privilegeCache.getRemoved());
             return null;
           }
         });
+    policyChanged(safeTrimLower(roleName));
   }
 
   private void alterSentryRoleRevokePrivilegeCore(PersistenceManager pm,
@@ -552,7 +783,16 @@ public class SentryStore {
     if (mRole == null) {
       throw noSuchRole(roleName);
     }
-    MSentryPrivilege mPrivilege = getMSentryPrivilege(tPrivilege, pm);
+    PrivilegeCache privilegeCache = new PrivilegeCache(pm, Collections.singleton(tPrivilege));
+    alterSentryRoleRevokePrivilegeCore(pm, mRole, tPrivilege, privilegeCache);
+    pm.makePersistent(mRole);
+    deleteOrphanedPrivileges(pm, privilegeCache.getRemoved());
+  }
+
+  private void alterSentryRoleRevokePrivilegeCore(PersistenceManager pm,
+      MSentryRole mRole, TSentryPrivilege tPrivilege, PrivilegeCache privilegeCache)
+      throws SentryInvalidInputException {
+    MSentryPrivilege mPrivilege = privilegeCache.get(pm, tPrivilege);
     if (mPrivilege == null) {
       mPrivilege = convertToMSentryPrivilege(tPrivilege);
     } else {
@@ -571,11 +811,10 @@ public class SentryStore {
       privilegeGraph.add(mFalse);
     }
     // Get the privilege graph
-    populateChildren(pm, Sets.newHashSet(roleName), mPrivilege, privilegeGraph);
+    populateChildren(pm, Sets.newHashSet(mRole.getRoleName()), mRole, mPrivilege, privilegeGraph);
     for (MSentryPrivilege childPriv : privilegeGraph) {
-      revokePrivilegeFromRole(pm, tPrivilege, mRole, childPriv);
+      revokePrivilegeFromRole(pm, tPrivilege, mRole, childPriv, privilegeCache);
     }
-    pm.makePersistent(mRole);
   }
 
   /**
@@ -585,44 +824,49 @@ public class SentryStore {
    */
   private void revokePartial(PersistenceManager pm,
       TSentryPrivilege requestedPrivToRevoke, MSentryRole mRole,
-      MSentryPrivilege currentPrivilege) throws SentryInvalidInputException {
-    MSentryPrivilege persistedPriv = getMSentryPrivilege(convertToTSentryPrivilege(currentPrivilege), pm);
+      MSentryPrivilege currentPrivilege, PrivilegeCache privilegeCache)
+      throws SentryInvalidInputException {
+    MSentryPrivilege persistedPriv = privilegeCache.get(pm,
+        convertToTSentryPrivilege(currentPrivilege));
     if (persistedPriv == null) {
       persistedPriv = convertToMSentryPrivilege(convertToTSentryPrivilege(currentPrivilege));
     }
 
     if (requestedPrivToRevoke.getAction().equalsIgnoreCase("ALL") || requestedPrivToRevoke.getAction().equalsIgnoreCase("*")) {
       persistedPriv.removeRole(mRole);
-      privCleaner.incPrivRemoval();
+      privilegeCache.removed(persistedPriv);
       pm.makePersistent(persistedPriv);
     } else if (requestedPrivToRevoke.getAction().equalsIgnoreCase(AccessConstants.SELECT)
         && !currentPrivilege.getAction().equalsIgnoreCase(AccessConstants.INSERT)) {
-      revokeRolePartial(pm, mRole, currentPrivilege, persistedPriv, AccessConstants.INSERT);
+      revokeRolePartial(pm, mRole, currentPrivilege, persistedPriv, AccessConstants.INSERT,
+          privilegeCache);
     } else if (requestedPrivToRevoke.getAction().equalsIgnoreCase(AccessConstants.INSERT)
         && !currentPrivilege.getAction().equalsIgnoreCase(AccessConstants.SELECT)) {
-      revokeRolePartial(pm, mRole, currentPrivilege, persistedPriv, AccessConstants.SELECT);
+      revokeRolePartial(pm, mRole, currentPrivilege, persistedPriv, AccessConstants.SELECT,
+          privilegeCache);
     }
   }
 
   private void revokeRolePartial(PersistenceManager pm, MSentryRole mRole,
-      MSentryPrivilege currentPrivilege, MSentryPrivilege persistedPriv, String addAction)
-      throws SentryInvalidInputException {
+      MSentryPrivilege currentPrivilege, MSentryPrivilege persistedPriv, String addAction,
+      PrivilegeCache privilegeCache) throws SentryInvalidInputException {
     // If table / URI, remove ALL
     persistedPriv.removeRole(mRole);
-    privCleaner.incPrivRemoval();
+    privilegeCache.removed(persistedPriv);
     pm.makePersistent(persistedPriv);
 
     currentPrivilege.setAction(AccessConstants.ALL);
-    persistedPriv = getMSentryPrivilege(convertToTSentryPrivilege(currentPrivilege), pm);
+    persistedPriv = privilegeCache.get(pm, convertToTSentryPrivilege(currentPrivilege));
     if (persistedPriv != null && mRole.getPrivileges().contains(persistedPriv)) {
       persistedPriv.removeRole(mRole);
-      privCleaner.incPrivRemoval();
+      privilegeCache.removed(persistedPriv);
       pm.makePersistent(persistedPriv);
 
       currentPrivilege.setAction(addAction);
-      persistedPriv = getMSentryPrivilege(convertToTSentryPrivilege(currentPrivilege), pm);
+      persistedPriv = privilegeCache.get(pm, convertToTSentryPrivilege(currentPrivilege));
       if (persistedPriv == null) {
         persistedPriv = convertToMSentryPrivilege(convertToTSentryPrivilege(currentPrivilege));
+        privilegeCache.add(persistedPriv);
         mRole.appendPrivilege(persistedPriv);
       }
       persistedPriv.appendRole(mRole);
@@ -634,19 +878,20 @@ public class SentryStore {
    * Revoke privilege from role
    */
   private void revokePrivilegeFromRole(PersistenceManager pm, TSentryPrivilege tPrivilege,
-      MSentryRole mRole, MSentryPrivilege mPrivilege) throws SentryInvalidInputException {
+      MSentryRole mRole, MSentryPrivilege mPrivilege, PrivilegeCache privilegeCache)
+      throws SentryInvalidInputException {
     if (PARTIAL_REVOKE_ACTIONS.contains(mPrivilege.getAction())) {
       // if this privilege is in {ALL,SELECT,INSERT}
       // we will do partial revoke
-      revokePartial(pm, tPrivilege, mRole, mPrivilege);
+      revokePartial(pm, tPrivilege, mRole, mPrivilege, privilegeCache);
     } else {
       // if this privilege is not ALL, SELECT nor INSERT,
       // we will revoke it from role directly
-      MSentryPrivilege persistedPriv = getMSentryPrivilege(convertToTSentryPrivilege(mPrivilege), pm);
+      MSentryPrivilege persistedPriv = privilegeCache.get(pm,
+          convertToTSentryPrivilege(mPrivilege));
       if (persistedPriv != null) {
-        mPrivilege.removeRole(mRole);
-        privCleaner.incPrivRemoval();
-        pm.makePersistent(mPrivilege);
+        persistedPriv.removeRole(mRole);
+        privilegeCache.removed(persistedPriv);
       }
     }
   }
@@ -657,16 +902,26 @@ public class SentryStore {
    */
   private void populateChildren(PersistenceManager pm, Set<String> roleNames, MSentryPrivilege priv,
       Set<MSentryPrivilege> children) throws SentryInvalidInputException {
+    populateChildren(pm, roleNames, null, priv, children);
+  }
+
+  /**
+   * @param role the single role of roleNames, whose privileges are already
+   *        loaded, or null to query the child privileges from the database
+   */
+  private void populateChildren(PersistenceManager pm, Set<String> roleNames, MSentryRole role,
+      MSentryPrivilege priv, Set<MSentryPrivilege> children) throws SentryInvalidInputException {
     Preconditions.checkNotNull(pm);
     if (!isNULL(priv.getServerName()) || !isNULL(priv.getDbName())
         || !isNULL(priv.getTableName())) {
       // Get all TableLevel Privs
-      Set<MSentryPrivilege> childPrivs = getChildPrivileges(pm, roleNames, priv);
+      Set<MSentryPrivilege> childPrivs = role == null
+          ? getChildPrivileges(pm, roleNames, priv) : getChildPrivileges(role, priv);
       for (MSentryPrivilege childPriv : childPrivs) {
         // Only recurse for table level privs..
         if (!isNULL(childPriv.getDbName()) && !isNULL(childPriv.getTableName())
             && !isNULL(childPriv.getColumnName())) {
-          populateChildren(pm, roleNames, childPriv, children);
+          populateChildren(pm, roleNames, role, childPriv, children);
         }
         // The method getChildPrivileges() didn't do filter on "action",
         // if the action is not "All", it should judge the action of children privilege.
@@ -740,6 +995,46 @@ public class SentryStore {
     return privileges;
   }
 
+  /**
+   * Same as {@link #getChildPrivileges(PersistenceManager, Set, MSentryPrivilege)}
+   * for a single role, matched against the privileges of the role in memory.
+   * Revoking from a role loads all its privileges anyway, so a revoke of many
+   * privileges doesn't query the children of each of them, level by level.
+   */
+  private Set<MSentryPrivilege> getChildPrivileges(MSentryRole role, MSentryPrivilege parent) {
+    // Column and URI do not have children
+    if (!isNULL(parent.getColumnName()) || !isNULL(parent.getURI())) {
+      return Collections.emptySet();
+    }
+    String serverName = toNULLCol(safeTrimLower(parent.getServerName()));
+    String dbName = toNULLCol(safeTrimLower(parent.getDbName()));
+    String tableName = toNULLCol(safeTrimLower(parent.getTableName()));
+    Set<MSentryPrivilege> privileges = new HashSet<>();
+    for (MSentryPrivilege priv : role.getPrivileges()) {
+      if (!serverName.equals(priv.getServerName())) {
+        continue;
+      }
+      boolean child;
+      if (!isNULL(parent.getDbName())) {
+        if (!isNULL(parent.getTableName())) {
+          child = dbName.equals(priv.getDbName()) && tableName.equals(priv.getTableName())
+              && !isNULL(priv.getColumnName());
+        } else {
+          child = dbName.equals(priv.getDbName()) && !isNULL(priv.getTableName());
+        }
+      } else {
+        child = !isNULL(priv.getDbName()) || !isNULL(priv.getURI());
+      }
+      if (child) {
+        // a copy, like the rows of the query, the caller may change its action
+        privileges.add(new MSentryPrivilege(priv.getPrivilegeScope(), priv.getServerName(),
+            priv.getDbName(), priv.getTableName(), priv.getColumnName(), priv.getURI(),
+            priv.getAction(), priv.getGrantOption()));
+      }
+    }
+    return privileges;
+  }
+
   @SuppressWarnings("unchecked")
   private List<MSentryPrivilege> getMSentryPrivileges(TSentryPrivilege tPriv, PersistenceManager pm) {
     Query query = pm.newQuery(MSentryPrivilege.class);
@@ -796,6 +1091,8 @@ public class SentryStore {
             return null;
           }
         });
+    policyChanged(trimAndLower(roleName));
+    changeLog.roleChanged(null, trimAndLower(roleName));
   }
 
   private void dropSentryRoleCore(PersistenceManager pm, String roleName)
@@ -805,11 +1102,10 @@ public class SentryStore {
     if (sentryRole == null) {
       throw noSuchRole(lRoleName);
     }
-    int numPrivs = sentryRole.getPrivileges().size();
-    sentryRole.removePrivileges();
+    Set<MSentryPrivilege> removedPrivileges = sentryRole.removePrivileges();
     // with SENTRY-398 generic model
     sentryRole.removeGMPrivileges();
-    privCleaner.incPrivRemoval(numPrivs);
+    deleteOrphanedPrivileges(pm, removedPrivileges);
     pm.deletePersistent(sentryRole);
   }
 
@@ -822,6 +1118,8 @@ public class SentryStore {
             return null;
           }
         });
+    policyChanged(trimAndLower(roleName));
+    changeLog.roleChanged(null, trimAndLower(roleName));
   }
 
   private void alterSentryRoleAddGroupsCore(PersistenceManager pm, String roleName,
@@ -856,6 +1154,7 @@ public class SentryStore {
             return null;
           }
         });
+    policyChanged(trimAndLower(roleName));
   }
 
   private void alterSentryRoleAddUsersCore(PersistenceManager pm, String roleName,
@@ -908,6 +1207,7 @@ public class SentryStore {
             return null;
           }
         });
+    policyChanged(trimAndLower(roleName));
   }
 
   public void alterSentryRoleDeleteGroups(final String roleName,
@@ -936,6 +1236,8 @@ public class SentryStore {
             return null;
           }
         });
+    policyChanged(trimAndLower(roleName));
+    changeLog.roleChanged(null, trimAndLower(roleName));
   }
 
   @VisibleForTesting
@@ -957,6 +1259,10 @@ public class SentryStore {
     if (roleNames == null || roleNames.isEmpty()) {
       return false;
     }
+    SentryPolicyImage image = policyImage;
+    if (image != null) {
+      return image.hasAnyServerPrivileges(roleNames, serverName);
+    }
     return tm.executeTransaction(
       new TransactionBlock<Boolean>() {
         public Boolean execute(PersistenceManager pm) throws Exception {
@@ -978,6 +1284,10 @@ public class SentryStore {
     if (roleNames == null || roleNames.isEmpty()) {
       return Collections.emptyList();
     }
+    SentryPolicyImage image = policyImage;
+    if (image != null) {
+      return image.getPrivileges(roleNames, authHierarchy);
+    }
 
     return tm.executeTransaction(
       new TransactionBlock<List<MSentryPrivilege>>() {
@@ -1095,6 +1405,18 @@ public class SentryStore {
     // An empty 'roles' is a treated as a wildcard (in case of admin role)..
     // so if not admin, don't return anything if 'roles' is empty..
     if (isAdmin || !roles.isEmpty()) {
+      SentryPolicyImage image = policyImage;
+      if (image != null) {
+        for (Map.Entry<String, Set<MSentryPrivilege>> rolePrivileges
+            : image.getPrivilegesByAuthorizable(roles, authHierarchy).entrySet()) {
+          Set<TSentryPrivilege> tPrivSet = Sets.newTreeSet();
+          for (MSentryPrivilege priv : rolePrivileges.getValue()) {
+            tPrivSet.add(convertToTSentryPrivilege(priv));
+          }
+          resultPrivilegeMap.put(rolePrivileges.getKey(), tPrivSet);
+        }
+        return new TSentryPrivilegeMap(resultPrivilegeMap);
+      }
       List<MSentryPrivilege> mSentryPrivileges = getMSentryPrivilegesByAuth(roles,
           authHierarchy);
       for (MSentryPrivilege priv : mSentryPrivileges) {
@@ -1128,6 +1450,15 @@ public class SentryStore {
 
   public Set<TSentryPrivilege> getAllTSentryPrivilegesByRoleName(String roleName)
       throws Exception {
+    SentryPolicyImage image = policyImage;
+    if (image != null) {
+      String trimmedRoleName = trimAndLower(roleName);
+      SentryPolicyImage.RoleImage role = image.getRole(trimmedRoleName);
+      if (role == null) {
+        throw noSuchRole(trimmedRoleName);
+      }
+      return convertToTSentryPrivileges(role.getPrivileges());
+    }
     return convertToTSentryPrivileges(getMSentryPrivilegesByRoleName(roleName));
   }
 
@@ -1193,6 +1524,10 @@ public class SentryStore {
    */
   public Set<TSentryRole> getTSentryRolesByGroupName(Set<String> groupNames,
       boolean checkAllGroups) throws Exception {
+    SentryPolicyImage image = policyImage;
+    if (image != null) {
+      return getTSentryRolesByGroupName(image, groupNames, checkAllGroups);
+    }
     Set<MSentryRole> roleSet = Sets.newHashSet();
     for (String groupName : groupNames) {
       try {
@@ -1207,10 +1542,40 @@ public class SentryStore {
     return convertToTSentryRoles(roleSet);
   }
 
+  private Set<TSentryRole> getTSentryRolesByGroupName(SentryPolicyImage image,
+      Set<String> groupNames, boolean checkAllGroups) throws SentryNoSuchObjectException {
+    Set<TSentryRole> roleSet = Sets.newHashSet();
+    for (String groupName : groupNames) {
+      Set<String> roleNames;
+      //If no group name was specified, return all roles
+      if (groupName == null) {
+        roleNames = image.getRoleNames();
+      } else {
+        String trimmedGroupName = groupName.trim();
+        roleNames = image.getRoleNamesForGroup(trimmedGroupName);
+        if (roleNames == null) {
+          // if we are checking for all the given groups, then continue searching
+          if (!checkAllGroups) {
+            throw noSuchGroup(trimmedGroupName);
+          }
+          continue;
+        }
+      }
+      for (String roleName : roleNames) {
+        roleSet.add(convertToTSentryRole(image.getRole(roleName)));
+      }
+    }
+    return roleSet;
+  }
+
   public Set<String> getRoleNamesForGroups(final Set<String> groups) throws Exception {
     if (groups == null || groups.isEmpty()) {
       return ImmutableSet.of();
     }
+    SentryPolicyImage image = policyImage;
+    if (image != null) {
+      return image.getRoleNamesForGroups(groups);
+    }
 
     return tm.executeTransaction(
         new TransactionBlock<Set<String>>() {
@@ -1228,6 +1593,10 @@ public class SentryStore {
     if (users == null || users.isEmpty()) {
       return ImmutableSet.of();
     }
+    SentryPolicyImage image = policyImage;
+    if (image != null) {
+      return image.getRoleNamesForUsers(users);
+    }
 
     return tm.executeTransaction(
           new TransactionBlock<Set<String>>() {
@@ -1243,6 +1612,14 @@ public class SentryStore {
 
   public Set<TSentryRole> getTSentryRolesByUserNames(final Set<String> users)
           throws Exception {
+    SentryPolicyImage image = policyImage;
+    if (image != null) {
+      Set<TSentryRole> roles = new HashSet<>();
+      for (String roleName : image.getRoleNamesForUsers(users)) {
+        roles.add(convertToTSentryRole(image.getRole(roleName)));
+      }
+      return roles;
+    }
     return tm.executeTransaction(
       new TransactionBlock<Set<TSentryRole>>() {
       public Set<TSentryRole> execute(PersistenceManager pm) throws Exception {
@@ -1292,6 +1669,13 @@ public class SentryStore {
 
   public Set<String> listSentryPrivilegesForProvider(Set<String> groups, Set<String> users,
       TSentryActiveRoleSet roleSet, TSentryAuthorizable authHierarchy) throws Exception {
+    if (policyImage == null && directSql != null) {
+      Set<String> result = listSentryPrivilegesForProviderDirect(groups, users, roleSet,
+          authHierarchy);
+      if (result != null) {
+        return result;
+      }
+    }
     Set<String> result = Sets.newHashSet();
     Set<String> rolesToQuery = getRolesToQuery(groups, users, roleSet);
     List<MSentryPrivilege> mSentryPrivileges = getMSentryPrivileges(rolesToQuery, authHierarchy);
@@ -1302,6 +1686,41 @@ public class SentryStore {
     return result;
   }
 
+  private SentryStoreDirectSql loadDirectSql() {
+    try {
+      return tm.executeTransaction(
+        new TransactionBlock<SentryStoreDirectSql>() {
+          public SentryStoreDirectSql execute(PersistenceManager pm) throws Exception {
+            return SentryStoreDirectSql.forDatabase(pm);
+          }
+        });
+    } catch (Exception e) {
+      LOGGER.warn("Could not detect the database for direct SQL, using JDOQL", e);
+      return null;
+    }
+  }
+
+  /**
+   * @return the privileges read by the direct SQL query, or null if the JDOQL
+   *         queries should be used instead
+   */
+  private Set<String> listSentryPrivilegesForProviderDirect(final Set<String> groups,
+      final Set<String> users, final TSentryActiveRoleSet roleSet,
+      final TSentryAuthorizable authHierarchy) {
+    try {
+      return tm.executeTransaction(
+        new TransactionBlock<Set<String>>() {
+          public Set<String> execute(PersistenceManager pm) throws Exception {
+            return directSql.listSentryPrivilegesForProvider(pm, groups, users, roleSet,
+                authHierarchy);
+          }
+        });
+    } catch (Exception e) {
+      LOGGER.warn("Direct SQL query of the privileges failed, falling back to JDOQL", e);
+      return null;
+    }
+  }
+
   public boolean hasAnyServerPrivileges(Set<String> groups, Set<String> users,
       TSentryActiveRoleSet roleSet, String server) throws Exception {
     Set<String> rolesToQuery = getRolesToQuery(groups, users, roleSet);
@@ -1310,47 +1729,65 @@ public class SentryStore {
 
   private Set<String> getRolesToQuery(final Set<String> groups, final Set<String> users,
       final TSentryActiveRoleSet roleSet) throws Exception {
+      SentryPolicyImage image = policyImage;
+      if (image != null) {
+        return getRolesToQuery(image.getRoleNamesForGroups(groups),
+            image.getRoleNamesForUsers(users), roleSet);
+      }
       return tm.executeTransaction(
         new TransactionBlock<Set<String>>() {
           public Set<String> execute(PersistenceManager pm) throws Exception {
-            Set<String> activeRoleNames = toTrimedLower(roleSet.getRoles());
-
-            Set<String> roleNames = Sets.newHashSet();
-            roleNames.addAll(toTrimedLower(getRoleNamesForGroupsCore(pm, groups)));
-            roleNames.addAll(toTrimedLower(getRoleNamesForUsersCore(pm, users)));
-            return roleSet.isAll() ? roleNames : Sets.intersection(activeRoleNames,
-                roleNames);
+            return getRolesToQuery(getRoleNamesForGroupsCore(pm, groups),
+                getRoleNamesForUsersCore(pm, users), roleSet);
           }
         });
   }
 
+  private static Set<String> getRolesToQuery(Set<String> groupRoleNames,
+      Set<String> userRoleNames, TSentryActiveRoleSet roleSet) {
+    Set<String> activeRoleNames = toTrimedLower(roleSet.getRoles());
+
+    Set<String> roleNames = Sets.newHashSet();
+    roleNames.addAll(toTrimedLower(groupRoleNames));
+    roleNames.addAll(toTrimedLower(userRoleNames));
+    return roleSet.isAll() ? roleNames : Sets.intersection(activeRoleNames,
+        roleNames);
+  }
+
   @VisibleForTesting
   static String toAuthorizable(MSentryPrivilege privilege) {
+    return toAuthorizable(privilege.getServerName(), privilege.getDbName(),
+        privilege.getTableName(), privilege.getColumnName(), privilege.getURI(),
+        privilege.getAction());
+  }
+
+  static String toAuthorizable(String serverName, String dbName, String tableName,
+      String columnName, String uri, String action) {
     List<String> authorizable = new ArrayList<>(4);
     authorizable.add(KV_JOINER.join(AuthorizableType.Server.name().toLowerCase(),
-        privilege.getServerName()));
-    if (isNULL(privilege.getURI())) {
-      if (!isNULL(privilege.getDbName())) {
+        serverName));
+    if (isNULL(uri)) {
+      if (!isNULL(dbName)) {
         authorizable.add(KV_JOINER.join(AuthorizableType.Db.name().toLowerCase(),
-            privilege.getDbName()));
-        if (!isNULL(privilege.getTableName())) {
+            dbName));
+        if (!isNULL(tableName)) {
           authorizable.add(KV_JOINER.join(AuthorizableType.Table.name().toLowerCase(),
-              privilege.getTableName()));
-          if (!isNULL(privilege.getColumnName())) {
+              tableName));
+          if (!isNULL(columnName)) {
             authorizable.add(KV_JOINER.join(AuthorizableType.Column.name().toLowerCase(),
-                privilege.getColumnName()));
+                columnName));
           }
         }
       }
     } else {
       authorizable.add(KV_JOINER.join(AuthorizableType.URI.name().toLowerCase(),
-          privilege.getURI()));
+          uri));
     }
-    if (!isNULL(privilege.getAction())
-        && !privilege.getAction().equalsIgnoreCase(AccessConstants.ALL)) {
+    if (!isNULL(action)
+        && !action.equalsIgnoreCase(AccessConstants.ALL)) {
       authorizable
       .add(KV_JOINER.join(SentryConstants.PRIVILEGE_NAME.toLowerCase(),
-          privilege.getAction()));
+          action));
     }
     return AUTHORIZABLE_JOINER.join(authorizable);
   }
@@ -1423,6 +1860,18 @@ public class SentryStore {
     return role;
   }
 
+  private TSentryRole convertToTSentryRole(SentryPolicyImage.RoleImage roleImage) {
+    TSentryRole role = new TSentryRole();
+    role.setRoleName(roleImage.getRoleName());
+    role.setGrantorPrincipal("--");
+    Set<TSentryGroup> sentryGroups = new HashSet<>(roleImage.getGroups().size());
+    for (String groupName : roleImage.getGroups()) {
+      sentryGroups.add(new TSentryGroup(groupName));
+    }
+    role.setGroups(sentryGroups);
+    return role;
+  }
+
   private TSentryGroup convertToTSentryGroup(MSentryGroup mSentryGroup) {
     TSentryGroup group = new TSentryGroup();
     group.setGroupName(mSentryGroup.getGroupName());
@@ -1553,6 +2002,7 @@ public class SentryStore {
    * Drop given privilege from all roles
    */
   public void dropPrivilege(final TSentryAuthorizable tAuthorizable) throws Exception {
+    final Set<String> changedRoleNames = new HashSet<>();
     tm.executeTransactionWithRetry(
         new TransactionBlock() {
           public Object execute(PersistenceManager pm) throws Exception {
@@ -1562,10 +2012,12 @@ public class SentryStore {
               if (isMultiActionsSupported(tPrivilege)) {
                 for (String privilegeAction : ALL_ACTIONS) {
                   tPrivilege.setAction(privilegeAction);
-                  dropPrivilegeForAllRoles(pm, new TSentryPrivilege(tPrivilege));
+                  dropPrivilegeForAllRoles(pm, new TSentryPrivilege(tPrivilege),
+                      changedRoleNames);
                 }
               } else {
-                dropPrivilegeForAllRoles(pm, new TSentryPrivilege(tPrivilege));
+                dropPrivilegeForAllRoles(pm, new TSentryPrivilege(tPrivilege),
+                    changedRoleNames);
               }
             } catch (JDODataStoreException e) {
               throw new SentryInvalidInputException("Failed to get privileges: "
@@ -1574,6 +2026,7 @@ public class SentryStore {
             return null;
           }
         });
+    policyChanged(changedRoleNames);
   }
 
   /**
@@ -1585,6 +2038,7 @@ public class SentryStore {
    */
   public void renamePrivilege(final TSentryAuthorizable tAuthorizable,
       final TSentryAuthorizable newTAuthorizable) throws Exception {
+    final Set<String> changedRoleNames = new HashSet<>();
     tm.executeTransactionWithRetry(
         new TransactionBlock() {
           public Object execute(PersistenceManager pm) throws Exception {
@@ -1597,10 +2051,11 @@ public class SentryStore {
                 for (String privilegeAction : ALL_ACTIONS) {
                   tPrivilege.setAction(privilegeAction);
                   newPrivilege.setAction(privilegeAction);
-                  renamePrivilegeForAllRoles(pm, tPrivilege, newPrivilege);
+                  renamePrivilegeForAllRoles(pm, tPrivilege, newPrivilege,
+                      changedRoleNames);
                 }
               } else {
-                renamePrivilegeForAllRoles(pm, tPrivilege, newPrivilege);
+                renamePrivilegeForAllRoles(pm, tPrivilege, newPrivilege, changedRoleNames);
               }
             } catch (JDODataStoreException e) {
               throw new SentryInvalidInputException("Failed to get privileges: "
@@ -1609,6 +2064,7 @@ public class SentryStore {
             return null;
           }
         });
+    policyChanged(changedRoleNames);
   }
 
   // Currently INSERT/SELECT/ALL are supported for Table and DB level privileges
@@ -1619,9 +2075,9 @@ public class SentryStore {
   // wrapper for dropOrRename
   private void renamePrivilegeForAllRoles(PersistenceManager pm,
       TSentryPrivilege tPrivilege,
-      TSentryPrivilege newPrivilege) throws SentryNoSuchObjectException,
-      SentryInvalidInputException {
-    dropOrRenamePrivilegeForAllRoles(pm, tPrivilege, newPrivilege);
+      TSentryPrivilege newPrivilege, Set<String> changedRoleNames)
+      throws SentryNoSuchObjectException, SentryInvalidInputException {
+    dropOrRenamePrivilegeForAllRoles(pm, tPrivilege, newPrivilege, changedRoleNames);
   }
 
   /**
@@ -1631,22 +2087,23 @@ public class SentryStore {
    * @throws SentryInvalidInputException
    */
   private void dropPrivilegeForAllRoles(PersistenceManager pm,
-      TSentryPrivilege tPrivilege)
+      TSentryPrivilege tPrivilege, Set<String> changedRoleNames)
       throws SentryNoSuchObjectException, SentryInvalidInputException {
-    dropOrRenamePrivilegeForAllRoles(pm, tPrivilege, null);
+    dropOrRenamePrivilegeForAllRoles(pm, tPrivilege, null, changedRoleNames);
   }
 
   /**
    * Drop given privilege from all roles Create the new privilege if asked
    * @param tPrivilege
    * @param pm
+   * @param changedRoleNames the names of the roles which had the privilege are added to it
    * @throws SentryNoSuchObjectException
    * @throws SentryInvalidInputException
    */
   private void dropOrRenamePrivilegeForAllRoles(PersistenceManager pm,
       TSentryPrivilege tPrivilege,
-      TSentryPrivilege newTPrivilege) throws SentryNoSuchObjectException,
-      SentryInvalidInputException {
+      TSentryPrivilege newTPrivilege, Set<String> changedRoleNames)
+      throws SentryNoSuchObjectException, SentryInvalidInputException {
     HashSet<MSentryRole> roleSet = Sets.newHashSet();
 
     List<MSentryPrivilege> mPrivileges = getMSentryPrivileges(tPrivilege, pm);
@@ -1656,8 +2113,12 @@ public class SentryStore {
       }
     }
 
-    MSentryPrivilege parent = getMSentryPrivilege(tPrivilege, pm);
+    // a copy, the revoke deletes the privilege once no role has it
+    MSentryPrivilege persistedParent = getMSentryPrivilege(tPrivilege, pm);
+    MSentryPrivilege parent = persistedParent == null ? null
+        : new MSentryPrivilege(persistedParent);
     for (MSentryRole role : roleSet) {
+      changedRoleNames.add(role.getRoleName());
       // 1. get privilege and child privileges
       Set<MSentryPrivilege> privilegeGraph = Sets.newHashSet();
       if (parent != null) {
@@ -1770,9 +2231,8 @@ public class SentryStore {
    * @throws SentryUserException
    */
   private void grantOptionCheck(PersistenceManager pm, String grantorPrincipal,
-                                TSentryPrivilege privilege)
+                                Collection<TSentryPrivilege> privileges)
       throws SentryUserException {
-    MSentryPrivilege mPrivilege = convertToMSentryPrivilege(privilege);
     if (grantorPrincipal == null) {
       throw new SentryInvalidInputException("grantorPrincipal should not be null");
     }
@@ -1781,34 +2241,40 @@ public class SentryStore {
 
     // if grantor is in adminGroup, don't need to do check
     Set<String> admins = getAdminGroups();
-    boolean isAdminGroup = false;
     if (groups != null && !admins.isEmpty()) {
       for (String g : groups) {
         if (admins.contains(g)) {
-          isAdminGroup = true;
-          break;
+          return;
         }
       }
     }
 
-    if (!isAdminGroup) {
-      boolean hasGrant = false;
-      // get all privileges for group and user
-      Set<MSentryRole> roles = getRolesForGroups(pm, groups);
-      roles.addAll(getRolesForUsers(pm, Sets.newHashSet(grantorPrincipal)));
-      for (MSentryRole role : roles) {
-        Set<MSentryPrivilege> privilegeSet = role.getPrivileges();
-        if (privilegeSet != null && !privilegeSet.isEmpty()) {
-          // if role has a privilege p with grant option
-          // and mPrivilege is a child privilege of p
-          for (MSentryPrivilege p : privilegeSet) {
-            if (p.getGrantOption() && p.implies(mPrivilege)) {
-              hasGrant = true;
-              break;
-            }
+    // get all privileges with grant option for group and user
+    List<MSentryPrivilege> grantPrivileges = new ArrayList<>();
+    Set<MSentryRole> roles = getRolesForGroups(pm, groups);
+    roles.addAll(getRolesForUsers(pm, Sets.newHashSet(grantorPrincipal)));
+    for (MSentryRole role : roles) {
+      Set<MSentryPrivilege> privilegeSet = role.getPrivileges();
+      if (privilegeSet != null) {
+        for (MSentryPrivilege p : privilegeSet) {
+          if (p.getGrantOption()) {
+            grantPrivileges.add(p);
           }
         }
       }
+    }
+
+    for (TSentryPrivilege privilege : privileges) {
+      MSentryPrivilege mPrivilege = convertToMSentryPrivilege(privilege);
+      boolean hasGrant = false;
+      // if role has a privilege p with grant option
+      // and mPrivilege is a child privilege of p
+      for (MSentryPrivilege p : grantPrivileges) {
+        if (p.implies(mPrivilege)) {
+          hasGrant = true;
+          break;
+        }
+      }
 
       if (!hasGrant) {
         throw new SentryGrantDeniedException(grantorPrincipal
@@ -1824,136 +2290,293 @@ public class SentryStore {
   }
 
   public Map<String, HashMap<String, String>> retrieveFullPrivilegeImage() throws Exception {
-    return tm.executeTransaction(
-      new TransactionBlock<Map<String, HashMap<String, String>>>() {
-        public Map<String, HashMap<String, String>> execute(PersistenceManager pm)
-                throws Exception {
-          Map<String, HashMap<String, String>> retVal = new HashMap<>();
-          Query query = pm.newQuery(MSentryPrivilege.class);
-          QueryParamBuilder paramBuilder = newQueryParamBuilder();
-          paramBuilder
-                  .addNotNull(SERVER_NAME)
-                  .addNotNull(DB_NAME)
-                  .addNull(URI);
+    final Map<String, HashMap<String, String>> retVal = new HashMap<>();
+    final PermissionImageHandler handler = new PermissionImageHandler() {
+      @Override
+      public void handlePrivilege(String authzObj, String roleName, String action) {
+        HashMap<String, String> pUpdate = retVal.get(authzObj);
+        if (pUpdate == null) {
+          pUpdate = new HashMap<>();
+          retVal.put(authzObj, pUpdate);
+        }
+        String existingPriv = pUpdate.get(roleName);
+        pUpdate.put(roleName, existingPriv == null ? action : existingPriv + "," + action);
+      }
 
-          query.setFilter(paramBuilder.toString());
-          query.setOrdering("serverName ascending, dbName ascending, tableName ascending");
-          @SuppressWarnings("unchecked")
-          List<MSentryPrivilege> privileges =
-                  (List<MSentryPrivilege>) query.executeWithMap(paramBuilder.getArguments());
-          for (MSentryPrivilege mPriv : privileges) {
-            String authzObj = mPriv.getDbName();
-            if (!isNULL(mPriv.getTableName())) {
-              authzObj = authzObj + "." + mPriv.getTableName();
-            }
-            HashMap<String, String> pUpdate = retVal.get(authzObj);
-            if (pUpdate == null) {
-              pUpdate = new HashMap<>();
-              retVal.put(authzObj, pUpdate);
-            }
-            for (MSentryRole mRole : mPriv.getRoles()) {
-              String existingPriv = pUpdate.get(mRole.getRoleName());
-              if (existingPriv == null) {
-                pUpdate.put(mRole.getRoleName(), mPriv.getAction().toUpperCase());
-              } else {
-                pUpdate.put(mRole.getRoleName(), existingPriv + ","
-                        + mPriv.getAction().toUpperCase());
-              }
-            }
-          }
-          return retVal;
+      @Override
+      public void handleRoleGroup(String roleName, String groupName) {
+        // only the privileges are retrieved
+      }
+    };
+    tm.executeTransaction(
+      new TransactionBlock<Object>() {
+        public Object execute(PersistenceManager pm) throws Exception {
+          retrieveFullPrivilegeImageCore(pm, handler);
+          return null;
         }
       });
+    return retVal;
   }
 
   /**
    * @return Mapping of Role -> [Groups]
    */
   public Map<String, LinkedList<String>> retrieveFullRoleImage() throws Exception {
-    return tm.executeTransaction(
-        new TransactionBlock<Map<String, LinkedList<String>>>() {
-          public Map<String, LinkedList<String>> execute(PersistenceManager pm) throws Exception {
-            Query query = pm.newQuery(MSentryGroup.class);
-            @SuppressWarnings("unchecked")
-            List<MSentryGroup> groups = (List<MSentryGroup>) query.execute();
-            if (groups.isEmpty()) {
-              return Collections.emptyMap();
-            }
+    final Map<String, LinkedList<String>> retVal = new HashMap<>();
+    final PermissionImageHandler handler = new PermissionImageHandler() {
+      @Override
+      public void handlePrivilege(String authzObj, String roleName, String action) {
+        // only the groups are retrieved
+      }
 
-            Map<String, LinkedList<String>> retVal = new HashMap<>();
-            for (MSentryGroup mGroup : groups) {
-              for (MSentryRole role : mGroup.getRoles()) {
-                LinkedList<String> rUpdate = retVal.get(role.getRoleName());
-                if (rUpdate == null) {
-                  rUpdate = new LinkedList<String>();
-                  retVal.put(role.getRoleName(), rUpdate);
-                }
-                rUpdate.add(mGroup.getGroupName());
-              }
-            }
-            return retVal;
-          }
-        });
+      @Override
+      public void handleRoleGroup(String roleName, String groupName) {
+        LinkedList<String> rUpdate = retVal.get(roleName);
+        if (rUpdate == null) {
+          rUpdate = new LinkedList<String>();
+          retVal.put(roleName, rUpdate);
+        }
+        rUpdate.add(groupName);
+      }
+    };
+    tm.executeTransaction(
+      new TransactionBlock<Object>() {
+        public Object execute(PersistenceManager pm) throws Exception {
+          retrieveFullRoleImageCore(pm, handler);
+          return null;
+        }
+      });
+    return retVal;
+  }
+
+  /**
+   * Stream the privileges on databases and tables and the groups of the roles
+   * to the handler, in one transaction. Each of them is read with a single
+   * projection query, whose rows are fetched from the database in batches of
+   * sentry.store.full.image.fetch.size rows and are not kept by the query.
+   */
+  public void retrieveFullPermissionImage(final PermissionImageHandler handler)
+      throws Exception {
+    tm.executeTransaction(
+      new TransactionBlock<Object>() {
+        public Object execute(PersistenceManager pm) throws Exception {
+          retrieveFullPrivilegeImageCore(pm, handler);
+          retrieveFullRoleImageCore(pm, handler);
+          return null;
+        }
+      });
+  }
+
+  private void retrieveFullPrivilegeImageCore(PersistenceManager pm,
+      PermissionImageHandler handler) {
+    Query query = newStreamingQuery(pm, MSentryPrivilege.class);
+    QueryParamBuilder paramBuilder = newQueryParamBuilder();
+    paramBuilder
+            .addNotNull(SERVER_NAME)
+            .addNotNull(DB_NAME)
+            .addNull(URI)
+            .addString("roles.contains(role)");
+    query.declareVariables(MSentryRole.class.getName() + " role");
+    query.setFilter(paramBuilder.toString());
+    query.setResult("dbName, tableName, action, role.roleName");
+    try {
+      @SuppressWarnings("unchecked")
+      Collection<Object[]> rows =
+              (Collection<Object[]>) query.executeWithMap(paramBuilder.getArguments());
+      for (Object[] row : rows) {
+        String authzObj = (String) row[0];
+        String tableName = (String) row[1];
+        if (!isNULL(tableName)) {
+          authzObj = authzObj + "." + tableName;
+        }
+        handler.handlePrivilege(authzObj, (String) row[3], ((String) row[2]).toUpperCase());
+      }
+    } finally {
+      query.closeAll();
+    }
+  }
+
+  private void retrieveFullRoleImageCore(PersistenceManager pm,
+      PermissionImageHandler handler) {
+    Query query = newStreamingQuery(pm, MSentryGroup.class);
+    query.declareVariables(MSentryRole.class.getName() + " role");
+    query.setFilter("roles.contains(role)");
+    query.setResult("role.roleName, groupName");
+    try {
+      @SuppressWarnings("unchecked")
+      Collection<Object[]> rows = (Collection<Object[]>) query.execute();
+      for (Object[] row : rows) {
+        handler.handleRoleGroup((String) row[0], (String) row[1]);
+      }
+    } finally {
+      query.closeAll();
+    }
+  }
+
+  /**
+   * @return a query whose results are read from the database as they are
+   *         iterated, instead of all at once
+   */
+  private Query newStreamingQuery(PersistenceManager pm, Class<?> candidateClass) {
+    Query query = pm.newQuery(candidateClass);
+    query.getFetchPlan().setFetchSize(fullImageFetchSize);
+    query.addExtension("datanucleus.query.resultCacheType", "none");
+    query.addExtension("datanucleus.query.loadResultsAtCommit", "false");
+    return query;
+  }
+
+  /**
+   * The persisted privileges looked up by a grant or revoke, so that granting
+   * or revoking many privileges doesn't query them one by one. They are read
+   * by server and database, a few hundred requested privileges per query,
+   * together with all the privileges on the same tables or URIs, which
+   * covers the lookups of the other actions and grant options of the
+   * requested privileges and of their columns. The other privileges are
+   * queried when they are first looked up.
+   */
+  private final class PrivilegeCache {
+    private static final int PRIVILEGES_PER_QUERY = 500;
+
+    private final Map<MSentryPrivilege, MSentryPrivilege> privileges = new HashMap<>();
+    // the server, database, table and URI of the privileges loaded
+    private final Set<List<String>> loadedScopes = new HashSet<>();
+    private final List<MSentryPrivilege> created = new ArrayList<>();
+    // the privileges removed from a role, which may be orphaned
+    private final Set<MSentryPrivilege> removed = Sets.newIdentityHashSet();
+
+    PrivilegeCache(PersistenceManager pm, Collection<TSentryPrivilege> tPrivileges)
+        throws SentryInvalidInputException {
+      Map<List<String>, List<MSentryPrivilege>> byDb = new HashMap<>();
+      for (TSentryPrivilege tPrivilege : tPrivileges) {
+        MSentryPrivilege mPrivilege = convertToMSentryPrivilege(tPrivilege);
+        List<String> db = Arrays.asList(mPrivilege.getServerName(), mPrivilege.getDbName());
+        List<MSentryPrivilege> dbPrivileges = byDb.get(db);
+        if (dbPrivileges == null) {
+          dbPrivileges = new ArrayList<>();
+          byDb.put(db, dbPrivileges);
+        }
+        dbPrivileges.add(mPrivilege);
+      }
+      for (Map.Entry<List<String>, List<MSentryPrivilege>> entry : byDb.entrySet()) {
+        for (List<MSentryPrivilege> batch
+            : Lists.partition(entry.getValue(), PRIVILEGES_PER_QUERY)) {
+          load(pm, entry.getKey().get(0), entry.getKey().get(1), batch);
+        }
+      }
+    }
+
+    private void load(PersistenceManager pm, String serverName, String dbName,
+        List<MSentryPrivilege> batch) {
+      Set<String> tableNames = new HashSet<>();
+      Set<String> uris = new HashSet<>();
+      for (MSentryPrivilege mPrivilege : batch) {
+        tableNames.add(mPrivilege.getTableName());
+        uris.add(mPrivilege.getURI());
+        loadedScopes.add(getScope(mPrivilege));
+      }
+      Query query = pm.newQuery(MSentryPrivilege.class);
+      query.setFilter("this.serverName == :serverName && this.dbName == :dbName"
+          + " && :tableNames.contains(this.tableName) && :uris.contains(this.URI)");
+      Map<String, Object> arguments = new HashMap<>();
+      arguments.put("serverName", serverName);
+      arguments.put("dbName", dbName);
+      arguments.put("tableNames", tableNames);
+      arguments.put("uris", uris);
+      @SuppressWarnings("unchecked")
+      List<MSentryPrivilege> result = (List<MSentryPrivilege>) query.executeWithMap(arguments);
+      for (MSentryPrivilege mPrivilege : result) {
+        privileges.put(mPrivilege, mPrivilege);
+      }
+    }
+
+    /**
+     * Same as {@link SentryStore#getMSentryPrivilege}.
+     */
+    MSentryPrivilege get(PersistenceManager pm, TSentryPrivilege tPrivilege)
+        throws SentryInvalidInputException {
+      MSentryPrivilege key = convertToMSentryPrivilege(tPrivilege);
+      MSentryPrivilege mPrivilege = privileges.get(key);
+      if (mPrivilege != null || loadedScopes.contains(getScope(key))) {
+        return mPrivilege;
+      }
+      mPrivilege = getMSentryPrivilege(tPrivilege, pm);
+      if (mPrivilege != null) {
+        privileges.put(mPrivilege, mPrivilege);
+      }
+      return mPrivilege;
+    }
+
+    /**
+     * Add a privilege created by the grant or revoke.
+     */
+    void add(MSentryPrivilege mPrivilege) {
+      privileges.put(mPrivilege, mPrivilege);
+      created.add(mPrivilege);
+    }
+
+    List<MSentryPrivilege> getCreated() {
+      return created;
+    }
+
+    /**
+     * Record a privilege removed from a role by the grant or revoke.
+     */
+    void removed(MSentryPrivilege mPrivilege) {
+      removed.add(mPrivilege);
+    }
+
+    Set<MSentryPrivilege> getRemoved() {
+      return removed;
+    }
+
+    private List<String> getScope(MSentryPrivilege mPrivilege) {
+      return Arrays.asList(mPrivilege.getServerName(), mPrivilege.getDbName(),
+          mPrivilege.getTableName(), mPrivilege.getURI());
+    }
   }
 
   /**
    * This thread exists to clean up "orphaned" privilege rows in the database.
    * These rows aren't removed automatically due to the fact that there is
-   * a many-to-many mapping between the roles and privileges, and the
-   * detection and removal of orphaned privileges is a wee bit involved.
-   * This thread hangs out until notified by the parent (the outer class)
-   * and then runs a custom SQL statement that detects and removes orphans.
+   * a many-to-many mapping between the roles and privileges. Grants, revokes
+   * and role drops delete the privileges they leave orphaned themselves, so
+   * this thread is only a safety net for the rows left behind by older
+   * versions. It wakes up once every interval and deletes the orphans in
+   * batches, one short transaction per batch with a pause in between, so that
+   * it doesn't hold locks on the privilege table for long.
    */
   private class PrivCleaner implements Runnable {
-    // Kick off priv orphan removal after this many notifies
-    private static final int NOTIFY_THRESHOLD = 50;
-
-    // How many times we've been notified; reset to zero after orphan removal
-    private int currentNotifies = 0;
+    private final long intervalMillis;
+    private final int batchSize;
+    private final long batchPauseMillis;
 
     // Internal state for threads
     private boolean exitRequired = false;
 
-    // This lock and condition are needed to implement a way to drop the
-    // lock inside a while loop, and not hold the lock across the orphan
-    // removal.
     private final Lock lock = new ReentrantLock();
     private final Condition cond = lock.newCondition();
 
+    PrivCleaner(long intervalMillis, int batchSize, long batchPauseMillis) {
+      this.intervalMillis = intervalMillis;
+      this.batchSize = batchSize;
+      this.batchPauseMillis = batchPauseMillis;
+    }
+
     /**
-     * Waits in a loop, running the orphan removal function when notified.
-     * Will exit after exitRequired is set to true by exit().  We are careful
-     * to not hold our lock while removing orphans; that operation might
-     * take a long time.  There's also the matter of lock ordering.  Other
-     * threads start a transaction first, and then grab our lock; this thread
-     * grabs the lock and then starts a transaction.  Handling this correctly
-     * requires explicit locking/unlocking through the loop.
+     * Waits in a loop, running the orphan removal every interval. Will exit
+     * after exitRequired is set to true by exit(). The lock is not held while
+     * removing orphans; that operation starts transactions.
      */
     public void run() {
-      while (true) {
-        lock.lock();
-        try {
-          // Check here in case this was set during removeOrphanedPrivileges()
-          if (exitRequired) {
-            return;
-          }
-          while (currentNotifies <= NOTIFY_THRESHOLD) {
-            try {
-              cond.await();
-            } catch (InterruptedException e) {
-              // Interrupted
-            }
-            // Check here in case this was set while waiting
-            if (exitRequired) {
-              return;
-            }
-          }
-          currentNotifies = 0;
-        } finally {
-          lock.unlock();
-        }
+      while (await(intervalMillis)) {
         try {
-          removeOrphanedPrivileges();
+          int orphansRemoved = 0;
+          int batchRemoved;
+          do {
+            batchRemoved = removeOrphanedPrivileges();
+            orphansRemoved += batchRemoved;
+          } while (batchRemoved == batchSize && await(batchPauseMillis));
+          LOGGER.debug("Cleaned up {} orphaned privileges", orphansRemoved);
         } catch (Exception e) {
           LOGGER.warn("Privilege cleaning thread encountered an error: " +
                   e.getMessage());
@@ -1962,129 +2585,58 @@ public class SentryStore {
     }
 
     /**
-     * This is called when a privilege is removed from a role.  This may
-     * or may not mean that the privilege needs to be removed from the
-     * database; there may be more references to it from other roles.
-     * As a result, we'll lazily run the orphan cleaner every
-     * NOTIFY_THRESHOLD times this routine is called.
-     * @param numDeletions The number of potentially orphaned privileges
+     * Wait for the given time, or until exit() is called.
+     * @return false if the thread should exit
      */
-    void incPrivRemoval(int numDeletions) {
-      if (privCleanerThread != null) {
-        try {
-          lock.lock();
-          currentNotifies += numDeletions;
-          if (currentNotifies > NOTIFY_THRESHOLD) {
-            cond.signal();
+    private boolean await(long millis) {
+      lock.lock();
+      try {
+        long nanos = TimeUnit.MILLISECONDS.toNanos(millis);
+        while (!exitRequired && nanos > 0) {
+          try {
+            nanos = cond.awaitNanos(nanos);
+          } catch (InterruptedException e) {
+            // Interrupted
           }
-        } finally {
-          lock.unlock();
         }
+        return !exitRequired;
+      } finally {
+        lock.unlock();
       }
     }
 
-    /**
-     * Simple form of incPrivRemoval when only one privilege is deleted.
-     */
-    void incPrivRemoval() {
-      incPrivRemoval(1);
-    }
-
     /**
      * Tell this thread to exit. Safe to call multiple times, as it just
      * notifies the run() loop to finish up.
      */
     void exit() {
-      if (privCleanerThread != null) {
-        lock.lock();
-        try {
-          exitRequired = true;
-          cond.signal();
-        } finally {
-          lock.unlock();
-        }
+      lock.lock();
+      try {
+        exitRequired = true;
+        cond.signal();
+      } finally {
+        lock.unlock();
       }
     }
 
     /**
-     * Run a SQL query to detect orphaned privileges, and then delete
-     * each one.  This is complicated by the fact that datanucleus does
-     * not seem to play well with the mix between a direct SQL query
-     * and operations on the database.  The solution that seems to work
-     * is to split the operation into two transactions: the first is
-     * just a read for privileges that look like they're orphans, the
-     * second transaction will go and get each of those privilege objects,
-     * verify that there are no roles attached, and then delete them.
+     * Delete up to a batch of privileges which aren't granted to any role.
+     * @return the number of privileges deleted
      */
-    @SuppressWarnings("unchecked")
-    private void removeOrphanedPrivileges() {
-      final String privDB = "SENTRY_DB_PRIVILEGE";
-      final String privId = "DB_PRIVILEGE_ID";
-      final String mapDB = "SENTRY_ROLE_DB_PRIVILEGE_MAP";
-      final String privFilter =
-              "select " + privId +
-              " from " + privDB + " p" +
-              " where not exists (" +
-                  " select 1 from " + mapDB + " d" +
-                  " where p." + privId + " != d." + privId +
-              " )";
-      boolean rollback = true;
-      int orphansRemoved = 0;
-      ArrayList<Object> idList = new ArrayList<>();
-      PersistenceManager pm = pmf.getPersistenceManager();
-
-      // Transaction 1: Perform a SQL query to get things that look like orphans
-      try {
-        Transaction transaction = pm.currentTransaction();
-        transaction.begin();
-        transaction.setRollbackOnly();  // Makes the tx read-only
-        Query query = pm.newQuery("javax.jdo.query.SQL", privFilter);
-        query.setClass(MSentryPrivilege.class);
-        List<MSentryPrivilege> results = (List<MSentryPrivilege>) query.execute();
-        for (MSentryPrivilege orphan : results) {
-          idList.add(pm.getObjectId(orphan));
-        }
-        transaction.rollback();
-        rollback = false;
-      } finally {
-        if (rollback && pm.currentTransaction().isActive()) {
-          pm.currentTransaction().rollback();
-        } else {
-          LOGGER.debug("Found {} potential orphans", idList.size());
-        }
-      }
-
-      if (idList.isEmpty()) {
-        pm.close();
-        return;
-      }
-
-      Preconditions.checkState(!rollback);
-
-      // Transaction 2: For each potential orphan, verify it's really an
-      // orphan and delete it if so
-      rollback = true;
-      try {
-        Transaction transaction = pm.currentTransaction();
-        transaction.begin();
-        pm.refreshAll();  // Try to ensure we really have correct objects
-        for (Object id : idList) {
-          MSentryPrivilege priv = (MSentryPrivilege) pm.getObjectById(id);
-          if (priv.getRoles().isEmpty()) {
-            pm.deletePersistent(priv);
-            orphansRemoved++;
-          }
-        }
-        transaction.commit();
-        pm.close();
-        rollback = false;
-      } finally {
-        if (rollback) {
-          rollbackTransaction(pm);
-        } else {
-          LOGGER.debug("Cleaned up {} orphaned privileges", orphansRemoved);
-        }
-      }
+    private int removeOrphanedPrivileges() throws Exception {
+      return tm.executeTransaction(
+          new TransactionBlock<Integer>() {
+            public Integer execute(PersistenceManager pm) throws Exception {
+              Query query = pm.newQuery(MSentryPrivilege.class);
+              query.setFilter("roles.isEmpty()");
+              query.setRange(0, batchSize);
+              @SuppressWarnings("unchecked")
+              List<MSentryPrivilege> orphans = (List<MSentryPrivilege>) query.execute();
+              int orphansRemoved = orphans.size();
+              pm.deletePersistentAll(orphans);
+              return orphansRemoved;
+            }
+          });
     }
   }
 
@@ -2219,6 +2771,10 @@ public class SentryStore {
    * @return Set of all role names, or an empty set if no roles are defined
    */
   public Set<String> getAllRoleNames() throws Exception {
+    SentryPolicyImage image = policyImage;
+    if (image != null) {
+      return new HashSet<>(image.getRoleNames());
+    }
     return tm.executeTransaction(
         new TransactionBlock<Set<String>>() {
           public Set<String> execute(PersistenceManager pm) throws Exception {
@@ -2408,6 +2964,8 @@ public class SentryStore {
             return null;
           }
         });
+    policyChanged((Set<String>) null);
+    changeLog.allRolesChanged(null);
   }
 
   // covert the Map[group->roles] to Map[role->groups]
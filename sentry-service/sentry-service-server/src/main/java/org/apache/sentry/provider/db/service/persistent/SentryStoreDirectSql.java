@@ -0,0 +1,244 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.sentry.provider.db.service.persistent;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import javax.jdo.PersistenceManager;
+import javax.jdo.Query;
+import javax.jdo.datastore.JDOConnection;
+
+import org.apache.sentry.core.model.db.AccessConstants;
+import org.apache.sentry.provider.db.service.thrift.TSentryActiveRoleSet;
+import org.apache.sentry.provider.db.service.thrift.TSentryAuthorizable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * SentryStoreDirectSql resolves the privileges of groups and users for
+ * {@link SentryStore#listSentryPrivilegesForProvider} with a single SQL query,
+ * which joins the groups and users to their roles and the roles to their
+ * privileges, and reads only the columns of the authorizable strings.
+ * <p>
+ * The lists of names are padded to a power of two, so that the few distinct
+ * statements stay in the prepared statement cache of the connection pool.
+ * SentryStore uses it only for the databases whose identifier quoting it
+ * knows, and falls back to its JDOQL queries whenever the query fails.
+ */
+final class SentryStoreDirectSql {
+
+  private static final Logger LOGGER = LoggerFactory
+      .getLogger(SentryStoreDirectSql.class);
+
+  private static final String SQL_QUERY_LANGUAGE = "javax.jdo.query.SQL";
+  // below the limit of the IN lists of all the supported databases
+  private static final int MAX_NAMES = 1000;
+
+  private final String quote;
+
+  private SentryStoreDirectSql(String quote) {
+    this.quote = quote;
+  }
+
+  /**
+   * @return the direct SQL queries for the database of the persistence
+   *         manager, or null if its dialect is not supported
+   */
+  static SentryStoreDirectSql forDatabase(PersistenceManager pm) throws SQLException {
+    String productName;
+    JDOConnection jdoConnection = pm.getDataStoreConnection();
+    try {
+      productName = ((Connection) jdoConnection.getNativeConnection())
+          .getMetaData().getDatabaseProductName();
+    } finally {
+      jdoConnection.close();
+    }
+    String lowerProductName = productName.toLowerCase();
+    if (lowerProductName.contains("mysql")) {
+      return new SentryStoreDirectSql("`");
+    }
+    if (lowerProductName.contains("derby") || lowerProductName.contains("postgres")
+        || lowerProductName.contains("oracle") || lowerProductName.startsWith("db2")) {
+      return new SentryStoreDirectSql("\"");
+    }
+    LOGGER.info("Direct SQL is not supported for " + productName + ", using JDOQL");
+    return null;
+  }
+
+  /**
+   * Same as {@link SentryStore#listSentryPrivilegesForProvider}, should be
+   * called inside a transaction.
+   *
+   * @return the authorizable strings of the privileges, or null if there are
+   *         too many names for a single query
+   */
+  Set<String> listSentryPrivilegesForProvider(PersistenceManager pm, Set<String> groups,
+      Set<String> users, TSentryActiveRoleSet roleSet, TSentryAuthorizable authHierarchy) {
+    Set<String> activeRoleNames = roleSet.isAll() ? null
+        : SentryStore.toTrimedLower(roleSet.getRoles());
+    if (isEmpty(groups) && isEmpty(users)
+        || activeRoleNames != null && activeRoleNames.isEmpty()) {
+      return new HashSet<String>();
+    }
+    if (size(groups) > MAX_NAMES || size(users) > MAX_NAMES
+        || activeRoleNames != null && activeRoleNames.size() > MAX_NAMES) {
+      return null;
+    }
+
+    List<Object> parameters = new ArrayList<Object>();
+    StringBuilder sql = new StringBuilder()
+        .append("SELECT P.").append(q("SERVER_NAME")).append(", P.").append(q("DB_NAME"))
+        .append(", P.").append(q("TABLE_NAME")).append(", P.").append(q("COLUMN_NAME"))
+        .append(", P.").append(q("URI")).append(", P.").append(q("ACTION"))
+        .append(" FROM ").append(q("SENTRY_DB_PRIVILEGE")).append(" P")
+        .append(" JOIN ").append(q("SENTRY_ROLE_DB_PRIVILEGE_MAP")).append(" RP ON RP.")
+        .append(q("DB_PRIVILEGE_ID")).append(" = P.").append(q("DB_PRIVILEGE_ID"))
+        .append(" WHERE RP.").append(q("ROLE_ID")).append(" IN (");
+    if (!isEmpty(groups)) {
+      sql.append("SELECT RG.").append(q("ROLE_ID"))
+          .append(" FROM ").append(q("SENTRY_ROLE_GROUP_MAP")).append(" RG")
+          .append(" JOIN ").append(q("SENTRY_GROUP")).append(" G ON G.").append(q("GROUP_ID"))
+          .append(" = RG.").append(q("GROUP_ID"))
+          .append(" WHERE G.").append(q("GROUP_NAME"));
+      appendIn(sql, parameters, groups);
+    }
+    if (!isEmpty(users)) {
+      if (!isEmpty(groups)) {
+        sql.append(" UNION ");
+      }
+      sql.append("SELECT RU.").append(q("ROLE_ID"))
+          .append(" FROM ").append(q("SENTRY_ROLE_USER_MAP")).append(" RU")
+          .append(" JOIN ").append(q("SENTRY_USER")).append(" U ON U.").append(q("USER_ID"))
+          .append(" = RU.").append(q("USER_ID"))
+          .append(" WHERE U.").append(q("USER_NAME"));
+      appendIn(sql, parameters, users);
+    }
+    sql.append(")");
+    if (activeRoleNames != null) {
+      sql.append(" AND RP.").append(q("ROLE_ID")).append(" IN (SELECT R.").append(q("ROLE_ID"))
+          .append(" FROM ").append(q("SENTRY_ROLE")).append(" R WHERE R.").append(q("ROLE_NAME"));
+      appendIn(sql, parameters, activeRoleNames);
+      sql.append(")");
+    }
+    if (authHierarchy != null && authHierarchy.getServer() != null) {
+      appendHierarchyFilter(sql, parameters, authHierarchy);
+    }
+
+    Query query = pm.newQuery(SQL_QUERY_LANGUAGE, sql.toString());
+    try {
+      @SuppressWarnings("unchecked")
+      List<Object[]> rows = (List<Object[]>) query.executeWithArray(parameters.toArray());
+      Set<String> result = new HashSet<String>();
+      for (Object[] row : rows) {
+        result.add(SentryStore.toAuthorizable((String) row[0], (String) row[1],
+            (String) row[2], (String) row[3], (String) row[4], (String) row[5]));
+      }
+      return result;
+    } finally {
+      query.closeAll();
+    }
+  }
+
+  /**
+   * Append the conditions of the JDOQL query of
+   * {@link SentryStore#listSentryPrivilegesForProvider} for the hierarchy.
+   */
+  private void appendHierarchyFilter(StringBuilder sql, List<Object> parameters,
+      TSentryAuthorizable authHierarchy) {
+    sql.append(" AND P.").append(q("SERVER_NAME")).append(" = ?");
+    parameters.add(toValue(authHierarchy.getServer()));
+    if (authHierarchy.getDb() != null) {
+      sql.append(" AND P.").append(q("URI")).append(" = ?");
+      parameters.add(SentryStore.NULL_COL);
+      appendValueOrNull(sql, parameters, "DB_NAME", authHierarchy.getDb());
+      String table = authHierarchy.getTable();
+      if (table != null && !AccessConstants.ALL.equalsIgnoreCase(table)) {
+        if (!AccessConstants.SOME.equalsIgnoreCase(table)) {
+          appendValueOrNull(sql, parameters, "TABLE_NAME", table);
+        }
+        String column = authHierarchy.getColumn();
+        if (column != null && !AccessConstants.ALL.equalsIgnoreCase(column)
+            && !AccessConstants.SOME.equalsIgnoreCase(column)) {
+          appendValueOrNull(sql, parameters, "COLUMN_NAME", column);
+        }
+      }
+    }
+    // like the JDOQL query, which compares the URI to itself, every URI
+    // privilege is returned and the client matches the paths
+    if (authHierarchy.getUri() != null) {
+      sql.append(" AND P.").append(q("DB_NAME")).append(" = ?");
+      parameters.add(SentryStore.NULL_COL);
+    }
+  }
+
+  private void appendValueOrNull(StringBuilder sql, List<Object> parameters,
+      String column, String value) {
+    sql.append(" AND (P.").append(q(column)).append(" = ? OR P.").append(q(column))
+        .append(" = ?)");
+    parameters.add(toValue(value));
+    parameters.add(SentryStore.NULL_COL);
+  }
+
+  /**
+   * Append an IN list of the names, padded with the last name to the next
+   * power of two.
+   */
+  private static void appendIn(StringBuilder sql, List<Object> parameters,
+      Collection<String> names) {
+    int size = Integer.highestOneBit(names.size());
+    if (size < names.size()) {
+      size <<= 1;
+    }
+    String name = null;
+    for (String next : names) {
+      name = next;
+      parameters.add(name);
+    }
+    for (int i = names.size(); i < size; i++) {
+      parameters.add(name);
+    }
+    sql.append(" IN (?");
+    for (int i = 1; i < size; i++) {
+      sql.append(", ?");
+    }
+    sql.append(")");
+  }
+
+  private String q(String identifier) {
+    return quote + identifier + quote;
+  }
+
+  private static String toValue(String value) {
+    return SentryStore.toNULLCol(SentryStore.safeTrimLower(value));
+  }
+
+  private static boolean isEmpty(Set<String> names) {
+    return names == null || names.isEmpty();
+  }
+
+  private static int size(Set<String> names) {
+    return names == null ? 0 : names.size();
+  }
+}
@@ -48,11 +48,16 @@ import org.apache.sentry.provider.db.service.thrift.SentryMetrics;
  * TransactionManager creates an instance of PersistenceManager for each
  * transaction.<p>
  *
+ * When group commit is enabled, the transactions executed with retry, which
+ * are the writes, are committed together with the ones submitted by other
+ * threads at the same time, see {@link GroupCommitter}.<p>
+ *
  * TransactionManager exposes several metrics:
  * <ul>
  *     <li>Timer metric for all transactions</li>
  *     <li>Counter for failed transactions</li>
  *     <li>Counter for each exception thrown by transaction</li>
+ *     <li>Counters for grouped transactions and failed groups</li>
  * </ul>
  */
 public class TransactionManager {
@@ -68,6 +73,9 @@ public class TransactionManager {
   // Delay (in milliseconds) between retries
   private final int retryWaitTimeMills;
 
+  // null unless group commit is enabled
+  private final GroupCommitter groupCommitter;
+
   // Transaction timer measures time distribution for all transactions
   private final Timer transactionTimer =
           SentryMetrics.getInstance().
@@ -92,6 +100,27 @@ public class TransactionManager {
     this.retryWaitTimeMills = conf.getInt(
         ServiceConstants.ServerConfig.SENTRY_STORE_TRANSACTION_RETRY_WAIT_TIME_MILLIS,
         ServiceConstants.ServerConfig.SENTRY_STORE_TRANSACTION_RETRY_WAIT_TIME_MILLIS_DEFAULT);
+    if (conf.getBoolean(ServiceConstants.ServerConfig.SENTRY_STORE_GROUP_COMMIT_ENABLED,
+        ServiceConstants.ServerConfig.SENTRY_STORE_GROUP_COMMIT_ENABLED_DEFAULT)) {
+      this.groupCommitter = new GroupCommitter(pmf,
+          conf.getLong(ServiceConstants.ServerConfig.SENTRY_STORE_GROUP_COMMIT_WINDOW_MILLIS,
+              ServiceConstants.ServerConfig.SENTRY_STORE_GROUP_COMMIT_WINDOW_MILLIS_DEFAULT),
+          conf.getInt(ServiceConstants.ServerConfig.SENTRY_STORE_GROUP_COMMIT_MAX_SIZE,
+              ServiceConstants.ServerConfig.SENTRY_STORE_GROUP_COMMIT_MAX_SIZE_DEFAULT),
+          transactionTimer, failedTransactionsCount);
+    } else {
+      this.groupCommitter = null;
+    }
+  }
+
+  /**
+   * Stop committing groups, the transactions are executed on their own
+   * afterwards.
+   */
+  void stop() {
+    if (groupCommitter != null) {
+      groupCommitter.stop();
+    }
   }
 
 
@@ -135,6 +164,15 @@ public class TransactionManager {
    */
   public <T> T executeTransactionWithRetry(TransactionBlock<T> tb)
           throws Exception {
+    if (groupCommitter != null) {
+      GroupCommitter.PendingTransaction<T> pending = groupCommitter.submit(tb);
+      if (pending.getException() != null) {
+        throw pending.getException();
+      }
+      if (pending.isDone()) {
+        return pending.getResult();
+      }
+    }
     int retryNum = 0;
     while (retryNum < transactionRetryMax) {
       try {
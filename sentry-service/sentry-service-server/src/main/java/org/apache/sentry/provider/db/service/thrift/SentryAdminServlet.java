@@ -114,11 +114,16 @@ public class SentryAdminServlet extends HttpServlet {
 
     Writer out = response.getWriter();
     try {
-      SentryStore sentrystore = new SentryStore(conf);
+      // the store of the processors of this server, rather than a new one per request
+      SentryStore sentrystore = SentryStore.getSharedStore(conf);
       Map<String, Set<TSentryPrivilege>> roleMap = new HashMap<>();
-      Set<String> roleSet = sentrystore.getAllRoleNames();
-      for (String roleName: roleSet) {
-        roleMap.put(roleName, sentrystore.getAllTSentryPrivilegesByRoleName(roleName));
+      try {
+        Set<String> roleSet = sentrystore.getAllRoleNames();
+        for (String roleName: roleSet) {
+          roleMap.put(roleName, sentrystore.getAllTSentryPrivilegesByRoleName(roleName));
+        }
+      } finally {
+        SentryStore.releaseSharedStore(conf, sentrystore);
       }
       String json = new Gson().toJson(roleMap);
       response.setContentType("application/json");
@@ -0,0 +1,502 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.sentry.service.thrift;
+
+import static com.codahale.metrics.MetricRegistry.name;
+
+import java.io.IOException;
+import java.net.Socket;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.apache.sentry.provider.db.service.thrift.SentryMetrics;
+import org.apache.thrift.TProcessor;
+import org.apache.thrift.protocol.TProtocol;
+import org.apache.thrift.server.ServerContext;
+import org.apache.thrift.server.TServer;
+import org.apache.thrift.server.TServerEventHandler;
+import org.apache.thrift.transport.TNonblockingServerTransport;
+import org.apache.thrift.transport.TNonblockingSocket;
+import org.apache.thrift.transport.TSocket;
+import org.apache.thrift.transport.TTransport;
+import org.apache.thrift.transport.TTransportException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.Timer;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+/**
+ * Thrift server which serves many connections with few threads, like
+ * TThreadedSelectorServer, but over any transport, including the SASL
+ * transport used with kerberos, and with the wire format of TThreadPoolServer
+ * so that the clients are unchanged.
+ * <p>
+ * An accept thread hands the new connections to the selector threads, which
+ * wait for the idle connections to send a request. A connection with a
+ * request is queued for the worker threads, which read and process it in
+ * blocking mode, the SASL handshake included for a new connection, and hand
+ * the connection back to its selector. The time a request waits in the queue
+ * is reported by the queue-time timer, and the connections closed because the
+ * queue is full by the rejected-connections counter.
+ * <p>
+ * A worker gives up on a connection which sends nothing for the read timeout
+ * while it reads a request, or which hasn't completed its handshake by the
+ * handshake timeout, so that stalled clients don't hold the worker threads.
+ */
+public class SelectorWorkerServer extends TServer {
+
+  private static final Logger LOGGER = LoggerFactory
+      .getLogger(SelectorWorkerServer.class);
+
+  public static class Args extends AbstractServerArgs<Args> {
+    private int selectorThreads = 2;
+    private int workerThreads = 64;
+    private int workQueueSize = 1000;
+    private int readTimeoutMs = 60000;
+    private int handshakeTimeoutMs = 30000;
+
+    public Args(TNonblockingServerTransport transport) {
+      super(transport);
+    }
+
+    public Args selectorThreads(int selectorThreads) {
+      this.selectorThreads = selectorThreads;
+      return this;
+    }
+
+    public Args workerThreads(int workerThreads) {
+      this.workerThreads = workerThreads;
+      return this;
+    }
+
+    public Args workQueueSize(int workQueueSize) {
+      this.workQueueSize = workQueueSize;
+      return this;
+    }
+
+    public Args readTimeoutMs(int readTimeoutMs) {
+      this.readTimeoutMs = readTimeoutMs;
+      return this;
+    }
+
+    public Args handshakeTimeoutMs(int handshakeTimeoutMs) {
+      this.handshakeTimeoutMs = handshakeTimeoutMs;
+      return this;
+    }
+  }
+
+  private final int selectorThreadCount;
+  private final int workerThreadCount;
+  private final int workQueueSize;
+  private final int readTimeoutMs;
+  private final int handshakeTimeoutMs;
+  private final Timer queueTimer = SentryMetrics.getInstance().getTimer(
+      name(SelectorWorkerServer.class, "queue-time"));
+  private final Counter connectionCounter = SentryMetrics.getInstance().getCounter(
+      name(SelectorWorkerServer.class, "connections"));
+  private final Counter rejectedConnectionCounter = SentryMetrics.getInstance().getCounter(
+      name(SelectorWorkerServer.class, "rejected-connections"));
+  private volatile boolean stopped;
+  private volatile AcceptThread acceptThread;
+  private volatile List<SelectorThread> selectorThreads = Collections.emptyList();
+  private ThreadPoolExecutor workers;
+  // closes the connections which haven't completed their handshake in time
+  private ScheduledExecutorService handshakeTimer;
+
+  public SelectorWorkerServer(Args args) {
+    super(args);
+    this.selectorThreadCount = Math.max(1, args.selectorThreads);
+    this.workerThreadCount = Math.max(1, args.workerThreads);
+    this.workQueueSize = Math.max(1, args.workQueueSize);
+    this.readTimeoutMs = Math.max(0, args.readTimeoutMs);
+    this.handshakeTimeoutMs = Math.max(0, args.handshakeTimeoutMs);
+  }
+
+  @Override
+  public void serve() {
+    try {
+      serverTransport_.listen();
+    } catch (TTransportException e) {
+      LOGGER.error("Error occurred during listening.", e);
+      return;
+    }
+    stopped = false;
+    workers = new ThreadPoolExecutor(workerThreadCount, workerThreadCount, 60, TimeUnit.SECONDS,
+        new ArrayBlockingQueue<Runnable>(workQueueSize), new ThreadFactoryBuilder()
+            .setDaemon(true).setNameFormat("sentry-thrift-worker-%d").build());
+    handshakeTimer = Executors.newSingleThreadScheduledExecutor(new ThreadFactoryBuilder()
+        .setDaemon(true).setNameFormat("sentry-thrift-handshake-timer-%d").build());
+    List<SelectorThread> newSelectorThreads = new ArrayList<SelectorThread>();
+    try {
+      for (int i = 0; i < selectorThreadCount; i++) {
+        newSelectorThreads.add(new SelectorThread("sentry-thrift-selector-" + i));
+      }
+      selectorThreads = newSelectorThreads;
+      acceptThread = new AcceptThread();
+    } catch (IOException e) {
+      LOGGER.error("Failed to open the selectors", e);
+      stopped = true;
+      for (SelectorThread selectorThread : newSelectorThreads) {
+        closeQuietly(selectorThread.selector);
+      }
+      workers.shutdownNow();
+      handshakeTimer.shutdownNow();
+      serverTransport_.close();
+      return;
+    }
+    for (SelectorThread selectorThread : selectorThreads) {
+      selectorThread.start();
+    }
+    acceptThread.start();
+
+    TServerEventHandler eventHandler = getEventHandler();
+    if (eventHandler != null) {
+      eventHandler.preServe();
+    }
+    setServing(true);
+    try {
+      acceptThread.join();
+      for (SelectorThread selectorThread : selectorThreads) {
+        selectorThread.join();
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      LOGGER.warn("Interrupted while waiting for the selector threads", e);
+    } finally {
+      stopped = true;
+      workers.shutdownNow();
+      handshakeTimer.shutdownNow();
+      serverTransport_.close();
+      setServing(false);
+    }
+  }
+
+  @Override
+  public void stop() {
+    stopped = true;
+    if (acceptThread != null) {
+      acceptThread.selector.wakeup();
+    }
+    for (SelectorThread selectorThread : selectorThreads) {
+      selectorThread.selector.wakeup();
+    }
+  }
+
+  private static void closeQuietly(Selector selector) {
+    try {
+      selector.close();
+    } catch (IOException e) {
+      LOGGER.warn("Failed to close a selector", e);
+    }
+  }
+
+  /**
+   * Accepts the new connections and hands them to the selector threads in
+   * turn.
+   */
+  private final class AcceptThread extends Thread {
+    private final Selector selector;
+
+    private AcceptThread() throws IOException {
+      super("sentry-thrift-acceptor");
+      setDaemon(true);
+      selector = Selector.open();
+      ((TNonblockingServerTransport) serverTransport_).registerSelector(selector);
+    }
+
+    @Override
+    public void run() {
+      int next = 0;
+      try {
+        while (!stopped) {
+          selector.select();
+          Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+          while (!stopped && keys.hasNext()) {
+            SelectionKey key = keys.next();
+            keys.remove();
+            if (key.isValid() && key.isAcceptable()) {
+              SocketChannel channel = accept();
+              if (channel != null) {
+                SelectorThread selectorThread = selectorThreads.get(next);
+                next = (next + 1) % selectorThreads.size();
+                selectorThread.register(new Connection(channel, selectorThread));
+              }
+            }
+          }
+        }
+      } catch (IOException e) {
+        LOGGER.error("Got an IOException while accepting connections", e);
+      } finally {
+        closeQuietly(selector);
+        // the selector threads exit once the server doesn't accept connections
+        stop();
+      }
+    }
+
+    private SocketChannel accept() {
+      try {
+        TNonblockingSocket client = (TNonblockingSocket) serverTransport_.accept();
+        connectionCounter.inc();
+        return client.getSocketChannel();
+      } catch (TTransportException e) {
+        LOGGER.warn("Exception trying to accept a connection", e);
+        return null;
+      }
+    }
+  }
+
+  /**
+   * Waits for the idle connections of the thread to send a request and queues
+   * them for the workers.
+   */
+  private final class SelectorThread extends Thread {
+    private final Selector selector;
+    private final Queue<Connection> registrations = new ConcurrentLinkedQueue<Connection>();
+
+    private SelectorThread(String name) throws IOException {
+      super(name);
+      setDaemon(true);
+      selector = Selector.open();
+    }
+
+    /**
+     * Wait for the next request of the connection, which is in non blocking mode.
+     */
+    private void register(Connection connection) {
+      registrations.add(connection);
+      selector.wakeup();
+      if (stopped) {
+        // the selector may have exited before the connection was queued
+        connection.close();
+      }
+    }
+
+    @Override
+    public void run() {
+      try {
+        while (!stopped) {
+          selector.select();
+          List<Connection> readyConnections = new ArrayList<Connection>();
+          Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+          while (keys.hasNext()) {
+            SelectionKey key = keys.next();
+            keys.remove();
+            if (key.isValid() && key.isReadable()) {
+              key.cancel();
+              readyConnections.add((Connection) key.attachment());
+            }
+          }
+          if (!readyConnections.isEmpty()) {
+            // deregister the cancelled keys, a channel can't be put in
+            // blocking mode while it is registered
+            selector.selectNow();
+            for (Connection connection : readyConnections) {
+              dispatch(connection);
+            }
+          }
+          registerConnections();
+        }
+      } catch (IOException e) {
+        LOGGER.error("Got an IOException in the selector thread", e);
+      } finally {
+        for (SelectionKey key : selector.keys()) {
+          ((Connection) key.attachment()).close();
+        }
+        Connection connection;
+        while ((connection = registrations.poll()) != null) {
+          connection.close();
+        }
+        closeQuietly(selector);
+      }
+    }
+
+    private void registerConnections() {
+      Connection connection;
+      while ((connection = registrations.poll()) != null) {
+        try {
+          connection.channel.register(selector, SelectionKey.OP_READ, connection);
+        } catch (IOException e) {
+          LOGGER.warn("Failed to register a connection", e);
+          connection.close();
+        }
+      }
+    }
+
+    private void dispatch(Connection connection) {
+      connection.queuedNanos = System.nanoTime();
+      try {
+        workers.execute(connection);
+      } catch (RejectedExecutionException e) {
+        rejectedConnectionCounter.inc();
+        LOGGER.warn("Closing a connection, " + workQueueSize
+            + " requests are already waiting for a worker thread");
+        connection.close();
+      }
+    }
+  }
+
+  /**
+   * A connection, with the transports and protocols which keep the state of
+   * its SASL session between its requests.
+   */
+  private final class Connection implements Runnable {
+    private final SocketChannel channel;
+    private final SelectorThread selectorThread;
+    private BufferedSocket socket;
+    private TProcessor processor;
+    private TTransport inputTransport;
+    private TTransport outputTransport;
+    private TProtocol inputProtocol;
+    private TProtocol outputProtocol;
+    private ServerContext context;
+    private volatile long queuedNanos;
+    private final AtomicBoolean closed = new AtomicBoolean();
+
+    private Connection(SocketChannel channel, SelectorThread selectorThread) {
+      this.channel = channel;
+      this.selectorThread = selectorThread;
+    }
+
+    @Override
+    public void run() {
+      queueTimer.update(System.nanoTime() - queuedNanos, TimeUnit.NANOSECONDS);
+      try {
+        channel.configureBlocking(true);
+        if (socket == null) {
+          open();
+        }
+        TServerEventHandler eventHandler = getEventHandler();
+        do {
+          if (eventHandler != null) {
+            eventHandler.processContext(context, inputTransport, outputTransport);
+          }
+          if (stopped || !processor.process(inputProtocol, outputProtocol)) {
+            close();
+            return;
+          }
+          // a request already read from the socket would not wake the selector
+        } while (socket.hasBufferedInput());
+        channel.configureBlocking(false);
+        selectorThread.register(this);
+      } catch (TTransportException e) {
+        // the client closed the connection
+        LOGGER.debug("Thrift connection closed", e);
+        close();
+      } catch (Exception e) {
+        LOGGER.error("Error occurred during processing of message.", e);
+        close();
+      }
+    }
+
+    private void open() throws TTransportException {
+      socket = new BufferedSocket(channel.socket());
+      // the timeout applies to each read of the socket
+      socket.setTimeout(readTimeoutMs);
+      processor = processorFactory_.getProcessor(socket);
+      // the SASL transport factory performs the handshake, which may take
+      // several reads, the connection is closed if they take too long
+      ScheduledFuture<?> handshakeDeadline = null;
+      if (handshakeTimeoutMs > 0) {
+        handshakeDeadline = handshakeTimer.schedule(new Runnable() {
+          @Override
+          public void run() {
+            LOGGER.warn("Closing a connection which didn't complete its handshake in "
+                + handshakeTimeoutMs + " ms");
+            closeChannel();
+          }
+        }, handshakeTimeoutMs, TimeUnit.MILLISECONDS);
+      }
+      try {
+        inputTransport = inputTransportFactory_.getTransport(socket);
+        outputTransport = outputTransportFactory_.getTransport(socket);
+      } finally {
+        if (handshakeDeadline != null) {
+          handshakeDeadline.cancel(false);
+        }
+      }
+      inputProtocol = inputProtocolFactory_.getProtocol(inputTransport);
+      outputProtocol = outputProtocolFactory_.getProtocol(outputTransport);
+      TServerEventHandler eventHandler = getEventHandler();
+      if (eventHandler != null) {
+        context = eventHandler.createContext(inputProtocol, outputProtocol);
+      }
+    }
+
+    private void close() {
+      if (closed.getAndSet(true)) {
+        return;
+      }
+      TServerEventHandler eventHandler = getEventHandler();
+      if (eventHandler != null && context != null) {
+        eventHandler.deleteContext(context, inputProtocol, outputProtocol);
+        context = null;
+      }
+      if (inputTransport != null) {
+        inputTransport.close();
+      }
+      if (outputTransport != null) {
+        outputTransport.close();
+      }
+      closeChannel();
+      connectionCounter.dec();
+    }
+
+    /**
+     * Close the channel, which makes a blocked read of another thread fail.
+     */
+    private void closeChannel() {
+      try {
+        channel.close();
+      } catch (IOException e) {
+        LOGGER.debug("Failed to close a connection", e);
+      }
+    }
+  }
+
+  /**
+   * TSocket over the socket of a channel in blocking mode, which tells whether
+   * its input buffer holds data the selector can't see.
+   */
+  private static final class BufferedSocket extends TSocket {
+    private BufferedSocket(Socket socket) throws TTransportException {
+      super(socket);
+    }
+
+    private boolean hasBufferedInput() throws IOException {
+      return inputStream_.available() > 0;
+    }
+  }
+}
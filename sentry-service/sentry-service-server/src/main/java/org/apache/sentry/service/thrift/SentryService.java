@@ -57,6 +57,7 @@ import org.apache.thrift.protocol.TBinaryProtocol;
 import org.apache.thrift.server.TServer;
 import org.apache.thrift.server.TServerEventHandler;
 import org.apache.thrift.server.TThreadPoolServer;
+import org.apache.thrift.transport.TNonblockingServerSocket;
 import org.apache.thrift.transport.TSaslServerTransport;
 import org.apache.thrift.transport.TServerSocket;
 import org.apache.thrift.transport.TServerTransport;
@@ -80,6 +81,12 @@ public class SentryService implements Callable {
   private final InetSocketAddress address;
   private final int maxThreads;
   private final int minThreads;
+  private final String serverType;
+  private final int selectorThreads;
+  private final int workerThreads;
+  private final int workerQueueSize;
+  private final int readTimeoutMs;
+  private final int handshakeTimeoutMs;
   private boolean kerberos;
   private final String principal;
   private final String[] principalParts;
@@ -110,6 +117,21 @@ public class SentryService implements Callable {
         ServerConfig.RPC_MAX_THREADS_DEFAULT);
     minThreads = conf.getInt(ServerConfig.RPC_MIN_THREADS,
         ServerConfig.RPC_MIN_THREADS_DEFAULT);
+    serverType = conf.get(ServerConfig.RPC_SERVER_TYPE,
+        ServerConfig.RPC_SERVER_TYPE_DEFAULT).trim();
+    Preconditions.checkArgument(ServerConfig.RPC_SERVER_TYPE_THREAD_POOL.equalsIgnoreCase(serverType)
+        || ServerConfig.RPC_SERVER_TYPE_SELECTOR.equalsIgnoreCase(serverType),
+        "Unknown " + ServerConfig.RPC_SERVER_TYPE + ": " + serverType);
+    selectorThreads = conf.getInt(ServerConfig.RPC_SELECTOR_THREADS,
+        ServerConfig.RPC_SELECTOR_THREADS_DEFAULT);
+    workerThreads = conf.getInt(ServerConfig.RPC_WORKER_THREADS,
+        ServerConfig.RPC_WORKER_THREADS_DEFAULT);
+    workerQueueSize = conf.getInt(ServerConfig.RPC_WORKER_QUEUE_SIZE,
+        ServerConfig.RPC_WORKER_QUEUE_SIZE_DEFAULT);
+    readTimeoutMs = conf.getInt(ServerConfig.RPC_READ_TIMEOUT_MS,
+        ServerConfig.RPC_READ_TIMEOUT_MS_DEFAULT);
+    handshakeTimeoutMs = conf.getInt(ServerConfig.RPC_HANDSHAKE_TIMEOUT_MS,
+        ServerConfig.RPC_HANDSHAKE_TIMEOUT_MS_DEFAULT);
     maxMessageSize = conf.getLong(ServerConfig.SENTRY_POLICY_SERVER_THRIFT_MAX_MESSAGE_SIZE,
         ServerConfig.SENTRY_POLICY_SERVER_THRIFT_MAX_MESSAGE_SIZE_DEFAULT);
     if (kerberos) {
@@ -211,7 +233,6 @@ public class SentryService implements Callable {
       throw new IllegalStateException(
           "Failed to register any processors from " + processorFactories);
     }
-    TServerTransport serverTransport = new TServerSocket(address);
     TTransportFactory transportFactory = null;
     if (kerberos) {
       TSaslServerTransport.Factory saslTransportFactory = new TSaslServerTransport.Factory();
@@ -222,13 +243,27 @@ public class SentryService implements Callable {
     } else {
       transportFactory = new TTransportFactory();
     }
-    TThreadPoolServer.Args args = new TThreadPoolServer.Args(
-        serverTransport).processor(processor)
-        .transportFactory(transportFactory)
-        .protocolFactory(new TBinaryProtocol.Factory(true, true, maxMessageSize, maxMessageSize))
-        .minWorkerThreads(minThreads).maxWorkerThreads(maxThreads);
-    thriftServer = new TThreadPoolServer(args);
-    LOGGER.info("Serving on " + address);
+    if (ServerConfig.RPC_SERVER_TYPE_SELECTOR.equalsIgnoreCase(serverType)) {
+      SelectorWorkerServer.Args args = new SelectorWorkerServer.Args(
+          new TNonblockingServerSocket(address)).processor(processor)
+          .transportFactory(transportFactory)
+          .protocolFactory(new TBinaryProtocol.Factory(true, true, maxMessageSize, maxMessageSize))
+          .selectorThreads(selectorThreads).workerThreads(workerThreads)
+          .workQueueSize(workerQueueSize)
+          .readTimeoutMs(readTimeoutMs).handshakeTimeoutMs(handshakeTimeoutMs);
+      thriftServer = new SelectorWorkerServer(args);
+      LOGGER.info("Serving on " + address + " with " + selectorThreads + " selector threads and "
+          + workerThreads + " worker threads");
+    } else {
+      TServerTransport serverTransport = new TServerSocket(address);
+      TThreadPoolServer.Args args = new TThreadPoolServer.Args(
+          serverTransport).processor(processor)
+          .transportFactory(transportFactory)
+          .protocolFactory(new TBinaryProtocol.Factory(true, true, maxMessageSize, maxMessageSize))
+          .minWorkerThreads(minThreads).maxWorkerThreads(maxThreads);
+      thriftServer = new TThreadPoolServer(args);
+      LOGGER.info("Serving on " + address);
+    }
     startSentryWebServer();
     thriftServer.serve();
   }
@@ -402,7 +437,7 @@ public class SentryService implements Callable {
   }
 
   /**
-   * Add Thrift event handler to underlying thrift threadpool server
+   * Add Thrift event handler to underlying thrift server
    * @param eventHandler
    */
   public void setThriftEventHandler(TServerEventHandler eventHandler) throws IllegalStateException {
@@ -25,6 +25,7 @@ import java.util.Set;
 import org.apache.sentry.core.common.exception.SentryAlreadyExistsException;
 import org.apache.sentry.core.common.exception.SentryNoSuchObjectException;
 import org.apache.sentry.core.common.utils.PolicyFile;
+import org.apache.sentry.provider.db.service.persistent.SentryStore;
 import org.junit.Before;
 import org.junit.Test;
 
@@ -179,4 +180,37 @@ public class TestDelegateSentryStore extends SentryStoreIntegrationBase{
     groups.clear();
     assertEquals(0, sentryStore.getRolesByGroups(SEARCH, groups).size());
   }
+
+  @Test
+  public void testGetChangedRoles() throws Exception {
+    String role1 = "r1", role2 = "r2";
+    String grantor = "grantor";
+    long start = sentryStore.getChangeSequence();
+
+    sentryStore.createRole(SEARCH, role1, grantor);
+    sentryStore.createRole(SEARCH, "R2", grantor);
+    assertEquals(Sets.newHashSet(role1, role2), sentryStore.getChangedRoles(SEARCH, start));
+
+    long afterCreate = sentryStore.getChangeSequence();
+    sentryStore.alterRoleAddGroups(SEARCH, role2, Sets.newHashSet("g1"), grantor);
+    assertEquals(Sets.newHashSet(role2), sentryStore.getChangedRoles(SEARCH, afterCreate));
+    assertEquals(0, sentryStore.getChangedRoles(SEARCH, sentryStore.getChangeSequence()).size());
+  }
+
+  @Test
+  public void testGetChangedRolesThroughHiveStore() throws Exception {
+    String role1 = "r1";
+    sentryStore.createRole(SEARCH, role1, "grantor");
+    long afterCreate = sentryStore.getChangeSequence();
+
+    // the hive processor of the server gets the same store, so the generic
+    // clients see the roles it drops
+    SentryStore hiveStore = SentryStore.getSharedStore(conf);
+    try {
+      hiveStore.dropSentryRole(role1);
+    } finally {
+      SentryStore.releaseSharedStore(conf, hiveStore);
+    }
+    assertEquals(Sets.newHashSet(role1), sentryStore.getChangedRoles(SEARCH, afterCreate));
+  }
 }
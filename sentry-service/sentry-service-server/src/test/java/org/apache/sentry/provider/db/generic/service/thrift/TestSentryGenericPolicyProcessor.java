@@ -43,6 +43,8 @@ import org.junit.Before;
 import org.junit.Test;
 import org.mockito.Mockito;
 import org.mockito.Matchers;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
 
 import com.google.common.collect.Sets;
 
@@ -293,6 +295,103 @@ public class TestSentryGenericPolicyProcessor extends org.junit.Assert {
     assertEquals(1, response5.getPrivilegesMapByAuth().size());
   }
 
+  @Test
+  public void testListPolicySnapshot() throws Exception {
+    Configuration conf = new Configuration();
+    conf.set(ServerConfig.ADMIN_GROUPS, ADMIN_GROUP);
+    conf.set(ServerConfig.SENTRY_STORE_GROUP_MAPPING, MockGroupMapping.class.getName());
+    conf.setInt(ServerConfig.SENTRY_GENERIC_POLICY_SNAPSHOT_PAGE_SIZE, 2);
+    processor = new SentryGenericPolicyProcessor(conf, mockStore);
+
+    // the privilege is granted to roles of both pages
+    MSentryGMPrivilege mSentryGMPrivilege = new MSentryGMPrivilege("SOLR", "service1",
+        Arrays.asList(new Collection("c1")), SearchConstants.QUERY, true);
+    mSentryGMPrivilege.setRoles(Sets.newHashSet(new MSentryRole("r1", 290), new MSentryRole("r3", 290)));
+
+    Mockito.when(mockStore.getAllRoleNames())
+    .thenReturn(Sets.newHashSet("r3", "r1", "r2"));
+    Mockito.when(mockStore.getGroupsMapByRoles(Matchers.anyString(), Matchers.anySetOf(String.class)))
+    .thenAnswer(new Answer<Map<String, Set<String>>>() {
+      @Override
+      public Map<String, Set<String>> answer(InvocationOnMock invocation) throws Throwable {
+        Map<String, Set<String>> groupsByRole = new HashMap<String, Set<String>>();
+        for (Object role : (Set<?>) invocation.getArguments()[1]) {
+          groupsByRole.put((String) role, Sets.newHashSet("g_" + role));
+        }
+        return groupsByRole;
+      }
+    });
+    Mockito.when(mockStore.getPrivilegesByAuthorizable(Matchers.anyString(), Matchers.anyString(),
+        Matchers.anySetOf(String.class), Matchers.anyListOf(Authorizable.class)))
+    .thenReturn(Sets.newHashSet(mSentryGMPrivilege));
+
+    TListSentryPolicySnapshotRequest request = new TListSentryPolicySnapshotRequest();
+    request.setRequestorUserName(ADMIN_USER);
+    request.setComponent("SOLR");
+    request.setServiceName("service1");
+    TListSentryPolicySnapshotResponse response = processor.list_sentry_policy_snapshot(request);
+    assertEquals(Status.OK, fromTSentryStatus(response.getStatus()));
+    assertEquals(Sets.newHashSet(new TSentryRole("r1", Sets.newHashSet("g_r1")),
+        new TSentryRole("r2", Sets.newHashSet("g_r2"))), response.getRoles());
+    assertEquals(Sets.newHashSet("r1"), response.getPrivilegeMap().getPrivilegeMap().keySet());
+    assertEquals("r2", response.getLastRoleName());
+
+    request.setLastRoleName(response.getLastRoleName());
+    response = processor.list_sentry_policy_snapshot(request);
+    assertEquals(Status.OK, fromTSentryStatus(response.getStatus()));
+    assertEquals(Sets.newHashSet(new TSentryRole("r3", Sets.newHashSet("g_r3"))), response.getRoles());
+    assertEquals(Sets.newHashSet("r3"), response.getPrivilegeMap().getPrivilegeMap().keySet());
+    assertFalse(response.isSetLastRoleName());
+
+    // only the admin can list the whole policy
+    request.setRequestorUserName("not_" + ADMIN_USER);
+    assertEquals(Status.ACCESS_DENIED,
+        fromTSentryStatus(processor.list_sentry_policy_snapshot(request).getStatus()));
+  }
+
+  @Test
+  public void testListPolicyChanges() throws Exception {
+    MSentryGMPrivilege mSentryGMPrivilege = new MSentryGMPrivilege("SOLR", "service1",
+        Arrays.asList(new Collection("c1")), SearchConstants.QUERY, true);
+    mSentryGMPrivilege.setRoles(Sets.newHashSet(new MSentryRole("r1", 290), new MSentryRole("r3", 290)));
+
+    Mockito.when(mockStore.getChangeSequence()).thenReturn(12L);
+    Mockito.when(mockStore.getChangedRoles("SOLR", 10L)).thenReturn(Sets.newHashSet("r1", "r2"));
+    Mockito.when(mockStore.getChangedRoles("SOLR", 5L)).thenReturn(null);
+    // r2 was dropped
+    Map<String, Set<String>> groupsByRole = new HashMap<String, Set<String>>();
+    groupsByRole.put("r1", Sets.newHashSet("g1"));
+    Mockito.when(mockStore.getGroupsMapByRoles("SOLR", Sets.newHashSet("r1", "r2")))
+    .thenReturn(groupsByRole);
+    Mockito.when(mockStore.getPrivilegesByAuthorizable(Matchers.anyString(), Matchers.anyString(),
+        Matchers.anySetOf(String.class), Matchers.anyListOf(Authorizable.class)))
+    .thenReturn(Sets.newHashSet(mSentryGMPrivilege));
+
+    TListSentryPolicyChangesRequest request = new TListSentryPolicyChangesRequest();
+    request.setRequestorUserName(ADMIN_USER);
+    request.setComponent("SOLR");
+    request.setServiceName("service1");
+    request.setSequence(10L);
+    TListSentryPolicyChangesResponse response = processor.list_sentry_policy_changes(request);
+    assertEquals(Status.OK, fromTSentryStatus(response.getStatus()));
+    assertEquals(12L, response.getSequence());
+    assertEquals(Sets.newHashSet("r1", "r2"), response.getChangedRoles());
+    assertEquals(Sets.newHashSet(new TSentryRole("r1", Sets.newHashSet("g1"))), response.getRoles());
+    assertEquals(Sets.newHashSet("r1"), response.getPrivilegeMap().getPrivilegeMap().keySet());
+
+    // the changes since the sequence are unknown, a snapshot must be read
+    request.setSequence(5L);
+    response = processor.list_sentry_policy_changes(request);
+    assertEquals(Status.OK, fromTSentryStatus(response.getStatus()));
+    assertEquals(12L, response.getSequence());
+    assertFalse(response.isSetChangedRoles());
+    assertFalse(response.isSetRoles());
+
+    request.setRequestorUserName("not_" + ADMIN_USER);
+    assertEquals(Status.ACCESS_DENIED,
+        fromTSentryStatus(processor.list_sentry_policy_changes(request).getStatus()));
+  }
+
   @Test(expected=SentrySiteConfigurationException.class)
   public void testConfigCannotCreateNotificationHandler() throws Exception {
     Configuration conf = new Configuration();
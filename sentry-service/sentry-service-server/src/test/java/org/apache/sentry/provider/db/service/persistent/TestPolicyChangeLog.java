@@ -0,0 +1,88 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.sentry.provider.db.service.persistent;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import com.google.common.collect.Sets;
+
+public class TestPolicyChangeLog {
+  private static final String COMPONENT = "solr";
+
+  @Test
+  public void testChangedRoles() throws Exception {
+    PolicyChangeLog changeLog = new PolicyChangeLog(10, true);
+    long start = changeLog.getSequence();
+    assertTrue(changeLog.getChangedRoles(COMPONENT, start).isEmpty());
+
+    changeLog.roleChanged(COMPONENT, "role1");
+    changeLog.roleChanged(null, "role2");
+    changeLog.roleChanged("sqoop", "role3");
+    assertEquals(start + 3, changeLog.getSequence());
+    assertEquals(Sets.newHashSet("role1", "role2"), changeLog.getChangedRoles(COMPONENT, start));
+    assertEquals(Sets.newHashSet("role2"), changeLog.getChangedRoles(COMPONENT, start + 1));
+    assertTrue(changeLog.getChangedRoles(COMPONENT, changeLog.getSequence()).isEmpty());
+  }
+
+  @Test
+  public void testAllRolesChanged() throws Exception {
+    PolicyChangeLog changeLog = new PolicyChangeLog(10, true);
+    long start = changeLog.getSequence();
+    changeLog.roleChanged(COMPONENT, "role1");
+    changeLog.allRolesChanged("sqoop");
+    assertEquals(Sets.newHashSet("role1"), changeLog.getChangedRoles(COMPONENT, start));
+    assertNull(changeLog.getChangedRoles("sqoop", start));
+
+    long afterAll = changeLog.getSequence();
+    changeLog.allRolesChanged(null);
+    assertNull(changeLog.getChangedRoles(COMPONENT, afterAll));
+  }
+
+  @Test
+  public void testUnknownSequence() throws Exception {
+    PolicyChangeLog changeLog = new PolicyChangeLog(2, true);
+    long start = changeLog.getSequence();
+    // a sequence from before a restart or from the future
+    assertNull(changeLog.getChangedRoles(COMPONENT, start - 1));
+    assertNull(changeLog.getChangedRoles(COMPONENT, start + 1));
+
+    changeLog.roleChanged(COMPONENT, "role1");
+    changeLog.roleChanged(COMPONENT, "role2");
+    assertEquals(Sets.newHashSet("role1", "role2"), changeLog.getChangedRoles(COMPONENT, start));
+    // the oldest change is trimmed from the history
+    changeLog.roleChanged(COMPONENT, "role3");
+    assertNull(changeLog.getChangedRoles(COMPONENT, start));
+    assertEquals(Sets.newHashSet("role2", "role3"),
+        changeLog.getChangedRoles(COMPONENT, start + 1));
+  }
+
+  @Test
+  public void testDisabled() throws Exception {
+    PolicyChangeLog changeLog = new PolicyChangeLog(10, false);
+    long start = changeLog.getSequence();
+    changeLog.roleChanged(COMPONENT, "role1");
+    assertEquals(start + 1, changeLog.getSequence());
+    assertNull(changeLog.getChangedRoles(COMPONENT, start));
+    assertNull(changeLog.getChangedRoles(COMPONENT, changeLog.getSequence()));
+  }
+}
@@ -19,11 +19,18 @@
 package org.apache.sentry.provider.db.service.persistent;
 
 import java.io.File;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import org.apache.commons.io.FileUtils;
 import org.apache.hadoop.conf.Configuration;
@@ -37,6 +44,7 @@ import org.apache.sentry.core.common.exception.SentryGrantDeniedException;
 import org.apache.sentry.core.common.exception.SentryNoSuchObjectException;
 import org.apache.sentry.provider.db.service.model.MSentryPrivilege;
 import org.apache.sentry.provider.db.service.model.MSentryRole;
+import org.apache.sentry.provider.db.service.thrift.SentryMetrics;
 import org.apache.sentry.provider.db.service.thrift.TSentryActiveRoleSet;
 import org.apache.sentry.provider.db.service.thrift.TSentryAuthorizable;
 import org.apache.sentry.provider.db.service.thrift.TSentryGrantOption;
@@ -49,14 +57,15 @@ import org.junit.After;
 import org.junit.AfterClass;
 import org.junit.Before;
 import org.junit.BeforeClass;
-import org.junit.Ignore;
 import org.junit.Test;
 
+import com.codahale.metrics.Counter;
 import com.google.common.collect.Iterables;
 import com.google.common.collect.Maps;
 import com.google.common.collect.Sets;
 import com.google.common.io.Files;
 
+import static com.codahale.metrics.MetricRegistry.name;
 import static org.apache.sentry.provider.db.service.persistent.QueryParamBuilder.newQueryParamBuilder;
 
 public class TestSentryStore extends org.junit.Assert {
@@ -66,7 +75,7 @@ public class TestSentryStore extends org.junit.Assert {
   private static String[] adminGroups = { "adminGroup1" };
   private static PolicyFile policyFile;
   private static File policyFilePath;
-  final long NUM_PRIVS = 60;  // > SentryStore.PrivCleaner.NOTIFY_THRESHOLD
+  final long NUM_PRIVS = 60;
   private static Configuration conf = null;
   private static char[] passwd = new char[] { '1', '2', '3'};
 
@@ -91,6 +100,8 @@ public class TestSentryStore extends org.junit.Assert {
     policyFilePath = new File(dataDir, "local_policy_file.ini");
     conf.set(ServerConfig.SENTRY_STORE_GROUP_MAPPING_RESOURCE,
         policyFilePath.getPath());
+    // the policy image is off by default, turn it on so that every test reads through it
+    conf.setBoolean(ServerConfig.SENTRY_STORE_POLICY_IMAGE_ENABLED, true);
     sentryStore = new SentryStore(conf);
   }
 
@@ -512,27 +523,16 @@ public class TestSentryStore extends org.junit.Assert {
   }
 
   private void verifyOrphanCleanup() throws Exception {
-    boolean success = false;
-    int iterations = 30;
-    while (!success && iterations > 0) {
-      Thread.sleep(1000);
-      long numDBPrivs = sentryStore.countMSentryPrivileges();
-      if (numDBPrivs < NUM_PRIVS) {
-        assertEquals(0, numDBPrivs);
-        success = true;
-      }
-      iterations--;
-    }
-    assertTrue("Failed to cleanup orphaned privileges", success);
+    assertEquals("Failed to cleanup orphaned privileges", 0,
+        sentryStore.countMSentryPrivileges());
   }
 
   /**
    * Create several privileges in the database, then delete the role that
-   * created them.  This makes them all orphans.  Wait a bit to ensure the
-   * cleanup thread runs, and expect them all to be gone from the database.
+   * created them.  This makes them all orphans, and expect them all to be
+   * gone from the database with the role.
    * @throws Exception
    */
-  @Ignore("Disabled with SENTRY-545 following SENTRY-140 problems")
   @Test
   public void testPrivilegeCleanup() throws Exception {
     final String roleName = "test-priv-cleanup";
@@ -562,7 +562,7 @@ public class TestSentryStore extends org.junit.Assert {
     // created them.
     sentryStore.dropSentryRole(roleName);
 
-    // Now wait and see if the orphans get cleaned up
+    // Now see if the orphans got cleaned up
     verifyOrphanCleanup();
   }
 
@@ -571,10 +571,9 @@ public class TestSentryStore extends org.junit.Assert {
    * they get cleaned up.  The difference here is that the privileges are
    * created by granting ALL and then removing SELECT - thus leaving INSERT.
    * This test exists because the revocation plays havoc with the orphan
-   * cleanup thread.
+   * cleanup.
    * @throws Exception
    */
-  @Ignore("Disabled with SENTRY-545 following SENTRY-140 problems")
   @Test
   public void testPrivilegeCleanup2() throws Exception {
     final String roleName = "test-priv-cleanup";
@@ -2165,6 +2164,407 @@ public class TestSentryStore extends org.junit.Assert {
 
   }
 
+  @Test
+  public void testPolicyImage() throws Exception {
+    String grantor = "g1";
+    String roleName1 = "image-role1", roleName2 = "image-role2";
+    String roleName3 = "image-role3", roleName4 = "image-role4";
+    createRole(roleName1);
+    createRole(roleName2);
+    createRole(roleName3);
+    createRole(roleName4);
+    sentryStore.alterSentryRoleAddGroups(grantor, roleName1,
+        Sets.newHashSet(new TSentryGroup("group1"), new TSentryGroup("group2")));
+    sentryStore.alterSentryRoleAddGroups(grantor, roleName2,
+        Sets.newHashSet(new TSentryGroup("group2")));
+    sentryStore.alterSentryRoleAddGroups(grantor, roleName4,
+        Sets.newHashSet(new TSentryGroup("group3")));
+    sentryStore.alterSentryRoleAddUsers(roleName3, Sets.newHashSet("user1"));
+
+    TSentryPrivilege serverPrivilege = new TSentryPrivilege("SERVER", "server1", AccessConstants.ALL);
+    TSentryPrivilege tablePrivilege = new TSentryPrivilege("TABLE", "server1", AccessConstants.SELECT);
+    tablePrivilege.setDbName("db1");
+    tablePrivilege.setTableName("tbl1");
+    TSentryPrivilege columnPrivilege = new TSentryPrivilege(tablePrivilege);
+    columnPrivilege.setPrivilegeScope("COLUMN");
+    columnPrivilege.setColumnName("c1");
+    TSentryPrivilege otherColumnPrivilege = new TSentryPrivilege(columnPrivilege);
+    otherColumnPrivilege.setColumnName("c2");
+    TSentryPrivilege uriPrivilege = new TSentryPrivilege("URI", "server1", AccessConstants.ALL);
+    uriPrivilege.setURI("hdfs://nn/warehouse");
+    // not a prefix of the URI looked up
+    TSentryPrivilege otherUriPrivilege = new TSentryPrivilege(uriPrivilege);
+    otherUriPrivilege.setURI("hdfs://nn/tmp");
+    sentryStore.alterSentryRoleGrantPrivilege(grantor, roleName1, tablePrivilege);
+    sentryStore.alterSentryRoleGrantPrivilege(grantor, roleName1, uriPrivilege);
+    sentryStore.alterSentryRoleGrantPrivilege(grantor, roleName2, tablePrivilege);
+    sentryStore.alterSentryRoleGrantPrivilege(grantor, roleName2, columnPrivilege);
+    sentryStore.alterSentryRoleGrantPrivilege(grantor, roleName2, otherColumnPrivilege);
+    sentryStore.alterSentryRoleGrantPrivilege(grantor, roleName3, serverPrivilege);
+    sentryStore.alterSentryRoleGrantPrivilege(grantor, roleName3, otherUriPrivilege);
+
+    // changes the image must follow
+    sentryStore.alterSentryRoleRevokePrivilege(grantor, roleName2, otherColumnPrivilege);
+    sentryStore.alterSentryRoleDeleteGroups(roleName1, Sets.newHashSet(new TSentryGroup("group1")));
+    sentryStore.dropSentryRole(roleName4);
+    TSentryAuthorizable newTable = toTSentryAuthorizable(tablePrivilege);
+    newTable.setTable("tbl2");
+    sentryStore.renamePrivilege(toTSentryAuthorizable(tablePrivilege), newTable);
+
+    TSentryAuthorizable server = new TSentryAuthorizable("server1");
+    TSentryAuthorizable db = new TSentryAuthorizable("server1");
+    db.setDb("db1");
+    TSentryAuthorizable table = new TSentryAuthorizable(db);
+    table.setTable("tbl2");
+    TSentryAuthorizable column = new TSentryAuthorizable(table);
+    column.setColumn("c1");
+    TSentryAuthorizable uri = new TSentryAuthorizable("server1");
+    uri.setUri("hdfs://nn/warehouse/part1");
+    List<TSentryAuthorizable> hierarchies = Arrays.asList(server, db, table, column, uri);
+
+    // a store on the same database which reads from the database
+    Configuration databaseConf = new Configuration(conf);
+    databaseConf.setBoolean(ServerConfig.SENTRY_STORE_POLICY_IMAGE_ENABLED, false);
+    SentryStore databaseStore = new SentryStore(databaseConf);
+    try {
+      Set<String> groups = Sets.newHashSet("group1", "group2", "group3");
+      Set<String> users = Sets.newHashSet("user1");
+      TSentryActiveRoleSet allRoles = new TSentryActiveRoleSet(true, new HashSet<String>());
+      assertEquals(databaseStore.listSentryPrivilegesForProvider(groups, users, allRoles, null),
+          sentryStore.listSentryPrivilegesForProvider(groups, users, allRoles, null));
+      for (TSentryAuthorizable hierarchy : hierarchies) {
+        assertEquals(databaseStore.listSentryPrivilegesForProvider(groups, users, allRoles, hierarchy),
+            sentryStore.listSentryPrivilegesForProvider(groups, users, allRoles, hierarchy));
+        assertEquals(databaseStore.listSentryPrivilegesByAuthorizable(groups, allRoles, hierarchy, false),
+            sentryStore.listSentryPrivilegesByAuthorizable(groups, allRoles, hierarchy, false));
+        assertEquals(databaseStore.listSentryPrivilegesByAuthorizable(null, allRoles, hierarchy, true),
+            sentryStore.listSentryPrivilegesByAuthorizable(null, allRoles, hierarchy, true));
+      }
+      assertTrue(sentryStore.hasAnyServerPrivileges(groups, users, allRoles, "server1"));
+      assertFalse(sentryStore.hasAnyServerPrivileges(groups, users, allRoles, "server2"));
+
+      assertEquals(databaseStore.getAllRoleNames(), sentryStore.getAllRoleNames());
+      for (String roleName : databaseStore.getAllRoleNames()) {
+        assertEquals(databaseStore.getAllTSentryPrivilegesByRoleName(roleName),
+            sentryStore.getAllTSentryPrivilegesByRoleName(roleName));
+      }
+      assertEquals(databaseStore.getRoleNamesForGroups(groups),
+          sentryStore.getRoleNamesForGroups(groups));
+      assertEquals(databaseStore.getRoleNamesForUsers(users),
+          sentryStore.getRoleNamesForUsers(users));
+      assertEquals(databaseStore.getTSentryRolesByUserNames(users),
+          sentryStore.getTSentryRolesByUserNames(users));
+      // group3 has no role left, but still exists
+      assertEquals(databaseStore.getTSentryRolesByGroupName(groups, false),
+          sentryStore.getTSentryRolesByGroupName(groups, false));
+      assertEquals(databaseStore.getTSentryRolesByGroupName(Collections.<String>singleton(null), false),
+          sentryStore.getTSentryRolesByGroupName(Collections.<String>singleton(null), false));
+      try {
+        sentryStore.getTSentryRolesByGroupName(Sets.newHashSet("group4"), false);
+        fail("SentryNoSuchObjectException should be thrown.");
+      } catch (SentryNoSuchObjectException e) {
+        // excepted exception
+      }
+    } finally {
+      databaseStore.stop();
+    }
+  }
+
+  @Test
+  public void testDirectSqlPrivilegesForProvider() throws Exception {
+    String grantor = "g1";
+    String roleName1 = "sql-role1", roleName2 = "sql-role2", roleName3 = "sql-role3";
+    createRole(roleName1);
+    createRole(roleName2);
+    createRole(roleName3);
+    sentryStore.alterSentryRoleAddGroups(grantor, roleName1,
+        Sets.newHashSet(new TSentryGroup("sql-group1")));
+    sentryStore.alterSentryRoleAddGroups(grantor, roleName2,
+        Sets.newHashSet(new TSentryGroup("sql-group1"), new TSentryGroup("sql-group2")));
+    sentryStore.alterSentryRoleAddUsers(roleName3, Sets.newHashSet("sql-user1"));
+
+    TSentryPrivilege serverPrivilege = new TSentryPrivilege("SERVER", "server1", AccessConstants.ALL);
+    TSentryPrivilege tablePrivilege = new TSentryPrivilege("TABLE", "server1", AccessConstants.SELECT);
+    tablePrivilege.setDbName("db1");
+    tablePrivilege.setTableName("tbl1");
+    TSentryPrivilege columnPrivilege = new TSentryPrivilege(tablePrivilege);
+    columnPrivilege.setPrivilegeScope("COLUMN");
+    columnPrivilege.setColumnName("c1");
+    TSentryPrivilege otherDbPrivilege = new TSentryPrivilege("DATABASE", "server1", AccessConstants.INSERT);
+    otherDbPrivilege.setDbName("db2");
+    TSentryPrivilege uriPrivilege = new TSentryPrivilege("URI", "server1", AccessConstants.ALL);
+    uriPrivilege.setURI("hdfs://nn/warehouse");
+    TSentryPrivilege otherUriPrivilege = new TSentryPrivilege(uriPrivilege);
+    otherUriPrivilege.setURI("hdfs://nn/tmp");
+    sentryStore.alterSentryRoleGrantPrivilege(grantor, roleName1, tablePrivilege);
+    sentryStore.alterSentryRoleGrantPrivilege(grantor, roleName1, uriPrivilege);
+    sentryStore.alterSentryRoleGrantPrivilege(grantor, roleName2, tablePrivilege);
+    sentryStore.alterSentryRoleGrantPrivilege(grantor, roleName2, columnPrivilege);
+    sentryStore.alterSentryRoleGrantPrivilege(grantor, roleName2, otherDbPrivilege);
+    sentryStore.alterSentryRoleGrantPrivilege(grantor, roleName3, serverPrivilege);
+    sentryStore.alterSentryRoleGrantPrivilege(grantor, roleName3, otherUriPrivilege);
+
+    TSentryAuthorizable server = new TSentryAuthorizable("server1");
+    TSentryAuthorizable db = new TSentryAuthorizable("server1");
+    db.setDb("db1");
+    TSentryAuthorizable table = new TSentryAuthorizable(db);
+    table.setTable("tbl1");
+    TSentryAuthorizable column = new TSentryAuthorizable(table);
+    column.setColumn("c1");
+    TSentryAuthorizable uri = new TSentryAuthorizable("server1");
+    uri.setUri("hdfs://nn/warehouse/part1");
+    List<TSentryAuthorizable> hierarchies = Arrays.asList(null, server, db, table, column, uri);
+
+    // a store on the same database which reads with direct SQL
+    Configuration directSqlConf = new Configuration(conf);
+    directSqlConf.setBoolean(ServerConfig.SENTRY_STORE_POLICY_IMAGE_ENABLED, false);
+    directSqlConf.setBoolean(ServerConfig.SENTRY_STORE_DIRECT_SQL, true);
+    SentryStore directSqlStore = new SentryStore(directSqlConf);
+    try {
+      Set<String> groups = Sets.newHashSet("sql-group1", "sql-group2", "sql-group3");
+      Set<String> users = Sets.newHashSet("sql-user1");
+      Set<String> noNames = new HashSet<String>();
+      TSentryActiveRoleSet allRoles = new TSentryActiveRoleSet(true, new HashSet<String>());
+      TSentryActiveRoleSet someRoles = new TSentryActiveRoleSet(false,
+          Sets.newHashSet("SQL-ROLE2", "sql-role3"));
+      for (TSentryAuthorizable hierarchy : hierarchies) {
+        for (TSentryActiveRoleSet roleSet : Arrays.asList(allRoles, someRoles)) {
+          assertEquals(sentryStore.listSentryPrivilegesForProvider(groups, users, roleSet, hierarchy),
+              directSqlStore.listSentryPrivilegesForProvider(groups, users, roleSet, hierarchy));
+          assertEquals(sentryStore.listSentryPrivilegesForProvider(groups, noNames, roleSet, hierarchy),
+              directSqlStore.listSentryPrivilegesForProvider(groups, noNames, roleSet, hierarchy));
+          assertEquals(sentryStore.listSentryPrivilegesForProvider(noNames, users, roleSet, hierarchy),
+              directSqlStore.listSentryPrivilegesForProvider(noNames, users, roleSet, hierarchy));
+        }
+      }
+      assertEquals(Sets.newHashSet("server=server1->db=db1->table=tbl1->action=select",
+          "server=server1->db=db1->table=tbl1->column=c1->action=select", "server=server1"),
+          directSqlStore.listSentryPrivilegesForProvider(groups, users, someRoles, column));
+      assertTrue(directSqlStore.listSentryPrivilegesForProvider(noNames, noNames, allRoles,
+          null).isEmpty());
+    } finally {
+      directSqlStore.stop();
+    }
+  }
+
+  @Test
+  public void testRetrieveFullPermissionImage() throws Exception {
+    String grantor = "g1";
+    String roleName1 = "image-role1", roleName2 = "image-role2";
+    createRole(roleName1);
+    createRole(roleName2);
+    sentryStore.alterSentryRoleAddGroups(grantor, roleName1,
+        Sets.newHashSet(new TSentryGroup("group1"), new TSentryGroup("group2")));
+    sentryStore.alterSentryRoleAddGroups(grantor, roleName2,
+        Sets.newHashSet(new TSentryGroup("group2")));
+
+    TSentryPrivilege dbPrivilege = new TSentryPrivilege("DATABASE", "server1", AccessConstants.ALL);
+    dbPrivilege.setDbName("db1");
+    TSentryPrivilege tablePrivilege = new TSentryPrivilege("TABLE", "server1", AccessConstants.SELECT);
+    tablePrivilege.setDbName("db1");
+    tablePrivilege.setTableName("tbl1");
+    TSentryPrivilege insertPrivilege = new TSentryPrivilege(tablePrivilege);
+    insertPrivilege.setAction(AccessConstants.INSERT);
+    TSentryPrivilege uriPrivilege = new TSentryPrivilege("URI", "server1", AccessConstants.ALL);
+    uriPrivilege.setURI("hdfs://nn/warehouse");
+    sentryStore.alterSentryRoleGrantPrivilege(grantor, roleName1, dbPrivilege);
+    sentryStore.alterSentryRoleGrantPrivilege(grantor, roleName1, tablePrivilege);
+    sentryStore.alterSentryRoleGrantPrivilege(grantor, roleName1, uriPrivilege);
+    sentryStore.alterSentryRoleGrantPrivilege(grantor, roleName2, tablePrivilege);
+    sentryStore.alterSentryRoleGrantPrivilege(grantor, roleName2, insertPrivilege);
+
+    final Map<String, Map<String, Set<String>>> privilegeImage = Maps.newHashMap();
+    final Map<String, Set<String>> roleImage = Maps.newHashMap();
+    sentryStore.retrieveFullPermissionImage(new PermissionImageHandler() {
+      @Override
+      public void handlePrivilege(String authzObj, String roleName, String action) {
+        if (!privilegeImage.containsKey(authzObj)) {
+          privilegeImage.put(authzObj, Maps.<String, Set<String>>newHashMap());
+        }
+        if (!privilegeImage.get(authzObj).containsKey(roleName)) {
+          privilegeImage.get(authzObj).put(roleName, Sets.<String>newHashSet());
+        }
+        privilegeImage.get(authzObj).get(roleName).add(action);
+      }
+
+      @Override
+      public void handleRoleGroup(String roleName, String groupName) {
+        if (!roleImage.containsKey(roleName)) {
+          roleImage.put(roleName, Sets.<String>newHashSet());
+        }
+        roleImage.get(roleName).add(groupName);
+      }
+    });
+
+    assertEquals(Sets.newHashSet("db1", "db1.tbl1"), privilegeImage.keySet());
+    assertEquals(Collections.singletonMap(roleName1, Collections.singleton("*")),
+        privilegeImage.get("db1"));
+    assertEquals(Sets.newHashSet("SELECT"), privilegeImage.get("db1.tbl1").get(roleName1));
+    assertEquals(Sets.newHashSet("SELECT", "INSERT"), privilegeImage.get("db1.tbl1").get(roleName2));
+    assertEquals(Sets.newHashSet("group1", "group2"), roleImage.get(roleName1));
+    assertEquals(Sets.newHashSet("group2"), roleImage.get(roleName2));
+    // only the roles with groups are in the image
+    assertEquals(Sets.newHashSet(roleName1, roleName2), roleImage.keySet());
+
+    Map<String, String> tablePrivileges = sentryStore.retrieveFullPrivilegeImage().get("db1.tbl1");
+    assertEquals(Sets.newHashSet("SELECT", "INSERT"),
+        Sets.newHashSet(tablePrivileges.get(roleName2).split(",")));
+    assertEquals(2, sentryStore.retrieveFullRoleImage().get(roleName1).size());
+  }
+
+  @Test
+  public void testGrantRevokePrivilegesInBulk() throws Exception {
+    String grantor = "g1";
+    String roleName1 = "bulk-role1", roleName2 = "bulk-role2";
+    createRole(roleName1);
+    createRole(roleName2);
+
+    TSentryPrivilege tablePrivilege = new TSentryPrivilege("TABLE", "server1", AccessConstants.SELECT);
+    tablePrivilege.setDbName("db1");
+    tablePrivilege.setTableName("tbl1");
+    Set<TSentryPrivilege> columnPrivileges = Sets.newHashSet();
+    for (int i = 0; i < 100; i++) {
+      TSentryPrivilege columnPrivilege = new TSentryPrivilege(tablePrivilege);
+      columnPrivilege.setPrivilegeScope("COLUMN");
+      columnPrivilege.setColumnName("c" + i);
+      columnPrivileges.add(columnPrivilege);
+    }
+    TSentryPrivilege otherTablePrivilege = new TSentryPrivilege(tablePrivilege);
+    otherTablePrivilege.setTableName("tbl2");
+    TSentryPrivilege uriPrivilege = new TSentryPrivilege("URI", "server1", AccessConstants.ALL);
+    uriPrivilege.setURI("hdfs://nn/warehouse");
+
+    // the second role shares the privilege rows of the first one
+    sentryStore.alterSentryRoleGrantPrivilege(grantor, roleName2, tablePrivilege);
+    Set<TSentryPrivilege> privileges = Sets.newHashSet(columnPrivileges);
+    privileges.add(tablePrivilege);
+    privileges.add(otherTablePrivilege);
+    privileges.add(uriPrivilege);
+    sentryStore.alterSentryRoleGrantPrivileges(grantor, roleName1, privileges);
+    assertEquals(103, sentryStore.getAllTSentryPrivilegesByRoleName(roleName1).size());
+    // the table privilege row is shared with the second role
+    assertEquals(Long.valueOf(103), sentryStore.getPrivilegeCountGauge().getValue());
+
+    // granting ALL replaces SELECT, granting SELECT under ALL does nothing
+    TSentryPrivilege allOnTable = new TSentryPrivilege(otherTablePrivilege);
+    allOnTable.setAction(AccessConstants.ALL);
+    TSentryPrivilege insertOnTable = new TSentryPrivilege(otherTablePrivilege);
+    insertOnTable.setAction(AccessConstants.INSERT);
+    sentryStore.alterSentryRoleGrantPrivileges(grantor, roleName1,
+        Sets.newHashSet(allOnTable, insertOnTable));
+    Set<TSentryPrivilege> granted = sentryStore.getAllTSentryPrivilegesByRoleName(roleName1);
+    assertEquals(103, granted.size());
+    for (TSentryPrivilege privilege : granted) {
+      if ("tbl2".equals(privilege.getTableName())) {
+        assertEquals(AccessConstants.ALL, privilege.getAction());
+      }
+    }
+
+    // revoking the columns and the table leaves the others
+    Set<TSentryPrivilege> revoked = Sets.newHashSet(columnPrivileges);
+    revoked.add(tablePrivilege);
+    sentryStore.alterSentryRoleRevokePrivileges(grantor, roleName1, revoked);
+    assertEquals(2, sentryStore.getAllTSentryPrivilegesByRoleName(roleName1).size());
+    assertEquals(1, sentryStore.getAllTSentryPrivilegesByRoleName(roleName2).size());
+
+    try {
+      sentryStore.alterSentryRoleGrantPrivileges(grantor, "bulk-role3", privileges);
+      fail("SentryNoSuchObjectException should be thrown.");
+    } catch (SentryNoSuchObjectException e) {
+      // excepted exception
+    }
+  }
+
+  @Test
+  public void testRevokeDeletesOrphanedPrivileges() throws Exception {
+    String grantor = "g1";
+    String roleName1 = "orphan-role1", roleName2 = "orphan-role2";
+    createRole(roleName1);
+    createRole(roleName2);
+
+    TSentryPrivilege privilege = new TSentryPrivilege("TABLE", "server1", AccessConstants.ALL);
+    privilege.setDbName("db1");
+    privilege.setTableName("tbl1");
+    sentryStore.alterSentryRoleGrantPrivilege(grantor, roleName1, privilege);
+    sentryStore.alterSentryRoleGrantPrivilege(grantor, roleName2, privilege);
+    assertEquals(1, sentryStore.countMSentryPrivileges());
+
+    // the privilege is still granted to the second role
+    sentryStore.alterSentryRoleRevokePrivilege(grantor, roleName1, privilege);
+    assertEquals(1, sentryStore.countMSentryPrivileges());
+
+    // revoking SELECT from ALL replaces it with INSERT
+    TSentryPrivilege select = new TSentryPrivilege(privilege);
+    select.setAction(AccessConstants.SELECT);
+    sentryStore.alterSentryRoleRevokePrivilege(grantor, roleName2, select);
+    assertEquals(1, sentryStore.countMSentryPrivileges());
+    assertEquals(AccessConstants.INSERT, Iterables.getOnlyElement(
+        sentryStore.getAllTSentryPrivilegesByRoleName(roleName2)).getAction());
+
+    // granting ALL replaces INSERT
+    sentryStore.alterSentryRoleGrantPrivilege(grantor, roleName2, privilege);
+    assertEquals(1, sentryStore.countMSentryPrivileges());
+
+    sentryStore.alterSentryRoleRevokePrivilege(grantor, roleName2, privilege);
+    assertEquals(0, sentryStore.countMSentryPrivileges());
+  }
+
+  @Test
+  public void testGroupCommit() throws Exception {
+    int threadCount = 8;
+    Configuration groupCommitConf = new Configuration(conf);
+    groupCommitConf.setBoolean(ServerConfig.SENTRY_STORE_GROUP_COMMIT_ENABLED, true);
+    // the group is committed once all the threads submitted their block
+    groupCommitConf.setLong(ServerConfig.SENTRY_STORE_GROUP_COMMIT_WINDOW_MILLIS, 10000);
+    groupCommitConf.setInt(ServerConfig.SENTRY_STORE_GROUP_COMMIT_MAX_SIZE, threadCount);
+    // read the roles back from the database, role0 is created through another store
+    groupCommitConf.setBoolean(ServerConfig.SENTRY_STORE_POLICY_IMAGE_ENABLED, false);
+    final SentryStore groupCommitStore = new SentryStore(groupCommitConf);
+    Counter groupedTransactions = SentryMetrics.getInstance().getCounter(
+        name(TransactionManager.class, "transactions", "grouped"));
+    Counter failedTransactions = SentryMetrics.getInstance().getCounter(
+        name(TransactionManager.class, "transactions", "failed"));
+    long groupedBefore = groupedTransactions.getCount();
+    long failedBefore = failedTransactions.getCount();
+    try {
+      createRole("group-commit-role0");
+      final CountDownLatch start = new CountDownLatch(1);
+      List<Future<Exception>> results = new ArrayList<Future<Exception>>();
+      ExecutorService executor = Executors.newFixedThreadPool(threadCount);
+      try {
+        // one of the roles already exists, only its request fails
+        for (int i = 0; i < threadCount; i++) {
+          final String roleName = "group-commit-role" + i;
+          results.add(executor.submit(new Callable<Exception>() {
+            @Override
+            public Exception call() throws Exception {
+              start.await();
+              try {
+                groupCommitStore.createSentryRole(roleName);
+                return null;
+              } catch (Exception e) {
+                return e;
+              }
+            }
+          }));
+        }
+        start.countDown();
+        assertTrue(results.get(0).get() instanceof SentryAlreadyExistsException);
+        for (int i = 1; i < threadCount; i++) {
+          assertNull(results.get(i).get());
+        }
+      } finally {
+        executor.shutdown();
+      }
+      assertEquals(threadCount, groupCommitStore.getAllRoleNames().size());
+      // the failed block got its exception and the others were committed together
+      assertEquals(threadCount - 1, groupedTransactions.getCount() - groupedBefore);
+      assertEquals(1, failedTransactions.getCount() - failedBefore);
+    } finally {
+      groupCommitStore.stop();
+    }
+  }
+
   @Test
   public void testSentryVersionCheck() throws Exception {
     // don't verify version, the current version willll be set in MSentryVersion
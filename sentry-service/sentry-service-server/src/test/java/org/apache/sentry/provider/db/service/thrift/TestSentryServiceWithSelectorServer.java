@@ -0,0 +1,143 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.sentry.provider.db.service.thrift;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.InputStream;
+import java.net.Socket;
+import java.security.PrivilegedExceptionAction;
+import java.util.List;
+import java.util.Set;
+
+import org.apache.sentry.service.thrift.SentryServiceClientFactory;
+import org.apache.sentry.service.thrift.SentryServiceIntegrationBase;
+import org.apache.sentry.service.thrift.ServiceConstants.ServerConfig;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+
+/**
+ * Test the kerberos clients of a SentryService serving its connections with
+ * the selector server.
+ */
+public class TestSentryServiceWithSelectorServer extends SentryServiceIntegrationBase {
+
+  private static final int WORKER_THREADS = 2;
+  private static final int TIMEOUT_MS = 1000;
+
+  @BeforeClass
+  public static void setup() throws Exception {
+    kerberos = true;
+    pooled = false;
+    conf.set(ServerConfig.RPC_SERVER_TYPE, ServerConfig.RPC_SERVER_TYPE_SELECTOR);
+    conf.setInt(ServerConfig.RPC_WORKER_THREADS, WORKER_THREADS);
+    conf.setInt(ServerConfig.RPC_READ_TIMEOUT_MS, TIMEOUT_MS);
+    conf.setInt(ServerConfig.RPC_HANDSHAKE_TIMEOUT_MS, TIMEOUT_MS);
+    beforeSetup();
+    setupConf();
+    startSentryService();
+    afterSetup();
+  }
+
+  @Test
+  public void testCreateRole() throws Exception {
+    runTestAsSubject(new TestOperation() {
+      @Override
+      public void runTestAsSubject() throws Exception {
+        String requestorUserName = ADMIN_USER;
+        setLocalGroupMapping(requestorUserName, Sets.newHashSet(ADMIN_GROUP));
+        writePolicyFile();
+        String roleName = "admin_r";
+        client.dropRoleIfExists(requestorUserName, roleName);
+        client.createRole(requestorUserName, roleName);
+        assertEquals(1, client.listRoles(requestorUserName).size());
+        client.dropRole(requestorUserName, roleName);
+      }
+    });
+  }
+
+  /**
+   * The open connections of the clients outnumber the worker threads.
+   */
+  @Test
+  public void testMoreConnectionsThanWorkers() throws Exception {
+    runTestAsSubject(new TestOperation() {
+      @Override
+      public void runTestAsSubject() throws Exception {
+        String requestorUserName = ADMIN_USER;
+        setLocalGroupMapping(requestorUserName, Sets.newHashSet(ADMIN_GROUP));
+        writePolicyFile();
+        List<SentryPolicyServiceClient> clients = Lists.newArrayList();
+        try {
+          for (int i = 0; i < 4 * WORKER_THREADS; i++) {
+            SentryPolicyServiceClient newClient = clientUgi.doAs(
+                new PrivilegedExceptionAction<SentryPolicyServiceClient>() {
+                  @Override
+                  public SentryPolicyServiceClient run() throws Exception {
+                    return SentryServiceClientFactory.create(conf);
+                  }
+                });
+            clients.add(newClient);
+            newClient.createRole(requestorUserName, "role" + i);
+          }
+          for (SentryPolicyServiceClient openClient : clients) {
+            Set<TSentryRole> roles = openClient.listRoles(requestorUserName);
+            assertEquals(clients.size(), roles.size());
+          }
+        } finally {
+          for (SentryPolicyServiceClient openClient : clients) {
+            openClient.close();
+          }
+        }
+      }
+    });
+  }
+
+  /**
+   * Clients which stall in the handshake occupy every worker thread until the
+   * server closes their connections, then the other clients are served again.
+   */
+  @Test(timeout = 60000)
+  public void testStalledClients() throws Exception {
+    List<Socket> stalledSockets = Lists.newArrayList();
+    try {
+      for (int i = 0; i < WORKER_THREADS; i++) {
+        Socket socket = new Socket(server.getAddress().getAddress(), server.getAddress().getPort());
+        // the status of a SASL message wakes the selector, its length never comes
+        socket.getOutputStream().write(0x01);
+        socket.getOutputStream().flush();
+        stalledSockets.add(socket);
+      }
+      for (Socket socket : stalledSockets) {
+        socket.setSoTimeout(30 * TIMEOUT_MS);
+        InputStream in = socket.getInputStream();
+        while (in.read() != -1) {
+          // wait for the server to close the connection
+        }
+      }
+    } finally {
+      for (Socket socket : stalledSockets) {
+        socket.close();
+      }
+    }
+    testCreateRole();
+  }
+}